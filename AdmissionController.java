@@ -0,0 +1,238 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This AdmissionController sits in front of the shortest path searches run by the WebApp. It lets
+ * a limited number of searches run at the same time, holds a bounded number of further requests in
+ * a wait queue, and sheds everything beyond that right away so that the server can answer with a
+ * 503 instead of letting latency grow without bound.
+ *
+ * The concurrency limit adapts to the observed search latency with an AIMD rule: every search that
+ * finishes within the target latency while the limit is in use grows the limit additively (by one
+ * for each full limit's worth of searches), and a search that is slower than the target shrinks
+ * the limit multiplicatively. The limit shrinks at most once per window of searches: only a slow
+ * search admitted after the last decrease shrinks it again, so a burst of slow searches that ran
+ * together backs off once instead of once per search.
+ */
+public class AdmissionController {
+
+  // factor the limit is multiplied by when a search is slower than the target latency
+  private static final double BACKOFF_RATIO = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final int maxQueueLength;
+  private final long targetLatencyNanos;
+
+  // guards all of the fields below, and signals waiting requests when a permit is released
+  private final ReentrantLock lock = new ReentrantLock(true);
+  private final Condition permitReleased = lock.newCondition();
+  private double limit;
+  private int inFlight = 0;
+  private int queueLength = 0;
+  // the number of permits handed out so far, and how many had been when the limit last shrank
+  private long admissions = 0;
+  private long lastBackoff = 0;
+
+  // counters for monitoring, safe to read without holding the lock
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder queued = new LongAdder();
+  private final LongAdder shed = new LongAdder();
+
+  /**
+   * A Permit is handed to every admitted request, and must be released once its search finishes.
+   */
+  public class Permit {
+    private final long startNanos = System.nanoTime();
+    private final long admission;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(long admission) {
+      this.admission = admission;
+    }
+
+    /**
+     * Releases this permit so that a waiting request can run, and reports the latency of the
+     * search to the adaptive limiter.
+     */
+    public void release() {
+      if (released.compareAndSet(false, true))
+        onRelease(admission, System.nanoTime() - startNanos);
+    }
+  }
+
+  /**
+   * Constructor for an admission controller with the provided limits.
+   * 
+   * @param initialLimit        number of searches allowed to run at the same time at first
+   * @param minLimit            the concurrency limit never shrinks below this value
+   * @param maxLimit            the concurrency limit never grows above this value
+   * @param maxQueueLength      number of requests that may wait for a permit before shedding
+   * @param targetLatencyMillis searches slower than this shrink the concurrency limit
+   */
+  public AdmissionController(int initialLimit, int minLimit, int maxLimit, int maxQueueLength,
+      long targetLatencyMillis) {
+    if (minLimit < 1 || maxLimit < minLimit || maxQueueLength < 0)
+      throw new IllegalArgumentException("Invalid admission control limits");
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.maxQueueLength = maxQueueLength;
+    this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+  }
+
+  /**
+   * Tries to admit a request. When the concurrency limit is reached the request waits in the queue
+   * for up to maxWaitMillis, and when the queue is full it is shed immediately.
+   * 
+   * @param maxWaitMillis the longest time that this request may wait in the queue
+   * @return a permit that must be released when the search finishes, or null if the request was
+   *         shed
+   * @throws InterruptedException if the thread is interrupted while waiting in the queue
+   */
+  public Permit tryAcquire(long maxWaitMillis) throws InterruptedException {
+    lock.lock();
+    try {
+      // admit right away when there is room under the current limit
+      if (queueLength == 0 && inFlight < (int) limit) {
+        return admit();
+      }
+      // shed right away when the wait queue is full
+      if (queueLength >= maxQueueLength) {
+        shed.increment();
+        return null;
+      }
+      // otherwise wait in the queue for a permit to be released
+      queued.increment();
+      queueLength++;
+      try {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        while (inFlight >= (int) limit) {
+          if (remaining <= 0) {
+            shed.increment();
+            return null;
+          }
+          remaining = permitReleased.awaitNanos(remaining);
+        }
+        return admit();
+      } finally {
+        queueLength--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // hands out a permit while the lock is held
+  private Permit admit() {
+    inFlight++;
+    accepted.increment();
+    return new Permit(++admissions);
+  }
+
+  // frees a permit and adjusts the concurrency limit based on the search latency
+  private void onRelease(long admission, long latencyNanos) {
+    lock.lock();
+    try {
+      if (latencyNanos > targetLatencyNanos) {
+        // multiplicative decrease when searches are slower than the target, unless the search
+        // was already running when the limit last shrank
+        if (admission > lastBackoff) {
+          limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+          lastBackoff = admissions;
+        }
+      } else if (inFlight >= (int) limit) {
+        // additive increase, only while the current limit is actually being used
+        limit = Math.min(maxLimit, limit + 1.0 / limit);
+      }
+      inFlight--;
+      permitReleased.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the current concurrency limit.
+   * 
+   * @return the number of searches allowed to run at the same time
+   */
+  public int getLimit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the number of searches that are running right now.
+   * 
+   * @return the number of permits that have not been released yet
+   */
+  public int getInFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the number of requests waiting in the queue right now.
+   * 
+   * @return the current length of the wait queue
+   */
+  public int getQueueLength() {
+    lock.lock();
+    try {
+      return queueLength;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the number of requests that have been admitted so far.
+   * 
+   * @return the total number of accepted requests
+   */
+  public long getAcceptedCount() {
+    return accepted.sum();
+  }
+
+  /**
+   * Retrieves the number of requests that had to wait in the queue so far.
+   * 
+   * @return the total number of queued requests
+   */
+  public long getQueuedCount() {
+    return queued.sum();
+  }
+
+  /**
+   * Retrieves the number of requests that have been shed so far.
+   * 
+   * @return the total number of shed requests
+   */
+  public long getShedCount() {
+    return shed.sum();
+  }
+
+  /**
+   * Describes the current state and counters of this controller, one value per line.
+   * 
+   * @return a plain text summary of this controller
+   */
+  @Override
+  public String toString() {
+    return "limit " + getLimit() + "\n" + "in_flight " + getInFlight() + "\n" + "queue_length "
+        + getQueueLength() + "\n" + "accepted " + getAcceptedCount() + "\n" + "queued "
+        + getQueuedCount() + "\n" + "shed " + getShedCount() + "\n";
+  }
+}
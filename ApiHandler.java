@@ -0,0 +1,680 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * This ApiHandler answers the machine readable query API that WebApp serves next to its HTML pages:
+ * 
+ * /api/path?start=A&end=B returns the shortest path from A to B
+ * /api/path?start=A&end=B&depart=08:55 returns the path that arrives at B earliest leaving at 8:55
+ * /api/furthest?from=A returns the furthest destination from A and the path to it
+ * /api/locations returns the list of all locations, with an ETag so clients can revalidate it
+ * /api/reachable?from=A&minutes=5 returns every location within a 5 minute walk of A, closest first
+ * /api/nearest?from=A&facility=library&k=3 returns the paths to the 3 libraries nearest to A
+ * /api/itinerary?stops=A;B;C&return=true returns the fastest round trip from A through B and C
+ * /api/bottlenecks?k=10&samples=256 returns the 10 locations and walkways most shortest paths use
+ *
+ * Bottlenecks are estimated from 256 sampled sources unless samples is given, and samples=0
+ * computes them exactly from every source, which can take much longer on a large campus.
+ *
+ * Responses are compact JSON by default. Clients that send format=binary in the query, or an
+ * Accept header of application/x-campus-binary, get a length-prefixed binary encoding instead: a
+ * status byte (0 found, 1 no path, 2 timed out) for path queries, followed by an int count of
+ * locations, each location as an int byte length and its UTF-8 bytes, and then count-1 walking
+ * times as doubles. The location list is encoded as just the count and the locations, and reachable
+ * locations as a status byte, the locations, and then one walking time for each of them. Nearest
+ * facilities are encoded as an int count of paths, followed by each path encoded as above, and an
+ * itinerary as the path that visits its stops, followed by its stops in order as locations. All
+ * ints and doubles are big-endian. Larger responses are gzipped when the client accepts it.
+ */
+public class ApiHandler {
+
+  // content type of the binary encoding
+  public static final String BINARY_TYPE = "application/x-campus-binary";
+  // sources that bottlenecks are estimated from when a request does not ask for a number
+  private static final int DEFAULT_BOTTLENECK_SAMPLES = 256;
+  // responses smaller than this are not worth compressing
+  private static final int GZIP_MIN_BYTES = 512;
+  // one reusable json writer per handler thread
+  private static final ThreadLocal<JsonWriter> WRITERS =
+      ThreadLocal.withInitial(() -> new JsonWriter(4096));
+
+  // revalidations of the location list that were answered with 304 Not Modified, or not
+  private static final MetricsRegistry.Counter ETAG_HITS =
+      MetricsRegistry.getDefault().cacheRequests("locations_etag", true);
+  private static final MetricsRegistry.Counter ETAG_MISSES =
+      MetricsRegistry.getDefault().cacheRequests("locations_etag", false);
+
+  private final BackendInterface backend;
+  private final AdmissionController admission;
+  private final long maxQueueWaitMillis;
+  private final int retryAfterSeconds;
+  // encodings of the location list, built on first use since the list does not change
+  private volatile EncodedLocations encodedLocations = null;
+
+  // the location list in every encoding that it is served in, along with its ETag
+  private static class EncodedLocations {
+    byte[] json;
+    byte[] jsonGzip;
+    byte[] binary;
+    byte[] binaryGzip;
+    String etag;
+  }
+
+  /**
+   * Constructor for a handler that answers queries with the provided backend.
+   * 
+   * @param backend            computes the answers to queries
+   * @param admission          admits path and furthest queries, or sheds them when overloaded
+   * @param maxQueueWaitMillis the longest time a query may wait to be admitted
+   * @param retryAfterSeconds  the time clients are asked to wait before retrying a shed query
+   */
+  public ApiHandler(BackendInterface backend, AdmissionController admission,
+      long maxQueueWaitMillis, int retryAfterSeconds) {
+    this.backend = backend;
+    this.admission = admission;
+    this.maxQueueWaitMillis = maxQueueWaitMillis;
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  /**
+   * Http request handler for the context "/api/path".
+   * 
+   * @param exchange the request to answer
+   */
+  public void handlePath(HttpExchange exchange) {
+    try {
+      Map<String, String> args = parseArgs(exchange);
+      if (args == null)
+        return;
+      String start = args.get("start");
+      String end = args.get("end");
+      if (start == null || end == null) {
+        sendError(exchange, 400, "Both start and end locations are required.");
+        return;
+      }
+      LocalTime departure;
+      try {
+        departure = args.containsKey("depart") ? LocalTime.parse(args.get("depart")) : null;
+      } catch (DateTimeParseException e) {
+        sendError(exchange, 400, "The departure time must be given as HH:MM.");
+        return;
+      }
+      PathResult result = admitted(exchange, () -> departure == null
+          ? backend.findShortestPath(start, end) : backend.findShortestPath(start, end, departure));
+      if (result != null)
+        sendPath(exchange, args, result, null);
+    } catch (Exception e) {
+      sendServerError(exchange, e);
+    }
+  }
+
+  /**
+   * Http request handler for the context "/api/furthest".
+   * 
+   * @param exchange the request to answer
+   */
+  public void handleFurthest(HttpExchange exchange) {
+    try {
+      Map<String, String> args = parseArgs(exchange);
+      if (args == null)
+        return;
+      String from = args.get("from");
+      if (from == null) {
+        sendError(exchange, 400, "A from location is required.");
+        return;
+      }
+      Object[] answer = admitted(exchange, () -> {
+        try {
+          String furthest = backend.getFurthestDestinationFrom(from);
+          return new Object[] {furthest, backend.findShortestPath(from, furthest)};
+        } catch (SearchTimeoutException e) {
+          return new Object[] {null, PathResult.timedOut()};
+        } catch (NoSuchElementException e) {
+          return new Object[] {null, PathResult.noPath()};
+        }
+      });
+      if (answer != null)
+        sendPath(exchange, args, (PathResult) answer[1], (String) answer[0]);
+    } catch (Exception e) {
+      sendServerError(exchange, e);
+    }
+  }
+
+  /**
+   * Http request handler for the context "/api/reachable".
+   * 
+   * @param exchange the request to answer
+   */
+  @SuppressWarnings("unchecked")
+  public void handleReachable(HttpExchange exchange) {
+    try {
+      Map<String, String> args = parseArgs(exchange);
+      if (args == null)
+        return;
+      String from = args.get("from");
+      double minutes;
+      try {
+        minutes = Double.parseDouble(args.get("minutes"));
+      } catch (NullPointerException | NumberFormatException e) {
+        minutes = Double.NaN;
+      }
+      if (from == null || !(minutes >= 0)) {
+        sendError(exchange, 400, "A from location and a number of minutes are required.");
+        return;
+      }
+      double seconds = minutes * 60;
+      Object[] answer = admitted(exchange, () -> {
+        try {
+          return new Object[] {PathResult.Status.FOUND,
+              backend.findLocationsWithin(from, seconds)};
+        } catch (SearchTimeoutException e) {
+          return new Object[] {PathResult.Status.TIMED_OUT, Map.of()};
+        } catch (NoSuchElementException e) {
+          return new Object[] {PathResult.Status.NO_PATH, Map.of()};
+        }
+      });
+      if (answer != null)
+        sendReachable(exchange, args, (PathResult.Status) answer[0],
+            (Map<String, Double>) answer[1]);
+    } catch (Exception e) {
+      sendServerError(exchange, e);
+    }
+  }
+
+  /**
+   * Http request handler for the context "/api/nearest".
+   * 
+   * @param exchange the request to answer
+   */
+  public void handleNearest(HttpExchange exchange) {
+    try {
+      Map<String, String> args = parseArgs(exchange);
+      if (args == null)
+        return;
+      String from = args.get("from");
+      String facility = args.get("facility");
+      int k;
+      try {
+        k = Integer.parseInt(args.getOrDefault("k", "1"));
+      } catch (NumberFormatException e) {
+        k = 0;
+      }
+      if (from == null || facility == null || k < 1) {
+        sendError(exchange, 400, "A from location, a facility and a positive k are required.");
+        return;
+      }
+      int count = k;
+      List<PathResult> nearest = admitted(exchange, () -> {
+        try {
+          return backend.findNearest(from, backend.findLocationsMatching(facility), count);
+        } catch (SearchTimeoutException e) {
+          return List.of(PathResult.timedOut());
+        } catch (NoSuchElementException e) {
+          return List.of();
+        }
+      });
+      if (nearest != null)
+        sendPaths(exchange, args, nearest);
+    } catch (Exception e) {
+      sendServerError(exchange, e);
+    }
+  }
+
+  /**
+   * Http request handler for the context "/api/itinerary".
+   * 
+   * @param exchange the request to answer
+   */
+  public void handleItinerary(HttpExchange exchange) {
+    try {
+      Map<String, String> args = parseArgs(exchange);
+      if (args == null)
+        return;
+      List<String> stops = new ArrayList<>();
+      for (String stop : args.getOrDefault("stops", "").split(";"))
+        if (!stop.trim().isEmpty())
+          stops.add(stop.trim());
+      if (stops.isEmpty()) {
+        sendError(exchange, 400, "A list of stops separated by ; is required.");
+        return;
+      }
+      boolean returnToStart = "true".equals(args.get("return"));
+      Object[] answer = admitted(exchange, () -> {
+        try {
+          Itinerary itinerary = backend.planItinerary(stops, returnToStart);
+          return new Object[] {itinerary, itinerary.getPath()};
+        } catch (SearchTimeoutException e) {
+          return new Object[] {null, PathResult.timedOut()};
+        } catch (NoSuchElementException e) {
+          return new Object[] {null, PathResult.noPath()};
+        }
+      });
+      if (answer != null)
+        sendItinerary(exchange, args, (Itinerary) answer[0], (PathResult) answer[1]);
+    } catch (Exception e) {
+      sendServerError(exchange, e);
+    }
+  }
+
+  /**
+   * Http request handler for the context "/api/bottlenecks".
+   * 
+   * @param exchange the request to answer
+   */
+  public void handleBottlenecks(HttpExchange exchange) {
+    try {
+      Map<String, String> args = parseArgs(exchange);
+      if (args == null)
+        return;
+      int k;
+      int samples;
+      try {
+        k = Integer.parseInt(args.getOrDefault("k", "10"));
+        samples = args.containsKey("samples") ? Integer.parseInt(args.get("samples"))
+            : DEFAULT_BOTTLENECK_SAMPLES;
+      } catch (NumberFormatException e) {
+        k = 0;
+        samples = -1;
+      }
+      if (k < 1 || samples < 0) {
+        sendError(exchange, 400, "A positive k and a non-negative number of samples are required.");
+        return;
+      }
+      int sampled = samples;
+      Object[] answer = admitted(exchange, () -> {
+        try {
+          return new Object[] {PathResult.Status.FOUND, backend.computeBetweenness(sampled)};
+        } catch (SearchTimeoutException e) {
+          return new Object[] {PathResult.Status.TIMED_OUT, null};
+        }
+      });
+      if (answer != null)
+        sendBottlenecks(exchange, (PathResult.Status) answer[0], (Betweenness) answer[1], k);
+    } catch (Exception e) {
+      sendServerError(exchange, e);
+    }
+  }
+
+  /**
+   * Http request handler for the context "/api/locations".
+   * 
+   * @param exchange the request to answer
+   */
+  public void handleLocations(HttpExchange exchange) {
+    try {
+      Map<String, String> args = parseArgs(exchange);
+      if (args == null)
+        return;
+      EncodedLocations locations = getEncodedLocations();
+      exchange.getResponseHeaders().set("ETag", locations.etag);
+      exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+      exchange.getResponseHeaders().set("Vary", "Accept, Accept-Encoding");
+      // let clients that already hold the current list skip downloading it again
+      String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+      if (ifNoneMatch != null && etagMatches(ifNoneMatch, locations.etag)) {
+        ETAG_HITS.increment();
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return;
+      }
+      ETAG_MISSES.increment();
+      boolean binary = wantsBinary(exchange, args);
+      boolean gzip = acceptsGzip(exchange);
+      byte[] body = binary ? (gzip ? locations.binaryGzip : locations.binary)
+          : (gzip ? locations.jsonGzip : locations.json);
+      if (gzip)
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+      send(exchange, 200, binary ? BINARY_TYPE : "application/json", body);
+    } catch (Exception e) {
+      sendServerError(exchange, e);
+    }
+  }
+
+  // parses the query string, or answers 400 and returns null when it is malformed
+  private static Map<String, String> parseArgs(HttpExchange exchange) throws IOException {
+    try {
+      return WebApp.parseQuery(exchange.getRequestURI().getRawQuery());
+    } catch (IllegalArgumentException e) {
+      sendError(exchange, 400, "The query must be a list of key=value pairs separated by &.");
+      return null;
+    }
+  }
+
+  // a computation that runs once the request has been admitted
+  private interface Search<T> {
+    T run();
+  }
+
+  // runs the search under admission control, or answers 503 and returns null when it is shed
+  private <T> T admitted(HttpExchange exchange, Search<T> search)
+      throws IOException, InterruptedException {
+    AdmissionController.Permit permit = admission.tryAcquire(maxQueueWaitMillis);
+    if (permit == null) {
+      exchange.getResponseHeaders().set("Retry-After", Integer.toString(retryAfterSeconds));
+      sendError(exchange, 503, "The server is overloaded, please retry later.");
+      return null;
+    }
+    try {
+      return search.run();
+    } finally {
+      permit.release();
+    }
+  }
+
+  // writes a path result in the encoding that the client asked for
+  private void sendPath(HttpExchange exchange, Map<String, String> args, PathResult result,
+      String destination) throws IOException {
+    if (wantsBinary(exchange, args)) {
+      sendEncoded(exchange, 200, BINARY_TYPE, encodeBinary(result));
+      return;
+    }
+    JsonWriter json = WRITERS.get().reset();
+    writePath(json, result, destination);
+    sendJson(exchange, 200, json);
+  }
+
+  // writes a list of path results, each with its destination, in the encoding that the client
+  // asked for
+  private void sendPaths(HttpExchange exchange, Map<String, String> args, List<PathResult> results)
+      throws IOException {
+    if (wantsBinary(exchange, args)) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(results.size());
+      for (PathResult result : results)
+        out.write(encodeBinary(result));
+      out.flush();
+      sendEncoded(exchange, 200, BINARY_TYPE, bytes.toByteArray());
+      return;
+    }
+    JsonWriter json = WRITERS.get().reset();
+    json.beginObject().name("paths").beginArray();
+    for (PathResult result : results) {
+      List<String> locations = result.getLocations();
+      writePath(json, result, locations.isEmpty() ? null : locations.get(locations.size() - 1));
+    }
+    json.endArray().endObject();
+    sendJson(exchange, 200, json);
+  }
+
+  // writes an itinerary, or the reason there is none, in the encoding that the client asked for
+  private void sendItinerary(HttpExchange exchange, Map<String, String> args,
+      Itinerary itinerary, PathResult path) throws IOException {
+    List<String> stops = itinerary == null ? List.of() : itinerary.getStops();
+    if (wantsBinary(exchange, args)) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.write(encodeBinary(path));
+      writeLocations(out, stops);
+      out.flush();
+      sendEncoded(exchange, 200, BINARY_TYPE, bytes.toByteArray());
+      return;
+    }
+    JsonWriter json = WRITERS.get().reset();
+    json.beginObject();
+    json.name("stops").beginArray();
+    for (String stop : stops)
+      json.value(stop);
+    json.endArray();
+    json.name("optimal").value(itinerary != null && itinerary.isOptimal());
+    json.name("path");
+    writePath(json, path, null);
+    json.endObject();
+    sendJson(exchange, 200, json);
+  }
+
+  // writes a path result as a json object
+  private static void writePath(JsonWriter json, PathResult result, String destination) {
+    json.beginObject();
+    json.name("status").value(result.getStatus().name().toLowerCase());
+    if (destination != null)
+      json.name("destination").value(destination);
+    json.name("locations").beginArray();
+    for (String location : result.getLocations())
+      json.value(location);
+    json.endArray();
+    json.name("times").beginArray();
+    for (double time : result.getTimes())
+      json.value(time);
+    json.endArray();
+    json.name("totalTime").value(result.getTotalTime());
+    json.endObject();
+  }
+
+  // writes the k busiest locations and walkways as json
+  private void sendBottlenecks(HttpExchange exchange, PathResult.Status status,
+      Betweenness betweenness, int k) throws IOException {
+    JsonWriter json = WRITERS.get().reset();
+    json.beginObject();
+    json.name("status").value(status.name().toLowerCase());
+    if (betweenness != null) {
+      json.name("exact").value(betweenness.isExact());
+      json.name("sources").value(betweenness.getSourceCount());
+      json.name("locations").beginArray();
+      for (Betweenness.Bottleneck location : betweenness.topLocations(k))
+        json.beginObject().name("location").value(location.getFrom()).name("score")
+            .value(location.getScore()).endObject();
+      json.endArray();
+      json.name("walkways").beginArray();
+      for (Betweenness.Bottleneck walkway : betweenness.topWalkways(k))
+        json.beginObject().name("from").value(walkway.getFrom()).name("to")
+            .value(walkway.getTo()).name("score").value(walkway.getScore()).endObject();
+      json.endArray();
+    }
+    json.endObject();
+    sendJson(exchange, 200, json);
+  }
+
+  // writes the locations within a walking time in the encoding that the client asked for
+  private void sendReachable(HttpExchange exchange, Map<String, String> args,
+      PathResult.Status status, Map<String, Double> within) throws IOException {
+    if (wantsBinary(exchange, args)) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeByte(status.ordinal());
+      writeLocations(out, List.copyOf(within.keySet()));
+      for (double time : within.values())
+        out.writeDouble(time);
+      out.flush();
+      sendEncoded(exchange, 200, BINARY_TYPE, bytes.toByteArray());
+      return;
+    }
+    JsonWriter json = WRITERS.get().reset();
+    json.beginObject();
+    json.name("status").value(status.name().toLowerCase());
+    json.name("locations").beginArray();
+    for (String location : within.keySet())
+      json.value(location);
+    json.endArray();
+    json.name("times").beginArray();
+    for (double time : within.values())
+      json.value(time);
+    json.endArray();
+    json.endObject();
+    sendJson(exchange, 200, json);
+  }
+
+  // encodes a path result in the length-prefixed binary format
+  private static byte[] encodeBinary(PathResult result) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(result.getStatus().ordinal());
+    writeLocations(out, result.getLocations());
+    for (double time : result.getTimes())
+      out.writeDouble(time);
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  // writes a count followed by each location as a length-prefixed UTF-8 string
+  private static void writeLocations(DataOutputStream out, List<String> locations)
+      throws IOException {
+    out.writeInt(locations.size());
+    for (String location : locations) {
+      byte[] utf8 = location.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(utf8.length);
+      out.write(utf8);
+    }
+  }
+
+  // builds every encoding of the location list the first time it is requested
+  private EncodedLocations getEncodedLocations() throws IOException {
+    EncodedLocations encoded = encodedLocations;
+    if (encoded != null)
+      return encoded;
+    List<String> locations = backend.getListOfAllLocations();
+    encoded = new EncodedLocations();
+    JsonWriter json = new JsonWriter(64 * locations.size());
+    json.beginObject().name("locations").beginArray();
+    for (String location : locations)
+      json.value(location);
+    json.endArray().endObject();
+    encoded.json = json.toByteArray();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    writeLocations(out, locations);
+    out.flush();
+    encoded.binary = bytes.toByteArray();
+    encoded.jsonGzip = gzip(encoded.json, encoded.json.length);
+    encoded.binaryGzip = gzip(encoded.binary, encoded.binary.length);
+    // a strong validator computed from the content, so it changes exactly when the list does
+    CRC32 crc = new CRC32();
+    crc.update(encoded.json);
+    encoded.etag = "\"" + Long.toHexString(crc.getValue()) + "-"
+        + Integer.toHexString(encoded.json.length) + "\"";
+    encodedLocations = encoded;
+    return encoded;
+  }
+
+  // checks an If-None-Match header, which may list several ETags or be a wildcard
+  private static boolean etagMatches(String ifNoneMatch, String etag) {
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.startsWith("W/"))
+        candidate = candidate.substring(2);
+      if (candidate.equals("*") || candidate.equals(etag))
+        return true;
+    }
+    return false;
+  }
+
+  // checks whether the client asked for the binary encoding
+  private static boolean wantsBinary(HttpExchange exchange, Map<String, String> args) {
+    if ("binary".equals(args.get("format")))
+      return true;
+    String accept = exchange.getRequestHeaders().getFirst("Accept");
+    return accept != null && accept.contains(BINARY_TYPE);
+  }
+
+  /**
+   * Checks whether the client accepts gzip content encoding, honoring an explicit q=0. A gzip
+   * coding listed by name takes precedence over a * wildcard, wherever either appears.
+   * 
+   * @param exchange the request to check
+   * @return true if the response may be gzipped, false otherwise
+   */
+  static boolean acceptsGzip(HttpExchange exchange) {
+    List<String> headers = exchange.getRequestHeaders().get("Accept-Encoding");
+    if (headers == null)
+      return false;
+    Boolean gzip = null;
+    Boolean wildcard = null;
+    for (String header : headers) {
+      for (String coding : header.split(",")) {
+        String[] parts = coding.trim().split(";");
+        String name = parts[0].trim();
+        boolean refused = parts.length > 1 && parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+        if (name.equalsIgnoreCase("gzip"))
+          gzip = !refused;
+        else if (name.equals("*"))
+          wildcard = !refused;
+      }
+    }
+    return gzip != null ? gzip : wildcard != null && wildcard;
+  }
+
+  /**
+   * Compresses the first length bytes of data with gzip.
+   * 
+   * @param data   the bytes to compress
+   * @param length the number of bytes to compress
+   * @return the gzipped bytes
+   * @throws IOException if compression fails
+   */
+  static byte[] gzip(byte[] data, int length) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, length / 3));
+    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(data, 0, length);
+    }
+    return bytes.toByteArray();
+  }
+
+  // sends a json error message with the provided status code
+  private static void sendError(HttpExchange exchange, int status, String message)
+      throws IOException {
+    JsonWriter json = WRITERS.get().reset();
+    json.beginObject().name("error").value(message).endObject();
+    sendJson(exchange, status, json);
+  }
+
+  // reports an unexpected problem, and attempts to send a 500 Server Error response
+  private static void sendServerError(HttpExchange exchange, Exception e) {
+    RequestLog.getDefault().error("Exception Thrown: " + e.toString(), e);
+    try {
+      exchange.sendResponseHeaders(500, -1);
+      exchange.close();
+    } catch (IOException i) {
+    } // do nothing when this fails
+  }
+
+  // sends the json written so far, gzipped when worthwhile and accepted, and tells caches that
+  // the encoding depends on the request either way
+  private static void sendJson(HttpExchange exchange, int status, JsonWriter json)
+      throws IOException {
+    exchange.getResponseHeaders().set("Vary", "Accept, Accept-Encoding");
+    if (json.size() >= GZIP_MIN_BYTES && acceptsGzip(exchange)) {
+      exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+      byte[] body = gzip(json.toByteArray(), json.size());
+      send(exchange, status, "application/json", body);
+      return;
+    }
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, json.size());
+    OutputStream out = exchange.getResponseBody();
+    json.writeTo(out);
+    out.close();
+  }
+
+  // sends an encoded body, gzipped when worthwhile and accepted, and tells caches that the
+  // encoding depends on the request either way
+  private static void sendEncoded(HttpExchange exchange, int status, String type, byte[] body)
+      throws IOException {
+    exchange.getResponseHeaders().set("Vary", "Accept, Accept-Encoding");
+    if (body.length >= GZIP_MIN_BYTES && acceptsGzip(exchange)) {
+      exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+      body = gzip(body, body.length);
+    }
+    send(exchange, status, type, body);
+  }
+
+  private static void send(HttpExchange exchange, int status, String type, byte[] body)
+      throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", type);
+    exchange.sendResponseHeaders(status, body.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(body);
+    out.close();
+  }
+}
@@ -1,18 +1,115 @@
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.DataInput;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Main class to run all of the backend commands
  */
 public class Backend implements BackendInterface {
 
+  // metrics about the searches and loads of every backend
+  private static final MetricsRegistry.Histogram SEARCH_SECONDS = MetricsRegistry.getDefault()
+      .histogram("campus_search_duration_seconds", "Time spent in shortest path searches.",
+          MetricsRegistry.NANOS, MetricsRegistry.SECONDS_BUCKETS);
+  private static final MetricsRegistry.Histogram SETTLED_NODES = MetricsRegistry.getDefault()
+      .histogram("campus_search_settled_nodes", "Nodes settled by each shortest path search.",
+          1, MetricsRegistry.COUNT_BUCKETS);
+  private static final MetricsRegistry.Counter SEARCH_TIMEOUTS = MetricsRegistry.getDefault()
+      .counter("campus_search_timeouts_total", "Searches stopped by the query time budget.");
+  private static final MetricsRegistry.Counter INDEX_HITS =
+      MetricsRegistry.getDefault().cacheRequests("furthest_index", true);
+  private static final MetricsRegistry.Counter INDEX_MISSES =
+      MetricsRegistry.getDefault().cacheRequests("furthest_index", false);
+  private static final MetricsRegistry.Counter LEG_HITS =
+      MetricsRegistry.getDefault().cacheRequests("itinerary_legs", true);
+  private static final MetricsRegistry.Counter LEG_MISSES =
+      MetricsRegistry.getDefault().cacheRequests("itinerary_legs", false);
+  private static final MetricsRegistry.Counter BETWEENNESS_HITS =
+      MetricsRegistry.getDefault().cacheRequests("betweenness", true);
+  private static final MetricsRegistry.Counter BETWEENNESS_MISSES =
+      MetricsRegistry.getDefault().cacheRequests("betweenness", false);
+  private static final MetricsRegistry.Histogram CUSTOMIZE_SECONDS = MetricsRegistry.getDefault()
+      .histogram("campus_customization_duration_seconds",
+          "Time spent customizing the contraction hierarchy with new walking times.",
+          MetricsRegistry.NANOS, MetricsRegistry.SECONDS_BUCKETS);
+  private static final MetricsRegistry.Histogram LOAD_SECONDS = MetricsRegistry.getDefault()
+      .histogram("campus_graph_load_duration_seconds", "Time spent loading graph files.",
+          MetricsRegistry.NANOS, MetricsRegistry.SECONDS_BUCKETS);
+
   // create a private graph variable
   private GraphADT<String, Double> graph;
+  // maximum time in milliseconds that a single query may search for, 0 means no limit
+  private long queryTimeoutMillis = 0;
+  // time in milliseconds that the itinerary heuristic may spend improving an order
+  private long solverMillis = 100;
+  // how the locations of compact snapshots are renumbered for locality
+  private NodeOrdering.Strategy nodeOrdering = NodeOrdering.Strategy.NONE;
+  // loaders for the supported file formats, by file extension
+  private Map<String, GraphLoader> loaders = new HashMap<>();
+  // report of the most recent load
+  private LoadReport lastLoadReport = null;
+  // precomputed furthest destinations for the loaded graph, or null to search for them
+  private volatile FurthestDestinationIndex furthestIndex = null;
+  // contraction hierarchy of the loaded graph that shortest paths are answered from, or null
+  private volatile ContractionHierarchy hierarchy = null;
+  // multi-level overlay of the loaded graph that shortest paths are answered from, or null
+  private volatile OverlayGraph overlay = null;
+  // the most recently used paths between two itinerary stops, by their start and end, along with
+  // the modification count of the graph they were found in, so that legs found before any change
+  // to the graph are never used, even when it was changed directly rather than through this class
+  private static final int LEG_CACHE_SIZE = 4096;
+  private final Map<List<String>, CachedLeg> legCache =
+      Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<String>, CachedLeg> eldest) {
+          return size() > LEG_CACHE_SIZE;
+        }
+      });
+
+  // a path in the leg cache, and the modification count of the graph that it was found in
+  private static class CachedLeg {
+    final long graphVersion;
+    final PathResult path;
+
+    CachedLeg(long graphVersion, PathResult path) {
+      this.graphVersion = graphVersion;
+      this.path = path;
+    }
+  }
+
+  // seed of the sources that betweenness is sampled from, fixed so that repeated requests for the
+  // same graph give the same estimate
+  private static final long BETWEENNESS_SEED = 42;
+  // the most recently requested betweenness scores by number of samples, for the graph version and
+  // node order they are computed for, each computed at most once while later requests wait for it
+  private static final int BETWEENNESS_CACHE_SIZE = 8;
+  private final Map<Integer, CompletableFuture<Betweenness>> betweennessCache =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+            Map.Entry<Integer, CompletableFuture<Betweenness>> eldest) {
+          return size() > BETWEENNESS_CACHE_SIZE;
+        }
+      };
+  private long betweennessVersion = -1;
+  private NodeOrdering.Strategy betweennessOrdering = null;
 
   /*
    * Implementing classes should support the constructor below.
@@ -21,57 +118,282 @@ public class Backend implements BackendInterface {
    */
   public Backend(GraphADT<String, Double> graph) {
     this.graph = graph;
+    // filled in directly rather than through the overridable registerLoader
+    loaders.put("dot", new DotGraphLoader());
+    loaders.put("gr", new DimacsGraphLoader());
+    loaders.put("csv", new CsvGraphLoader());
+  }
+
+  /**
+   * Registers the loader used for files with the provided extension, replacing any loader that
+   * was registered for it before. Loaders for .dot, .gr (DIMACS) and .csv files are registered by
+   * default.
+   * 
+   * @param extension the file extension without its dot, such as "gr"
+   * @param loader    the loader that reads files with this extension
+   */
+  public void registerLoader(String extension, GraphLoader loader) {
+    loaders.put(extension.toLowerCase(), loader);
   }
 
   /**
-   * Loads graph data from a dot file. If a graph was previously loaded, this method should first
-   * delete the contents (nodes and edges) of the existing graph before loading a new one.
+   * Loads graph data from a dot file, or from any other format that a loader is registered for
+   * by file extension. If a graph was previously loaded, this method should first delete the
+   * contents (nodes and edges) of the existing graph before loading a new one. Dot edges may
+   * carry a profile attribute with their walking time by time of day, as DotGraphLoader describes.
    * 
    * @param filename the path to a dot file to read graph data from
-   * @throws IOException if there was any problem reading from this file
+   * @throws IOException                   if there was any problem reading from this file
+   * @throws UnsupportedOperationException if the graph is a read-only mapped graph file
    */
-  public void loadGraphData(String filename) throws IOException {
+  public synchronized void loadGraphData(String filename) throws IOException {
+    requireWritable("load " + filename);
 
-    // remove all data from the graph
-    for (String node : graph.getAllNodes()) {
-      graph.removeNode(node);
-    }
+    // remove all data from the graph, along with anything precomputed from it
+    graph.clear();
+    furthestIndex = null;
+    hierarchy = null;
+    overlay = null;
+    legCache.clear();
+    // pick the loader by file extension, and treat unknown extensions as dot files
+    String extension = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase();
+    GraphLoader loader = loaders.getOrDefault(extension, loaders.get("dot"));
+    GraphLoadEvent event = new GraphLoadEvent();
+    event.begin();
+    LoadReport report = null;
     // try loop incase the file cannot be found
     try {
-      // create a new file and put it into a scanner variable
-      File file = new File(filename);
-      @SuppressWarnings("resource")
-      Scanner in = new Scanner(file);
-      String line;
-
-      // while the scanner has another line run the loop
-      while (in.hasNextLine()) {
-
-        // check if the next line is proper dot expression then divide up the strings to get the
-        // values that we want and make them proper variables
-        line = in.nextLine();
-        if (line.contains("->")) {
-          String[] parts = line.split("->");
-          String node1 = parts[0].replaceAll("\"", "").trim();
-          String part2 = parts[1];
-            String[] node2AndTime = part2.split("seconds=");
-            String node2 = node2AndTime[0].replaceAll("\"", "").replace("[", "").trim();
-            double time = Double.parseDouble(node2AndTime[1].replaceAll("];", "").trim());
-            
-            // Insert the nodes then the edge
-            if (!graph.containsNode(node1))
-              graph.insertNode(node1);
-            if (!graph.containsNode(node2))
-              graph.insertNode(node2);
-            graph.insertEdge(node1, node2, time);
-          }
-        }
+      report = loader.load(Path.of(filename), graph);
+      lastLoadReport = report;
+      LOAD_SECONDS.record(report.getTotalNanos());
       // catch an exception if the file cannot be found
-    } catch (FileNotFoundException e) {
+    } catch (NoSuchFileException e) {
       throw new IOException("dot file could not be found");
+    } finally {
+      if (event.isEnabled())
+        event.finish(filename, sizeOrZero(Path.of(filename)), report);
+    }
+  }
+
+  // size of a file for its load event, or 0 if that cannot be read, so that recording the event
+  // never replaces the exception that ended the load
+  private static long sizeOrZero(Path file) {
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      return 0;
     }
   }
 
+  /**
+   * Retrieves the report of the most recent successful call to loadGraphData.
+   * 
+   * @return the sizes, times and throughput of the last load, or null if nothing was loaded
+   */
+  public LoadReport getLastLoadReport() {
+    return lastLoadReport;
+  }
+
+  /**
+   * Builds the index of furthest destinations for the loaded graph by searching from every
+   * location once. The index is not installed; pass it to setFurthestDestinationIndex to use it.
+   * 
+   * @return the index of the loaded graph's furthest destinations
+   */
+  public FurthestDestinationIndex buildFurthestDestinationIndex() {
+    return FurthestDestinationIndex.build(graph, SearchDeadline.none());
+  }
+
+  /**
+   * Installs an index that getFurthestDestinationFrom answers from instead of searching. The index
+   * must have been built from the graph that is currently loaded.
+   * 
+   * @param index the index to answer from, or null to search again
+   */
+  public void setFurthestDestinationIndex(FurthestDestinationIndex index) {
+    this.furthestIndex = index;
+  }
+
+  /**
+   * Installs an index that was built in the background, unless the graph has changed since its
+   * build started, in which case the index describes a graph that is no longer loaded.
+   * 
+   * @param index        the index to answer from
+   * @param graphVersion the value of getGraphVersion from before the index was built
+   * @return true if the index was installed, false if the graph has changed since
+   */
+  public synchronized boolean setFurthestDestinationIndex(FurthestDestinationIndex index,
+      long graphVersion) {
+    if (graph.getModificationCount() != graphVersion)
+      return false;
+    this.furthestIndex = index;
+    return true;
+  }
+
+  /**
+   * Retrieves a number that changes whenever the loaded graph does, such as when another graph is
+   * loaded or walking times are updated.
+   * 
+   * @return the modification count of the loaded graph
+   */
+  public long getGraphVersion() {
+    return graph.getModificationCount();
+  }
+
+  /**
+   * Builds a customizable contraction hierarchy of the loaded graph, customized with its current
+   * walking times. The hierarchy is not installed; pass it to setContractionHierarchy to use it.
+   * 
+   * @return the contraction hierarchy of the loaded graph
+   * @throws UnsupportedOperationException if the graph is neither a BaseGraph nor a MappedGraph
+   */
+  public ContractionHierarchy buildContractionHierarchy() {
+    return ContractionHierarchy.build(snapshot("A contraction hierarchy"));
+  }
+
+  /**
+   * Reads a contraction hierarchy of the loaded graph that was saved with ContractionHierarchy's
+   * write, and customizes it with the current walking times. The hierarchy is not installed;
+   * pass it to setContractionHierarchy to use it.
+   * 
+   * @param in the source of the hierarchy's bytes
+   * @return the contraction hierarchy of the loaded graph
+   * @throws IOException                   if the bytes cannot be read, or were written for a
+   *                                       graph that is numbered differently
+   * @throws UnsupportedOperationException if the graph is neither a BaseGraph nor a MappedGraph
+   */
+  public ContractionHierarchy readContractionHierarchy(DataInput in) throws IOException {
+    return ContractionHierarchy.read(in, snapshot("A contraction hierarchy"));
+  }
+
+  /**
+   * Installs a contraction hierarchy that findShortestPath answers from instead of searching,
+   * unless a departure time is given. The hierarchy must have been built from the graph that is
+   * currently loaded, and keeps its walking times only when they are changed by
+   * updateWalkingTimes.
+   * 
+   * @param hierarchy the hierarchy to answer from, or null to search again
+   */
+  public void setContractionHierarchy(ContractionHierarchy hierarchy) {
+    this.hierarchy = hierarchy;
+  }
+
+  /**
+   * Partitions the loaded graph into nested cells with few walkways between them, for an overlay
+   * graph. The partition only depends on which locations are connected, so it can be saved and
+   * reused for as long as the walkways stay the same.
+   * 
+   * @param maxCellSizes the largest number of locations in a cell of every level, lowest first
+   * @return the partition of the loaded graph
+   * @throws IllegalArgumentException      if the cell sizes do not increase from at least 2
+   * @throws UnsupportedOperationException if the graph is neither a BaseGraph nor a MappedGraph
+   */
+  public GraphPartition partitionGraph(int... maxCellSizes) {
+    return GraphPartition.build(indexed("A partition"), maxCellSizes);
+  }
+
+  /**
+   * Reads a partition of the loaded graph that was saved with GraphPartition's write. The
+   * partition is only read back for a graph with the same locations, numbered the same way.
+   * 
+   * @param in the source of the partition's bytes
+   * @return the partition of the loaded graph
+   * @throws IOException                   if the bytes cannot be read, or were written for a
+   *                                       graph that is numbered differently
+   * @throws UnsupportedOperationException if the graph is neither a BaseGraph nor a MappedGraph
+   */
+  public GraphPartition readGraphPartition(DataInput in) throws IOException {
+    return GraphPartition.read(in, indexed("A partition"));
+  }
+
+  /**
+   * Creates a multi-level overlay of the loaded graph over the cells of a partition, whose cells
+   * are computed as queries need them. The overlay is not installed; pass it to setOverlayGraph to
+   * use it. A mapped graph file is routed on where it is, in the order of its file, rather than
+   * copied onto the heap.
+   * 
+   * @param partition        a partition of the loaded graph, from partitionGraph
+   * @param maxResidentCells the largest number of cells to keep in memory, or 0 for all of them
+   * @return the overlay of the loaded graph
+   * @throws UnsupportedOperationException if the graph is neither a BaseGraph nor a MappedGraph
+   */
+  public OverlayGraph buildOverlayGraph(GraphPartition partition, int maxResidentCells) {
+    return new OverlayGraph(indexed("An overlay graph"), partition, maxResidentCells);
+  }
+
+  /**
+   * Installs an overlay graph that findShortestPath answers from instead of searching, unless a
+   * departure time is given or a contraction hierarchy is installed too. The overlay must have
+   * been built from the graph that is currently loaded, and keeps its walking times only when
+   * they are changed by updateWalkingTimes.
+   * 
+   * @param overlay the overlay to answer from, or null to search again
+   */
+  public void setOverlayGraph(OverlayGraph overlay) {
+    this.overlay = overlay;
+  }
+
+  /**
+   * Changes the walking times of a batch of existing walkways, such as for closures or crowds.
+   * Every walkway is checked before any of them changes. The installed contraction hierarchy is
+   * customized with the new times without being built again, and the installed overlay graph
+   * drops the cells that contain the walkways, to compute them again when they are next needed.
+   * 
+   * @param seconds the new walking time of each walkway, by its start and end location, which is
+   *                infinite for a closed walkway
+   * @throws NoSuchElementException        if a walkway does not exist
+   * @throws IllegalArgumentException      if a walking time is not positive
+   * @throws IllegalStateException         if the installed contraction hierarchy or overlay graph
+   *                                       was built without one of the walkways
+   * @throws UnsupportedOperationException if the graph is a read-only mapped graph file
+   */
+  public synchronized void updateWalkingTimes(Map<List<String>, Double> seconds)
+      throws NoSuchElementException {
+    requireWritable("change walking times");
+    ContractionHierarchy installed = hierarchy;
+    OverlayGraph installedOverlay = overlay;
+    int[] edges = new int[seconds.size()];
+    int[] overlayEdges = new int[seconds.size()];
+    double[] times = new double[seconds.size()];
+    int i = 0;
+    for (Map.Entry<List<String>, Double> walkway : seconds.entrySet()) {
+      String from = walkway.getKey().get(0);
+      String to = walkway.getKey().get(1);
+      if (!graph.containsEdge(from, to))
+        throw new NoSuchElementException("No walkway from " + from + " to " + to);
+      if (!(walkway.getValue() > 0))
+        throw new IllegalArgumentException("Walking times must be positive: " + walkway.getValue());
+      edges[i] = installed == null ? -1 : installed.edgeIndex(from, to);
+      if (installed != null && edges[i] < 0)
+        throw new IllegalStateException("The contraction hierarchy was built without the walkway "
+            + "from " + from + " to " + to + ", so it has to be built again first");
+      overlayEdges[i] = installedOverlay == null ? -1 : installedOverlay.edgeIndex(from, to);
+      if (installedOverlay != null && overlayEdges[i] < 0)
+        throw new IllegalStateException("The overlay graph was built without the walkway from "
+            + from + " to " + to + ", so it has to be built again first");
+      times[i++] = walkway.getValue();
+    }
+    for (Map.Entry<List<String>, Double> walkway : seconds.entrySet())
+      graph.insertEdge(walkway.getKey().get(0), walkway.getKey().get(1), walkway.getValue());
+    furthestIndex = null;
+    legCache.clear();
+    if (installed != null) {
+      long startNanos = System.nanoTime();
+      installed.updateWeights(edges, times);
+      CUSTOMIZE_SECONDS.record(System.nanoTime() - startNanos);
+    }
+    if (installedOverlay != null)
+      installedOverlay.updateWeights(overlayEdges, times);
+  }
+
+  // fails before anything changes when the graph is served straight from a read-only file
+  private void requireWritable(String action) {
+    if (graph instanceof MappedGraph)
+      throw new UnsupportedOperationException("Cannot " + action + ": the graph is mapped "
+          + "read-only from " + ((MappedGraph) graph).getFile()
+          + ", so write a new graph file with GraphFile and restart instead");
+  }
+
   /**
    * Returns a list of all locations (node data) available in the graph.
    * 
@@ -81,6 +403,140 @@ public class Backend implements BackendInterface {
     return graph.getAllNodes();
   }
 
+  /**
+   * Sets the maximum time that a single query may spend searching the graph. Queries that take
+   * longer are stopped and reported as timed out.
+   * 
+   * @param timeoutMillis the time budget per query in milliseconds, or 0 for no limit
+   */
+  public void setQueryTimeout(long timeoutMillis) {
+    this.queryTimeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Sets the time that planItinerary may spend improving the order of a long list of stops, after
+   * the walking times between them have been found. Short lists are always solved exactly.
+   * 
+   * @param solverMillis the time budget of the itinerary heuristic in milliseconds
+   */
+  public void setItinerarySolverTime(long solverMillis) {
+    this.solverMillis = solverMillis;
+  }
+
+  /**
+   * Sets how the locations of the compact snapshots that betweenness, contraction hierarchies and
+   * overlay graphs are computed over are renumbered, so that searches over them read nearby
+   * memory. Partitions and overlay graphs of a mapped graph file keep the order of the file, since
+   * they are not computed over a copy. Locations keep the graph's own order by default.
+   * 
+   * @param strategy the order to renumber locations in, or NONE to keep the graph's own order
+   */
+  public void setNodeOrdering(NodeOrdering.Strategy strategy) {
+    this.nodeOrdering = strategy;
+  }
+
+  /**
+   * Finds the shortest path from startLocation to endLocation within the query time budget, and
+   * reports whether a path was found, no path exists, or the search timed out.
+   * 
+   * @param startLocation the start location of the path
+   * @param endLocation   the end location of the path
+   * @return the locations and walking times along the shortest path, or the reason that there are
+   *         none
+   */
+  public PathResult findShortestPath(String startLocation, String endLocation) {
+    return findShortestPath(startLocation, endLocation, Double.NaN);
+  }
+
+  /**
+   * Finds the path from startLocation to endLocation that arrives earliest when leaving at the
+   * provided time of day, within the query time budget. Walkways with a travel time profile take
+   * the walking time of the time of day at which they are reached, including any wait for them to
+   * open or clear, and every other walkway takes its fixed walking time.
+   * 
+   * @param startLocation the start location of the path
+   * @param endLocation   the end location of the path
+   * @param departure     the time of day to leave startLocation at
+   * @return the locations along the path and the time from reaching each one until reaching the
+   *         next, or the reason that there is no path
+   */
+  public PathResult findShortestPath(String startLocation, String endLocation,
+      LocalTime departure) {
+    return findShortestPath(startLocation, endLocation, (double) departure.toSecondOfDay());
+  }
+
+  // finds the shortest path, or the earliest arriving one unless departure is NaN
+  private PathResult findShortestPath(String startLocation, String endLocation,
+      double departure) {
+    ContractionHierarchy installed = hierarchy;
+    OverlayGraph installedOverlay = overlay;
+    SearchDeadline deadline = SearchDeadline.after(queryTimeoutMillis);
+    long startNanos = System.nanoTime();
+    if (installed != null && Double.isNaN(departure)) {
+      try {
+        return installed.shortestPath(startLocation, endLocation, deadline);
+      } catch (SearchTimeoutException e) {
+        SEARCH_TIMEOUTS.increment();
+        return PathResult.timedOut();
+      } finally {
+        recordSearch(startNanos, deadline);
+      }
+    }
+    if (installedOverlay != null && Double.isNaN(departure)) {
+      try {
+        return installedOverlay.shortestPath(startLocation, endLocation, deadline);
+      } catch (SearchTimeoutException e) {
+        SEARCH_TIMEOUTS.increment();
+        return PathResult.timedOut();
+      } finally {
+        recordSearch(startNanos, deadline);
+      }
+    }
+    List<String> path;
+    try {
+      path = Double.isNaN(departure) ? graph.shortestPathData(startLocation, endLocation, deadline)
+          : graph.shortestPathData(startLocation, endLocation, departure, deadline);
+    } catch (SearchTimeoutException e) {
+      SEARCH_TIMEOUTS.increment();
+      return PathResult.timedOut();
+    } catch (Exception e) {
+      // missing locations and unreachable destinations both mean there is no path
+      return PathResult.noPath();
+    } finally {
+      recordSearch(startNanos, deadline);
+    }
+    return Double.isNaN(departure) ? found(path) : found(path, departure);
+  }
+
+  // the result for a path that was found, where the walking time between two consecutive
+  // locations is the weight of the edge between them
+  private PathResult found(List<String> path) {
+    List<Double> times = new ArrayList<>();
+    for (int i = 1; i < path.size(); i++) {
+      times.add(graph.getEdge(path.get(i - 1), path.get(i)));
+    }
+    return PathResult.found(path, times);
+  }
+
+  // the result for a path that leaves at departure, where the time between two consecutive
+  // locations follows the profile of the edge between them at the time it is reached
+  private PathResult found(List<String> path, double departure) {
+    List<Double> times = new ArrayList<>();
+    double time = departure;
+    for (int i = 1; i < path.size(); i++) {
+      double travelTime = graph.getTravelTime(path.get(i - 1), path.get(i), time);
+      times.add(travelTime);
+      time += travelTime;
+    }
+    return PathResult.found(path, times);
+  }
+
+  // records the time and effort of a search that started at startNanos
+  private static void recordSearch(long startNanos, SearchDeadline deadline) {
+    SEARCH_SECONDS.record(System.nanoTime() - startNanos);
+    SETTLED_NODES.record(deadline.getSettledCount());
+  }
+
   /**
    * Return the sequence of locations along the shortest path from startLocation to endLocation, or
    * an empty list if no such path exists.
@@ -91,14 +547,7 @@ public class Backend implements BackendInterface {
    *         empty list if no such path exists
    */
   public List<String> findLocationsOnShortestPath(String startLocation, String endLocation) {
-
-    // try to find the shortest path and return it
-    try {
-      return graph.shortestPathData(startLocation, endLocation);
-      // if path is empty return null
-    } catch (Exception e) {
-      return new ArrayList<>();
-    }
+    return findShortestPath(startLocation, endLocation).getLocations();
   }
 
   /**
@@ -110,21 +559,8 @@ public class Backend implements BackendInterface {
    * @return a list with the walking times in seconds between two nodes along the shortest path from
    *         startLocation to endLocation, or an empty list if no such path exists
    */
-  @SuppressWarnings("null")
   public List<Double> findTimesOnShortestPath(String startLocation, String endLocation) {
-
-    // try to find the shortest path and return it
-    try {
-      List<String> path = findLocationsOnShortestPath(startLocation, endLocation);
-      ArrayList<Double> costs = new ArrayList<Double>();
-      for (int i = 1; i < path.size(); i++) {
-        costs.add(graph.shortestPathCost(path.get(i - 1), path.get(i)));
-      }
-      return costs;
-      // if path is empty return null
-    } catch (Exception e) {
-      return new ArrayList<>();
-    }
+    return findShortestPath(startLocation, endLocation).getTimes();
   }
 
   /**
@@ -136,6 +572,7 @@ public class Backend implements BackendInterface {
    *         the shortest path)
    * @throws NoSuchElementException if startLocation does not exist, or if there are no other
    *                                locations that can be reached from there
+   * @throws SearchTimeoutException if the searches take longer than the query time budget
    */
   public String getFurthestDestinationFrom(String startLocation) throws NoSuchElementException {
 
@@ -143,30 +580,355 @@ public class Backend implements BackendInterface {
     if (!graph.containsNode(startLocation))
       throw new NoSuchElementException("Start location not found");
 
-    // create maxDistance and furthest location values
-    double maxDistance = -1;
-    String furthestLocation = null;
-
-    // run a loop for every node get the location
-    for (String location : graph.getAllNodes()) {
-      if (!location.equals(startLocation)) {
-        try {
-          // find the shortest path cost to each node then keep the highest cost
-          double distance = graph.shortestPathCost(startLocation, location);
-          if (distance > maxDistance) {
-            maxDistance = distance;
-            furthestLocation = location;
-          }
+    // answer from the precomputed index when one is installed
+    FurthestDestinationIndex index = furthestIndex;
+    if (index != null) {
+      INDEX_HITS.increment();
+      return index.getFurthestDestinationFrom(startLocation);
+    }
+    INDEX_MISSES.increment();
 
-        } catch (NoSuchElementException e) {
-          // Ignore unreachable nodes
-        }
-      }
+    // a single search finds the costs of reaching every location, then keep the highest cost
+    MapADT<String, Double> costs;
+    SearchDeadline deadline = SearchDeadline.after(queryTimeoutMillis);
+    long startNanos = System.nanoTime();
+    try {
+      costs = graph.shortestPathCosts(startLocation, deadline);
+    } catch (SearchTimeoutException e) {
+      SEARCH_TIMEOUTS.increment();
+      throw e;
+    } finally {
+      recordSearch(startNanos, deadline);
     }
+    String furthestLocation =
+        FurthestDestinationIndex.furthestIn(graph.getAllNodes(), startLocation, costs);
+
     // there is no reachable destination so throw exception
     if (furthestLocation == null)
       throw new NoSuchElementException("No reachable destinations found");
 
     return furthestLocation;
   }
+
+  /**
+   * Finds every location that can be reached from startLocation within the provided walking time,
+   * ordered from the closest to the furthest. The search stops expanding at the time budget, so it
+   * only visits the locations inside it.
+   * 
+   * @param startLocation the location to walk from
+   * @param seconds       the longest walking time in seconds to include
+   * @return the walking time in seconds to every location within the budget, including
+   *         startLocation itself at 0, in order of increasing time
+   * @throws NoSuchElementException   if startLocation does not exist
+   * @throws IllegalArgumentException if seconds is negative or not a number
+   * @throws SearchTimeoutException   if the search takes longer than the query time budget
+   */
+  public Map<String, Double> findLocationsWithin(String startLocation, double seconds)
+      throws NoSuchElementException {
+    if (!(seconds >= 0))
+      throw new IllegalArgumentException("The walking time must not be negative");
+
+    MapADT<String, Double> costs;
+    SearchDeadline deadline = SearchDeadline.after(queryTimeoutMillis);
+    long startNanos = System.nanoTime();
+    try {
+      costs = graph.reachableWithin(startLocation, seconds, deadline);
+    } catch (SearchTimeoutException e) {
+      SEARCH_TIMEOUTS.increment();
+      throw e;
+    } finally {
+      recordSearch(startNanos, deadline);
+    }
+
+    // order the locations by walking time, and alphabetically among equal times
+    List<String> locations = costs.getKeys();
+    locations.sort((a, b) -> {
+      int byTime = Double.compare(costs.get(a), costs.get(b));
+      return byTime != 0 ? byTime : a.compareTo(b);
+    });
+    Map<String, Double> within = new LinkedHashMap<>();
+    for (String location : locations)
+      within.put(location, costs.get(location));
+    return within;
+  }
+
+  /**
+   * Finds the locations whose names contain the provided keyword, ignoring case, such as every
+   * library or every parking lot.
+   * 
+   * @param keyword the text to look for in location names
+   * @return the matching locations, in the order of getListOfAllLocations
+   */
+  public List<String> findLocationsMatching(String keyword) {
+    String lowerKeyword = keyword.toLowerCase();
+    List<String> matches = new ArrayList<>();
+    for (String location : graph.getAllNodes())
+      if (location.toLowerCase().contains(lowerKeyword))
+        matches.add(location);
+    return matches;
+  }
+
+  /**
+   * Finds the k facilities that are the shortest walk from startLocation, along with the paths to
+   * them, in a single search that stops as soon as the k-th nearest facility is reached.
+   * 
+   * @param startLocation the location to walk from
+   * @param facilities    the candidate destinations
+   * @param k             the number of facilities to find
+   * @return the paths to the nearest facilities, nearest first, with fewer than k when fewer can
+   *         be reached
+   * @throws NoSuchElementException if startLocation does not exist
+   * @throws SearchTimeoutException if the search takes longer than the query time budget
+   */
+  public List<PathResult> findNearest(String startLocation, List<String> facilities, int k)
+      throws NoSuchElementException {
+    List<List<String>> paths;
+    SearchDeadline deadline = SearchDeadline.after(queryTimeoutMillis);
+    long startNanos = System.nanoTime();
+    try {
+      paths = graph.shortestPathsToNearest(startLocation, facilities, k, deadline);
+    } catch (SearchTimeoutException e) {
+      SEARCH_TIMEOUTS.increment();
+      throw e;
+    } finally {
+      recordSearch(startNanos, deadline);
+    }
+    List<PathResult> results = new ArrayList<>();
+    for (List<String> path : paths)
+      results.add(found(path));
+    return results;
+  }
+
+  /**
+   * Finds the location where a group of people who start from different locations should meet,
+   * so that either the longest walk of anyone or the total walking time of the group is as short
+   * as possible. One search from every start location is run in parallel, and all of them stop as
+   * soon as no location they have not fully compared could be better than the best one found.
+   * 
+   * @param startLocations the locations that the people in the group start from
+   * @param objective      MAX to minimize the longest walk, or SUM to minimize the total walk
+   * @return the meeting location along with everyone's walking time to it
+   * @throws IllegalArgumentException if there are no start locations
+   * @throws NoSuchElementException   if a start location does not exist, or if no location can be
+   *                                  reached from every start location
+   * @throws SearchTimeoutException   if the searches take longer than the query time budget
+   */
+  public MeetingPoint findMeetingPoint(List<String> startLocations,
+      MeetingPoint.Objective objective) throws NoSuchElementException {
+    if (startLocations.isEmpty())
+      throw new IllegalArgumentException("At least one start location is required");
+
+    // every search gets its own deadline, since they run on different threads, but they all
+    // expire at the same time
+    List<SearchDeadline> deadlines = new ArrayList<>();
+    List<SearchCursor<String>> searches = new ArrayList<>();
+    long startNanos = System.nanoTime();
+    try {
+      for (String startLocation : startLocations) {
+        SearchDeadline deadline = SearchDeadline.after(queryTimeoutMillis);
+        deadlines.add(deadline);
+        searches.add(graph.openSearch(startLocation, deadline));
+      }
+      return MeetingPoint.find(startLocations, searches, objective);
+    } catch (SearchTimeoutException e) {
+      SEARCH_TIMEOUTS.increment();
+      throw e;
+    } finally {
+      // the searches stop early, so the memory they hold is released here
+      for (SearchCursor<String> search : searches)
+        search.close();
+      SEARCH_SECONDS.record(System.nanoTime() - startNanos);
+      long settled = 0;
+      for (SearchDeadline deadline : deadlines)
+        settled += deadline.getSettledCount();
+      SETTLED_NODES.record(settled);
+    }
+  }
+
+  /**
+   * Finds the fastest order for visiting a list of stops, starting from the first one, and the full
+   * walking path that visits them in that order. The walking times between every two stops are
+   * found with one search per stop, which stops once it has reached every other stop, and are kept
+   * in a cache of recently used legs for later itineraries. Up to 13 stops are ordered exactly;
+   * longer lists are ordered by a heuristic within the time set by setItinerarySolverTime.
+   * 
+   * @param stops         the locations to visit, starting with the first one
+   * @param returnToStart true to end the itinerary back at the first stop
+   * @return the stops in the order they are visited, and the path that visits them
+   * @throws IllegalArgumentException if there are no stops
+   * @throws NoSuchElementException   if a stop does not exist, or if no order of the stops can be
+   *                                  walked
+   * @throws SearchTimeoutException   if the searches take longer than the query time budget
+   */
+  public Itinerary planItinerary(List<String> stops, boolean returnToStart)
+      throws NoSuchElementException {
+    // visiting a stop twice never helps, so only the first mention of each one is kept
+    List<String> unique = new ArrayList<>(new LinkedHashSet<>(stops));
+    if (unique.isEmpty())
+      throw new IllegalArgumentException("At least one stop is required");
+    int n = unique.size();
+
+    // the paths between every two stops, from the cache or from one search per stop that stops
+    // once it has reached every other stop
+    PathResult[][] legs = new PathResult[n][n];
+    double[][] times = new double[n][n];
+    SearchDeadline deadline = SearchDeadline.after(queryTimeoutMillis);
+    long graphVersion = graph.getModificationCount();
+    long startNanos = System.nanoTime();
+    try {
+      for (int from = 0; from < n; from++) {
+        boolean cached = true;
+        for (int to = 0; to < n && cached; to++) {
+          CachedLeg leg = legCache.get(List.of(unique.get(from), unique.get(to)));
+          cached = leg != null && leg.graphVersion == graphVersion;
+          legs[from][to] = cached ? leg.path : null;
+        }
+        if (cached) {
+          LEG_HITS.increment();
+        } else {
+          LEG_MISSES.increment();
+          for (List<String> path : graph.shortestPathsToNearest(unique.get(from), unique, n,
+              deadline)) {
+            int to = unique.indexOf(path.get(path.size() - 1));
+            legs[from][to] = found(path);
+            legCache.put(List.of(unique.get(from), unique.get(to)),
+                new CachedLeg(graphVersion, legs[from][to]));
+          }
+        }
+        // legs that cannot be walked are left for the solver to route around
+        for (int to = 0; to < n; to++)
+          times[from][to] = legs[from][to] == null ? Double.POSITIVE_INFINITY
+              : legs[from][to].getTotalTime();
+      }
+    } catch (SearchTimeoutException e) {
+      SEARCH_TIMEOUTS.increment();
+      throw e;
+    } finally {
+      recordSearch(startNanos, deadline);
+    }
+
+    // solve the order, and stitch the legs between consecutive stops into one path
+    int[] order = Itinerary.solve(times, returnToStart, solverMillis * 1_000_000);
+    if (Itinerary.cost(times, order, returnToStart) == Double.POSITIVE_INFINITY) {
+      for (int i = 0; i < (returnToStart ? n : n - 1); i++) {
+        int from = order[i];
+        int to = order[(i + 1) % n];
+        if (times[from][to] == Double.POSITIVE_INFINITY)
+          throw new NoSuchElementException("No itinerary visits every stop: "
+              + unique.get(to) + " cannot be reached from " + unique.get(from));
+      }
+    }
+    List<String> visits = new ArrayList<>();
+    List<String> locations = new ArrayList<>(List.of(unique.get(0)));
+    List<Double> legTimes = new ArrayList<>();
+    for (int i = 0; i < order.length; i++) {
+      visits.add(unique.get(order[i]));
+      int next = i + 1 < order.length ? order[i + 1] : returnToStart && n > 1 ? order[0] : -1;
+      if (next < 0)
+        break;
+      PathResult leg = legs[order[i]][next];
+      locations.addAll(leg.getLocations().subList(1, leg.getLocations().size()));
+      legTimes.addAll(leg.getTimes());
+    }
+    return new Itinerary(visits, PathResult.found(locations, legTimes),
+        n <= Itinerary.HELD_KARP_MAX_STOPS);
+  }
+
+  /**
+   * Computes the betweenness of every location and walkway: how many shortest paths between two
+   * other locations pass through it. The searches from the sources are split between one thread
+   * per processor, over a compact snapshot of the loaded graph. Passing a number of samples smaller
+   * than the number of locations searches from that many random sources only, and scales the
+   * scores up to estimate the exact ones. The sources are picked with a fixed seed, and the scores
+   * are kept until the graph or the node ordering changes, so repeated calls with the same number
+   * of samples return the same scores without searching again. A call that asks for scores which
+   * are still being computed waits for that computation instead of starting another, and gets its
+   * failure too if it times out, after which the next call computes them again.
+   * 
+   * @param samples the number of sources to sample, or 0 to search from every location
+   * @return the scores of every location and walkway
+   * @throws UnsupportedOperationException if the graph cannot be snapshotted
+   * @throws SearchTimeoutException        if the searches take longer than the query time budget
+   */
+  public Betweenness computeBetweenness(int samples) {
+    int key;
+    CompletableFuture<Betweenness> future;
+    boolean computing = false;
+    synchronized (betweennessCache) {
+      long version = graph.getModificationCount();
+      if (version != betweennessVersion || nodeOrdering != betweennessOrdering) {
+        betweennessCache.clear();
+        betweennessVersion = version;
+        betweennessOrdering = nodeOrdering;
+      }
+      // sampling every location or more is the exact computation
+      key = samples >= graph.getNodeCount() ? 0 : samples;
+      future = betweennessCache.get(key);
+      if (future != null) {
+        BETWEENNESS_HITS.increment();
+      } else {
+        BETWEENNESS_MISSES.increment();
+        future = new CompletableFuture<>();
+        betweennessCache.put(key, future);
+        computing = true;
+      }
+    }
+    if (computing)
+      computeBetweenness(key, future);
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      // rethrow what the computation threw, such as its SearchTimeoutException
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      if (e.getCause() instanceof Error)
+        throw (Error) e.getCause();
+      throw e;
+    }
+  }
+
+  // computes the scores that future is cached for, outside of the cache's lock, and forgets the
+  // future if the computation fails, so that a later call tries again
+  private void computeBetweenness(int samples, CompletableFuture<Betweenness> future) {
+    try {
+      CompactGraph snapshot = snapshot("Betweenness");
+      SearchDeadline deadline = SearchDeadline.after(queryTimeoutMillis);
+      long startNanos = System.nanoTime();
+      try {
+        future.complete(Betweenness.compute(snapshot, samples, BETWEENNESS_SEED,
+            Runtime.getRuntime().availableProcessors(), deadline));
+      } finally {
+        SEARCH_SECONDS.record(System.nanoTime() - startNanos);
+      }
+    } catch (RuntimeException | Error e) {
+      if (e instanceof SearchTimeoutException)
+        SEARCH_TIMEOUTS.increment();
+      synchronized (betweennessCache) {
+        betweennessCache.remove(samples, future);
+      }
+      future.completeExceptionally(e);
+    }
+  }
+
+  // the numbered graph that partitions and overlay graphs are computed over: a mapped graph file
+  // where it is, numbered as in the file, or a compact copy of any other graph
+  private IndexedGraph indexed(String feature) {
+    if (graph instanceof MappedGraph)
+      return (MappedGraph) graph;
+    return snapshot(feature);
+  }
+
+  // a compact copy of the loaded graph in the configured node order, for the features that need
+  // one
+  @SuppressWarnings("unchecked")
+  private CompactGraph snapshot(String feature) {
+    CompactGraph snapshot;
+    if (graph instanceof MappedGraph)
+      snapshot = ((MappedGraph) graph).toCompactGraph();
+    else if (graph instanceof BaseGraph)
+      snapshot = CompactGraph.of((BaseGraph<String, Double>) graph);
+    else
+      throw new UnsupportedOperationException(feature + " needs a BaseGraph or a MappedGraph");
+    return NodeOrdering.reorder(snapshot, nodeOrdering);
+  }
 }
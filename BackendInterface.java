@@ -1,5 +1,8 @@
+import java.io.DataInput;
 import java.io.IOException;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 /**
@@ -21,15 +24,195 @@ public interface BackendInterface {
    * graph before loading a new one.
    * @param filename the path to a dot file to read graph data from
    * @throws IOException if there was any problem reading from this file
+   * @throws UnsupportedOperationException if the graph is read-only
    */
   public void loadGraphData(String filename) throws IOException;
 
+  /**
+   * Retrieves the report of the most recent successful call to loadGraphData,
+   * with the number of nodes and arcs loaded and the load throughput.
+   * @return the report of the last load, or null if nothing was loaded
+   */
+  public LoadReport getLastLoadReport();
+
   /**
    * Returns a list of all locations (node data) available in the graph.
    * @return list of all location names
    */
   public List<String> getListOfAllLocations();
 
+  /**
+   * Builds the index of furthest destinations for the loaded graph by
+   * searching from every location once.  The index is not installed until
+   * it is passed to setFurthestDestinationIndex.
+   * @return the index of the loaded graph's furthest destinations
+   */
+  public FurthestDestinationIndex buildFurthestDestinationIndex();
+
+  /**
+   * Installs an index that getFurthestDestinationFrom answers from instead 
+   * of searching.  The index must have been built from the loaded graph.
+   * @param index the index to answer from, or null to search again
+   */
+  public void setFurthestDestinationIndex(FurthestDestinationIndex index);
+
+  /**
+   * Installs an index that was built in the background, unless the graph
+   * has changed since its build started.
+   * @param index the index to answer from
+   * @param graphVersion the value of getGraphVersion from before the build
+   * @return true if the index was installed, false if the graph has changed
+   */
+  public boolean setFurthestDestinationIndex(FurthestDestinationIndex index,
+      long graphVersion);
+
+  /**
+   * Retrieves a number that changes whenever the loaded graph does.
+   * @return the modification count of the loaded graph
+   */
+  public long getGraphVersion();
+
+  /**
+   * Builds a customizable contraction hierarchy of the loaded graph, 
+   * customized with its current walking times.  The hierarchy is not 
+   * installed until it is passed to setContractionHierarchy.
+   * @return the contraction hierarchy of the loaded graph
+   * @throws UnsupportedOperationException if the graph cannot be snapshotted
+   */
+  public ContractionHierarchy buildContractionHierarchy();
+
+  /**
+   * Reads a contraction hierarchy of the loaded graph that was saved with
+   * its write method, customized with the current walking times.  The 
+   * hierarchy is not installed until it is passed to setContractionHierarchy.
+   * @param in the source of the hierarchy's bytes
+   * @return the contraction hierarchy of the loaded graph
+   * @throws IOException if the bytes cannot be read, or were written for a
+   *         graph that is numbered differently
+   * @throws UnsupportedOperationException if the graph cannot be snapshotted
+   */
+  public ContractionHierarchy readContractionHierarchy(DataInput in) throws IOException;
+
+  /**
+   * Installs a contraction hierarchy that findShortestPath answers from 
+   * instead of searching, unless a departure time is given.  The hierarchy 
+   * must have been built from the loaded graph.
+   * @param hierarchy the hierarchy to answer from, or null to search again
+   */
+  public void setContractionHierarchy(ContractionHierarchy hierarchy);
+
+  /**
+   * Partitions the loaded graph into nested cells with few walkways between
+   * them, for an overlay graph.
+   * @param maxCellSizes the largest number of locations in a cell of every 
+   *        level, lowest level first
+   * @return the partition of the loaded graph
+   * @throws IllegalArgumentException if the cell sizes do not increase from
+   *         at least 2
+   * @throws UnsupportedOperationException if the graph cannot be snapshotted
+   */
+  public GraphPartition partitionGraph(int... maxCellSizes);
+
+  /**
+   * Reads a partition of the loaded graph that was saved with its write
+   * method.
+   * @param in the source of the partition's bytes
+   * @return the partition of the loaded graph
+   * @throws IOException if the bytes cannot be read, or were written for a
+   *         graph that is numbered differently
+   * @throws UnsupportedOperationException if the graph cannot be snapshotted
+   */
+  public GraphPartition readGraphPartition(DataInput in) throws IOException;
+
+  /**
+   * Creates a multi-level overlay of the loaded graph over the cells of a
+   * partition, whose cells are computed as queries need them.  The overlay
+   * is not installed until it is passed to setOverlayGraph.
+   * @param partition a partition of the loaded graph
+   * @param maxResidentCells the largest number of cells to keep in memory, 
+   *        or 0 for all of them
+   * @return the overlay of the loaded graph
+   * @throws UnsupportedOperationException if the graph cannot be snapshotted
+   */
+  public OverlayGraph buildOverlayGraph(GraphPartition partition, int maxResidentCells);
+
+  /**
+   * Installs an overlay graph that findShortestPath answers from instead of
+   * searching, unless a departure time is given or a contraction hierarchy 
+   * is installed too.  The overlay must have been built from the loaded 
+   * graph.
+   * @param overlay the overlay to answer from, or null to search again
+   */
+  public void setOverlayGraph(OverlayGraph overlay);
+
+  /**
+   * Changes the walking times of a batch of existing walkways, and 
+   * customizes the installed contraction hierarchy with them instead of 
+   * building it again, and drops the cells of the installed overlay graph
+   * that contain them.  No walkway changes unless all of them are valid.
+   * @param seconds the new walking time of each walkway, by its start and 
+   *        end location, which is infinite for a closed walkway
+   * @throws NoSuchElementException if a walkway does not exist
+   * @throws IllegalArgumentException if a walking time is not positive
+   * @throws IllegalStateException if the installed contraction hierarchy 
+   *         or overlay graph was built without one of the walkways
+   * @throws UnsupportedOperationException if the graph is read-only
+   */
+  public void updateWalkingTimes(Map<List<String>, Double> seconds)
+      throws NoSuchElementException;
+
+  /**
+   * Sets the maximum time that a single query may spend searching the graph.
+   * Queries that take longer are stopped and reported as timed out.
+   * @param timeoutMillis the time budget per query in milliseconds, or 0 for
+   *        no limit
+   */
+  public void setQueryTimeout(long timeoutMillis);
+
+  /**
+   * Sets the time that planItinerary may spend improving the order of a 
+   * long list of stops, after the walking times between them have been 
+   * found.  Short lists are always solved exactly.
+   * @param solverMillis the time budget of the itinerary heuristic in 
+   *        milliseconds
+   */
+  public void setItinerarySolverTime(long solverMillis);
+
+  /**
+   * Sets how the locations of the compact snapshots that betweenness, 
+   * contraction hierarchies and overlay graphs are computed over are 
+   * renumbered for locality.
+   * @param strategy the order to renumber locations in, or NONE to keep the
+   *        graph's own order
+   */
+  public void setNodeOrdering(NodeOrdering.Strategy strategy);
+
+  /**
+   * Finds the shortest path from startLocation to endLocation within the 
+   * query time budget.  The result reports whether a path was found, no path
+   * exists, or the search timed out before it could decide.
+   * @param startLocation the start location of the path
+   * @param endLocation the end location of the path
+   * @return the locations and walking times along the shortest path, or the
+   *         reason that there are none
+   */
+  public PathResult findShortestPath(String startLocation, String endLocation);
+
+  /**
+   * Finds the path from startLocation to endLocation that arrives earliest 
+   * when leaving at the provided time of day.  Walkways with a travel time
+   * profile take the walking time of the time they are reached at, 
+   * including any wait for them to open, and every other walkway takes its
+   * fixed walking time.
+   * @param startLocation the start location of the path
+   * @param endLocation the end location of the path
+   * @param departure the time of day to leave startLocation at
+   * @return the locations along the path and the time from reaching each 
+   *         one until reaching the next, or the reason that there is no path
+   */
+  public PathResult findShortestPath(String startLocation, String endLocation,
+      LocalTime departure);
+
   /**
    * Return the sequence of locations along the shortest path from 
    * startLocation to endLocation, or an empty list if no such path exists.
@@ -61,7 +244,101 @@ public interface BackendInterface {
    *         reach which following the shortest path)
    * @throws NoSuchElementException if startLocation does not exist, or if
    *         there are no other locations that can be reached from there
+   * @throws SearchTimeoutException if the search takes longer than the query
+   *         time budget
    */
   public String getFurthestDestinationFrom(String startLocation) throws NoSuchElementException;
 
+  /**
+   * Finds every location that can be reached from startLocation within the
+   * provided walking time, ordered from the closest to the furthest.  The 
+   * search stops expanding at the time budget, so it only visits the 
+   * locations inside it.
+   * @param startLocation the location to walk from
+   * @param seconds the longest walking time in seconds to include
+   * @return the walking time in seconds to every location within the budget,
+   *         including startLocation itself at 0, in order of increasing time
+   * @throws NoSuchElementException if startLocation does not exist
+   * @throws IllegalArgumentException if seconds is negative or not a number
+   * @throws SearchTimeoutException if the search takes longer than the query
+   *         time budget
+   */
+  public Map<String, Double> findLocationsWithin(String startLocation, double seconds)
+      throws NoSuchElementException;
+
+  /**
+   * Finds the locations whose names contain the provided keyword, ignoring
+   * case, such as every library or every parking lot.
+   * @param keyword the text to look for in location names
+   * @return the matching locations, in the order of getListOfAllLocations
+   */
+  public List<String> findLocationsMatching(String keyword);
+
+  /**
+   * Finds the k facilities that are the shortest walk from startLocation, 
+   * along with the paths to them, in a single search that stops as soon as
+   * the k-th nearest facility is reached.
+   * @param startLocation the location to walk from
+   * @param facilities the candidate destinations
+   * @param k the number of facilities to find
+   * @return the paths to the nearest facilities, nearest first, with fewer
+   *         than k when fewer can be reached
+   * @throws NoSuchElementException if startLocation does not exist
+   * @throws SearchTimeoutException if the search takes longer than the query
+   *         time budget
+   */
+  public List<PathResult> findNearest(String startLocation, List<String> facilities, int k)
+      throws NoSuchElementException;
+
+  /**
+   * Finds the location where a group of people who start from different 
+   * locations should meet, so that either the longest walk of anyone or the
+   * total walking time of the group is as short as possible.
+   * @param startLocations the locations that the people in the group start 
+   *        from
+   * @param objective MAX to minimize the longest walk, or SUM to minimize the
+   *        total walk
+   * @return the meeting location along with everyone's walking time to it
+   * @throws IllegalArgumentException if there are no start locations
+   * @throws NoSuchElementException if a start location does not exist, or if
+   *         no location can be reached from every start location
+   * @throws SearchTimeoutException if the searches take longer than the query
+   *         time budget
+   */
+  public MeetingPoint findMeetingPoint(List<String> startLocations,
+      MeetingPoint.Objective objective) throws NoSuchElementException;
+
+  /**
+   * Finds the fastest order for visiting a list of stops, starting from the
+   * first one, and the full walking path that visits them in that order.
+   * The walking times between the stops are found with one search per stop,
+   * and kept for later itineraries.  Short lists are ordered exactly, and 
+   * longer ones by a heuristic within the time set by setItinerarySolverTime.
+   * @param stops the locations to visit, starting with the first one
+   * @param returnToStart true to end the itinerary back at the first stop
+   * @return the stops in the order they are visited, and the path that 
+   *         visits them
+   * @throws IllegalArgumentException if there are no stops
+   * @throws NoSuchElementException if a stop does not exist, or if some stop
+   *         cannot be reached from another
+   * @throws SearchTimeoutException if the searches take longer than the 
+   *         query time budget
+   */
+  public Itinerary planItinerary(List<String> stops, boolean returnToStart)
+      throws NoSuchElementException;
+
+  /**
+   * Computes the betweenness of every location and walkway: how many 
+   * shortest paths between two other locations pass through it.  The 
+   * locations and walkways with the highest scores are the bottlenecks of 
+   * the campus.  Sampled sources are picked the same way every time, and 
+   * the scores may be kept and returned again until the graph changes.
+   * @param samples the number of random sources to estimate the scores 
+   *        from, or 0 to compute them exactly from every location
+   * @return the scores of every location and walkway
+   * @throws SearchTimeoutException if the searches take longer than the 
+   *         query time budget
+   */
+  public Betweenness computeBetweenness(int samples);
+
 }
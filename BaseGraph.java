@@ -1,10 +1,17 @@
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 /**
  * This BaseGraph class contains stores a set of nodes, along with a set of
- * directed and weighted edges connecting those nodes.
+ * directed and weighted edges connecting those nodes. Edges can also carry a
+ * TravelTimeProfile, whose walking time depends on the time of day. The
+ * profiles of all edges are packed one after another into a single array,
+ * where each distinct profile is stored once, and edges refer to theirs by
+ * offset.
  */
 public class BaseGraph<NodeType, EdgeType extends Number> {
 
@@ -27,6 +34,8 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         public EdgeType data; // the weight or cost of this edge
         public Node predecessor;
         public Node successor;
+        // offset of this edge's travel time profile in profileData, or -1
+        public int profile = -1;
 
         public Edge(EdgeType data, Node pred, Node succ) {
             this.data = data;
@@ -36,8 +45,16 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     }
 
     protected int edgeCount = 0;
+    // the number of changes made to the graph so far
+    protected long modificationCount = 0;
     // Edges can be retrieved through the edge lists in either connected node
 
+    // the travel time profiles of the edges, packed one after another, and
+    // the offset of each distinct profile within them
+    protected double[] profileData = new double[0];
+    protected int profileDataSize = 0;
+    private Map<TravelTimeProfile, Integer> profileOffsets = new HashMap<>();
+
     /**
      * Constructor for BaseGraph that provides the map the graph uses.
      * 
@@ -60,6 +77,7 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         if (nodes.containsKey(data))
             return false; // throws NPE when data's null
         nodes.put(data, new Node(data));
+        modificationCount++;
         return true;
     }
 
@@ -83,9 +101,24 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         // remove all edges leaving neighboring nodes toward this one
         for (Edge edge : oldNode.edgesEntering)
             edge.predecessor.edgesLeaving.remove(edge);
+        modificationCount++;
         return true;
     }
 
+    /**
+     * Remove every node and edge from the graph in constant time, by replacing
+     * the node map's table and the profile storage with small new ones instead
+     * of removing the nodes one at a time.
+     */
+    public void clear() {
+        nodes.clear();
+        this.edgeCount = 0;
+        profileData = new double[0];
+        profileDataSize = 0;
+        profileOffsets = new HashMap<>();
+        modificationCount++;
+    }
+
     /**
      * Check whether the graph contains a node with the provided data.
      * 
@@ -144,6 +177,7 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
             predNode.edgesLeaving.add(newEdge);
             succNode.edgesEntering.add(newEdge);
         }
+        modificationCount++;
         return true;
     }
 
@@ -164,6 +198,7 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
             oldEdge.successor.edgesEntering.remove(oldEdge);
             // and decrement the edge count before removing
             this.edgeCount--;
+            modificationCount++;
             return true;
         } catch (NoSuchElementException e) {
             // when no such edge exists, return false instead
@@ -212,6 +247,100 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
                 succ.toString());
     }
 
+    /**
+     * Set the travel time profile of an edge, which time-dependent searches
+     * use instead of the edge's weight. The edge keeps its weight for every
+     * other search.
+     * 
+     * @param pred    the data item contained in the source node for the edge
+     * @param succ    the data item contained in the target node for the edge
+     * @param profile the walking time of the edge by time of day, or null to
+     *                always use the edge's weight
+     * @return true if the profile was set, or false if such an edge is not
+     *         found in the graph
+     */
+    public boolean setEdgeProfile(NodeType pred, NodeType succ,
+            TravelTimeProfile profile) {
+        try {
+            Edge edge = getEdgeHelper(pred, succ);
+            edge.profile = profile == null ? -1 : profileOffset(profile);
+            modificationCount++;
+            return true;
+        } catch (NoSuchElementException | NullPointerException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return the travel time profile of an edge.
+     * 
+     * @param pred the data item contained in the source node for the edge
+     * @param succ the data item contained in the target node for the edge
+     * @return the edge's profile, or null if it has none
+     * @throws NoSuchElementException if either node or the edge between them
+     *                                are not found within this graph
+     */
+    public TravelTimeProfile getEdgeProfile(NodeType pred, NodeType succ) {
+        int offset = getEdgeHelper(pred, succ).profile;
+        return offset < 0 ? null : TravelTimeProfile.unpack(profileData, offset);
+    }
+
+    /**
+     * Return the time it takes to traverse an edge when reaching its
+     * predecessor at the provided time, including any wait before setting
+     * out that arrives sooner. Edges without a profile take their weight.
+     * 
+     * @param pred      the data item contained in the source node for the edge
+     * @param succ      the data item contained in the target node for the edge
+     * @param departure the time of reaching pred, in seconds since midnight
+     * @return the time from departure until arriving at succ
+     * @throws NoSuchElementException if either node or the edge between them
+     *                                are not found within this graph
+     */
+    public double getTravelTime(NodeType pred, NodeType succ, double departure) {
+        Edge edge = getEdgeHelper(pred, succ);
+        // edges without a profile take their weight as it is, without rounding
+        if (edge.profile < 0)
+            return edge.data.doubleValue();
+        return arrivalTime(edge, departure) - departure;
+    }
+
+    /**
+     * Return the earliest time of arriving at an edge's successor when
+     * reaching its predecessor at the provided time.
+     * 
+     * @param edge      the edge to traverse
+     * @param departure the time of reaching the predecessor, in seconds
+     * @return the earliest arrival time at the successor
+     */
+    protected double arrivalTime(Edge edge, double departure) {
+        if (edge.profile < 0)
+            return departure + edge.data.doubleValue();
+        return TravelTimeProfile.arrival(profileData, edge.profile, departure);
+    }
+
+    /**
+     * Find the offset of a profile in profileData, packing it at the end
+     * when no edge uses an equal profile yet.
+     * 
+     * @param profile the profile to find
+     * @return the offset of the packed profile
+     */
+    protected int profileOffset(TravelTimeProfile profile) {
+        Integer offset = profileOffsets.get(profile);
+        if (offset == null) {
+            offset = profileDataSize;
+            int size = profile.packedSize();
+            if (profileDataSize + size > profileData.length)
+                profileData = Arrays.copyOf(profileData,
+                        Math.max(2 * profileData.length, profileDataSize + size));
+            profile.copyTo(profileData, profileDataSize);
+            profileDataSize += size;
+            profileOffsets.put(profile, offset);
+        }
+        return offset;
+    }
+
     /**
      * Return the number of edges in the graph.
      * 
@@ -221,5 +350,16 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         return this.edgeCount;
     }
 
+    /**
+     * Return the number of times the graph has changed through its insert,
+     * remove, setEdgeProfile and clear methods.
+     * 
+     * @return a count that only grows, and stays the same while the graph
+     *         does
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
 }
 
@@ -0,0 +1,384 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Betweenness holds the betweenness centrality of every location and walkway in a graph: how many
+ * of the shortest paths between two locations pass through it, with paths that tie for shortest
+ * sharing their count. Locations and walkways with the highest scores are the campus bottlenecks.
+ *
+ * Scores are computed with Brandes' algorithm: one Dijkstra search from every source counts the
+ * shortest paths to each node, and a pass back over the nodes in the reverse order they were
+ * settled adds up each node's and edge's share of them. Sources are split between threads that
+ * each add into accumulators of their own, which are merged once all sources are done. On large
+ * graphs a random sample of sources can be searched instead, with the scores scaled up by the
+ * fraction of sources that were sampled, which estimates the exact scores without bias.
+ *
+ * Usage: java Betweenness campus.dot [k] [samples]
+ */
+public class Betweenness {
+
+  // relative difference under which two path costs count as tied
+  private static final double TIE = 1e-9;
+
+  /**
+   * A location or walkway with its betweenness score.
+   */
+  public static class Bottleneck {
+    private final String from;
+    private final String to;
+    private final double score;
+
+    private Bottleneck(String from, String to, double score) {
+      this.from = from;
+      this.to = to;
+      this.score = score;
+    }
+
+    /**
+     * Retrieves the location, or the location that the walkway leaves.
+     *
+     * @return the location
+     */
+    public String getFrom() {
+      return from;
+    }
+
+    /**
+     * Retrieves the location that the walkway goes to.
+     *
+     * @return the location, or null for a location rather than a walkway
+     */
+    public String getTo() {
+      return to;
+    }
+
+    /**
+     * Retrieves the betweenness score.
+     *
+     * @return the number of shortest paths through this location or walkway
+     */
+    public double getScore() {
+      return score;
+    }
+
+    @Override
+    public String toString() {
+      return (to == null ? from : from + " -> " + to) + ": " + score;
+    }
+  }
+
+  private final CompactGraph graph;
+  private final double[] nodeScores;
+  private final double[] edgeScores;
+  private final int sourceCount;
+
+  private Betweenness(CompactGraph graph, double[] nodeScores, double[] edgeScores,
+      int sourceCount) {
+    this.graph = graph;
+    this.nodeScores = nodeScores;
+    this.edgeScores = edgeScores;
+    this.sourceCount = sourceCount;
+  }
+
+  /**
+   * Computes the betweenness of every node and edge of a graph.
+   *
+   * @param graph    the graph
+   * @param samples  the number of sources to sample, or 0 to search from every source
+   * @param seed     the seed of the sampled sources
+   * @param threads  the number of threads to search with
+   * @param deadline the time budget for the whole computation
+   * @return the scores
+   * @throws SearchTimeoutException if the deadline expires before every source is searched
+   */
+  public static Betweenness compute(CompactGraph graph, int samples, long seed, int threads,
+      SearchDeadline deadline) {
+    int n = graph.getNodeCount();
+    int[] sources = new int[n];
+    for (int i = 0; i < n; i++)
+      sources[i] = i;
+    // a partial shuffle picks the sampled sources
+    int count = samples > 0 && samples < n ? samples : n;
+    Random random = new Random(seed);
+    for (int i = 0; count < n && i < count; i++) {
+      int j = i + random.nextInt(n - i);
+      int swap = sources[i];
+      sources[i] = sources[j];
+      sources[j] = swap;
+    }
+    double scale = (double) n / Math.max(1, count);
+
+    // each thread takes the next source until there are none left
+    AtomicInteger next = new AtomicInteger();
+    int workers = Math.max(1, Math.min(threads, count));
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    List<Future<Worker>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < workers; i++) {
+        SearchDeadline workerDeadline = deadline.forWorker();
+        results.add(executor.submit(() -> {
+          Worker worker = new Worker(graph);
+          for (int s = next.getAndIncrement(); s < count; s = next.getAndIncrement()) {
+            if (workerDeadline.isExpired())
+              throw new SearchTimeoutException("Betweenness timed out after searching from "
+                  + next.get() + " of " + count + " sources.");
+            worker.accumulate(sources[s]);
+          }
+          return worker;
+        }));
+      }
+      // merge the accumulators of all threads
+      double[] nodeScores = new double[n];
+      double[] edgeScores = new double[graph.getEdgeCount()];
+      for (Future<Worker> result : results) {
+        Worker worker = result.get();
+        for (int v = 0; v < n; v++)
+          nodeScores[v] += worker.nodeScores[v] * scale;
+        for (int e = 0; e < edgeScores.length; e++)
+          edgeScores[e] += worker.edgeScores[e] * scale;
+      }
+      return new Betweenness(graph, nodeScores, edgeScores, count);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new IllegalStateException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SearchTimeoutException("Betweenness was interrupted.");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * The state of one thread: the arrays of a single source's search, which are reset by visiting
+   * only the nodes it settled, and the scores added up over all of the thread's sources.
+   */
+  private static class Worker {
+    final CompactGraph graph;
+    final double[] nodeScores;
+    final double[] edgeScores;
+    final double[] cost;
+    final double[] paths;
+    final double[] dependency;
+    final int[] reached;
+    final int[] settled;
+    final int[] order;
+    int search = 0;
+    double[] heapCosts = new double[64];
+    int[] heapNodes = new int[64];
+    int heapSize = 0;
+
+    Worker(CompactGraph graph) {
+      int n = graph.getNodeCount();
+      this.graph = graph;
+      nodeScores = new double[n];
+      edgeScores = new double[graph.getEdgeCount()];
+      cost = new double[n];
+      paths = new double[n];
+      dependency = new double[n];
+      reached = new int[n];
+      settled = new int[n];
+      order = new int[n];
+    }
+
+    // adds the shares of the shortest paths from source to every node and edge they pass through
+    void accumulate(int source) {
+      int[] offsets = graph.offsets;
+      int[] targets = graph.targets;
+      double[] weights = graph.weights;
+      search++;
+      cost[source] = 0;
+      paths[source] = 1;
+      reached[source] = search;
+      push(source, 0);
+      // count the shortest paths to every node, settling them in order of cost
+      int settledCount = 0;
+      while (heapSize > 0) {
+        int v = pop();
+        if (settled[v] == search)
+          continue; // an outdated entry
+        settled[v] = search;
+        order[settledCount++] = v;
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+          int w = targets[e];
+          if (settled[w] == search)
+            continue;
+          double wCost = cost[v] + weights[e];
+          if (reached[w] != search || (wCost < cost[w] && !tied(wCost, cost[w]))) {
+            reached[w] = search;
+            cost[w] = wCost;
+            paths[w] = paths[v];
+            push(w, wCost);
+          } else if (tied(wCost, cost[w])) {
+            paths[w] += paths[v];
+          }
+        }
+      }
+      // add up the dependencies from the furthest node back, over the edges of shortest paths
+      for (int i = settledCount - 1; i >= 0; i--) {
+        int v = order[i];
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+          int w = targets[e];
+          if (settled[w] == search && w != source && tied(cost[v] + weights[e], cost[w])) {
+            double share = paths[v] / paths[w] * (1 + dependency[w]);
+            edgeScores[e] += share;
+            dependency[v] += share;
+          }
+        }
+        if (v != source)
+          nodeScores[v] += dependency[v];
+      }
+      for (int i = 0; i < settledCount; i++)
+        dependency[order[i]] = 0;
+    }
+
+    private static boolean tied(double a, double b) {
+      return Math.abs(a - b) <= TIE * Math.max(1, Math.abs(b));
+    }
+
+    void push(int node, double nodeCost) {
+      if (heapSize == heapCosts.length) {
+        heapCosts = Arrays.copyOf(heapCosts, heapSize * 2);
+        heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+      }
+      int i = heapSize++;
+      while (i > 0) {
+        int up = (i - 1) >>> 1;
+        if (heapCosts[up] <= nodeCost)
+          break;
+        heapCosts[i] = heapCosts[up];
+        heapNodes[i] = heapNodes[up];
+        i = up;
+      }
+      heapCosts[i] = nodeCost;
+      heapNodes[i] = node;
+    }
+
+    // removes the cheapest entry, returning its node
+    int pop() {
+      int top = heapNodes[0];
+      heapSize--;
+      double lastCost = heapCosts[heapSize];
+      int lastNode = heapNodes[heapSize];
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= heapSize)
+          break;
+        if (child + 1 < heapSize && heapCosts[child + 1] < heapCosts[child])
+          child++;
+        if (heapCosts[child] >= lastCost)
+          break;
+        heapCosts[i] = heapCosts[child];
+        heapNodes[i] = heapNodes[child];
+        i = child;
+      }
+      heapCosts[i] = lastCost;
+      heapNodes[i] = lastNode;
+      return top;
+    }
+  }
+
+  /**
+   * Retrieves the number of sources that were searched.
+   *
+   * @return the number of sources, which is every node unless the sources were sampled
+   */
+  public int getSourceCount() {
+    return sourceCount;
+  }
+
+  /**
+   * Checks whether the scores are exact, rather than estimated from a sample of sources.
+   *
+   * @return true if every node was searched from
+   */
+  public boolean isExact() {
+    return sourceCount == graph.getNodeCount();
+  }
+
+  /**
+   * Retrieves the betweenness of a location.
+   *
+   * @param location the name of a location
+   * @return the number of shortest paths between other locations that pass through it
+   * @throws IllegalArgumentException if there is no such location
+   */
+  public double getScore(String location) {
+    int id = graph.idOf(location);
+    if (id < 0)
+      throw new IllegalArgumentException("Unknown location: " + location);
+    return nodeScores[id];
+  }
+
+  /**
+   * Finds the locations that the most shortest paths pass through.
+   *
+   * @param k the number of locations to return
+   * @return the k locations with the highest scores, highest first
+   */
+  public List<Bottleneck> topLocations(int k) {
+    List<Bottleneck> top = new ArrayList<>();
+    for (int id : top(nodeScores, k))
+      top.add(new Bottleneck(graph.nameOf(id), null, nodeScores[id]));
+    return top;
+  }
+
+  /**
+   * Finds the walkways that the most shortest paths pass through.
+   *
+   * @param k the number of walkways to return
+   * @return the k walkways with the highest scores, highest first
+   */
+  public List<Bottleneck> topWalkways(int k) {
+    List<Bottleneck> top = new ArrayList<>();
+    for (int e : top(edgeScores, k))
+      top.add(new Bottleneck(graph.nameOf(graph.sourceOf(e)), graph.nameOf(graph.targets[e]),
+          edgeScores[e]));
+    return top;
+  }
+
+  // the indices of the k highest scores, highest first, keeping index order among ties
+  private static List<Integer> top(double[] scores, int k) {
+    List<Integer> indices = new ArrayList<>(scores.length);
+    for (int i = 0; i < scores.length; i++)
+      indices.add(i);
+    indices.sort((a, b) -> Double.compare(scores[b], scores[a]));
+    return indices.subList(0, Math.min(k, indices.size()));
+  }
+
+  /**
+   * Prints the locations and walkways with the highest betweenness in a graph file.
+   *
+   * @param args the graph file, optionally followed by the number of bottlenecks to list and the
+   *             number of sources to sample
+   * @throws IOException if the graph file cannot be loaded
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1)
+      throw new IllegalArgumentException("Usage: java Betweenness campus.dot [k] [samples]");
+    int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+    int samples = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+    Backend backend = new Backend(new DijkstraGraph<>());
+    backend.loadGraphData(args[0]);
+    long startNanos = System.nanoTime();
+    Betweenness betweenness = backend.computeBetweenness(samples);
+    System.out.printf("Searched from %d sources in %d ms%n", betweenness.getSourceCount(),
+        (System.nanoTime() - startNanos) / 1_000_000);
+    System.out.println("Busiest locations:");
+    for (Bottleneck bottleneck : betweenness.topLocations(k))
+      System.out.println("  " + bottleneck);
+    System.out.println("Busiest walkways:");
+    for (Bottleneck bottleneck : betweenness.topWalkways(k))
+      System.out.println("  " + bottleneck);
+  }
+}
@@ -0,0 +1,385 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This ChunkedGraphLoader is the base for loaders of line oriented edge list formats. The file is
+ * split into chunks at line boundaries, every chunk is memory-mapped and parsed on its own thread
+ * into primitive arrays, and the chunks are then merged and inserted into the graph in bulk.
+ * Subclasses only need to parse single lines.
+ */
+public abstract class ChunkedGraphLoader implements GraphLoader {
+
+  // largest chunk mapped at once, which keeps every chunk well below the 2GB mapping limit
+  private static final long MAX_CHUNK_BYTES = 64L * 1024 * 1024;
+  // smallest chunk worth handing to another thread
+  private static final long MIN_CHUNK_BYTES = 1024 * 1024;
+
+  private final int threads;
+
+  /**
+   * An EdgeChunk holds the arcs parsed from one chunk of a file in primitive arrays. Nodes are
+   * either numeric ids from the file, or indexes into this chunk's own list of names.
+   */
+  protected static class EdgeChunk {
+    int size = 0;
+    int[] from = new int[1024];
+    int[] to = new int[1024];
+    double[] weights = new double[1024];
+    // names of the nodes referenced by index in this chunk, or null when ids are numeric
+    List<String> names = null;
+    Map<String, Integer> nameIndexes = null;
+    // largest numeric node id seen in this chunk
+    int maxId = -1;
+    // number of nodes declared by the file, when the format declares it
+    int declaredNodes = -1;
+    // offset of this chunk's first byte within the whole file
+    long offset = 0;
+
+    /**
+     * Adds an arc between two nodes.
+     * 
+     * @param u      the node the arc leaves
+     * @param v      the node the arc enters
+     * @param weight the weight of the arc
+     * @throws IllegalArgumentException if the weight is negative or not a number
+     */
+    protected void add(int u, int v, double weight) {
+      if (!(weight >= 0))
+        throw new IllegalArgumentException("Weights must not be negative: " + weight);
+      if (size == from.length) {
+        from = Arrays.copyOf(from, size * 2);
+        to = Arrays.copyOf(to, size * 2);
+        weights = Arrays.copyOf(weights, size * 2);
+      }
+      from[size] = u;
+      to[size] = v;
+      weights[size] = weight;
+      size++;
+      maxId = Math.max(maxId, Math.max(u, v));
+    }
+
+    /**
+     * Retrieves the index of a node name in this chunk, adding it when it is new.
+     * 
+     * @param name the name of a node
+     * @return the index of that name in this chunk
+     */
+    protected int indexOf(String name) {
+      if (names == null) {
+        names = new ArrayList<>();
+        nameIndexes = new HashMap<>();
+      }
+      Integer index = nameIndexes.get(name);
+      if (index == null) {
+        index = names.size();
+        names.add(name);
+        nameIndexes.put(name, index);
+      }
+      return index;
+    }
+  }
+
+  /**
+   * Constructor for a loader that parses with one thread per available processor.
+   */
+  public ChunkedGraphLoader() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructor for a loader that parses with the provided number of threads.
+   * 
+   * @param threads the number of chunks parsed at the same time
+   */
+  public ChunkedGraphLoader(int threads) {
+    this.threads = Math.max(1, threads);
+  }
+
+  /**
+   * Parses a single line of the file into the chunk.
+   * 
+   * @param buffer     the mapped chunk that contains the line
+   * @param start      index of the first byte of the line in buffer
+   * @param end        index just past the last byte of the line, excluding the line break
+   * @param chunk      the chunk to add the parsed arc or declaration to
+   * @throws IllegalArgumentException if the line is malformed
+   */
+  protected abstract void parseLine(ByteBuffer buffer, int start, int end, EdgeChunk chunk);
+
+  /**
+   * Splits the file into chunks, parses them in parallel, and inserts the result into the graph.
+   * 
+   * @param file  the file to read graph data from
+   * @param graph the graph to insert the nodes and edges into
+   * @return a report of the amount of data loaded and the time that it took
+   * @throws IOException if the file cannot be read or contains a malformed line
+   */
+  public LoadReport load(Path file, GraphADT<String, Double> graph) throws IOException {
+    long start = System.nanoTime();
+    List<EdgeChunk> chunks;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      chunks = parseChunks(channel, file);
+    }
+    long parsed = System.nanoTime();
+    long arcs = insert(chunks, graph);
+    return new LoadReport(file.toString(), graph.getNodeCount(), arcs, parsed - start,
+        System.nanoTime() - parsed);
+  }
+
+  // finds chunk boundaries at line breaks and parses every chunk on the thread pool
+  private List<EdgeChunk> parseChunks(FileChannel channel, Path file) throws IOException {
+    long size = channel.size();
+    long chunkBytes = Math.min(MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES, size / (threads * 4L)));
+    List<long[]> ranges = new ArrayList<>();
+    long offset = 0;
+    while (offset < size) {
+      long end = nextLineStart(channel, Math.min(size, offset + chunkBytes), size);
+      ranges.add(new long[] {offset, end});
+      offset = end;
+    }
+
+    ExecutorService pool =
+        Executors.newFixedThreadPool(Math.min(threads, Math.max(1, ranges.size())));
+    try {
+      List<Future<EdgeChunk>> futures = new ArrayList<>();
+      for (long[] range : ranges)
+        futures.add(pool.submit(() -> parseChunk(channel, range[0], range[1])));
+      List<EdgeChunk> chunks = new ArrayList<>();
+      for (Future<EdgeChunk> future : futures)
+        chunks.add(future.get());
+      return chunks;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while loading " + file);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException)
+        throw ((UncheckedIOException) cause).getCause();
+      throw new IOException("Could not load " + file + ": " + cause.getMessage(), cause);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  // returns the offset just after the next line break at or after position
+  private static long nextLineStart(FileChannel channel, long position, long size)
+      throws IOException {
+    ByteBuffer probe = ByteBuffer.allocate(4096);
+    while (position < size) {
+      probe.clear();
+      int read = channel.read(probe, position);
+      if (read <= 0)
+        break;
+      for (int i = 0; i < read; i++)
+        if (probe.get(i) == '\n')
+          return position + i + 1;
+      position += read;
+    }
+    return size;
+  }
+
+  // maps one chunk and parses every line in it
+  private EdgeChunk parseChunk(FileChannel channel, long from, long to) {
+    EdgeChunk chunk = new EdgeChunk();
+    chunk.offset = from;
+    MappedByteBuffer buffer;
+    try {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    int limit = buffer.limit();
+    int lineStart = 0;
+    for (int i = 0; i <= limit; i++) {
+      if (i == limit || buffer.get(i) == '\n') {
+        int end = i;
+        if (end > lineStart && buffer.get(end - 1) == '\r')
+          end--;
+        if (end > lineStart) {
+          try {
+            parseLine(buffer, lineStart, end, chunk);
+          } catch (IllegalArgumentException e) {
+            // report the position within the whole file rather than within this chunk
+            throw new IllegalArgumentException("Malformed line at byte offset "
+                + (from + lineStart) + ": " + e.getMessage());
+          }
+        }
+        lineStart = i + 1;
+      }
+    }
+    return chunk;
+  }
+
+  // merges the chunks and builds the graph from every node and arc in them
+  private static long insert(List<EdgeChunk> chunks, GraphADT<String, Double> graph) {
+    GraphBuilder<String, Double> builder = new GraphBuilder<>();
+    // declared nodes are numbered from 1, and inserted even when no arc touches them
+    int declaredNodes = -1;
+    for (EdgeChunk chunk : chunks)
+      declaredNodes = Math.max(declaredNodes, chunk.declaredNodes);
+    // numeric ids share one table of builder node numbers across all chunks
+    int[] numericIds = null;
+    for (int id = 1; id <= declaredNodes; id++)
+      numericIds = numericId(numericIds, id, builder);
+
+    long arcs = 0;
+    for (EdgeChunk chunk : chunks) {
+      if (chunk.names != null) {
+        // named nodes are numbered per chunk, so translate them to builder numbers
+        int[] ids = new int[chunk.names.size()];
+        for (int i = 0; i < ids.length; i++)
+          ids[i] = builder.addNode(chunk.names.get(i));
+        for (int i = 0; i < chunk.size; i++)
+          builder.addEdge(ids[chunk.from[i]], ids[chunk.to[i]], chunk.weights[i]);
+      } else {
+        for (int i = 0; i < chunk.size; i++) {
+          numericIds = numericId(numericIds, chunk.from[i], builder);
+          numericIds = numericId(numericIds, chunk.to[i], builder);
+          builder.addEdge(numericIds[chunk.from[i]] - 1, numericIds[chunk.to[i]] - 1,
+              chunk.weights[i]);
+        }
+      }
+      arcs += chunk.size;
+    }
+    builder.buildInto(graph);
+    return arcs;
+  }
+
+  // makes sure the numeric id has a builder node, storing its number plus one in the table
+  private static int[] numericId(int[] table, int id, GraphBuilder<String, Double> builder) {
+    if (table == null)
+      table = new int[Math.max(16, id + 1)];
+    else if (id >= table.length)
+      table = Arrays.copyOf(table, Math.max(id + 1, table.length * 2));
+    if (table[id] == 0)
+      table[id] = builder.addNode(Integer.toString(id)) + 1;
+    return table;
+  }
+
+  // ---- helpers for parsing numbers straight from the mapped bytes ----
+
+  /**
+   * Skips spaces and tabs.
+   * 
+   * @param buffer the buffer being parsed
+   * @param i      the index to start at
+   * @param end    the end of the line
+   * @return the index of the first byte that is not a space or tab
+   */
+  protected static int skipBlanks(ByteBuffer buffer, int i, int end) {
+    while (i < end && (buffer.get(i) == ' ' || buffer.get(i) == '\t'))
+      i++;
+    return i;
+  }
+
+  /**
+   * Finds the end of the field that starts at i, which ends at a space, a tab, or the delimiter.
+   * 
+   * @param buffer    the buffer being parsed
+   * @param i         the index the field starts at
+   * @param end       the end of the line
+   * @param delimiter an extra byte that ends the field, such as ','
+   * @return the index just past the field
+   */
+  protected static int fieldEnd(ByteBuffer buffer, int i, int end, byte delimiter) {
+    while (i < end) {
+      byte b = buffer.get(i);
+      if (b == ' ' || b == '\t' || b == delimiter)
+        break;
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * Parses a non-negative decimal integer.
+   * 
+   * @param buffer the buffer being parsed
+   * @param start  the index of the first digit
+   * @param end    the index just past the last digit
+   * @return the parsed value
+   * @throws NumberFormatException if the field is empty or contains anything but digits
+   */
+  protected static int parseInt(ByteBuffer buffer, int start, int end) {
+    if (start >= end)
+      throw new NumberFormatException("Expected a number");
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      int digit = buffer.get(i) - '0';
+      if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE)
+        throw new NumberFormatException("Invalid number: " + text(buffer, start, end));
+      value = value * 10 + digit;
+    }
+    if (value > Integer.MAX_VALUE)
+      throw new NumberFormatException("Number too large: " + text(buffer, start, end));
+    return (int) value;
+  }
+
+  /**
+   * Parses a decimal number, using a fast path for plain integers and decimals.
+   * 
+   * @param buffer the buffer being parsed
+   * @param start  the index of the first character of the number
+   * @param end    the index just past the last character
+   * @return the parsed value
+   * @throws NumberFormatException if the field is not a number
+   */
+  protected static double parseDouble(ByteBuffer buffer, int start, int end) {
+    int i = start;
+    boolean negative = i < end && buffer.get(i) == '-';
+    if (negative)
+      i++;
+    long mantissa = 0;
+    int digits = 0;
+    int scale = 0;
+    boolean dot = false;
+    for (; i < end; i++) {
+      byte b = buffer.get(i);
+      // up to 15 digits fit in a double exactly, so dividing by a power of ten rounds correctly
+      if (b >= '0' && b <= '9' && digits < 15) {
+        mantissa = mantissa * 10 + (b - '0');
+        digits++;
+        if (dot)
+          scale++;
+      } else if (b == '.' && !dot) {
+        dot = true;
+      } else {
+        // exponents and very long numbers take the slow path
+        return Double.parseDouble(text(buffer, start, end));
+      }
+    }
+    if (digits == 0)
+      throw new NumberFormatException("Expected a number");
+    double value = scale == 0 ? mantissa : mantissa / Math.pow(10, scale);
+    return negative ? -value : value;
+  }
+
+  /**
+   * Decodes a range of the buffer as UTF-8 text.
+   * 
+   * @param buffer the buffer being parsed
+   * @param start  the index of the first byte
+   * @param end    the index just past the last byte
+   * @return the decoded text
+   */
+  protected static String text(ByteBuffer buffer, int start, int end) {
+    byte[] bytes = new byte[end - start];
+    buffer.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,192 @@
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A CompactGraph is an immutable snapshot of a graph's topology and weights in compressed sparse
+ * row arrays, for whole-graph computations that visit every node and edge many times, where the
+ * linked nodes and edges of a BaseGraph would be chased through the heap over and over. Nodes are
+ * numbered from 0 to n - 1, and the edges leaving node v are edges offsets[v] to offsets[v + 1],
+ * going to targets[e] with weight weights[e].
+ */
+public class CompactGraph implements IndexedGraph {
+
+  final String[] names;
+  final int[] offsets;
+  final int[] targets;
+  final double[] weights;
+  // node numbers by name
+  private final Map<String, Integer> ids;
+
+  /**
+   * Constructor for a graph over the provided arrays, which are used as they are.
+   *
+   * @param names   the name of every node
+   * @param offsets int[n + 1], where the edges leaving node v are offsets[v] to offsets[v + 1]
+   * @param targets the successor of every edge
+   * @param weights the weight of every edge
+   */
+  CompactGraph(String[] names, int[] offsets, int[] targets, double[] weights) {
+    this.names = names;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+    this.ids = new HashMap<>(names.length * 2);
+    for (int id = 0; id < names.length; id++)
+      ids.put(names[id], id);
+  }
+
+  /**
+   * Takes a snapshot of a graph. Nodes are numbered in the order of getAllNodes, and the edges
+   * leaving each node keep their order in the graph.
+   *
+   * @param graph the graph to take a snapshot of
+   * @return the snapshot
+   */
+  public static CompactGraph of(BaseGraph<String, Double> graph) {
+    List<String> nodeNames = graph.getAllNodes();
+    int n = nodeNames.size();
+    String[] names = nodeNames.toArray(new String[0]);
+    Map<Object, Integer> ids = new IdentityHashMap<>();
+    for (int id = 0; id < n; id++)
+      ids.put(graph.nodes.get(names[id]), id);
+    int[] offsets = new int[n + 1];
+    for (int id = 0; id < n; id++)
+      offsets[id + 1] = offsets[id] + graph.nodes.get(names[id]).edgesLeaving.size();
+    int[] targets = new int[offsets[n]];
+    double[] weights = new double[offsets[n]];
+    for (int id = 0; id < n; id++) {
+      int e = offsets[id];
+      for (BaseGraph<String, Double>.Edge edge : graph.nodes.get(names[id]).edgesLeaving) {
+        targets[e] = ids.get(edge.successor);
+        weights[e++] = edge.data;
+      }
+    }
+    return new CompactGraph(names, offsets, targets, weights);
+  }
+
+  /**
+   * Renumbers the nodes of this graph, such as for locality with NodeOrdering. Names and weights
+   * stay with their nodes and edges, so lookups by name find the same nodes as before.
+   *
+   * @param order the node of this graph that takes each number, which lists every node once
+   * @return a copy of this graph with its nodes renumbered
+   */
+  public CompactGraph reorder(int[] order) {
+    int n = names.length;
+    int[] newId = new int[n];
+    for (int id = 0; id < n; id++)
+      newId[order[id]] = id;
+    String[] newNames = new String[n];
+    int[] newOffsets = new int[n + 1];
+    int[] newTargets = new int[targets.length];
+    double[] newWeights = new double[weights.length];
+    for (int id = 0; id < n; id++) {
+      int v = order[id];
+      newNames[id] = names[v];
+      int e = newOffsets[id];
+      for (int old = offsets[v]; old < offsets[v + 1]; old++) {
+        newTargets[e] = newId[targets[old]];
+        newWeights[e++] = weights[old];
+      }
+      newOffsets[id + 1] = e;
+    }
+    return new CompactGraph(newNames, newOffsets, newTargets, newWeights);
+  }
+
+  /**
+   * Retrieves the number of nodes.
+   *
+   * @return the number of nodes
+   */
+  @Override
+  public int getNodeCount() {
+    return names.length;
+  }
+
+  /**
+   * Retrieves the number of edges.
+   *
+   * @return the number of edges
+   */
+  @Override
+  public int getEdgeCount() {
+    return targets.length;
+  }
+
+  /**
+   * Retrieves the number of the first edge leaving a node, which is offsets[node].
+   *
+   * @param node the number of a node, or the node count for the end of the last node's edges
+   * @return the number of the node's first edge
+   */
+  @Override
+  public int edgeOffset(int node) {
+    return offsets[node];
+  }
+
+  /**
+   * Retrieves the node that an edge enters, which is targets[edge].
+   *
+   * @param edge the number of an edge
+   * @return the number of the node that the edge enters
+   */
+  @Override
+  public int targetOf(int edge) {
+    return targets[edge];
+  }
+
+  /**
+   * Retrieves the weight of an edge, which is weights[edge].
+   *
+   * @param edge the number of an edge
+   * @return the weight of the edge
+   */
+  @Override
+  public double weightOf(int edge) {
+    return weights[edge];
+  }
+
+  /**
+   * Finds the number of the node with the provided name.
+   *
+   * @param name the name of a node
+   * @return the number of that node, or -1 if there is no such node
+   */
+  @Override
+  public int idOf(String name) {
+    Integer id = ids.get(name);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Retrieves the name of a node by its number.
+   *
+   * @param id the number of a node
+   * @return the name of that node
+   */
+  @Override
+  public String nameOf(int id) {
+    return names[id];
+  }
+
+  /**
+   * Finds the number of the edge between two nodes.
+   *
+   * @param from the name of the node that the edge leaves
+   * @param to   the name of the node that the edge enters
+   * @return the number of the edge, or -1 if there is no such edge
+   */
+  @Override
+  public int edgeIndex(String from, String to) {
+    int u = idOf(from);
+    int v = idOf(to);
+    if (u < 0 || v < 0)
+      return -1;
+    for (int e = offsets[u]; e < offsets[u + 1]; e++)
+      if (targets[e] == v)
+        return e;
+    return -1;
+  }
+}
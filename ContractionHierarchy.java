@@ -0,0 +1,809 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * A ContractionHierarchy answers shortest path queries on a graph whose walking times change often
+ * while its walkways do not, such as when walkways are closed for a while or get slower when they
+ * are crowded. It is a customizable contraction hierarchy, built in two phases:
+ *
+ * Preprocessing only looks at which locations are connected, never at walking times. It ranks the
+ * locations by nested dissection: a set of locations that separates the graph into two halves is
+ * ranked above both halves, which are ranked the same way in turn. There are no coordinates to cut
+ * the graph along, so each separator is a level of a breadth-first search from a peripheral
+ * location: the smallest level that leaves between a third and two thirds of the locations on
+ * either side. Then every location is contracted in rank order, which connects all of its higher
+ * ranked neighbors to each other. The result is a fixed set of upward arcs, where the higher
+ * neighbors of every location are all its ancestors in the elimination tree (where the parent of
+ * a location is its lowest ranked higher neighbor).
+ *
+ * Customization fills in the walking time of every arc in both directions, as the fastest of the
+ * walkways it stands for and of the paths through a lower location that both of its ends are
+ * connected to (a lower triangle). Each location only writes its own arcs, and only reads the arcs
+ * of lower locations, so the locations are customized level by level up the elimination tree, with
+ * the locations of each level split between threads. When only a few walking times change, only
+ * the arcs whose time can depend on them are customized again.
+ *
+ * A query searches upward from both ends, which only visits their ancestors in the elimination
+ * tree, in rank order and without a priority queue, and meets at the best common ancestor. Every
+ * arc remembers the lower location that its time goes through, so the path is unpacked into
+ * walkways afterwards. Customizations never change a metric that queries may be reading, they
+ * build a new one and then swap it in.
+ */
+public class ContractionHierarchy {
+
+  // the name that a hierarchy's ranks and arcs are saved under in a SnapshotStore
+  public static final String ARTIFACT_NAME = "contraction-hierarchy";
+  // subgraphs with at most this many locations are not dissected any further
+  static final int LEAF_SIZE = 8;
+  // levels with fewer locations than this are customized on the calling thread
+  private static final int PARALLEL_LEVEL_SIZE = 64;
+
+  // the walking times of every arc in both directions, and the location each one goes through
+  private static class Metric {
+    final double[] up;
+    final double[] down;
+    final int[] upMiddle;
+    final int[] downMiddle;
+
+    Metric(int arcs) {
+      up = new double[arcs];
+      down = new double[arcs];
+      upMiddle = new int[arcs];
+      downMiddle = new int[arcs];
+    }
+
+    Metric(Metric other) {
+      up = other.up.clone();
+      down = other.down.clone();
+      upMiddle = other.upMiddle.clone();
+      downMiddle = other.downMiddle.clone();
+    }
+  }
+
+  // the arrays of one thread's queries, stamped with a query number instead of being cleared
+  private static class Workspace {
+    final double[] forward;
+    final double[] backward;
+    final int[] forwardArc;
+    final int[] backwardArc;
+    final int[] reached;
+    int query = 0;
+
+    Workspace(int n) {
+      forward = new double[n];
+      backward = new double[n];
+      forwardArc = new int[n];
+      backwardArc = new int[n];
+      reached = new int[n];
+    }
+  }
+
+  private final CompactGraph graph;
+  // the rank of every location of graph, and the location of graph at every rank
+  private final int[] rank;
+  private final int[] nodeAt;
+  // arcs upOffsets[v] to upOffsets[v + 1] lead from rank v up to ranks upHeads[a], in increasing
+  // order, and arcTails[a] is the rank that arc a leads up from
+  private final int[] upOffsets;
+  private final int[] upHeads;
+  private final int[] arcTails;
+  // the lower neighbors downTails[i] of every rank, in increasing order, with the arcs to them
+  private final int[] downOffsets;
+  private final int[] downTails;
+  private final int[] downArcs;
+  // the parent of every rank in the elimination tree, or -1 for a root
+  private final int[] parent;
+  // the ranks of every level of the elimination tree, from the leaves up
+  private final int[] levelOffsets;
+  private final int[] levelNodes;
+  // the arc of every edge of graph (-1 for loops), whether it leads up that arc, and the edges of
+  // every arc
+  private final int[] edgeArcs;
+  private final boolean[] edgeUpward;
+  private final int[] arcInputOffsets;
+  private final int[] arcInputs;
+
+  // the current walking time of every edge of graph, guarded by this
+  private double[] weights;
+  private volatile Metric metric;
+  private final ThreadLocal<Workspace> workspaces;
+  // the arc from the rank being customized to each of its higher neighbors, by the neighbor
+  private final ThreadLocal<int[]> arcPositions;
+
+  private ContractionHierarchy(CompactGraph graph, int[] nodeAt, int[][] up) {
+    int n = graph.getNodeCount();
+    this.graph = graph;
+    this.nodeAt = nodeAt;
+    rank = new int[n];
+    for (int r = 0; r < n; r++)
+      rank[nodeAt[r]] = r;
+
+    // the upward arcs, and the elimination tree they form
+    upOffsets = new int[n + 1];
+    for (int r = 0; r < n; r++)
+      upOffsets[r + 1] = upOffsets[r] + up[r].length;
+    int arcs = upOffsets[n];
+    upHeads = new int[arcs];
+    arcTails = new int[arcs];
+    parent = new int[n];
+    for (int r = 0; r < n; r++) {
+      System.arraycopy(up[r], 0, upHeads, upOffsets[r], up[r].length);
+      Arrays.fill(arcTails, upOffsets[r], upOffsets[r + 1], r);
+      parent[r] = up[r].length > 0 ? up[r][0] : -1;
+    }
+
+    // the same arcs from their upper ends, which come out sorted by tail since tails increase
+    downOffsets = new int[n + 1];
+    for (int a = 0; a < arcs; a++)
+      downOffsets[upHeads[a] + 1]++;
+    for (int r = 0; r < n; r++)
+      downOffsets[r + 1] += downOffsets[r];
+    downTails = new int[arcs];
+    downArcs = new int[arcs];
+    int[] next = Arrays.copyOf(downOffsets, n);
+    for (int a = 0; a < arcs; a++) {
+      int i = next[upHeads[a]]++;
+      downTails[i] = arcTails[a];
+      downArcs[i] = a;
+    }
+
+    // a rank's level is one above the highest level of its lower neighbors
+    int[] level = new int[n];
+    int levels = 0;
+    for (int r = 0; r < n; r++) {
+      for (int i = downOffsets[r]; i < downOffsets[r + 1]; i++)
+        level[r] = Math.max(level[r], level[downTails[i]] + 1);
+      levels = Math.max(levels, level[r] + 1);
+    }
+    levelOffsets = new int[levels + 1];
+    for (int r = 0; r < n; r++)
+      levelOffsets[level[r] + 1]++;
+    for (int l = 0; l < levels; l++)
+      levelOffsets[l + 1] += levelOffsets[l];
+    levelNodes = new int[n];
+    next = Arrays.copyOf(levelOffsets, levels);
+    for (int r = 0; r < n; r++)
+      levelNodes[next[level[r]]++] = r;
+
+    // the arc that every edge of the graph is an input to
+    int edges = graph.getEdgeCount();
+    edgeArcs = new int[edges];
+    edgeUpward = new boolean[edges];
+    arcInputOffsets = new int[arcs + 1];
+    for (int u = 0; u < n; u++) {
+      for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+        int from = rank[u];
+        int to = rank[graph.targets[e]];
+        edgeArcs[e] = from == to ? -1 : arcBetween(Math.min(from, to), Math.max(from, to));
+        edgeUpward[e] = from < to;
+        if (edgeArcs[e] >= 0)
+          arcInputOffsets[edgeArcs[e] + 1]++;
+      }
+    }
+    for (int a = 0; a < arcs; a++)
+      arcInputOffsets[a + 1] += arcInputOffsets[a];
+    arcInputs = new int[arcInputOffsets[arcs]];
+    next = Arrays.copyOf(arcInputOffsets, arcs);
+    for (int e = 0; e < edges; e++)
+      if (edgeArcs[e] >= 0)
+        arcInputs[next[edgeArcs[e]]++] = e;
+
+    weights = graph.weights.clone();
+    workspaces = ThreadLocal.withInitial(() -> new Workspace(n));
+    arcPositions = ThreadLocal.withInitial(() -> new int[n]);
+    metric = customize(weights, null, null);
+  }
+
+  /**
+   * Builds the hierarchy of a graph, and customizes it with the graph's walking times.
+   *
+   * @param graph the graph to build the hierarchy of
+   * @return the customized hierarchy
+   */
+  public static ContractionHierarchy build(CompactGraph graph) {
+    int n = graph.getNodeCount();
+    int[][] adjacency = graph.undirectedAdjacency();
+    int[] offsets = adjacency[0];
+    int[] neighbors = adjacency[1];
+    int[] nodeAt = nestedDissection(offsets, neighbors);
+    int[] rank = new int[n];
+    for (int r = 0; r < n; r++)
+      rank[nodeAt[r]] = r;
+
+    // contract the locations in rank order: the higher neighbors of each one become neighbors of
+    // each other, which is the same as handing them all to the lowest of them, its parent
+    int[][] up = new int[n][];
+    int[] sizes = new int[n];
+    for (int r = 0; r < n; r++) {
+      int u = nodeAt[r];
+      up[r] = new int[offsets[u + 1] - offsets[u]];
+      for (int i = offsets[u]; i < offsets[u + 1]; i++)
+        if (rank[neighbors[i]] > r)
+          up[r][sizes[r]++] = rank[neighbors[i]];
+    }
+    for (int r = 0; r < n; r++) {
+      int[] heads = up[r];
+      Arrays.sort(heads, 0, sizes[r]);
+      int size = 0;
+      for (int i = 0; i < sizes[r]; i++)
+        if (size == 0 || heads[size - 1] != heads[i])
+          heads[size++] = heads[i];
+      up[r] = Arrays.copyOf(heads, size);
+      if (size > 1) {
+        int p = heads[0];
+        if (sizes[p] + size - 1 > up[p].length)
+          up[p] = Arrays.copyOf(up[p], Math.max(2 * up[p].length, sizes[p] + size - 1));
+        System.arraycopy(heads, 1, up[p], sizes[p], size - 1);
+        sizes[p] += size - 1;
+      }
+    }
+    return new ContractionHierarchy(graph, nodeAt, up);
+  }
+
+  /**
+   * Writes the ranks and arcs of the hierarchy, which only depend on which locations are
+   * connected, so that read can skip preprocessing later. Walking times are not written, since
+   * read customizes with the walking times of the graph it is given.
+   *
+   * @param out the destination of the hierarchy's bytes
+   * @throws IOException if the bytes cannot be written
+   */
+  public void write(DataOutput out) throws IOException {
+    int n = nodeAt.length;
+    out.writeInt(n);
+    out.writeLong(graph.numberingHash());
+    for (int r = 0; r < n; r++)
+      out.writeInt(nodeAt[r]);
+    for (int r = 0; r < n; r++) {
+      out.writeInt(upOffsets[r + 1] - upOffsets[r]);
+      for (int a = upOffsets[r]; a < upOffsets[r + 1]; a++)
+        out.writeInt(upHeads[a]);
+    }
+  }
+
+  /**
+   * Reads a hierarchy that was written by write, and customizes it with the walking times of
+   * graph.
+   *
+   * @param in    the source of the hierarchy's bytes
+   * @param graph the graph that the hierarchy was built from, numbered the same way
+   * @return the customized hierarchy
+   * @throws IOException if the bytes cannot be read, or were written for a graph that is numbered
+   *                     differently
+   */
+  public static ContractionHierarchy read(DataInput in, CompactGraph graph) throws IOException {
+    int n = in.readInt();
+    if (n != graph.getNodeCount() || in.readLong() != graph.numberingHash())
+      throw new IOException("The hierarchy was built from a different graph");
+    int[] nodeAt = new int[n];
+    boolean[] ranked = new boolean[n];
+    for (int r = 0; r < n; r++) {
+      nodeAt[r] = in.readInt();
+      if (nodeAt[r] < 0 || nodeAt[r] >= n || ranked[nodeAt[r]])
+        throw new IOException("Rank " + r + " has an invalid location: " + nodeAt[r]);
+      ranked[nodeAt[r]] = true;
+    }
+    int[][] up = new int[n][];
+    for (int r = 0; r < n; r++) {
+      int size = in.readInt();
+      if (size < 0 || size > n - r - 1)
+        throw new IOException("Rank " + r + " has an invalid number of arcs: " + size);
+      up[r] = new int[size];
+      for (int i = 0; i < size; i++) {
+        up[r][i] = in.readInt();
+        if (up[r][i] <= (i == 0 ? r : up[r][i - 1]) || up[r][i] >= n)
+          throw new IOException("Rank " + r + " has an invalid arc to " + up[r][i]);
+      }
+    }
+    return new ContractionHierarchy(graph, nodeAt, up);
+  }
+
+  // a set of locations that is ranked from first onward
+  private static class Part {
+    final int[] nodes;
+    final int first;
+
+    Part(int[] nodes, int first) {
+      this.nodes = nodes;
+      this.first = first;
+    }
+  }
+
+  /**
+   * Ranks the nodes of an undirected graph by nested dissection, with breadth-first search levels
+   * as separators.
+   *
+   * @param offsets   int[n + 1], where the neighbors of node u are offsets[u] to offsets[u + 1]
+   * @param neighbors the neighbors of every node
+   * @return the node at every rank
+   */
+  static int[] nestedDissection(int[] offsets, int[] neighbors) {
+    int n = offsets.length - 1;
+    int[] nodeAt = new int[n];
+    // the part that each node belongs to, and the search that last reached it at which level
+    int[] owner = new int[n];
+    int[] reached = new int[n];
+    int[] level = new int[n];
+    int[] queue = new int[n];
+    int parts = 0;
+    int searches = 0;
+    Deque<Part> pending = new ArrayDeque<>();
+    pending.push(new Part(rangeOf(n), 0));
+    while (!pending.isEmpty()) {
+      Part part = pending.pop();
+      int[] nodes = part.nodes;
+      int size = nodes.length;
+      if (size <= LEAF_SIZE) {
+        System.arraycopy(nodes, 0, nodeAt, part.first, size);
+        continue;
+      }
+      int id = ++parts;
+      for (int v : nodes)
+        owner[v] = id;
+
+      // a part that is not connected is split into its first component and the rest
+      int count = search(nodes[0], id, ++searches, offsets, neighbors, owner, reached, level,
+          queue);
+      if (count < size) {
+        int[] rest = new int[size - count];
+        int k = 0;
+        for (int v : nodes)
+          if (reached[v] != searches)
+            rest[k++] = v;
+        pending.push(new Part(Arrays.copyOf(queue, count), part.first));
+        pending.push(new Part(rest, part.first + count));
+        continue;
+      }
+
+      // search again from the last node reached, which is far from everything, and separate at
+      // the smallest level that leaves between a third and two thirds of the nodes on either side
+      count = search(queue[size - 1], id, ++searches, offsets, neighbors, owner, reached, level,
+          queue);
+      int maxLevel = level[queue[size - 1]];
+      int[] levelSizes = new int[maxLevel + 1];
+      for (int i = 0; i < size; i++)
+        levelSizes[level[queue[i]]]++;
+      int separatorLevel = -1;
+      for (int l = 0, before = 0; l < maxLevel; before += levelSizes[l++]) {
+        boolean balanced = 3 * (before + levelSizes[l]) >= size && 3 * before <= 2 * size;
+        if (balanced && (separatorLevel < 0 || levelSizes[l] < levelSizes[separatorLevel]))
+          separatorLevel = l;
+      }
+      // a part whose levels are too wide to balance falls back to the level with half the nodes
+      if (separatorLevel < 0) {
+        separatorLevel = 0;
+        int total = levelSizes[0];
+        while (total < size / 2)
+          total += levelSizes[++separatorLevel];
+        separatorLevel = Math.min(separatorLevel, maxLevel - 1);
+      }
+
+      // only the separator level's nodes that have a neighbor in the level after it separate
+      int[] below = new int[size];
+      int[] above = new int[size];
+      int[] separator = new int[size];
+      int belowCount = 0;
+      int aboveCount = 0;
+      int separatorCount = 0;
+      for (int i = 0; i < size; i++) {
+        int v = queue[i];
+        if (level[v] > separatorLevel) {
+          above[aboveCount++] = v;
+          continue;
+        }
+        boolean separates = false;
+        if (level[v] == separatorLevel)
+          for (int j = offsets[v]; j < offsets[v + 1] && !separates; j++)
+            separates = owner[neighbors[j]] == id && level[neighbors[j]] == separatorLevel + 1;
+        if (separates)
+          separator[separatorCount++] = v;
+        else
+          below[belowCount++] = v;
+      }
+      System.arraycopy(separator, 0, nodeAt, part.first + size - separatorCount, separatorCount);
+      pending.push(new Part(Arrays.copyOf(below, belowCount), part.first));
+      pending.push(new Part(Arrays.copyOf(above, aboveCount), part.first + belowCount));
+    }
+    return nodeAt;
+  }
+
+  // the nodes 0 to n - 1
+  private static int[] rangeOf(int n) {
+    int[] nodes = new int[n];
+    for (int i = 0; i < n; i++)
+      nodes[i] = i;
+    return nodes;
+  }
+
+  // a breadth-first search within one part, which fills queue with the nodes it reaches in order
+  // and returns how many it reached
+  private static int search(int start, int part, int searchId, int[] offsets, int[] neighbors,
+      int[] owner, int[] reached, int[] level, int[] queue) {
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = start;
+    reached[start] = searchId;
+    level[start] = 0;
+    while (head < tail) {
+      int v = queue[head++];
+      for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+        int w = neighbors[i];
+        if (owner[w] == part && reached[w] != searchId) {
+          reached[w] = searchId;
+          level[w] = level[v] + 1;
+          queue[tail++] = w;
+        }
+      }
+    }
+    return tail;
+  }
+
+  // the arc from rank low up to rank high, or -1 if there is none
+  private int arcBetween(int low, int high) {
+    int a = Arrays.binarySearch(upHeads, upOffsets[low], upOffsets[low + 1], high);
+    return a < 0 ? -1 : a;
+  }
+
+  /**
+   * Customizes the arcs, either all of them or only the ones that can depend on the arcs of the
+   * changed edges.
+   *
+   * @param weights  the walking time of every edge
+   * @param previous the metric to start from, or null to customize every arc
+   * @param changed  the edges whose walking times changed since previous, or null
+   * @return the new metric
+   */
+  private Metric customize(double[] weights, Metric previous, int[] changed) {
+    int arcs = upHeads.length;
+    Metric next = previous == null ? new Metric(arcs) : new Metric(previous);
+    Customization run = new Customization(arcs, upOffsets.length - 1, previous != null);
+    if (previous == null) {
+      Arrays.fill(run.dirty, true);
+      Arrays.fill(run.touched, true);
+    } else {
+      for (int e : changed) {
+        int a = edgeArcs[e];
+        if (a >= 0) {
+          run.dirty[a] = true;
+          run.touched[arcTails[a]] = true;
+        }
+      }
+    }
+    for (int l = 0; l + 1 < levelOffsets.length; l++) {
+      IntStream ranks = IntStream.range(levelOffsets[l], levelOffsets[l + 1]);
+      if (levelOffsets[l + 1] - levelOffsets[l] >= PARALLEL_LEVEL_SIZE)
+        ranks = ranks.parallel();
+      ranks.forEach(i -> customize(levelNodes[i], weights, next, run));
+    }
+    return next;
+  }
+
+  /**
+   * The state of one customization: which arcs have to be customized again, which ones changed,
+   * which ranks had arcs that changed, and which ranks may have arcs that depend on them.
+   */
+  private static class Customization {
+    final boolean[] dirty;
+    final boolean[] changed;
+    final boolean[] touched;
+    final boolean[] moved;
+    final boolean partial;
+
+    Customization(int arcs, int ranks, boolean partial) {
+      dirty = new boolean[arcs];
+      changed = partial ? new boolean[arcs] : null;
+      touched = new boolean[ranks];
+      moved = partial ? new boolean[ranks] : null;
+      this.partial = partial;
+    }
+  }
+
+  /**
+   * Customizes the dirty arcs leading up from one rank, from the walking times of their edges and
+   * of their lower triangles. In a partial customization an arc is dirty if one of its edges or
+   * one of the arcs of its lower triangles changed, and the higher neighbors of a rank whose arcs
+   * changed are touched, since the arcs between them have the rank in their lower triangles.
+   */
+  private void customize(int x, double[] weights, Metric metric, Customization run) {
+    if (!run.touched[x])
+      return;
+    boolean[] dirty = run.dirty;
+    int begin = upOffsets[x];
+    int end = upOffsets[x + 1];
+    int[] arcOf = arcPositions.get();
+    for (int a = begin; a < end; a++)
+      arcOf[upHeads[a]] = a;
+
+    // the arcs from x to the higher neighbors y that v shares with x, for every lower neighbor v,
+    // are the lower triangles of x's arcs
+    if (run.partial) {
+      for (int i = downOffsets[x]; i < downOffsets[x + 1]; i++) {
+        if (!run.moved[downTails[i]])
+          continue;
+        int vx = downArcs[i];
+        boolean all = run.changed[vx];
+        for (int vy = vx + 1; vy < upOffsets[downTails[i] + 1]; vy++)
+          if (all || run.changed[vy])
+            dirty[arcOf[upHeads[vy]]] = true;
+      }
+    }
+    boolean any = false;
+    for (int a = begin; a < end && !any; a++)
+      any = dirty[a];
+    if (!any)
+      return;
+    double[] oldUp = run.partial ? Arrays.copyOfRange(metric.up, begin, end) : null;
+    double[] oldDown = run.partial ? Arrays.copyOfRange(metric.down, begin, end) : null;
+
+    // start from the fastest edge that each arc stands for
+    for (int a = begin; a < end; a++) {
+      if (!dirty[a])
+        continue;
+      metric.up[a] = Double.POSITIVE_INFINITY;
+      metric.down[a] = Double.POSITIVE_INFINITY;
+      metric.upMiddle[a] = -1;
+      metric.downMiddle[a] = -1;
+      for (int i = arcInputOffsets[a]; i < arcInputOffsets[a + 1]; i++) {
+        int e = arcInputs[i];
+        if (edgeUpward[e])
+          metric.up[a] = Math.min(metric.up[a], weights[e]);
+        else
+          metric.down[a] = Math.min(metric.down[a], weights[e]);
+      }
+    }
+
+    // then try the path through every lower triangle
+    for (int i = downOffsets[x]; i < downOffsets[x + 1]; i++) {
+      int v = downTails[i];
+      int vx = downArcs[i];
+      for (int vy = vx + 1; vy < upOffsets[v + 1]; vy++) {
+        int a = arcOf[upHeads[vy]];
+        if (!dirty[a])
+          continue;
+        double upTime = metric.down[vx] + metric.up[vy];
+        if (upTime < metric.up[a]) {
+          metric.up[a] = upTime;
+          metric.upMiddle[a] = v;
+        }
+        double downTime = metric.down[vy] + metric.up[vx];
+        if (downTime < metric.down[a]) {
+          metric.down[a] = downTime;
+          metric.downMiddle[a] = v;
+        }
+      }
+    }
+
+    if (!run.partial)
+      return;
+    boolean moved = false;
+    for (int a = begin; a < end; a++) {
+      if (dirty[a] && (metric.up[a] != oldUp[a - begin] || metric.down[a] != oldDown[a - begin])) {
+        run.changed[a] = true;
+        moved = true;
+      }
+    }
+    if (moved) {
+      run.moved[x] = true;
+      for (int a = begin; a < end; a++)
+        run.touched[upHeads[a]] = true;
+    }
+  }
+
+  /**
+   * Finds the number of an edge of the graph that this hierarchy was built from.
+   *
+   * @param from the location that the edge leaves
+   * @param to   the location that the edge enters
+   * @return the number of the edge, or -1 if there is no such edge
+   */
+  public int edgeIndex(String from, String to) {
+    return graph.edgeIndex(from, to);
+  }
+
+
+  /**
+   * Changes the walking times of a batch of edges, and customizes the arcs that depend on them.
+   * Queries keep using the previous walking times until the new ones are all customized.
+   *
+   * @param edges   the numbers of the edges, as returned by edgeIndex
+   * @param seconds the new walking time of each edge, which is infinite for a closed walkway
+   * @throws IllegalArgumentException if an edge does not exist or a walking time is not positive
+   */
+  public synchronized void updateWeights(int[] edges, double[] seconds) {
+    double[] next = weights.clone();
+    for (int i = 0; i < edges.length; i++) {
+      if (edges[i] < 0 || edges[i] >= next.length)
+        throw new IllegalArgumentException("No edge numbered " + edges[i]);
+      if (!(seconds[i] > 0))
+        throw new IllegalArgumentException("Walking times must be positive: " + seconds[i]);
+      next[edges[i]] = seconds[i];
+    }
+    metric = customize(next, metric, edges);
+    weights = next;
+  }
+
+  /**
+   * Finds the shortest path between two locations with the current walking times.
+   *
+   * @param start the location to start from
+   * @param end   the location to go to
+   * @return the locations and walking times along the shortest path, or no path if either
+   *         location does not exist or end cannot be reached from start
+   */
+  public PathResult shortestPath(String start, String end) {
+    return shortestPath(start, end, SearchDeadline.none());
+  }
+
+  /**
+   * Finds the shortest path between two locations with the current walking times, within a time
+   * budget. Every ancestor that the search relaxes the arcs of counts as settled by the deadline.
+   *
+   * @param start    the location to start from
+   * @param end      the location to go to
+   * @param deadline the time budget of the query
+   * @return the locations and walking times along the shortest path, or no path if either
+   *         location does not exist or end cannot be reached from start
+   * @throws SearchTimeoutException if the deadline expires during the search
+   */
+  public PathResult shortestPath(String start, String end, SearchDeadline deadline) {
+    // a query settles too few ancestors to reach the next clock check on most graphs, so the
+    // deadline is also checked before it starts
+    if (deadline.isExpired())
+      throw new SearchTimeoutException("Contraction hierarchy query timed out");
+    int s = graph.idOf(start);
+    int t = graph.idOf(end);
+    if (s < 0 || t < 0)
+      return PathResult.noPath();
+    s = rank[s];
+    t = rank[t];
+    Metric m = metric;
+    Workspace w = workspaces.get();
+    int query = ++w.query;
+
+    // search up the elimination tree from both ends, which reaches each ancestor only after all
+    // of the lower ancestors that have arcs to it
+    for (int v = t; v >= 0; v = parent[v]) {
+      w.backward[v] = Double.POSITIVE_INFINITY;
+      w.reached[v] = query;
+    }
+    w.backward[t] = 0;
+    for (int v = s; v >= 0; v = parent[v])
+      w.forward[v] = Double.POSITIVE_INFINITY;
+    w.forward[s] = 0;
+    relax(s, m.up, w.forward, w.forwardArc, deadline);
+    relax(t, m.down, w.backward, w.backwardArc, deadline);
+
+    // meet at the common ancestor with the fastest path through it
+    int meet = -1;
+    double best = Double.POSITIVE_INFINITY;
+    for (int v = s; v >= 0; v = parent[v]) {
+      if (w.reached[v] == query && w.forward[v] + w.backward[v] < best) {
+        best = w.forward[v] + w.backward[v];
+        meet = v;
+      }
+    }
+    if (meet < 0)
+      return PathResult.noPath();
+
+    // collect the arcs of both halves in the order they are walked, and unpack them
+    int[] arcs = new int[2 * levelOffsets.length];
+    boolean[] upward = new boolean[arcs.length];
+    int count = 0;
+    for (int v = meet; v != s; v = arcTails[w.forwardArc[v]])
+      count++;
+    int forwardCount = count;
+    for (int v = meet, i = forwardCount - 1; v != s; v = arcTails[w.forwardArc[v]], i--) {
+      arcs[i] = w.forwardArc[v];
+      upward[i] = true;
+    }
+    for (int v = meet; v != t; v = arcTails[w.backwardArc[v]]) {
+      arcs[count] = w.backwardArc[v];
+      upward[count++] = false;
+    }
+    List<String> locations = new ArrayList<>();
+    List<Double> times = new ArrayList<>();
+    locations.add(start);
+    Deque<Integer> stack = new ArrayDeque<>();
+    for (int i = count - 1; i >= 0; i--)
+      stack.push(upward[i] ? arcs[i] : ~arcs[i]);
+    while (!stack.isEmpty()) {
+      int entry = stack.pop();
+      boolean up = entry >= 0;
+      int a = up ? entry : ~entry;
+      int low = arcTails[a];
+      int high = upHeads[a];
+      int middle = up ? m.upMiddle[a] : m.downMiddle[a];
+      if (middle < 0) {
+        locations.add(graph.nameOf(nodeAt[up ? high : low]));
+        times.add(up ? m.up[a] : m.down[a]);
+        continue;
+      }
+      // an upward arc goes down to the middle and then up, and a downward arc the other way
+      int toLow = arcBetween(middle, low);
+      int toHigh = arcBetween(middle, high);
+      stack.push(up ? toHigh : toLow);
+      stack.push(up ? ~toLow : ~toHigh);
+    }
+    return PathResult.found(locations, times);
+  }
+
+  // relaxes the arcs leading up from every ancestor of start, lowest first
+  private void relax(int start, double[] times, double[] cost, int[] viaArc,
+      SearchDeadline deadline) {
+    for (int v = start; v >= 0; v = parent[v]) {
+      if (cost[v] == Double.POSITIVE_INFINITY)
+        continue;
+      if (deadline.tick())
+        throw new SearchTimeoutException("Contraction hierarchy query timed out");
+      for (int a = upOffsets[v]; a < upOffsets[v + 1]; a++) {
+        double time = cost[v] + times[a];
+        if (time < cost[upHeads[a]]) {
+          cost[upHeads[a]] = time;
+          viaArc[upHeads[a]] = a;
+        }
+      }
+    }
+  }
+
+  /**
+   * Retrieves the number of arcs, which counts the walkways between two locations once, however
+   * many directions they can be walked in, along with the shortcuts added by contraction.
+   *
+   * @return the number of arcs
+   */
+  public int getArcCount() {
+    return upHeads.length;
+  }
+
+  /**
+   * Retrieves the height of the elimination tree, which bounds the number of locations that a
+   * query visits from either end.
+   *
+   * @return the number of levels of the elimination tree
+   */
+  public int getLevelCount() {
+    return levelOffsets.length - 1;
+  }
+
+  /**
+   * Builds the hierarchy of a graph file, and reports the time taken by preprocessing, by a full
+   * customization, and by customizing a batch of changed walking times.
+   *
+   * @param args the graph file, optionally followed by the size of the batch (100 by default)
+   * @throws IOException if the graph file cannot be loaded
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1)
+      throw new IllegalArgumentException("Usage: java ContractionHierarchy campus.dot [batch]");
+    int batch = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+    new Backend(graph).loadGraphData(args[0]);
+    CompactGraph compact = CompactGraph.of(graph);
+    long startNanos = System.nanoTime();
+    ContractionHierarchy hierarchy = build(compact);
+    System.out.printf("Built %d arcs over %d levels in %d ms%n", hierarchy.getArcCount(),
+        hierarchy.getLevelCount(), (System.nanoTime() - startNanos) / 1_000_000);
+    startNanos = System.nanoTime();
+    hierarchy.metric = hierarchy.customize(hierarchy.weights, null, null);
+    System.out.printf("Customized every arc in %.2f ms%n", (System.nanoTime() - startNanos) / 1e6);
+    Random random = new Random(1);
+    int[] edges = new int[Math.min(batch, compact.getEdgeCount())];
+    double[] seconds = new double[edges.length];
+    for (int i = 0; i < edges.length; i++) {
+      edges[i] = random.nextInt(compact.getEdgeCount());
+      seconds[i] = compact.weights[edges[i]] * (1 + random.nextDouble());
+    }
+    startNanos = System.nanoTime();
+    hierarchy.updateWeights(edges, seconds);
+    System.out.printf("Customized a batch of %d walking times in %.2f ms%n", edges.length,
+        (System.nanoTime() - startNanos) / 1e6);
+  }
+}
@@ -0,0 +1,85 @@
+import java.nio.ByteBuffer;
+
+/**
+ * This CsvGraphLoader loads plain edge lists with one "from,to,weight" arc per line. Node names may
+ * be quoted with double quotes (with "" standing for a quote inside a name), blank lines and lines
+ * starting with # are skipped, and a first line whose weight is not a number is treated as a
+ * header. Weights must not be negative.
+ */
+public class CsvGraphLoader extends ChunkedGraphLoader {
+
+  /**
+   * Parses one arc line.
+   * 
+   * @param buffer the mapped chunk that contains the line
+   * @param start  index of the first byte of the line
+   * @param end    index just past the last byte of the line
+   * @param chunk  the chunk to add the parsed arc to
+   */
+  protected void parseLine(ByteBuffer buffer, int start, int end, EdgeChunk chunk) {
+    int first = skipBlanks(buffer, start, end);
+    if (first == end || buffer.get(first) == '#')
+      return;
+    int[] position = {start};
+    String from = field(buffer, position, end);
+    String to = field(buffer, position, end);
+    String weight = field(buffer, position, end);
+    if (from == null || to == null || weight == null)
+      throw new IllegalArgumentException("Expected from,to,weight");
+    double value;
+    try {
+      value = Double.parseDouble(weight);
+    } catch (NumberFormatException e) {
+      // a header can only be the very first line of the file, not of every chunk
+      if (chunk.offset + start == 0)
+        return;
+      throw new IllegalArgumentException("Invalid weight: " + weight);
+    }
+    chunk.add(chunk.indexOf(from), chunk.indexOf(to), value);
+  }
+
+  // reads the next comma separated field, advancing position past its comma
+  private static String field(ByteBuffer buffer, int[] position, int end) {
+    int i = skipBlanks(buffer, position[0], end);
+    if (i > end || (i == end && position[0] > end))
+      return null;
+    String value;
+    if (i < end && buffer.get(i) == '"') {
+      // quoted field, where "" stands for one quote
+      StringBuilder text = new StringBuilder();
+      int segment = ++i;
+      while (true) {
+        if (i >= end)
+          throw new IllegalArgumentException("Unterminated quoted field");
+        if (buffer.get(i) == '"') {
+          text.append(text(buffer, segment, i));
+          if (i + 1 < end && buffer.get(i + 1) == '"') {
+            text.append('"');
+            i += 2;
+            segment = i;
+            continue;
+          }
+          i++;
+          break;
+        }
+        i++;
+      }
+      value = text.toString();
+      i = skipBlanks(buffer, i, end);
+    } else {
+      int fieldStart = i;
+      while (i < end && buffer.get(i) != ',')
+        i++;
+      int fieldEnd = i;
+      while (fieldEnd > fieldStart
+          && (buffer.get(fieldEnd - 1) == ' ' || buffer.get(fieldEnd - 1) == '\t'))
+        fieldEnd--;
+      value = text(buffer, fieldStart, fieldEnd);
+    }
+    if (i < end && buffer.get(i) != ',')
+      throw new IllegalArgumentException("Expected ',' after a field");
+    // step past the comma, or past the end of the line once the last field is read
+    position[0] = i + 1;
+    return value;
+  }
+}
@@ -4,10 +4,14 @@
 // Lecturer: Dahl
 // Notes to Grader: I was a little confused with the map and implementing hashmaps because we havent
 // learned them yet so I just gave it my best shot.
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * This class extends the BaseGraph data structure with additional methods for computing the total
@@ -47,6 +51,10 @@ public class DijkstraGraph<NodeType, EdgeType extends Number> extends BaseGraph<
     }
   }
 
+  // statistics of the last search that each thread ran on this graph
+  private final ThreadLocal<SearchStats> lastSearchStats =
+      ThreadLocal.withInitial(SearchStats::new);
+
   /**
    * Constructor that sets the map that the graph uses.
    */
@@ -61,13 +69,39 @@ public class DijkstraGraph<NodeType, EdgeType extends Number> extends BaseGraph<
    * path, and the nodes linked together through predecessor references represent all of the nodes
    * along that shortest path (ordered from end to start).
    *
-   * @param start the data item in the starting node for the path
-   * @param end   the data item in the destination node for the path
+   * @param start    the data item in the starting node for the path
+   * @param end      the data item in the destination node for the path
+   * @param deadline the time budget that this search is checked against while it runs
    * @return SearchNode for the final end node within the shortest path
    * @throws NoSuchElementException when no path from start to end is found or when either start or
    *                                end data do not correspond to a graph node
+   * @throws SearchTimeoutException when the deadline expires before the search finishes
+   */
+  protected SearchNode computeShortestPath(NodeType start, NodeType end, SearchDeadline deadline) {
+    return computeShortestPath(start, end, Double.NaN, deadline);
+  }
+
+  /**
+   * Computes the shortest path like computeShortestPath(start, end, deadline), or the path that
+   * arrives earliest when leaving at the provided departure time. In that case the cost of every
+   * SearchNode is the time since departure at which its node is reached, and each edge costs the
+   * time until arriving at its successor when reached at that time, following the edge's travel
+   * time profile. Waiting is allowed, so arrival times are FIFO and the first time a node is
+   * settled is its earliest arrival, just like with fixed weights.
+   *
+   * @param start     the data item in the starting node for the path
+   * @param end       the data item in the destination node for the path
+   * @param departure the time of leaving start in seconds since midnight, or NaN to use the fixed
+   *                  edge weights
+   * @param deadline  the time budget that this search is checked against while it runs
+   * @return SearchNode for the final end node within the path
+   * @throws NoSuchElementException when no path from start to end is found or when either start or
+   *                                end data do not correspond to a graph node
+   * @throws SearchTimeoutException when the deadline expires before the search finishes
    */
-  protected SearchNode computeShortestPath(NodeType start, NodeType end) {
+  protected SearchNode computeShortestPath(NodeType start, NodeType end, double departure,
+      SearchDeadline deadline) {
+    boolean timeDependent = !Double.isNaN(departure);
 
     // Make sure that both start and end nodes exist
     if (!containsNode(start) || !containsNode(end)) {
@@ -79,43 +113,87 @@ public class DijkstraGraph<NodeType, EdgeType extends Number> extends BaseGraph<
     MapADT<Node, Double> shortestPathCosts = new HashtableMap<>();
     Node startNode = nodes.get(start);
     Node endNode = nodes.get(end);
+    // count the work done by this search, and report it when the search ends however it ends
+    SearchStats stats = new SearchStats();
+    SearchEvent event = new SearchEvent();
+    event.begin();
+    String outcome = "no path";
 
-    // add the first SearchNode node to the queue with a null value and set the maps first value
-    queue.add(new SearchNode(startNode, 0.0, null));
+    try {
+      // add the first SearchNode node to the queue with a null value and set the maps first value
+      queue.add(new SearchNode(startNode, 0.0, null));
+      stats.pushed(queue.size());
 
-    // while loop until the queue is empty
-    while (!queue.isEmpty()) {
-      SearchNode current = queue.poll();
-     
-      // check if we have visted the node before
-      if(shortestPathCosts.containsKey(current.node) && shortestPathCosts.get(current.node) <= current.cost) {
-        continue;
-      }
-      
-      //mark current node as visted
-      shortestPathCosts.put(current.node, current.cost);
-      // if we are at the last node then we will return it
-      if (current.node.equals(endNode)) {
-        return current;
-      }
-      // loop through each of the edges 
-      for(Edge edge : current.node.edgesLeaving) {
-        Node neighbor = edge.successor;
-        double newCost = current.cost + edge.data.doubleValue();
-        
-        // if the shortest path of costs has the neighbor or shortestOathCost's neibor is greater 
-        // than the new cost then put the neighbor with the newCost in the map and and the edge to 
-        // the queue
-        if(!shortestPathCosts.containsKey(neighbor) || newCost < shortestPathCosts.get(neighbor)) {
-          //shortestPathCosts.put(neighbor,  newCost);
-          queue.add(new SearchNode(neighbor, newCost, current));
+      // while loop until the queue is empty
+      while (!queue.isEmpty()) {
+        SearchNode current = queue.poll();
+
+        // check if we have visted the node before
+        stats.mapLookups++;
+        if (shortestPathCosts.containsKey(current.node)) {
+          stats.mapLookups++;
+          if (shortestPathCosts.get(current.node) <= current.cost) {
+            stats.stalePops++;
+            continue;
+          }
+        }
+
+        //mark current node as visted
+        stats.mapLookups++;
+        shortestPathCosts.put(current.node, current.cost);
+        stats.nodesSettled++;
+        // give up once the query has used up its time budget or was cancelled
+        if (deadline.tick()) {
+          outcome = "timed out";
+          throw new SearchTimeoutException("Search timed out after settling "
+              + deadline.getSettledCount() + " nodes.");
+        }
+        // if we are at the last node then we will return it
+        if (current.node.equals(endNode)) {
+          outcome = "found";
+          return current;
+        }
+        // loop through each of the edges 
+        for(Edge edge : current.node.edgesLeaving) {
+          Node neighbor = edge.successor;
+          double newCost = timeDependent && edge.profile >= 0
+              ? arrivalTime(edge, departure + current.cost) - departure
+              : current.cost + edge.data.doubleValue();
+          stats.edgesRelaxed++;
+          // an edge that is closed from now on can never be taken
+          if (newCost == Double.POSITIVE_INFINITY)
+            continue;
+
+          // if the shortest path of costs has the neighbor or shortestOathCost's neibor is
+          // greater than the new cost then put the neighbor with the newCost in the map and and
+          // the edge to the queue
+          stats.mapLookups++;
+          boolean settled = shortestPathCosts.containsKey(neighbor);
+          if (settled)
+            stats.mapLookups++;
+          if(!settled || newCost < shortestPathCosts.get(neighbor)) {
+            queue.add(new SearchNode(neighbor, newCost, current));
+            stats.pushed(queue.size());
+          }
         }
       }
+    } finally {
+      lastSearchStats.set(stats);
+      event.finish(timeDependent ? "departing" : "path", start, end, outcome, stats);
     }
     // Throw NoSuchElemntException if no path can be found
     throw new NoSuchElementException("No path found from start to end node.");
   }
 
+  /**
+   * Returns the statistics of the last search that the calling thread ran on this graph.
+   *
+   * @return the work done by the calling thread's last search
+   */
+  public SearchStats getLastSearchStats() {
+    return lastSearchStats.get();
+  }
+
   /**
    * Returns the list of data values from nodes along the shortest path from the node with the
    * provided start value through the node with the provided end value. This list of data values
@@ -128,8 +206,39 @@ public class DijkstraGraph<NodeType, EdgeType extends Number> extends BaseGraph<
    * @return list of data item from node along this shortest path
    */
   public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+    return shortestPathData(start, end, SearchDeadline.none());
+  }
+
+  /**
+   * Returns the list of data values from nodes along the shortest path from start to end, like
+   * shortestPathData(start, end), while stopping the search once the provided deadline expires.
+   *
+   * @param start    the data item in the starting node for the path
+   * @param end      the data item in the destination node for the path
+   * @param deadline the time budget for this search
+   * @return list of data item from node along this shortest path
+   * @throws SearchTimeoutException when the deadline expires before the search finishes
+   */
+  public List<NodeType> shortestPathData(NodeType start, NodeType end, SearchDeadline deadline) {
+    return shortestPathData(start, end, Double.NaN, deadline);
+  }
+
+  /**
+   * Returns the list of data values from nodes along the path from start to end that arrives
+   * earliest when leaving at the provided departure time, following the travel time profiles of
+   * the edges that have one. This method uses a time-dependent version of Dijkstra's algorithm.
+   *
+   * @param start     the data item in the starting node for the path
+   * @param end       the data item in the destination node for the path
+   * @param departure the time of leaving start, in seconds since midnight
+   * @param deadline  the time budget for this search
+   * @return list of data item from node along this path
+   * @throws SearchTimeoutException when the deadline expires before the search finishes
+   */
+  public List<NodeType> shortestPathData(NodeType start, NodeType end, double departure,
+      SearchDeadline deadline) {
  // create a search node to contain our path and our path that we will add to
-    SearchNode endNode = computeShortestPath(start, end);
+    SearchNode endNode = computeShortestPath(start, end, departure, deadline);
     LinkedList<NodeType> path = new LinkedList<>();
     
     // while the node isn't null keep getting its predecessor and add it to the list
@@ -151,9 +260,218 @@ public class DijkstraGraph<NodeType, EdgeType extends Number> extends BaseGraph<
    * @return the cost of the shortest path between these nodes
    */
   public double shortestPathCost(NodeType start, NodeType end) {
+    return shortestPathCost(start, end, SearchDeadline.none());
+  }
+
+  /**
+   * Returns the cost of the shortest path from start to end, like shortestPathCost(start, end),
+   * while stopping the search once the provided deadline expires.
+   *
+   * @param start    the data item in the starting node for the path
+   * @param end      the data item in the destination node for the path
+   * @param deadline the time budget for this search
+   * @return the cost of the shortest path between these nodes
+   * @throws SearchTimeoutException when the deadline expires before the search finishes
+   */
+  public double shortestPathCost(NodeType start, NodeType end, SearchDeadline deadline) {
     
     // return the cost of the shortest path
-    SearchNode endNode = computeShortestPath(start, end);
+    SearchNode endNode = computeShortestPath(start, end, deadline);
     return endNode.cost;
   }
+
+  /**
+   * Returns the costs of the shortest paths from the node containing the start data to every node
+   * that can be reached from it, including the start node itself at cost 0. This runs a single
+   * search that settles every reachable node, instead of one search per destination.
+   *
+   * @param start    the data item in the starting node for the paths
+   * @param deadline the time budget for this search
+   * @return map from the data of every reachable node to the cost of the shortest path to it
+   * @throws NoSuchElementException when start does not correspond to a graph node
+   * @throws SearchTimeoutException when the deadline expires before the search finishes
+   */
+  public MapADT<NodeType, Double> shortestPathCosts(NodeType start, SearchDeadline deadline) {
+    return settleWithin(start, Double.POSITIVE_INFINITY, deadline, "all");
+  }
+
+  /**
+   * Returns the costs of the shortest paths from the node containing the start data to every node
+   * that can be reached from it at a cost of at most budget, including the start node itself at
+   * cost 0. Paths that would cost more than the budget are never queued, so the search only touches
+   * the nodes inside the budget and the edges leaving them, however large the rest of the graph is.
+   *
+   * @param start    the data item in the starting node for the paths
+   * @param budget   the highest path cost to include
+   * @param deadline the time budget for this search
+   * @return map from the data of every node within the budget to the cost of the shortest path to it
+   * @throws NoSuchElementException when start does not correspond to a graph node
+   * @throws SearchTimeoutException when the deadline expires before the search finishes
+   */
+  public MapADT<NodeType, Double> reachableWithin(NodeType start, double budget,
+      SearchDeadline deadline) {
+    return settleWithin(start, budget, deadline, "within");
+  }
+
+  /**
+   * Returns the shortest paths from the node containing the start data to the k targets that are
+   * cheapest to reach from it, in order of increasing cost. A single search settles nodes in order
+   * of cost and stops as soon as the k-th target is settled, instead of running one search per
+   * target. Targets that are not in the graph are ignored, and fewer than k paths are returned when
+   * fewer than k targets can be reached.
+   *
+   * @param start    the data item in the starting node for the paths
+   * @param targets  the data items of the candidate destinations
+   * @param k        the number of nearest targets to find paths to
+   * @param deadline the time budget for this search
+   * @return the lists of data items along the paths to the nearest targets, nearest first
+   * @throws NoSuchElementException when start does not correspond to a graph node
+   * @throws SearchTimeoutException when the deadline expires before the search finishes
+   */
+  public List<List<NodeType>> shortestPathsToNearest(NodeType start, List<NodeType> targets,
+      int k, SearchDeadline deadline) {
+    Set<NodeType> remaining = new HashSet<>(targets);
+    int wanted = Math.min(k, remaining.size());
+    List<List<NodeType>> paths = new ArrayList<>();
+    if (wanted <= 0) {
+      if (!containsNode(start))
+        throw new NoSuchElementException("Start node could not be found");
+      return paths;
+    }
+    settle(start, Double.POSITIVE_INFINITY, deadline, "nearest", current -> {
+      if (!remaining.remove(current.node.data))
+        return false;
+      LinkedList<NodeType> path = new LinkedList<>();
+      for (SearchNode step = current; step != null; step = step.predecessor)
+        path.addFirst(step.node.data);
+      paths.add(path);
+      return paths.size() == wanted;
+    });
+    return paths;
+  }
+
+  // settles every node that can be reached from start at a cost of at most budget, in order of cost
+  private MapADT<NodeType, Double> settleWithin(NodeType start, double budget,
+      SearchDeadline deadline, String kind) {
+    MapADT<NodeType, Double> costs = new HashtableMap<>();
+    settle(start, budget, deadline, kind, current -> {
+      costs.put(current.node.data, current.cost);
+      return false;
+    });
+    return costs;
+  }
+
+  /**
+   * Opens a search from the node containing the start data that settles one node each time it is
+   * advanced, so that it can be stopped at any point, or advanced side by side with other searches.
+   *
+   * @param start    the data item in the starting node for the search
+   * @param deadline the time budget for this search
+   * @return a search that has not settled any nodes yet
+   * @throws NoSuchElementException when start does not correspond to a graph node
+   */
+  public SearchCursor<NodeType> openSearch(NodeType start, SearchDeadline deadline) {
+    return new Cursor(start, Double.POSITIVE_INFINITY, deadline);
+  }
+
+  /**
+   * A search that settles one node per call to advance. The edges leaving a settled node are only
+   * relaxed when the search is advanced past it, so a search that is stopped at a node never pays
+   * for that node's edges.
+   */
+  private class Cursor implements SearchCursor<NodeType> {
+    private final PriorityQueue<SearchNode> queue = new PriorityQueue<>();
+    private final MapADT<Node, Double> shortestPathCosts = new HashtableMap<>();
+    private final double budget;
+    private final SearchDeadline deadline;
+    private final SearchStats stats = new SearchStats();
+    // the last settled node, and the settled node whose edges are still to be relaxed
+    private SearchNode current = null;
+    private SearchNode unrelaxed = null;
+
+    private Cursor(NodeType start, double budget, SearchDeadline deadline) {
+      if (!containsNode(start)) {
+        throw new NoSuchElementException("Start node could not be found");
+      }
+      this.budget = budget;
+      this.deadline = deadline;
+      queue.add(new SearchNode(nodes.get(start), 0.0, null));
+      stats.pushed(queue.size());
+    }
+
+    public boolean advance() {
+      if (unrelaxed != null) {
+        for (Edge edge : unrelaxed.node.edgesLeaving) {
+          double newCost = unrelaxed.cost + edge.data.doubleValue();
+          stats.edgesRelaxed++;
+          // paths over the budget are dropped here, so nodes beyond it are never queued
+          if (newCost > budget)
+            continue;
+          stats.mapLookups++;
+          if (!shortestPathCosts.containsKey(edge.successor)) {
+            queue.add(new SearchNode(edge.successor, newCost, unrelaxed));
+            stats.pushed(queue.size());
+          }
+        }
+        unrelaxed = null;
+      }
+      while (!queue.isEmpty()) {
+        SearchNode next = queue.poll();
+        stats.mapLookups++;
+        if (shortestPathCosts.containsKey(next.node)) {
+          stats.stalePops++;
+          continue;
+        }
+        stats.mapLookups++;
+        shortestPathCosts.put(next.node, next.cost);
+        stats.nodesSettled++;
+        current = next;
+        unrelaxed = next;
+        if (deadline.tick()) {
+          throw new SearchTimeoutException("Search timed out after settling "
+              + deadline.getSettledCount() + " nodes.");
+        }
+        return true;
+      }
+      return false;
+    }
+
+    public NodeType getNode() {
+      return current == null ? null : current.node.data;
+    }
+
+    public double getCost() {
+      return current == null ? 0.0 : current.cost;
+    }
+
+    public SearchStats getStats() {
+      return stats;
+    }
+  }
+
+  /**
+   * Settles the nodes that can be reached from start at a cost of at most budget in order of
+   * cost, passing each one to visitor as it is settled, until the visitor returns true or every
+   * such node has been settled.
+   */
+  private void settle(NodeType start, double budget, SearchDeadline deadline, String kind,
+      Predicate<SearchNode> visitor) {
+    Cursor cursor = new Cursor(start, budget, deadline);
+    SearchEvent event = new SearchEvent();
+    event.begin();
+    String outcome = "timed out";
+
+    // settle nodes in order of cost until the visitor is done or every node within the budget is
+    // settled
+    try {
+      while (cursor.advance()) {
+        if (visitor.test(cursor.current))
+          break;
+      }
+      outcome = "found";
+    } finally {
+      lastSearchStats.set(cursor.stats);
+      event.finish(kind, start, null, outcome, cursor.stats);
+    }
+  }
 }
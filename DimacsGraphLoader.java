@@ -0,0 +1,45 @@
+import java.nio.ByteBuffer;
+
+/**
+ * This DimacsGraphLoader loads road network benchmark graphs in the DIMACS shortest path format
+ * (.gr files). Lines starting with c are comments, the problem line "p sp n m" declares n nodes
+ * numbered 1 to n, and every arc line "a u v w" adds an arc from u to v with weight w. Nodes are
+ * named by their numbers, and every declared node is inserted even when no arc touches it. Lines
+ * may be indented, and weights must not be negative.
+ */
+public class DimacsGraphLoader extends ChunkedGraphLoader {
+
+  /**
+   * Parses one comment, problem or arc line.
+   * 
+   * @param buffer the mapped chunk that contains the line
+   * @param start  index of the first byte of the line
+   * @param end    index just past the last byte of the line
+   * @param chunk  the chunk to add the parsed arc or declaration to
+   */
+  protected void parseLine(ByteBuffer buffer, int start, int end, EdgeChunk chunk) {
+    start = skipBlanks(buffer, start, end);
+    if (start == end)
+      return;
+    byte kind = buffer.get(start);
+    if (kind == 'a') {
+      // a <from> <to> <weight>
+      int i = skipBlanks(buffer, start + 1, end);
+      int fieldEnd = fieldEnd(buffer, i, end, (byte) ' ');
+      int u = parseInt(buffer, i, fieldEnd);
+      i = skipBlanks(buffer, fieldEnd, end);
+      fieldEnd = fieldEnd(buffer, i, end, (byte) ' ');
+      int v = parseInt(buffer, i, fieldEnd);
+      i = skipBlanks(buffer, fieldEnd, end);
+      fieldEnd = fieldEnd(buffer, i, end, (byte) ' ');
+      chunk.add(u, v, parseDouble(buffer, i, fieldEnd));
+    } else if (kind == 'p') {
+      // p sp <nodes> <arcs>
+      int i = skipBlanks(buffer, start + 1, end);
+      i = skipBlanks(buffer, fieldEnd(buffer, i, end, (byte) ' '), end);
+      chunk.declaredNodes = parseInt(buffer, i, fieldEnd(buffer, i, end, (byte) ' '));
+    } else if (kind != 'c') {
+      throw new IllegalArgumentException("Unknown line type '" + (char) kind + "'");
+    }
+  }
+}
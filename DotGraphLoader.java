@@ -0,0 +1,102 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This DotGraphLoader loads campus maps in the dot format, where every edge carries its walking
+ * time in a seconds attribute. An edge may also carry a profile attribute with its walking time by
+ * time of day, in the text form that TravelTimeProfile.parse reads, such as
+ * profile="7:50=240, 8:05=105.8, 22:00=closed". Searches that depart at a time of day follow the
+ * profile, and every other search uses the seconds attribute.
+ */
+public class DotGraphLoader implements GraphLoader {
+
+  /**
+   * Reads the node and edge statements of a dot file into the graph.
+   * 
+   * @param file  the dot file to read graph data from
+   * @param graph the graph to insert the nodes and edges into
+   * @return a report of the amount of data loaded and the time that it took
+   * @throws IOException if the file cannot be read, or is not a well formed dot file
+   */
+  public LoadReport load(Path file, GraphADT<String, Double> graph) throws IOException {
+    long start = System.nanoTime();
+    GraphBuilder<String, Double> builder = new GraphBuilder<>();
+    // edge defaults repeat the same profile text, so each text is only parsed once
+    Map<String, TravelTimeProfile> profiles = new HashMap<>();
+    // stream the statements of the dot file into the builder
+    DotParser.parse(file, new DotParser.Listener() {
+      public void node(String id, Map<String, String> attributes) {
+        builder.addNode(id);
+      }
+
+      public void edge(String from, String to, Map<String, String> attributes) {
+        builder.addEdge(from, to, parseSeconds(from, to, attributes),
+            parseProfile(from, to, attributes, profiles));
+      }
+    });
+    // then build the whole graph at once
+    long parsed = System.nanoTime();
+    builder.buildInto(graph);
+    return new LoadReport(file.toString(), graph.getNodeCount(), builder.getAddedEdgeCount(),
+        parsed - start, System.nanoTime() - parsed);
+  }
+
+  /**
+   * Reads the walking time of an edge from its seconds attribute.
+   * 
+   * @param from       the node that the edge leaves
+   * @param to         the node that the edge enters
+   * @param attributes the attributes of the edge
+   * @return the walking time in seconds
+   * @throws IllegalArgumentException if the attribute is missing, or is not a finite number that
+   *                                  is not negative
+   */
+  static double parseSeconds(String from, String to, Map<String, String> attributes) {
+    // every edge needs its walking time in seconds
+    String seconds = attributes.get("seconds");
+    if (seconds == null)
+      throw new IllegalArgumentException("Edge from " + from + " to " + to
+          + " is missing its seconds attribute");
+    double value;
+    try {
+      value = Double.parseDouble(seconds);
+    } catch (NumberFormatException e) {
+      value = Double.NaN;
+    }
+    // searches need finite weights that are not negative, as the other loaders require too
+    if (!(value >= 0) || Double.isInfinite(value))
+      throw new IllegalArgumentException("Edge from " + from + " to " + to
+          + " has an invalid seconds attribute: " + seconds);
+    return value;
+  }
+
+  /**
+   * Reads the travel time profile of an edge from its profile attribute.
+   * 
+   * @param from       the node that the edge leaves
+   * @param to         the node that the edge enters
+   * @param attributes the attributes of the edge
+   * @param parsed     the profiles parsed so far by their text, which this adds to
+   * @return the profile, or null if the edge has no profile attribute
+   * @throws IllegalArgumentException if the attribute is not a valid profile
+   */
+  static TravelTimeProfile parseProfile(String from, String to, Map<String, String> attributes,
+      Map<String, TravelTimeProfile> parsed) {
+    String text = attributes.get("profile");
+    if (text == null)
+      return null;
+    TravelTimeProfile profile = parsed.get(text);
+    if (profile == null) {
+      try {
+        profile = TravelTimeProfile.parse(text);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Edge from " + from + " to " + to
+            + " has an invalid profile attribute: " + e.getMessage());
+      }
+      parsed.put(text, profile);
+    }
+    return profile;
+  }
+}
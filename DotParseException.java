@@ -0,0 +1,44 @@
+import java.io.IOException;
+
+/**
+ * Thrown by the DotParser when a dot file is not well formed, or contains a statement that cannot
+ * be loaded. The message includes the line and column where the problem was found.
+ */
+public class DotParseException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int line;
+  private final int column;
+
+  /**
+   * Constructor for a parse error at the provided position.
+   * 
+   * @param message describes the problem
+   * @param line    the line number of the problem, starting at 1
+   * @param column  the column (in bytes) of the problem, starting at 1
+   */
+  public DotParseException(String message, int line, int column) {
+    super(message + " (line " + line + ", column " + column + ")");
+    this.line = line;
+    this.column = column;
+  }
+
+  /**
+   * Retrieves the line where the problem was found.
+   * 
+   * @return the line number, starting at 1
+   */
+  public int getLine() {
+    return line;
+  }
+
+  /**
+   * Retrieves the column where the problem was found.
+   * 
+   * @return the column in bytes, starting at 1
+   */
+  public int getColumn() {
+    return column;
+  }
+}
@@ -0,0 +1,537 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This DotParser reads graphs in the dot language in a single streaming pass over a FileChannel,
+ * with a hand-written tokenizer working directly on the bytes in a ByteBuffer. It understands
+ * quoted, unquoted, numeral and html ids, attribute lists, default attribute statements (node [..]
+ * and edge [..]), chained edge statements (a -> b -> c), node ports (which are ignored), and line,
+ * block and preprocessor comments. Subgraphs are not supported.
+ *
+ * Node and edge statements are reported to a Listener as they are parsed, along with all of their
+ * attributes. In an undirected graph each edge is reported once in each direction. Problems are
+ * reported as a DotParseException with the line and column where they were found.
+ */
+public class DotParser {
+
+  /**
+   * A Listener receives the node and edge statements of a dot file as they are parsed. The
+   * attribute maps passed to it are reused between statements, so a listener must copy any
+   * attributes it wants to keep. A listener may throw an IllegalArgumentException to reject a
+   * statement, which is reported as a DotParseException at that statement's position.
+   */
+  public interface Listener {
+
+    /**
+     * Called for every node statement.
+     * 
+     * @param id         the id of the node
+     * @param attributes the attributes of the node, including defaults from node [..] statements
+     */
+    public void node(String id, Map<String, String> attributes);
+
+    /**
+     * Called for every edge in an edge statement.
+     * 
+     * @param from       the id of the node the edge leaves
+     * @param to         the id of the node the edge enters
+     * @param attributes the attributes of the edge, including defaults from edge [..] statements
+     */
+    public void edge(String from, String to, Map<String, String> attributes);
+  }
+
+  // the kinds of tokens that the tokenizer produces
+  private static final int EOF = 0, ID = 1, LBRACE = 2, RBRACE = 3, LBRACKET = 4, RBRACKET = 5,
+      SEMICOLON = 6, COMMA = 7, EQUALS = 8, COLON = 9, EDGE_OP = 10;
+  private static final String[] TOKEN_NAMES = {"end of file", "id", "'{'", "'}'", "'['", "']'",
+      "';'", "','", "'='", "':'", "edge operator"};
+
+  // size of the buffer that the channel is read through
+  private static final int BUFFER_SIZE = 1 << 16;
+  // number of entries in the cache that shares String objects between repeated ids
+  private static final int NAME_CACHE_SIZE = 1 << 14;
+
+  private final ReadableByteChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private final byte[] bytes = buffer.array();
+  private int position = 0;
+  private int limit = 0;
+
+  // current line, and the absolute offset where it started, for error positions
+  private int line = 1;
+  private long offset = 0;
+  private long lineStart = 0;
+
+  // the current token, along with the position where it started
+  private int token;
+  private String tokenText;
+  // quoted and html ids are never keywords
+  private boolean tokenQuoted;
+  private int tokenLine;
+  private int tokenColumn;
+  // holds the bytes of the id that is being read
+  private byte[] scratch = new byte[256];
+
+  // direct-mapped cache so that repeated node ids share one String each
+  private final String[] nameCache = new String[NAME_CACHE_SIZE];
+  private final byte[][] nameCacheKeys = new byte[NAME_CACHE_SIZE][];
+
+  private boolean directed = true;
+  private final Map<String, String> nodeDefaults = new HashMap<>();
+  private final Map<String, String> edgeDefaults = new HashMap<>();
+  private final Map<String, String> attributes = new HashMap<>();
+
+  /**
+   * Constructor for a parser that reads from the provided channel.
+   * 
+   * @param channel the channel to read the dot text from
+   */
+  public DotParser(ReadableByteChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Parses the dot file at the provided path, reporting its statements to the listener.
+   * 
+   * @param path     the dot file to parse
+   * @param listener receives the node and edge statements
+   * @throws IOException if the file cannot be read, or is not a well formed dot file
+   */
+  public static void parse(Path path, Listener listener) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      new DotParser(channel).parse(listener);
+    }
+  }
+
+  /**
+   * Parses one graph from the channel, reporting its statements to the listener.
+   * 
+   * @param listener receives the node and edge statements
+   * @throws IOException if the channel cannot be read, or does not contain a well formed graph
+   */
+  public void parse(Listener listener) throws IOException {
+    next();
+    // [strict] (graph | digraph) [id] '{'
+    if (isKeyword("strict"))
+      next();
+    if (isKeyword("digraph"))
+      directed = true;
+    else if (isKeyword("graph"))
+      directed = false;
+    else
+      throw error("Expected graph or digraph but found " + describe());
+    next();
+    if (token == ID)
+      next();
+    expect(LBRACE);
+    while (token != RBRACE) {
+      if (token == EOF)
+        throw error("Expected '}' but found end of file");
+      statement(listener);
+    }
+    next();
+    if (token != EOF)
+      throw error("Unexpected " + describe() + " after the end of the graph");
+  }
+
+  // parses a single statement, along with an optional ';' after it
+  private void statement(Listener listener) throws IOException {
+    if (token == SEMICOLON) {
+      next();
+      return;
+    }
+    if (token != ID)
+      throw error("Expected a statement but found " + describe());
+    int line = tokenLine;
+    int column = tokenColumn;
+
+    // default attribute statements
+    if (isKeyword("node") || isKeyword("edge") || isKeyword("graph")) {
+      Map<String, String> defaults = isKeyword("node") ? nodeDefaults
+          : isKeyword("edge") ? edgeDefaults : null;
+      next();
+      attributes.clear();
+      attributeLists();
+      if (defaults != null)
+        defaults.putAll(attributes);
+      return;
+    }
+    if (isKeyword("subgraph"))
+      throw error("Subgraphs are not supported");
+
+    String first = tokenText;
+    next();
+    // graph attribute assignment, such as rankdir=LR
+    if (token == EQUALS) {
+      next();
+      expectId();
+      return;
+    }
+    skipPort();
+
+    if (token != EDGE_OP) {
+      // node statement
+      attributes.clear();
+      attributes.putAll(nodeDefaults);
+      attributeLists();
+      try {
+        listener.node(first, attributes);
+      } catch (IllegalArgumentException e) {
+        throw new DotParseException(e.getMessage(), line, column);
+      }
+      return;
+    }
+
+    // edge statement, which may chain several edges together
+    String[] chain = new String[4];
+    int length = 0;
+    chain[length++] = first;
+    while (token == EDGE_OP) {
+      next();
+      if (length == chain.length)
+        chain = Arrays.copyOf(chain, length * 2);
+      chain[length++] = expectId();
+      skipPort();
+    }
+    attributes.clear();
+    attributes.putAll(edgeDefaults);
+    attributeLists();
+    try {
+      for (int i = 1; i < length; i++) {
+        listener.edge(chain[i - 1], chain[i], attributes);
+        if (!directed)
+          listener.edge(chain[i], chain[i - 1], attributes);
+      }
+    } catch (IllegalArgumentException e) {
+      throw new DotParseException(e.getMessage(), line, column);
+    }
+  }
+
+  // parses any number of [a=b, c=d] lists into the attributes map, and an optional ';'
+  private void attributeLists() throws IOException {
+    while (token == LBRACKET) {
+      next();
+      while (token != RBRACKET) {
+        String name = expectId();
+        expect(EQUALS);
+        attributes.put(name, expectId());
+        if (token == COMMA || token == SEMICOLON)
+          next();
+      }
+      next();
+    }
+    if (token == SEMICOLON)
+      next();
+  }
+
+  // skips the port (and compass point) after a node id, such as a:n or a:port:sw
+  private void skipPort() throws IOException {
+    while (token == COLON) {
+      next();
+      expectId();
+    }
+  }
+
+  private String expectId() throws IOException {
+    if (token != ID)
+      throw error("Expected an id but found " + describe());
+    String text = tokenText;
+    next();
+    return text;
+  }
+
+  private void expect(int expected) throws IOException {
+    if (token != expected)
+      throw error("Expected " + TOKEN_NAMES[expected] + " but found " + describe());
+    next();
+  }
+
+  // unquoted keywords are case insensitive in the dot language
+  private boolean isKeyword(String keyword) {
+    return token == ID && !tokenQuoted && tokenText.equalsIgnoreCase(keyword);
+  }
+
+  private String describe() {
+    return token == ID ? "\"" + tokenText + "\"" : TOKEN_NAMES[token];
+  }
+
+  private DotParseException error(String message) {
+    return new DotParseException(message, tokenLine, tokenColumn);
+  }
+
+  // ---- tokenizer ----
+
+  // returns the next byte without consuming it, or -1 at the end of the channel
+  private int peek() throws IOException {
+    if (position == limit && !fill())
+      return -1;
+    return bytes[position] & 0xFF;
+  }
+
+  // consumes the next byte, keeping track of lines
+  private int read() throws IOException {
+    if (position == limit && !fill())
+      return -1;
+    int b = bytes[position++] & 0xFF;
+    offset++;
+    if (b == '\n') {
+      line++;
+      lineStart = offset;
+    }
+    return b;
+  }
+
+  // reads the next block of bytes from the channel, returning false at the end
+  private boolean fill() throws IOException {
+    buffer.clear();
+    int read;
+    do {
+      read = channel.read(buffer);
+    } while (read == 0);
+    if (read < 0) {
+      limit = position = 0;
+      return false;
+    }
+    position = 0;
+    limit = read;
+    return true;
+  }
+
+  private int column() {
+    return (int) (offset - lineStart) + 1;
+  }
+
+  // reads the next token into token and tokenText
+  private void next() throws IOException {
+    skipWhitespaceAndComments();
+    tokenLine = line;
+    tokenColumn = column();
+    tokenText = null;
+    tokenQuoted = false;
+    int c = peek();
+    switch (c) {
+      case -1:
+        token = EOF;
+        return;
+      case '{':
+        read();
+        token = LBRACE;
+        return;
+      case '}':
+        read();
+        token = RBRACE;
+        return;
+      case '[':
+        read();
+        token = LBRACKET;
+        return;
+      case ']':
+        read();
+        token = RBRACKET;
+        return;
+      case ';':
+        read();
+        token = SEMICOLON;
+        return;
+      case ',':
+        read();
+        token = COMMA;
+        return;
+      case '=':
+        read();
+        token = EQUALS;
+        return;
+      case ':':
+        read();
+        token = COLON;
+        return;
+      case '"':
+        read();
+        quotedId();
+        tokenQuoted = true;
+        return;
+      case '<':
+        read();
+        htmlId();
+        tokenQuoted = true;
+        return;
+      case '-':
+        read();
+        int after = peek();
+        if (after == '>' || after == '-') {
+          read();
+          token = EDGE_OP;
+          return;
+        }
+        numeralId('-');
+        return;
+      default:
+        if (c == '.' || (c >= '0' && c <= '9')) {
+          numeralId(-1);
+        } else if (c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c >= 0x80) {
+          plainId();
+        } else {
+          throw error("Unexpected character '" + (char) c + "'");
+        }
+    }
+  }
+
+  private void skipWhitespaceAndComments() throws IOException {
+    while (true) {
+      int c = peek();
+      if (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\f') {
+        read();
+      } else if (c == '#' && offset == lineStart) {
+        // preprocessor output lines are treated as comments
+        skipLine();
+      } else if (c == '/') {
+        tokenLine = line;
+        tokenColumn = column();
+        read();
+        int second = peek();
+        if (second == '/') {
+          skipLine();
+        } else if (second == '*') {
+          read();
+          skipBlockComment();
+        } else {
+          throw error("Unexpected character '/'");
+        }
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void skipLine() throws IOException {
+    int c;
+    do {
+      c = read();
+    } while (c != '\n' && c != -1);
+  }
+
+  private void skipBlockComment() throws IOException {
+    int previous = 0;
+    while (true) {
+      int c = read();
+      if (c == -1)
+        throw error("Unterminated comment");
+      if (previous == '*' && c == '/')
+        return;
+      previous = c;
+    }
+  }
+
+  // reads letters, digits and underscores into an id
+  private void plainId() throws IOException {
+    int length = 0;
+    int c = peek();
+    while (c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+        || c >= 0x80) {
+      length = append(length, read());
+      c = peek();
+    }
+    finishId(length);
+  }
+
+  // reads a numeral such as -1.5 or .25 into an id
+  private void numeralId(int sign) throws IOException {
+    int length = 0;
+    if (sign == '-')
+      length = append(length, '-');
+    boolean dot = false;
+    boolean digits = false;
+    int c = peek();
+    while ((c >= '0' && c <= '9') || (c == '.' && !dot)) {
+      if (c == '.')
+        dot = true;
+      else
+        digits = true;
+      length = append(length, read());
+      c = peek();
+    }
+    if (!digits)
+      throw error("Expected a number");
+    finishId(length);
+  }
+
+  // reads the rest of a quoted id after its opening quote, handling escaped quotes and
+  // backslash-newline line continuations
+  private void quotedId() throws IOException {
+    int length = 0;
+    while (true) {
+      int c = read();
+      if (c == -1)
+        throw error("Unterminated quoted string");
+      if (c == '"')
+        break;
+      if (c == '\\') {
+        int escaped = read();
+        if (escaped == '"') {
+          length = append(length, '"');
+        } else if (escaped == '\n') {
+          continue; // line continuation
+        } else if (escaped == '\r' && peek() == '\n') {
+          read();
+        } else if (escaped == -1) {
+          throw error("Unterminated quoted string");
+        } else {
+          length = append(length, '\\');
+          length = append(length, escaped);
+        }
+      } else {
+        length = append(length, c);
+      }
+    }
+    finishId(length);
+  }
+
+  // reads the rest of an html id after its opening '<', keeping nested angle brackets
+  private void htmlId() throws IOException {
+    int length = 0;
+    int depth = 1;
+    while (true) {
+      int c = read();
+      if (c == -1)
+        throw error("Unterminated html string");
+      if (c == '<')
+        depth++;
+      else if (c == '>' && --depth == 0)
+        break;
+      length = append(length, c);
+    }
+    finishId(length);
+  }
+
+  private int append(int length, int b) {
+    if (length == scratch.length)
+      scratch = Arrays.copyOf(scratch, length * 2);
+    scratch[length] = (byte) b;
+    return length + 1;
+  }
+
+  // turns the scratch bytes into the token text, reusing the String for ids seen before
+  private void finishId(int length) {
+    token = ID;
+    int hash = 1;
+    for (int i = 0; i < length; i++)
+      hash = 31 * hash + scratch[i];
+    int slot = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+    byte[] key = nameCacheKeys[slot];
+    if (key != null && Arrays.equals(key, 0, key.length, scratch, 0, length)) {
+      tokenText = nameCache[slot];
+      return;
+    }
+    tokenText = new String(scratch, 0, length, StandardCharsets.UTF_8);
+    nameCacheKeys[slot] = Arrays.copyOf(scratch, length);
+    nameCache[slot] = tokenText;
+  }
+}
@@ -1,4 +1,7 @@
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 public class Frontend implements FrontendInterface {
     private BackendInterface backend;
@@ -29,7 +32,12 @@ public class Frontend implements FrontendInterface {
      */
     @Override
     public String generateShortestPathResponseHTML(String start, String end) {
-        List<String> path = backend.findLocationsOnShortestPath(start, end);
+        PathResult result = backend.findShortestPath(start, end);
+        if (result.isTimedOut()) {
+            return "<p>The search for a path from " + start + " to " + end
+                    + " timed out. Please try again later.</p>";
+        }
+        List<String> path = result.getLocations();
         if (path == null || path.isEmpty()) {
             return "<p>No path found from " + start + " to " + end + ".</p>";
         }
@@ -40,12 +48,7 @@ public class Frontend implements FrontendInterface {
         }
         html += "</ol>";
 
-        List<Double> times = backend.findTimesOnShortestPath(start, end);
-        double totalTime = 0.0;
-        for (int i = 0; i < times.size(); i++) {
-            totalTime += times.get(i);
-        }
-        html += "<p>Total travel time: " + totalTime + " seconds</p>";
+        html += "<p>Total travel time: " + result.getTotalTime() + " seconds</p>";
 
         return html;
     }
@@ -97,9 +100,126 @@ public String generateFurthestDestinationFromResponseHTML(String start) {
         html += "</ol>";
 
         return html;
+    } catch (SearchTimeoutException e) {
+        // Report searches that ran out of time separately from other problems
+        return "<p>The search for the furthest destination from " + start
+                + " timed out. Please try again later.</p>";
     } catch (Exception e) {
         // Handle any exceptions that may occur
         return "<p>An error occurred: " + e.getMessage() + "</p>";
     }
 }
+
+    /***
+     * Generates the prompt for the locations within a walking time of a location
+     * @return html string with the input controls for this request
+     */
+    @Override
+    public String generateReachableWithinPromptHTML() {
+        return "<div>" +
+                "<label for=\"around\">Start Location:</label>" +
+                "<input type=\"text\" id='around' name='around'>" +
+                "<label for=\"minutes\">Walking Time (minutes):</label>" +
+                "<input type=\"text\" id='minutes' name='minutes'>" +
+                "<button \"findReachableWithin()\">Reachable Within</button>" +
+                "</div>";
+    }
+
+    /***
+     * Generates the list of locations within a walking time of a location
+     * @param start is the starting location to walk from
+     * @param minutes is the longest walking time in minutes, as entered
+     * @return html string with information inside of it
+     */
+    @Override
+    public String generateReachableWithinResponseHTML(String start, String minutes) {
+        if (start == null || start.trim().isEmpty()) {
+            return "<p>Please enter a start location.</p>";
+        }
+        double budget;
+        try {
+            budget = Double.parseDouble(minutes.trim());
+        } catch (NullPointerException | NumberFormatException e) {
+            return "<p>Please enter the walking time as a number of minutes.</p>";
+        }
+
+        try {
+            Map<String, Double> within = backend.findLocationsWithin(start, budget * 60);
+            String html = "<p>Locations within " + minutes.trim() + " minutes of " + start
+                    + ":</p><ol>";
+            for (Map.Entry<String, Double> location : within.entrySet()) {
+                html += "<li>" + location.getKey() + " (" + location.getValue()
+                        + " seconds)</li>";
+            }
+            html += "</ol>";
+            return html;
+        } catch (SearchTimeoutException e) {
+            return "<p>The search for locations within " + minutes.trim() + " minutes of " + start
+                    + " timed out. Please try again later.</p>";
+        } catch (NoSuchElementException e) {
+            return "<p>Start location " + start + " was not found.</p>";
+        } catch (IllegalArgumentException e) {
+            return "<p>Please enter a walking time of at least 0 minutes.</p>";
+        }
+    }
+
+    /***
+     * Generates the prompt for the meeting point of a group
+     * @return html string with the input controls for this request
+     */
+    @Override
+    public String generateMeetingPointPromptHTML() {
+        return "<div>" +
+                "<label for=\"group\">Start Locations (separated by ;):</label>" +
+                "<input type=\"text\" id='group' name='group'>" +
+                "<label for=\"objective\">Minimize:</label>" +
+                "<select id='objective' name='objective'>" +
+                "<option value='max'>Longest Walk</option>" +
+                "<option value='total'>Total Walk</option>" +
+                "</select>" +
+                "<button \"findMeetingPoint()\">Find Meeting Point</button>" +
+                "</div>";
+    }
+
+    /***
+     * Generates the meeting point of a group, with everyone's walking time to it
+     * @param group is the start locations of the group, separated by semicolons
+     * @param objective is "total" to minimize the total walk, or anything else for the longest
+     * @return html string with information inside of it
+     */
+    @Override
+    public String generateMeetingPointResponseHTML(String group, String objective) {
+        List<String> starts = new ArrayList<>();
+        if (group != null) {
+            for (String start : group.split(";")) {
+                if (!start.trim().isEmpty())
+                    starts.add(start.trim());
+            }
+        }
+        if (starts.isEmpty()) {
+            return "<p>Please enter the start locations of the group.</p>";
+        }
+        boolean total = "total".equals(objective);
+
+        try {
+            MeetingPoint meeting = backend.findMeetingPoint(starts,
+                    total ? MeetingPoint.Objective.SUM : MeetingPoint.Objective.MAX);
+            String html = "<p>The best place to meet is " + meeting.getLocation() + ", with a "
+                    + (total ? "total" : "longest") + " walking time of " + meeting.getValue()
+                    + " seconds:</p><ul>";
+            for (int i = 0; i < starts.size(); i++) {
+                html += "<li>" + starts.get(i) + ": " + meeting.getTimes().get(i) + " seconds</li>";
+            }
+            html += "</ul>";
+            return html;
+        } catch (SearchTimeoutException e) {
+            return "<p>The search for a meeting point timed out. Please try again later.</p>";
+        } catch (NoSuchElementException e) {
+            for (String start : starts) {
+                if (!backend.getListOfAllLocations().contains(start))
+                    return "<p>Start location " + start + " was not found.</p>";
+            }
+            return "<p>No location can be reached from every start location.</p>";
+        }
+    }
 }
@@ -72,5 +72,64 @@ public interface FrontendInterface {
      *        specified start location
      */
     public String generateFurthestDestinationFromResponseHTML(String start);
+
+    /**
+     * Returns an HTML fragment that can be embedded within the body of a
+     * larger html page.  This HTML output should include:
+     * - a text input field with the id="around", for the start location
+     * - a text input field with the id="minutes", for the walking time
+     * - a button labelled "Reachable Within" to submit this request
+     * Ensure that these text fields are clearly labelled, so that the user
+     * can understand how to use them.
+     * @return an HTML string that contains input controls that the user can
+     *         make use of to request the locations within a walking time
+     */
+    public String generateReachableWithinPromptHTML();
+
+    /**
+     * Returns an HTML fragment that can be embedded within the body of a
+     * larger html page.  This HTML output should include:
+     * - a paragraph (p) that describes the start location and walking time
+     * - an ordered list (ol) of the locations within that walking time, from
+     *   the closest to the furthest, each with its walking time
+     * Or if the request cannot be answered, the HTML returned should instead
+     * indicate the kind of problem encountered.
+     * @param start is the starting location to walk from
+     * @param minutes is the longest walking time in minutes, as entered
+     * @return an HTML string that describes the locations within the walking
+     *         time of the start location
+     */
+    public String generateReachableWithinResponseHTML(String start, String minutes);
+
+    /**
+     * Returns an HTML fragment that can be embedded within the body of a
+     * larger html page.  This HTML output should include:
+     * - a text input field with the id="group", for the start locations of
+     *   everyone in the group, separated by semicolons
+     * - a select field with the id="objective", to choose between the
+     *   shortest longest walk ("max") and the shortest total walk ("total")
+     * - a button labelled "Find Meeting Point" to submit this request
+     * Ensure that these fields are clearly labelled, so that the user can
+     * understand how to use them.
+     * @return an HTML string that contains input controls that the user can
+     *         make use of to request a meeting point for a group
+     */
+    public String generateMeetingPointPromptHTML();
+
+    /**
+     * Returns an HTML fragment that can be embedded within the body of a
+     * larger html page.  This HTML output should include:
+     * - a paragraph (p) that names the meeting location and what it minimizes
+     * - an unordered list (ul) of each start location with its walking time
+     *   to the meeting location
+     * Or if there is no such location, the HTML returned should instead
+     * indicate the kind of problem encountered.
+     * @param group is the start locations of the group, separated by 
+     *        semicolons
+     * @param objective is "total" to minimize the total walk, or anything 
+     *        else to minimize the longest walk
+     * @return an HTML string that describes the group's meeting point
+     */
+    public String generateMeetingPointResponseHTML(String group, String objective);
  
 }
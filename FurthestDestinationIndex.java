@@ -0,0 +1,150 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A FurthestDestinationIndex stores the answer to getFurthestDestinationFrom for every location in
+ * a graph, so that the answer can be looked up instead of searched for. Building the index runs one
+ * full search from every location, which is why it is saved by a SnapshotStore and loaded again on
+ * later starts.
+ */
+public class FurthestDestinationIndex {
+
+  // the name that this artifact is saved under in a SnapshotStore
+  public static final String ARTIFACT_NAME = "furthest-destinations";
+
+  // furthest reachable destination and the cost of reaching it, by start location. locations that
+  // cannot reach any other location are not included
+  private final Map<String, String> destinations;
+  private final Map<String, Double> distances;
+
+  private FurthestDestinationIndex(Map<String, String> destinations,
+      Map<String, Double> distances) {
+    this.destinations = destinations;
+    this.distances = distances;
+  }
+
+  /**
+   * Builds the index by searching from every location in the graph. Ties between equally distant
+   * destinations are broken the same way that Backend.getFurthestDestinationFrom breaks them: the
+   * destination that comes first in getAllNodes() wins.
+   *
+   * @param graph    the graph to index
+   * @param deadline the time budget for building the whole index
+   * @return the index of the graph's furthest destinations
+   * @throws SearchTimeoutException if the deadline expires before every location is indexed
+   */
+  public static FurthestDestinationIndex build(GraphADT<String, Double> graph,
+      SearchDeadline deadline) {
+    Map<String, String> destinations = new HashMap<>();
+    Map<String, Double> distances = new HashMap<>();
+    List<String> locations = graph.getAllNodes();
+    for (String start : locations) {
+      MapADT<String, Double> costs = graph.shortestPathCosts(start, deadline);
+      String furthest = furthestIn(locations, start, costs);
+      if (furthest != null) {
+        destinations.put(start, furthest);
+        distances.put(start, costs.get(furthest));
+      }
+    }
+    return new FurthestDestinationIndex(destinations, distances);
+  }
+
+  /**
+   * Finds the most costly destination other than start among the costs of a full search.
+   *
+   * @param locations all locations in the graph, in the order used to break ties
+   * @param start     the start location of the search
+   * @param costs     the costs of reaching every reachable location from start
+   * @return the furthest reachable location, or null if no other location is reachable
+   */
+  static String furthestIn(List<String> locations, String start, MapADT<String, Double> costs) {
+    double maxDistance = -1;
+    String furthestLocation = null;
+    for (String location : locations) {
+      if (!location.equals(start) && costs.containsKey(location)) {
+        double distance = costs.get(location);
+        if (distance > maxDistance) {
+          maxDistance = distance;
+          furthestLocation = location;
+        }
+      }
+    }
+    return furthestLocation;
+  }
+
+  /**
+   * Looks up the furthest destination from a start location.
+   *
+   * @param start the location to find the most distant location from
+   * @return the most distant reachable location
+   * @throws NoSuchElementException if start is not in the index, or cannot reach any other location
+   */
+  public String getFurthestDestinationFrom(String start) {
+    String destination = destinations.get(start);
+    if (destination == null)
+      throw new NoSuchElementException("No reachable destinations found");
+    return destination;
+  }
+
+  /**
+   * Looks up the cost of reaching the furthest destination from a start location.
+   *
+   * @param start the location to find the most distant location from
+   * @return the cost of the shortest path to the most distant reachable location
+   * @throws NoSuchElementException if start is not in the index, or cannot reach any other location
+   */
+  public double getFurthestDistanceFrom(String start) {
+    Double distance = distances.get(start);
+    if (distance == null)
+      throw new NoSuchElementException("No reachable destinations found");
+    return distance;
+  }
+
+  /**
+   * Retrieves the number of start locations in the index.
+   *
+   * @return the number of locations that can reach at least one other location
+   */
+  public int size() {
+    return destinations.size();
+  }
+
+  /**
+   * Writes the index, so that read can create an equal index later.
+   *
+   * @param out the destination of the index's bytes
+   * @throws IOException if the bytes cannot be written
+   */
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(destinations.size());
+    for (Map.Entry<String, String> entry : destinations.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeUTF(entry.getValue());
+      out.writeDouble(distances.get(entry.getKey()));
+    }
+  }
+
+  /**
+   * Reads an index that was written by write.
+   *
+   * @param in the source of the index's bytes
+   * @return the index
+   * @throws IOException if the bytes cannot be read
+   */
+  public static FurthestDestinationIndex read(DataInput in) throws IOException {
+    int size = in.readInt();
+    Map<String, String> destinations = new HashMap<>();
+    Map<String, Double> distances = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      String start = in.readUTF();
+      destinations.put(start, in.readUTF());
+      distances.put(start, in.readDouble());
+    }
+    return new FurthestDestinationIndex(destinations, distances);
+  }
+}
@@ -32,6 +32,11 @@ public interface GraphADT<NodeType, EdgeType extends Number> {
    */
   public boolean removeNode(NodeType data);
 
+  /**
+   * Remove every node and edge from the graph.
+   */
+  public void clear();
+
   /**
    * Check whether the graph contains a node with the provided data.
    *
@@ -106,6 +111,16 @@ public interface GraphADT<NodeType, EdgeType extends Number> {
    */
   public int getEdgeCount();
 
+  /**
+   * Return the number of times the graph has changed, so that anything
+   * computed from it can tell whether it is still up to date.  Every call
+   * that inserts, removes or changes a node, edge or profile, and every
+   * clear, counts as a change.
+   *
+   * @return a count that only grows, and stays the same while the graph does
+   */
+  public long getModificationCount();
+
   /**
    * Returns the list of data values from nodes along the shortest path from 
    * the node with the provided start value through the node with the provided
@@ -137,5 +152,155 @@ public interface GraphADT<NodeType, EdgeType extends Number> {
    *         start node to the end node
    */
   public double shortestPathCost(NodeType start, NodeType end);
+
+  /**
+   * Returns the list of data values from nodes along the shortest path from 
+   * start to end, exactly like shortestPathData(start, end), except that the
+   * search checks the provided deadline while it runs and gives up once that
+   * deadline has expired or been cancelled.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end the data item in the destination node for the path
+   * @param deadline the time budget and cancellation token for this search
+   * @return list of data item from node along this shortest path
+   * @throws NoSuchElementException if either the start or end node cannot
+   *         be found in the graph, or if there is no directed path from the
+   *         start node to the end node
+   * @throws SearchTimeoutException if the deadline expires before the search
+   *         finishes
+   */
+  public List<NodeType> shortestPathData(NodeType start, NodeType end, SearchDeadline deadline);
+
+  /**
+   * Returns the list of data values from nodes along the path from start to
+   * end that arrives earliest when leaving start at the provided departure
+   * time.  Edges with a travel time profile take the walking time of the
+   * time of day at which they are reached, and every other edge takes its 
+   * weight.  Waiting before an edge is allowed when it arrives sooner, so a
+   * later departure never arrives earlier and Dijkstra's algorithm finds the
+   * earliest arrival.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end the data item in the destination node for the path
+   * @param departure the time of leaving start, in seconds since midnight
+   * @param deadline the time budget and cancellation token for this search
+   * @return list of data item from node along this path
+   * @throws NoSuchElementException if either the start or end node cannot
+   *         be found in the graph, or if there is no directed path from the
+   *         start node to the end node
+   * @throws SearchTimeoutException if the deadline expires before the search
+   *         finishes
+   */
+  public List<NodeType> shortestPathData(NodeType start, NodeType end, double departure,
+      SearchDeadline deadline);
+
+  /**
+   * Returns the time it takes to traverse an edge when reaching its 
+   * predecessor at the provided time, following the edge's travel time 
+   * profile and including any wait that arrives sooner.  Edges without a 
+   * profile take their weight.
+   *
+   * @param pred the data item contained in the source node for the edge
+   * @param succ the data item contained in the target node for the edge
+   * @param departure the time of reaching pred, in seconds since midnight
+   * @return the time from departure until arriving at succ
+   * @throws NoSuchElementException if either node or the edge between them 
+   *         are not found within this graph
+   */
+  public double getTravelTime(NodeType pred, NodeType succ, double departure);
+
+  /**
+   * Returns the cost of the shortest path from start to end, exactly like
+   * shortestPathCost(start, end), except that the search checks the provided
+   * deadline while it runs and gives up once that deadline has expired or
+   * been cancelled.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end the data item in the destination node for the path
+   * @param deadline the time budget and cancellation token for this search
+   * @return the cost of the shortest path between these nodes
+   * @throws NoSuchElementException if either the start or end node cannot
+   *         be found in the graph, or if there is no directed path from the
+   *         start node to the end node
+   * @throws SearchTimeoutException if the deadline expires before the search
+   *         finishes
+   */
+  public double shortestPathCost(NodeType start, NodeType end, SearchDeadline deadline);
+
+  /**
+   * Returns the costs of the shortest paths from the node containing the
+   * start data to every node that can be reached from it, including the
+   * start node itself at cost 0, computed with a single search.
+   *
+   * @param start the data item in the starting node for the paths
+   * @param deadline the time budget and cancellation token for this search
+   * @return map from the data of every reachable node to the cost of the
+   *         shortest path to it
+   * @throws NoSuchElementException if the start node cannot be found in the
+   *         graph
+   * @throws SearchTimeoutException if the deadline expires before the search
+   *         finishes
+   */
+  public MapADT<NodeType, Double> shortestPathCosts(NodeType start, SearchDeadline deadline);
+
+  /**
+   * Returns the costs of the shortest paths from the node containing the
+   * start data to every node that can be reached from it at a cost of at
+   * most budget, including the start node itself at cost 0. The search stops
+   * expanding at the budget, so it only touches the nodes inside it.
+   *
+   * @param start the data item in the starting node for the paths
+   * @param budget the highest path cost to include
+   * @param deadline the time budget and cancellation token for this search
+   * @return map from the data of every node within the budget to the cost
+   *         of the shortest path to it
+   * @throws NoSuchElementException if the start node cannot be found in the
+   *         graph
+   * @throws SearchTimeoutException if the deadline expires before the search
+   *         finishes
+   */
+  public MapADT<NodeType, Double> reachableWithin(NodeType start, double budget,
+      SearchDeadline deadline);
+
+  /**
+   * Returns the shortest paths from the node containing the start data to
+   * the k targets that are cheapest to reach from it, nearest first.  A
+   * single search stops as soon as the k-th target is settled.  Targets that
+   * are not in the graph are ignored, and fewer than k paths are returned
+   * when fewer than k targets can be reached.
+   *
+   * @param start the data item in the starting node for the paths
+   * @param targets the data items of the candidate destinations
+   * @param k the number of nearest targets to find paths to
+   * @param deadline the time budget and cancellation token for this search
+   * @return the lists of data items along the paths to the nearest targets
+   * @throws NoSuchElementException if the start node cannot be found in the
+   *         graph
+   * @throws SearchTimeoutException if the deadline expires before the search
+   *         finishes
+   */
+  public List<List<NodeType>> shortestPathsToNearest(NodeType start, List<NodeType> targets,
+      int k, SearchDeadline deadline);
+
+  /**
+   * Opens a search from the node containing the start data that settles one
+   * node in order of cost each time it is advanced, so that several searches
+   * can be advanced side by side and stopped early.
+   *
+   * @param start the data item in the starting node for the search
+   * @param deadline the time budget and cancellation token for this search
+   * @return a search that has not settled any nodes yet
+   * @throws NoSuchElementException if the start node cannot be found in the
+   *         graph
+   */
+  public SearchCursor<NodeType> openSearch(NodeType start, SearchDeadline deadline);
+
+  /**
+   * Returns the statistics of the last shortest path search that the calling
+   * thread ran on this graph: nodes settled, edges relaxed, queue pushes,
+   * stale pops, peak queue size and map lookups.
+   * @return the work done by the calling thread's last search
+   */
+  public SearchStats getLastSearchStats();
     
 }
@@ -0,0 +1,246 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This GraphBuilder collects nodes and edges in bulk and then builds a finished graph in one pass,
+ * without the per-edge duplicate scans and per-node lookups that insertNode and insertEdge do.
+ * Nodes are numbered as they are added, edges are stored in primitive arrays, and duplicate edges
+ * are removed by a counting sort on their predecessor followed by one pass over each node's edges,
+ * keeping the weight of the edge added last (just like insertEdge updates an existing edge).
+ * Edges may also carry a travel time profile, which is kept along with their weight.
+ */
+public class GraphBuilder<NodeType, EdgeType extends Number> {
+
+  // node data by insertion order, and the number of each node by its data
+  private final List<NodeType> nodeData = new ArrayList<>();
+  private final Map<NodeType, Integer> nodeIds = new HashMap<>();
+
+  // edges in the order they were added
+  private int edgeCount = 0;
+  private int[] from = new int[1024];
+  private int[] to = new int[1024];
+  private Object[] weights = new Object[1024];
+  // travel time profiles of the edges, allocated when the first edge with a profile is added
+  private TravelTimeProfile[] profiles = null;
+
+  /**
+   * Adds a node, unless a node with this data was already added.
+   * 
+   * @param data the data item stored in the node
+   * @return the number of the node within this builder
+   * @throws NullPointerException if data is null
+   */
+  public int addNode(NodeType data) {
+    if (data == null)
+      throw new NullPointerException("Node data can't be null");
+    Integer id = nodeIds.get(data);
+    if (id == null) {
+      id = nodeData.size();
+      nodeData.add(data);
+      nodeIds.put(data, id);
+    }
+    return id;
+  }
+
+  /**
+   * Adds a directed edge, adding its nodes too when they were not added yet. When the same edge is
+   * added more than once, the last weight added is the one that is kept.
+   * 
+   * @param pred   the data item in the edge's predecessor node
+   * @param succ   the data item in the edge's successor node
+   * @param weight the weight of the edge
+   * @return this builder
+   */
+  public GraphBuilder<NodeType, EdgeType> addEdge(NodeType pred, NodeType succ, EdgeType weight) {
+    return addEdge(addNode(pred), addNode(succ), weight);
+  }
+
+  /**
+   * Adds a directed edge between two nodes that were already added, by their numbers.
+   * 
+   * @param pred   the number of the predecessor node returned by addNode
+   * @param succ   the number of the successor node returned by addNode
+   * @param weight the weight of the edge
+   * @return this builder
+   */
+  public GraphBuilder<NodeType, EdgeType> addEdge(int pred, int succ, EdgeType weight) {
+    return addEdge(pred, succ, weight, null);
+  }
+
+  /**
+   * Adds a directed edge with a travel time profile, adding its nodes too when they were not added
+   * yet. Profiles are only kept by graphs that extend BaseGraph.
+   * 
+   * @param pred    the data item in the edge's predecessor node
+   * @param succ    the data item in the edge's successor node
+   * @param weight  the weight of the edge
+   * @param profile the walking time of the edge by time of day, or null for none
+   * @return this builder
+   */
+  public GraphBuilder<NodeType, EdgeType> addEdge(NodeType pred, NodeType succ, EdgeType weight,
+      TravelTimeProfile profile) {
+    return addEdge(addNode(pred), addNode(succ), weight, profile);
+  }
+
+  /**
+   * Adds a directed edge with a travel time profile between two nodes that were already added, by
+   * their numbers.
+   * 
+   * @param pred    the number of the predecessor node returned by addNode
+   * @param succ    the number of the successor node returned by addNode
+   * @param weight  the weight of the edge
+   * @param profile the walking time of the edge by time of day, or null for none
+   * @return this builder
+   */
+  public GraphBuilder<NodeType, EdgeType> addEdge(int pred, int succ, EdgeType weight,
+      TravelTimeProfile profile) {
+    if (pred < 0 || pred >= nodeData.size() || succ < 0 || succ >= nodeData.size())
+      throw new IndexOutOfBoundsException("No node numbered " + pred + " or " + succ);
+    if (edgeCount == from.length) {
+      from = Arrays.copyOf(from, edgeCount * 2);
+      to = Arrays.copyOf(to, edgeCount * 2);
+      weights = Arrays.copyOf(weights, edgeCount * 2);
+      if (profiles != null)
+        profiles = Arrays.copyOf(profiles, edgeCount * 2);
+    }
+    if (profile != null && profiles == null)
+      profiles = new TravelTimeProfile[from.length];
+    from[edgeCount] = pred;
+    to[edgeCount] = succ;
+    weights[edgeCount] = weight;
+    if (profiles != null)
+      profiles[edgeCount] = profile;
+    edgeCount++;
+    return this;
+  }
+
+  /**
+   * Retrieves the number of distinct nodes added so far.
+   * 
+   * @return the number of nodes
+   */
+  public int getNodeCount() {
+    return nodeData.size();
+  }
+
+  /**
+   * Retrieves the number of edges added so far, counting duplicates.
+   * 
+   * @return the number of edges added
+   */
+  public int getAddedEdgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * Builds a new DijkstraGraph holding the nodes and edges added to this builder.
+   * 
+   * @return the finished graph
+   */
+  public DijkstraGraph<NodeType, EdgeType> build() {
+    DijkstraGraph<NodeType, EdgeType> graph = new DijkstraGraph<>();
+    buildInto(graph);
+    return graph;
+  }
+
+  /**
+   * Replaces the contents of the provided graph with the nodes and edges added to this builder.
+   * Graphs that extend BaseGraph are filled directly, and any other graph is filled through its
+   * insertNode and insertEdge methods.
+   * 
+   * @param graph the graph to fill
+   */
+  @SuppressWarnings("unchecked")
+  public void buildInto(GraphADT<NodeType, EdgeType> graph) {
+    graph.clear();
+    int[] offsets = new int[nodeData.size() + 1];
+    int[] order = dedupedEdgeOrder(offsets);
+    if (graph instanceof BaseGraph) {
+      fill((BaseGraph<NodeType, EdgeType>) graph, offsets, order);
+      return;
+    }
+    for (NodeType data : nodeData)
+      graph.insertNode(data);
+    for (int u = 0; u < nodeData.size(); u++)
+      for (int k = offsets[u]; k < offsets[u + 1]; k++)
+        graph.insertEdge(nodeData.get(u), nodeData.get(to[order[k]]), weight(order[k]));
+  }
+
+  /**
+   * Sorts the edges by predecessor and removes duplicates. On return offsets[u] to offsets[u + 1]
+   * is the range of the returned array holding the edges that leave node u, each given by its
+   * index in the order edges were added.
+   */
+  private int[] dedupedEdgeOrder(int[] offsets) {
+    int n = nodeData.size();
+    // counting sort of the edges by predecessor, which keeps edges with the same one in order
+    int[] start = new int[n + 1];
+    for (int i = 0; i < edgeCount; i++)
+      start[from[i] + 1]++;
+    for (int u = 0; u < n; u++)
+      start[u + 1] += start[u];
+    int[] sorted = new int[edgeCount];
+    int[] next = Arrays.copyOf(start, n);
+    for (int i = 0; i < edgeCount; i++)
+      sorted[next[from[i]]++] = i;
+
+    // within each predecessor, keep one edge per successor, holding the last weight added
+    int[] slotOf = new int[n];
+    int[] stamp = new int[n];
+    Arrays.fill(stamp, -1);
+    int kept = 0;
+    for (int u = 0; u < n; u++) {
+      offsets[u] = kept;
+      for (int k = start[u]; k < start[u + 1]; k++) {
+        int edge = sorted[k];
+        int v = to[edge];
+        if (stamp[v] == u) {
+          // a duplicate, so the later edge replaces the earlier one in place
+          sorted[slotOf[v]] = edge;
+        } else {
+          stamp[v] = u;
+          slotOf[v] = kept;
+          sorted[kept++] = edge;
+        }
+      }
+    }
+    offsets[n] = kept;
+    return sorted;
+  }
+
+  // fills a BaseGraph by creating its nodes and edges directly
+  private void fill(BaseGraph<NodeType, EdgeType> graph, int[] offsets, int[] order) {
+    int n = nodeData.size();
+    List<BaseGraph<NodeType, EdgeType>.Node> nodes = new ArrayList<>(n);
+    int[] inDegree = new int[n];
+    for (int k = 0; k < offsets[n]; k++)
+      inDegree[to[order[k]]]++;
+    for (int u = 0; u < n; u++) {
+      BaseGraph<NodeType, EdgeType>.Node node = graph.new Node(nodeData.get(u));
+      node.edgesLeaving = new ArrayList<>(offsets[u + 1] - offsets[u]);
+      node.edgesEntering = new ArrayList<>(inDegree[u]);
+      graph.nodes.put(node.data, node);
+      nodes.add(node);
+    }
+    for (int u = 0; u < n; u++) {
+      BaseGraph<NodeType, EdgeType>.Node pred = nodes.get(u);
+      for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+        BaseGraph<NodeType, EdgeType>.Node succ = nodes.get(to[order[k]]);
+        BaseGraph<NodeType, EdgeType>.Edge edge = graph.new Edge(weight(order[k]), pred, succ);
+        if (profiles != null && profiles[order[k]] != null)
+          edge.profile = graph.profileOffset(profiles[order[k]]);
+        pred.edgesLeaving.add(edge);
+        succ.edgesEntering.add(edge);
+      }
+    }
+    graph.edgeCount = offsets[n];
+  }
+
+  @SuppressWarnings("unchecked")
+  private EdgeType weight(int edge) {
+    return (EdgeType) weights[edge];
+  }
+}
@@ -0,0 +1,242 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * This GraphFile compiles a loaded graph into a versioned binary file that MappedGraph can answer
+ * queries from without parsing anything. The file starts with a fixed size header, followed by
+ * these sections, each starting at a multiple of 8 bytes:
+ * 
+ * name offsets: int[n + 1], where name i is stored in bytes nameOffsets[i] to nameOffsets[i + 1]
+ * name bytes: the UTF-8 bytes of all location names, sorted by their unsigned byte order
+ * edge offsets: int[n + 1], where the edges leaving node i are edges offsets[i] to offsets[i + 1]
+ * targets: int[m], the successor of every edge, sorted within each node
+ * weights: double[m], the weight of every edge
+ *
+ * Nodes are numbered by the sorted order of their names, so a name can be found by binary search
+ * over the name table. All values are big-endian, and a CRC32 of everything after the header is
+ * stored in the header so that damaged files are detected.
+ */
+public class GraphFile {
+
+  // "CSPG" in ascii
+  public static final int MAGIC = 0x43535047;
+  public static final int VERSION = 1;
+  public static final int HEADER_BYTES = 80;
+
+  // positions of the fields in the header
+  static final int NODE_COUNT = 8;
+  static final int EDGE_COUNT = 16;
+  static final int NAME_OFFSETS = 24;
+  static final int NAME_BYTES = 32;
+  static final int EDGE_OFFSETS = 40;
+  static final int TARGETS = 48;
+  static final int WEIGHTS = 56;
+  static final int FILE_LENGTH = 64;
+  static final int CHECKSUM = 72;
+
+  /**
+   * Compiles a dot file (or any other file that the Backend can load) into a binary graph file.
+   * 
+   * @param args the file to load followed by the binary file to write
+   * @throws IOException if either file cannot be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2)
+      throw new IllegalArgumentException("Usage: java GraphFile campus.dot campus.bin");
+    DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+    new Backend(graph).loadGraphData(args[0]);
+    compile(graph, Path.of(args[1]));
+    System.out.println("Compiled " + graph.getNodeCount() + " nodes and " + graph.getEdgeCount()
+        + " edges into " + args[1]);
+  }
+
+  /**
+   * Writes the provided graph into a binary graph file. The file is written next to its final
+   * location first and then moved into place, so readers never see a partially written file.
+   * 
+   * @param graph the graph to compile
+   * @param file  the binary file to write
+   * @throws IOException if the file cannot be written
+   */
+  public static void compile(BaseGraph<String, Double> graph, Path file) throws IOException {
+    // number the nodes by the unsigned byte order of their names
+    List<String> names = graph.getAllNodes();
+    int n = names.size();
+    byte[][] utf8 = new byte[n][];
+    Integer[] order = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      utf8[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(utf8[a], utf8[b]));
+    List<BaseGraph<String, Double>.Node> nodes = new ArrayList<>(n);
+    Map<Object, Integer> ids = new IdentityHashMap<>();
+    for (int id = 0; id < n; id++) {
+      BaseGraph<String, Double>.Node node = graph.nodes.get(names.get(order[id]));
+      nodes.add(node);
+      ids.put(node, id);
+    }
+
+    // lay out the sections
+    long nameOffsets = HEADER_BYTES;
+    long nameBytes = align(nameOffsets + 4L * (n + 1));
+    long totalNameBytes = 0;
+    for (byte[] name : utf8)
+      totalNameBytes += name.length;
+    long edgeOffsets = align(nameBytes + totalNameBytes);
+    long m = 0;
+    for (BaseGraph<String, Double>.Node node : nodes)
+      m += node.edgesLeaving.size();
+    if (m > Integer.MAX_VALUE || totalNameBytes > Integer.MAX_VALUE)
+      throw new IOException("Graph is too large for the binary graph format");
+    long targets = align(edgeOffsets + 4L * (n + 1));
+    long weights = align(targets + 4L * m);
+    long length = weights + 8L * m;
+
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      channel.position(HEADER_BYTES);
+      CRC32 crc = new CRC32();
+      SectionWriter out = new SectionWriter(channel, crc, HEADER_BYTES);
+
+      // name table
+      int offset = 0;
+      out.writeInt(0);
+      for (int id = 0; id < n; id++) {
+        offset += utf8[order[id]].length;
+        out.writeInt(offset);
+      }
+      out.padTo(nameBytes);
+      for (int id = 0; id < n; id++)
+        out.write(utf8[order[id]]);
+
+      // adjacency arrays, with the successors of each node sorted
+      int[][] successors = new int[n][];
+      double[][] edgeWeights = new double[n][];
+      for (int id = 0; id < n; id++) {
+        BaseGraph<String, Double>.Node node = nodes.get(id);
+        int degree = node.edgesLeaving.size();
+        long[] packed = new long[degree];
+        double[] unsorted = new double[degree];
+        int k = 0;
+        for (BaseGraph<String, Double>.Edge edge : node.edgesLeaving) {
+          unsorted[k] = edge.data;
+          packed[k] = ((long) ids.get(edge.successor) << 32) | k;
+          k++;
+        }
+        Arrays.sort(packed);
+        successors[id] = new int[degree];
+        edgeWeights[id] = new double[degree];
+        for (k = 0; k < degree; k++) {
+          successors[id][k] = (int) (packed[k] >>> 32);
+          edgeWeights[id][k] = unsorted[(int) packed[k]];
+        }
+      }
+      out.padTo(edgeOffsets);
+      int edgeOffset = 0;
+      out.writeInt(0);
+      for (int id = 0; id < n; id++) {
+        edgeOffset += successors[id].length;
+        out.writeInt(edgeOffset);
+      }
+      out.padTo(targets);
+      for (int id = 0; id < n; id++)
+        for (int target : successors[id])
+          out.writeInt(target);
+      out.padTo(weights);
+      for (int id = 0; id < n; id++)
+        for (double weight : edgeWeights[id])
+          out.writeDouble(weight);
+      out.flush();
+
+      // the header goes in last, once the checksum is known
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putInt(0, MAGIC).putInt(4, VERSION).putInt(NODE_COUNT, n);
+      header.putLong(EDGE_COUNT, m).putLong(NAME_OFFSETS, nameOffsets)
+          .putLong(NAME_BYTES, nameBytes).putLong(EDGE_OFFSETS, edgeOffsets)
+          .putLong(TARGETS, targets).putLong(WEIGHTS, weights).putLong(FILE_LENGTH, length)
+          .putLong(CHECKSUM, crc.getValue());
+      channel.write(header, 0);
+      channel.force(true);
+    }
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  // rounds a position up to the next multiple of 8
+  static long align(long position) {
+    return (position + 7) & ~7L;
+  }
+
+  // writes big-endian values to the channel through a buffer, updating the checksum and
+  // keeping track of the position in the file
+  private static class SectionWriter {
+    private final FileChannel channel;
+    private final CRC32 crc;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private long position;
+
+    SectionWriter(FileChannel channel, CRC32 crc, long position) {
+      this.channel = channel;
+      this.crc = crc;
+      this.position = position;
+    }
+
+    void writeInt(int value) throws IOException {
+      ensureRoom(4);
+      buffer.putInt(value);
+      position += 4;
+    }
+
+    void writeDouble(double value) throws IOException {
+      ensureRoom(8);
+      buffer.putDouble(value);
+      position += 8;
+    }
+
+    void write(byte[] bytes) throws IOException {
+      int written = 0;
+      while (written < bytes.length) {
+        ensureRoom(1);
+        int length = Math.min(buffer.remaining(), bytes.length - written);
+        buffer.put(bytes, written, length);
+        written += length;
+      }
+      position += bytes.length;
+    }
+
+    void padTo(long target) throws IOException {
+      while (position < target) {
+        ensureRoom(1);
+        buffer.put((byte) 0);
+        position++;
+      }
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+      if (buffer.remaining() < bytes)
+        flush();
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      crc.update(buffer.array(), 0, buffer.limit());
+      while (buffer.hasRemaining())
+        channel.write(buffer);
+      buffer.clear();
+    }
+  }
+}
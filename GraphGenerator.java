@@ -0,0 +1,373 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * This GraphGenerator creates synthetic campus-like graphs of any size, for benchmarks and load
+ * tests that need more than the few hundred locations in campus.dot. The same shape, size and seed
+ * always create the same graph. Nodes are named n0, n1, ... and are placed on a plane in metres.
+ * Edges connect nearby nodes in both directions, with weights in walking seconds computed from the
+ * distance between them plus a random detour. An asymmetry between 0 and 1 makes one direction of
+ * each path slower than the other, like walking uphill.
+ *
+ * Three shapes are supported:
+ * GRID: a jittered grid of blocks, where every node connects to its neighbours along the rows and
+ * columns, and to some of its diagonal neighbours.
+ * GEOMETRIC: nodes scattered uniformly at random, where every pair of nodes closer than a fixed
+ * radius is connected (about 7 neighbours per node on average).
+ * CLUSTERED: several separate geometric campuses, joined by a few long paths between them.
+ *
+ * Graphs can be built in memory through a GraphBuilder, or streamed out as a dot file without
+ * holding any edges in memory, which is how graphs with millions of nodes should be created.
+ */
+public class GraphGenerator {
+
+  /**
+   * The kinds of graph that can be generated.
+   */
+  public enum Shape {
+    GRID, GEOMETRIC, CLUSTERED
+  }
+
+  /**
+   * Receives every edge of a generated graph, by the numbers of its nodes.
+   */
+  public interface EdgeSink {
+    void edge(int pred, int succ, double seconds) throws IOException;
+  }
+
+  // walking speed in metres per second
+  public static final double WALKING_SPEED = 1.4;
+  // distance between neighbouring nodes of a grid, and between nearby nodes of the other shapes
+  public static final double SPACING = 60.0;
+  // largest detour on a path, as a fraction of the straight line distance
+  public static final double MAX_DETOUR = 0.3;
+  // fraction of grid blocks that have a diagonal path across them
+  public static final double DIAGONAL_FRACTION = 0.3;
+  // average number of neighbours of a node in the geometric shapes
+  public static final double GEOMETRIC_DEGREE = 7.0;
+  // number of long paths between each pair of neighbouring campuses in the clustered shape
+  public static final int CAMPUS_LINKS = 3;
+
+  private final Shape shape;
+  private final int nodes;
+  private final long seed;
+  private double asymmetry = 0.0;
+  private int clusters = 8;
+
+  // node positions for the geometric shapes, filled in by place()
+  private float[] x;
+  private float[] y;
+
+  /**
+   * Constructor for a generator of graphs with the provided shape and size.
+   *
+   * @param shape the kind of graph to generate
+   * @param nodes the number of nodes in the graph
+   * @param seed  the seed of all random choices
+   * @throws IllegalArgumentException if nodes is not positive
+   */
+  public GraphGenerator(Shape shape, int nodes, long seed) {
+    if (nodes <= 0)
+      throw new IllegalArgumentException("A graph needs at least one node");
+    this.shape = shape;
+    this.nodes = nodes;
+    this.seed = seed;
+  }
+
+  /**
+   * Sets how much slower one direction of every path is than the other. With an asymmetry of a, a
+   * path that takes t seconds on average takes between t * (1 - a) and t * (1 + a) seconds in one
+   * direction, and the opposite amount in the other direction.
+   *
+   * @param asymmetry a value from 0 (both directions take equally long) to 1
+   * @return this generator
+   * @throws IllegalArgumentException if asymmetry is outside 0 to 1
+   */
+  public GraphGenerator setAsymmetry(double asymmetry) {
+    if (asymmetry < 0 || asymmetry > 1)
+      throw new IllegalArgumentException("Asymmetry must be between 0 and 1");
+    this.asymmetry = asymmetry;
+    return this;
+  }
+
+  /**
+   * Sets the number of campuses in the CLUSTERED shape, which is 8 by default.
+   *
+   * @param clusters the number of campuses
+   * @return this generator
+   * @throws IllegalArgumentException if clusters is not positive
+   */
+  public GraphGenerator setClusters(int clusters) {
+    if (clusters <= 0)
+      throw new IllegalArgumentException("There must be at least one cluster");
+    this.clusters = clusters;
+    return this;
+  }
+
+  /**
+   * Retrieves the name of a generated node.
+   *
+   * @param id the number of the node
+   * @return the node's name
+   */
+  public static String nodeName(int id) {
+    return "n" + id;
+  }
+
+  /**
+   * Generates the graph into a builder, with nodes added in the order of their numbers.
+   *
+   * @return a builder holding the generated graph
+   */
+  public GraphBuilder<String, Double> toBuilder() {
+    GraphBuilder<String, Double> builder = new GraphBuilder<>();
+    for (int id = 0; id < nodes; id++)
+      builder.addNode(nodeName(id));
+    try {
+      generate((pred, succ, seconds) -> builder.addEdge(pred, succ, seconds));
+    } catch (IOException e) {
+      // adding to a builder does not do any io
+      throw new IllegalStateException(e);
+    }
+    return builder;
+  }
+
+  /**
+   * Generates the graph in memory.
+   *
+   * @return a new graph holding the generated nodes and edges
+   */
+  public DijkstraGraph<String, Double> build() {
+    return toBuilder().build();
+  }
+
+  /**
+   * Generates the graph as a dot file in the same format as campus.dot, streaming the edges out as
+   * they are generated.
+   *
+   * @param file the dot file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void writeDot(Path file) throws IOException {
+    try (Writer out = new BufferedWriter(
+        Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+      out.write("digraph " + shape.name().toLowerCase() + " {\n");
+      // name every node first, so that nodes without edges are part of the graph too
+      for (int id = 0; id < nodes; id++)
+        out.write("\t\"" + nodeName(id) + "\";\n");
+      generate((pred, succ, seconds) -> out.write("\t\"" + nodeName(pred) + "\" -> \""
+          + nodeName(succ) + "\" [seconds=" + seconds + "];\n"));
+      out.write("}\n");
+    }
+  }
+
+  /**
+   * Generates every edge of the graph, in a fixed order.
+   *
+   * @param sink receives the edges
+   * @throws IOException if the sink throws
+   */
+  public void generate(EdgeSink sink) throws IOException {
+    switch (shape) {
+      case GRID:
+        generateGrid(sink);
+        break;
+      case GEOMETRIC:
+        place(1);
+        connectNearby(sink);
+        break;
+      case CLUSTERED:
+        place(Math.min(clusters, nodes));
+        connectNearby(sink);
+        linkCampuses(sink);
+        break;
+    }
+  }
+
+  // ---- shapes ----
+
+  private void generateGrid(EdgeSink sink) throws IOException {
+    int side = (int) Math.ceil(Math.sqrt(nodes));
+    for (int id = 0; id < nodes; id++) {
+      int column = id % side;
+      if (column + 1 < side && id + 1 < nodes)
+        connect(sink, id, id + 1, gridDistance(id, id + 1, side));
+      if (id + side < nodes) {
+        connect(sink, id, id + side, gridDistance(id, id + side, side));
+        // at most one diagonal across each block, so that diagonals never cross
+        int other = id + side + 1;
+        if (column + 1 < side && other < nodes && unit(id, -1) < DIAGONAL_FRACTION) {
+          if (unit(id, -2) < 0.5)
+            connect(sink, id, other, gridDistance(id, other, side));
+          else
+            connect(sink, id + 1, id + side, gridDistance(id + 1, id + side, side));
+        }
+      }
+    }
+  }
+
+  // distance between two grid nodes, which are moved by up to a quarter block from their corner
+  private double gridDistance(int a, int b, int side) {
+    double dx = (b % side - a % side) * SPACING + (unit(b, -3) - unit(a, -3)) * SPACING / 2;
+    double dy = (b / side - a / side) * SPACING + (unit(b, -4) - unit(a, -4)) * SPACING / 2;
+    return Math.hypot(dx, dy);
+  }
+
+  // places the nodes uniformly at random on the given number of round campuses, each holding an
+  // equal share of consecutively numbered nodes, with a gap of a few campus widths between them
+  private void place(int campuses) {
+    SplittableRandom random = new SplittableRandom(seed);
+    x = new float[nodes];
+    y = new float[nodes];
+    // each node gets about SPACING squared metres of its own
+    double radius = SPACING * Math.sqrt((double) nodes / campuses / Math.PI);
+    int perRow = (int) Math.ceil(Math.sqrt(campuses));
+    for (int id = 0; id < nodes; id++) {
+      int campus = campusOf(id, campuses);
+      double centerX = (campus % perRow) * 4 * radius;
+      double centerY = (campus / perRow) * 4 * radius;
+      double distance = radius * Math.sqrt(random.nextDouble());
+      double angle = 2 * Math.PI * random.nextDouble();
+      x[id] = (float) (centerX + distance * Math.cos(angle));
+      y[id] = (float) (centerY + distance * Math.sin(angle));
+    }
+  }
+
+  private int campusOf(int id, int campuses) {
+    return (int) ((long) id * campuses / nodes);
+  }
+
+  // connects every pair of placed nodes that are closer than the radius that gives each node
+  // GEOMETRIC_DEGREE neighbours on average, by bucketing the nodes into square cells of that size
+  private void connectNearby(EdgeSink sink) throws IOException {
+    double radius = SPACING * Math.sqrt(GEOMETRIC_DEGREE / Math.PI);
+    float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+    float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+    for (int id = 0; id < nodes; id++) {
+      minX = Math.min(minX, x[id]);
+      maxX = Math.max(maxX, x[id]);
+      minY = Math.min(minY, y[id]);
+      maxY = Math.max(maxY, y[id]);
+    }
+    // cells must be at least as wide as the radius, and are made wider when the space between
+    // campuses would otherwise need far more cells than there are nodes
+    double cellSize = radius;
+    while (((maxX - minX) / cellSize + 1) * ((maxY - minY) / cellSize + 1) > 4.0 * nodes + 16)
+      cellSize *= 1.5;
+    int columns = (int) ((maxX - minX) / cellSize) + 1;
+    int rows = (int) ((maxY - minY) / cellSize) + 1;
+
+    // counting sort of the nodes by cell
+    int[] cellOf = new int[nodes];
+    int[] cellStart = new int[columns * rows + 1];
+    for (int id = 0; id < nodes; id++) {
+      int cell = (int) ((y[id] - minY) / cellSize) * columns + (int) ((x[id] - minX) / cellSize);
+      cellOf[id] = cell;
+      cellStart[cell + 1]++;
+    }
+    for (int cell = 0; cell < columns * rows; cell++)
+      cellStart[cell + 1] += cellStart[cell];
+    int[] byCell = new int[nodes];
+    int[] fill = cellStart.clone();
+    for (int id = 0; id < nodes; id++)
+      byCell[fill[cellOf[id]]++] = id;
+
+    // compare every node to the later numbered nodes in its own and the surrounding cells
+    for (int id = 0; id < nodes; id++) {
+      int row = cellOf[id] / columns;
+      int column = cellOf[id] % columns;
+      for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+        for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); c++) {
+          int cell = r * columns + c;
+          for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+            int other = byCell[k];
+            if (other > id) {
+              double distance = Math.hypot(x[other] - x[id], y[other] - y[id]);
+              if (distance < radius)
+                connect(sink, id, other, distance);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  // joins each campus to the next one by a few long paths between random nodes of both
+  private void linkCampuses(EdgeSink sink) throws IOException {
+    int campuses = Math.min(clusters, nodes);
+    if (campuses < 2)
+      return;
+    SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+    for (int campus = 0; campus < campuses; campus++) {
+      int next = (campus + 1) % campuses;
+      if (campuses == 2 && campus == 1)
+        break; // the only pair of campuses is already joined
+      for (int link = 0; link < CAMPUS_LINKS; link++) {
+        int a = randomNodeOf(campus, campuses, random);
+        int b = randomNodeOf(next, campuses, random);
+        connect(sink, a, b, Math.hypot(x[b] - x[a], y[b] - y[a]));
+      }
+    }
+  }
+
+  private int randomNodeOf(int campus, int campuses, SplittableRandom random) {
+    // the first node of a campus is the smallest id whose campus is this one
+    int first = (int) (((long) campus * nodes + campuses - 1) / campuses);
+    int end = (int) (((long) (campus + 1) * nodes + campuses - 1) / campuses);
+    return first + random.nextInt(end - first);
+  }
+
+  // ---- weights ----
+
+  // adds the edges in both directions between a and b, which are distance metres apart
+  private void connect(EdgeSink sink, int a, int b, double distance) throws IOException {
+    int low = Math.min(a, b);
+    int high = Math.max(a, b);
+    double seconds = distance / WALKING_SPEED * (1 + MAX_DETOUR * unit(low, high));
+    // positive slopes make the path from the lower to the higher numbered node slower
+    double slope = asymmetry * (2 * unit(high, low) - 1);
+    sink.edge(low, high, round(seconds * (1 + slope)));
+    sink.edge(high, low, round(seconds * (1 - slope)));
+  }
+
+  // rounds to a tenth of a second, and makes sure that no walk takes zero time
+  private static double round(double seconds) {
+    return Math.max(0.1, Math.round(seconds * 10) / 10.0);
+  }
+
+  // a random value from 0 (inclusive) to 1 (exclusive) that depends only on the seed and the two
+  // keys, so that it is the same no matter in which order the edges are generated
+  private double unit(long a, long b) {
+    long h = seed * 0x9E3779B97F4A7C15L + a * 0xBF58476D1CE4E5B9L + b * 0x94D049BB133111EBL;
+    h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+    h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+    h = h ^ (h >>> 31);
+    return (h >>> 11) * 0x1.0p-53;
+  }
+
+  /**
+   * Writes a generated graph to a dot file.
+   *
+   * @param args the shape (grid, geometric or clustered), the number of nodes, the seed, the dot
+   *             file to write, and optionally the asymmetry
+   * @throws IOException if the file cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 4 && args.length != 5)
+      throw new IllegalArgumentException(
+          "Usage: java GraphGenerator grid|geometric|clustered NODES SEED FILE.dot [ASYMMETRY]");
+    GraphGenerator generator = new GraphGenerator(Shape.valueOf(args[0].toUpperCase()),
+        Integer.parseInt(args[1]), Long.parseLong(args[2]));
+    if (args.length == 5)
+      generator.setAsymmetry(Double.parseDouble(args[4]));
+    long startNanos = System.nanoTime();
+    generator.writeDot(Path.of(args[3]));
+    System.out.println("Wrote " + args[3] + " in " + (System.nanoTime() - startNanos) / 1_000_000
+        + " ms");
+  }
+}
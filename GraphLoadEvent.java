@@ -0,0 +1,64 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event for one call to Backend.loadGraphData, with the sizes and times from
+ * its LoadReport.
+ */
+@Name("campus.GraphLoad")
+@Label("Graph Load")
+@Category("Campus Navigator")
+@Description("Loading a graph file into the backend")
+public class GraphLoadEvent extends jdk.jfr.Event {
+
+  @Label("File")
+  String file;
+
+  @Label("Nodes")
+  int nodes;
+
+  @Label("Arcs")
+  long arcs;
+
+  @Label("File Size")
+  @DataAmount
+  long fileBytes;
+
+  @Label("Parse Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long parseNanos;
+
+  @Label("Build Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long buildNanos;
+
+  @Label("Succeeded")
+  boolean succeeded;
+
+  /**
+   * Ends and commits this event, if it is enabled.
+   *
+   * @param file      the file that was loaded
+   * @param fileBytes the size of the file
+   * @param report    the report of the load, or null if it failed
+   */
+  public void finish(String file, long fileBytes, LoadReport report) {
+    end();
+    if (!shouldCommit())
+      return;
+    this.file = file;
+    this.fileBytes = fileBytes;
+    succeeded = report != null;
+    if (report != null) {
+      nodes = report.getNodes();
+      arcs = report.getArcs();
+      parseNanos = report.getParseNanos();
+      buildNanos = report.getBuildNanos();
+    }
+    commit();
+  }
+}
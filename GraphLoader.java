@@ -0,0 +1,21 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * A GraphLoader reads graph data in one file format into a graph. The Backend picks a loader by
+ * the extension of the file that it is asked to load, and further loaders can be registered with
+ * Backend.registerLoader.
+ */
+public interface GraphLoader {
+
+  /**
+   * Reads the graph data from the provided file into the graph. The graph is expected to be empty
+   * when this method is called.
+   * 
+   * @param file  the file to read graph data from
+   * @param graph the graph to insert the nodes and edges into
+   * @return a report of the amount of data loaded and the time that it took
+   * @throws IOException if there was any problem reading from this file
+   */
+  public LoadReport load(Path file, GraphADT<String, Double> graph) throws IOException;
+}
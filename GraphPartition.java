@@ -0,0 +1,474 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * A GraphPartition splits the locations of a graph into cells on several levels, for the overlay
+ * routing of OverlayGraph. Every level has a largest cell size, and the cells of each level are
+ * unions of cells of the level below, so the cells nest. Good cells have few walkways between
+ * them, since every location at the end of such a walkway ends up in the overlay.
+ *
+ * The cells come from recursive bisection by inertial flow: the locations of a part are sorted by
+ * their position along a line through the part, a quarter of them at either end are tied to a
+ * source and a sink, and a minimum cut between the two ends splits the part. The cut counts
+ * walkways, so it is found as a maximum flow with unit capacities. There are no coordinates to
+ * project onto, so the line is the difference between the breadth-first search distances from
+ * two locations that are far apart. A part that is not connected is split into its first
+ * component and the rest instead. Bisection stops at parts that fit in a cell of the lowest
+ * level, and each level's cells are the largest parts that fit in it.
+ */
+public class GraphPartition {
+
+  // share of a part's locations at either end of the line that the cut must separate
+  private static final double END_SHARE = 0.25;
+
+  // the largest cell of every level, lowest level first
+  private final int[] maxCellSizes;
+  // the numberingHash of the partitioned graph, which a saved partition is only read back for
+  private final long numberingHash;
+  // cells[l - 1][v] is the cell of node v on level l
+  private final int[][] cells;
+  private final int[] cellCounts;
+  // the nodes in bisection order, where every cell on every level is a contiguous range, and the
+  // nodes of cell c on level l are order[cellOffsets[l - 1][c]] to order[cellOffsets[l - 1][c + 1]]
+  private final int[] order;
+  private final int[][] cellOffsets;
+
+  private GraphPartition(int[] maxCellSizes, long numberingHash, int[][] cells, int[] order) {
+    this.maxCellSizes = maxCellSizes;
+    this.numberingHash = numberingHash;
+    this.cells = cells;
+    this.order = order;
+    cellCounts = new int[cells.length];
+    cellOffsets = new int[cells.length][];
+    for (int l = 0; l < cells.length; l++) {
+      for (int cell : cells[l])
+        cellCounts[l] = Math.max(cellCounts[l], cell + 1);
+      cellOffsets[l] = new int[cellCounts[l] + 1];
+      for (int v : order)
+        cellOffsets[l][cells[l][v] + 1]++;
+      for (int c = 0; c < cellCounts[l]; c++)
+        cellOffsets[l][c + 1] += cellOffsets[l][c];
+    }
+  }
+
+  /**
+   * Names the partition with the provided cell sizes in a SnapshotStore.
+   *
+   * @param maxCellSizes the largest number of locations in a cell of every level
+   * @return the name of the partition's artifact
+   */
+  public static String artifactName(int... maxCellSizes) {
+    StringBuilder name = new StringBuilder("overlay-partition");
+    for (int size : maxCellSizes)
+      name.append('-').append(size);
+    return name.toString();
+  }
+
+  // a set of nodes that is placed from first onward, whose parent part had parentSize nodes
+  private static class Part {
+    final int[] nodes;
+    final int first;
+    final int parentSize;
+
+    Part(int[] nodes, int first, int parentSize) {
+      this.nodes = nodes;
+      this.first = first;
+      this.parentSize = parentSize;
+    }
+  }
+
+  /**
+   * Partitions a graph into nested cells.
+   *
+   * @param graph        the graph to partition
+   * @param maxCellSizes the largest number of locations in a cell of every level, lowest level
+   *                     first
+   * @return the partition
+   * @throws IllegalArgumentException if there are no levels, or the cell sizes do not increase
+   *                                  from at least 2
+   */
+  public static GraphPartition build(IndexedGraph graph, int... maxCellSizes) {
+    if (maxCellSizes.length == 0 || maxCellSizes[0] < 2)
+      throw new IllegalArgumentException("Cells must hold at least 2 locations");
+    for (int l = 1; l < maxCellSizes.length; l++)
+      if (maxCellSizes[l] <= maxCellSizes[l - 1])
+        throw new IllegalArgumentException("Cell sizes must increase from level to level");
+    int n = graph.getNodeCount();
+    int levels = maxCellSizes.length;
+    int[] order = new int[n];
+    // whether a cell of each level starts at each position of the order
+    boolean[][] cellStarts = new boolean[levels][n];
+    Bisector bisector = new Bisector(graph.undirectedAdjacency());
+    Deque<Part> pending = new ArrayDeque<>();
+    int[] all = new int[n];
+    for (int v = 0; v < n; v++)
+      all[v] = v;
+    pending.push(new Part(all, 0, Integer.MAX_VALUE));
+    while (!pending.isEmpty()) {
+      Part part = pending.pop();
+      int size = part.nodes.length;
+      for (int l = 0; l < levels; l++)
+        if (size <= maxCellSizes[l] && part.parentSize > maxCellSizes[l] && size > 0)
+          cellStarts[l][part.first] = true;
+      if (size <= maxCellSizes[0]) {
+        System.arraycopy(part.nodes, 0, order, part.first, size);
+        continue;
+      }
+      int firstSide = bisector.bisect(part.nodes);
+      pending.push(new Part(Arrays.copyOf(part.nodes, firstSide), part.first, size));
+      pending.push(new Part(Arrays.copyOfRange(part.nodes, firstSide, size),
+          part.first + firstSide, size));
+    }
+    int[][] cells = new int[levels][n];
+    for (int l = 0; l < levels; l++) {
+      int cell = -1;
+      for (int p = 0; p < n; p++) {
+        if (cellStarts[l][p])
+          cell++;
+        cells[l][order[p]] = cell;
+      }
+    }
+    return new GraphPartition(maxCellSizes.clone(), graph.numberingHash(), cells, order);
+  }
+
+  /**
+   * Bisects parts of a graph, reusing its arrays over the nodes of the whole graph from one part
+   * to the next.
+   */
+  private static class Bisector {
+    final int[] offsets;
+    final int[] neighbors;
+    // the part that each node belongs to, and its number within that part
+    final int[] owner;
+    final int[] local;
+    int parts = 0;
+
+    Bisector(int[][] adjacency) {
+      offsets = adjacency[0];
+      neighbors = adjacency[1];
+      owner = new int[offsets.length - 1];
+      local = new int[offsets.length - 1];
+    }
+
+    /**
+     * Splits a part into two sides with few walkways between them, and moves the nodes of the
+     * first side to the front of nodes.
+     *
+     * @param nodes the nodes of the part
+     * @return the number of nodes on the first side
+     */
+    int bisect(int[] nodes) {
+      int size = nodes.length;
+      int id = ++parts;
+      for (int i = 0; i < size; i++) {
+        owner[nodes[i]] = id;
+        local[nodes[i]] = i;
+      }
+
+      // the part's own adjacency, with a pair of entries in opposite directions for every edge
+      int[] localOffsets = new int[size + 1];
+      for (int i = 0; i < size; i++) {
+        int v = nodes[i];
+        for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+          int w = neighbors[j];
+          if (owner[w] == id && i < local[w]) {
+            localOffsets[i + 1]++;
+            localOffsets[local[w] + 1]++;
+          }
+        }
+      }
+      for (int i = 0; i < size; i++)
+        localOffsets[i + 1] += localOffsets[i];
+      int[] heads = new int[localOffsets[size]];
+      int[] reverse = new int[localOffsets[size]];
+      int[] next = Arrays.copyOf(localOffsets, size);
+      for (int i = 0; i < size; i++) {
+        int v = nodes[i];
+        for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+          int w = neighbors[j];
+          if (owner[w] == id && i < local[w]) {
+            int there = next[i]++;
+            int back = next[local[w]]++;
+            heads[there] = local[w];
+            heads[back] = i;
+            reverse[there] = back;
+            reverse[back] = there;
+          }
+        }
+      }
+
+      // a part that is not connected is split into its first component and the rest
+      int[] queue = new int[size];
+      int[] fromFirst = new int[size];
+      int count = search(0, localOffsets, heads, fromFirst, queue);
+      if (count < size)
+        return moveToFront(nodes, fromFirst);
+
+      // the line runs between the two ends of the longest search, a location that is far from
+      // the first one and the location that is furthest from that
+      int[] fromA = new int[size];
+      int[] fromB = new int[size];
+      search(queue[size - 1], localOffsets, heads, fromA, queue);
+      search(queue[size - 1], localOffsets, heads, fromB, queue);
+      // sort by position along the line with a counting sort, since positions are small
+      int[] starts = new int[2 * size + 2];
+      for (int i = 0; i < size; i++)
+        starts[fromA[i] - fromB[i] + size + 1]++;
+      for (int k = 1; k < starts.length; k++)
+        starts[k] += starts[k - 1];
+      int[] byPosition = new int[size];
+      for (int i = 0; i < size; i++)
+        byPosition[starts[fromA[i] - fromB[i] + size]++] = i;
+      int ends = Math.max(1, (int) (size * END_SHARE));
+      byte[] role = new byte[size];
+      for (int k = 0; k < ends; k++) {
+        role[byPosition[k]] = SOURCE;
+        role[byPosition[size - 1 - k]] = SINK;
+      }
+
+      int[] flow = new int[heads.length];
+      int[] level = new int[size];
+      while (levelGraph(localOffsets, heads, flow, role, byPosition, ends, level, queue))
+        blockingFlow(localOffsets, heads, reverse, flow, role, byPosition, ends, level);
+      // the first side is what the sources can still reach, which is cut off from every sink
+      levelGraph(localOffsets, heads, flow, role, byPosition, ends, level, queue);
+      int[] reached = new int[size];
+      for (int i = 0; i < size; i++)
+        reached[i] = level[i] >= 0 ? 0 : -1;
+      return moveToFront(nodes, reached);
+    }
+
+    private static final byte SOURCE = 1, SINK = 2;
+
+    // labels every node with its number of residual edges from the nearest source, or -1 where
+    // none reach, without searching past sinks, and returns whether a sink was reached
+    private static boolean levelGraph(int[] offsets, int[] heads, int[] flow, byte[] role,
+        int[] byPosition, int ends, int[] level, int[] queue) {
+      Arrays.fill(level, -1);
+      int head = 0;
+      int tail = 0;
+      for (int k = 0; k < ends; k++) {
+        level[byPosition[k]] = 0;
+        queue[tail++] = byPosition[k];
+      }
+      boolean sinkReached = false;
+      while (head < tail) {
+        int v = queue[head++];
+        if (role[v] == SINK) {
+          sinkReached = true;
+          continue;
+        }
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+          int w = heads[e];
+          if (flow[e] < 1 && level[w] < 0) {
+            level[w] = level[v] + 1;
+            queue[tail++] = w;
+          }
+        }
+      }
+      return sinkReached;
+    }
+
+    // augments the flow along shortest residual paths from the sources to the sinks until none
+    // are left in the level graph, with a depth-first search that never retries an edge
+    private static void blockingFlow(int[] offsets, int[] heads, int[] reverse, int[] flow,
+        byte[] role, int[] byPosition, int ends, int[] level) {
+      int[] nextEdge = Arrays.copyOf(offsets, offsets.length - 1);
+      int[] path = new int[offsets.length];
+      for (int k = 0; k < ends; k++) {
+        int source = byPosition[k];
+        int v = source;
+        int length = 0;
+        while (true) {
+          if (role[v] == SINK) {
+            for (int i = 0; i < length; i++) {
+              flow[path[i]]++;
+              flow[reverse[path[i]]]--;
+            }
+            v = source;
+            length = 0;
+            continue;
+          }
+          int e = nextEdge[v];
+          while (e < offsets[v + 1] && (flow[e] >= 1 || level[heads[e]] != level[v] + 1))
+            e++;
+          nextEdge[v] = e;
+          if (e < offsets[v + 1]) {
+            path[length++] = e;
+            v = heads[e];
+            continue;
+          }
+          // a dead end, which no later path can pass through either
+          if (v == source)
+            break;
+          level[v] = -1;
+          int back = path[--length];
+          v = heads[reverse[back]];
+          nextEdge[v]++;
+        }
+      }
+    }
+
+    // a breadth-first search that fills distance and queue, and returns how many it reached
+    private static int search(int start, int[] offsets, int[] heads, int[] distance,
+        int[] queue) {
+      Arrays.fill(distance, -1);
+      int head = 0;
+      int tail = 0;
+      distance[start] = 0;
+      queue[tail++] = start;
+      while (head < tail) {
+        int v = queue[head++];
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+          if (distance[heads[e]] < 0) {
+            distance[heads[e]] = distance[v] + 1;
+            queue[tail++] = heads[e];
+          }
+        }
+      }
+      return tail;
+    }
+
+    // moves the nodes whose mark is not negative to the front, keeping their order, and returns
+    // how many there are
+    private static int moveToFront(int[] nodes, int[] marks) {
+      int[] rest = new int[nodes.length];
+      int front = 0;
+      int back = 0;
+      int[] copy = nodes.clone();
+      for (int i = 0; i < copy.length; i++) {
+        if (marks[i] >= 0)
+          nodes[front++] = copy[i];
+        else
+          rest[back++] = copy[i];
+      }
+      System.arraycopy(rest, 0, nodes, front, back);
+      return front;
+    }
+  }
+
+  /**
+   * Retrieves the number of levels.
+   *
+   * @return the number of levels, which are numbered from 1
+   */
+  public int getLevelCount() {
+    return cells.length;
+  }
+
+  /**
+   * Retrieves the largest number of locations in a cell of a level.
+   *
+   * @param level the level, from 1 to getLevelCount
+   * @return the largest cell size of the level
+   */
+  public int getMaxCellSize(int level) {
+    return maxCellSizes[level - 1];
+  }
+
+  /**
+   * Retrieves the number of cells on a level.
+   *
+   * @param level the level, from 1 to getLevelCount
+   * @return the number of cells, which are numbered from 0
+   */
+  public int getCellCount(int level) {
+    return cellCounts[level - 1];
+  }
+
+  /**
+   * Retrieves the cell of a node on a level.
+   *
+   * @param level the level, from 1 to getLevelCount
+   * @param node  the number of the node in the graph that was partitioned
+   * @return the number of the node's cell on that level
+   */
+  public int getCell(int level, int node) {
+    return cells[level - 1][node];
+  }
+
+  /**
+   * Retrieves the nodes of a cell.
+   *
+   * @param level the level, from 1 to getLevelCount
+   * @param cell  the number of the cell on that level
+   * @return the numbers of the cell's nodes, in partition order
+   */
+  public int[] getCellNodes(int level, int cell) {
+    int[] offsets = cellOffsets[level - 1];
+    return Arrays.copyOfRange(order, offsets[cell], offsets[cell + 1]);
+  }
+
+  /**
+   * Retrieves the nodes in the order that bisection placed them, where the nodes of every cell on
+   * every level are next to each other.
+   *
+   * @return a copy of the nodes in partition order
+   */
+  public int[] getOrder() {
+    return order.clone();
+  }
+
+  /**
+   * Writes the partition, so that read can create an equal partition later.
+   *
+   * @param out the destination of the partition's bytes
+   * @throws IOException if the bytes cannot be written
+   */
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(maxCellSizes.length);
+    for (int size : maxCellSizes)
+      out.writeInt(size);
+    out.writeInt(order.length);
+    out.writeLong(numberingHash);
+    for (int v : order)
+      out.writeInt(v);
+    for (int[] level : cells)
+      for (int cell : level)
+        out.writeInt(cell);
+  }
+
+  /**
+   * Reads a partition that was written by write, for a graph that is numbered the same way as the
+   * one that was partitioned.
+   *
+   * @param in    the source of the partition's bytes
+   * @param graph the graph that the partition is for
+   * @return the partition
+   * @throws IOException if the bytes cannot be read, or were written for a graph with other
+   *                     nodes or numbered differently
+   */
+  public static GraphPartition read(DataInput in, IndexedGraph graph) throws IOException {
+    int levels = in.readInt();
+    if (levels < 1)
+      throw new IOException("Invalid number of levels: " + levels);
+    int[] maxCellSizes = new int[levels];
+    for (int l = 0; l < levels; l++)
+      maxCellSizes[l] = in.readInt();
+    int n = in.readInt();
+    long numberingHash = in.readLong();
+    if (n != graph.getNodeCount() || numberingHash != graph.numberingHash())
+      throw new IOException("The partition was built for a different graph");
+    int[] order = new int[n];
+    boolean[] placed = new boolean[n];
+    for (int p = 0; p < n; p++) {
+      order[p] = in.readInt();
+      if (order[p] < 0 || order[p] >= n || placed[order[p]])
+        throw new IOException("Position " + p + " has an invalid location: " + order[p]);
+      placed[order[p]] = true;
+    }
+    int[][] cells = new int[levels][n];
+    for (int[] level : cells) {
+      for (int v = 0; v < n; v++) {
+        level[v] = in.readInt();
+        if (level[v] < 0 || level[v] >= n)
+          throw new IOException("Location " + v + " has an invalid cell: " + level[v]);
+      }
+    }
+    return new GraphPartition(maxCellSizes, numberingHash, cells, order);
+  }
+}
@@ -8,6 +8,9 @@ import java.util.NoSuchElementException;
  */
 public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
 
+  // the capacity that a new or cleared map starts with
+  private static final int DEFAULT_CAPACITY = 64;
+
   // private instance variable to hold the table
   private LinkedList<Pair>[] table = null;
   // private instance to store the maps capacity
@@ -33,7 +36,7 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
    */
   @SuppressWarnings("unchecked")
   public HashtableMap() {
-    this.capacity = 64;
+    this.capacity = DEFAULT_CAPACITY;
     this.table = (LinkedList<Pair>[]) new LinkedList[capacity];
     this.size = 0;
   }
@@ -73,7 +76,7 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
       throw new NullPointerException("Key can't be null");
 
     // get the index of this table
-    int index = Math.abs(key.hashCode()) % capacity;
+    int index = indexOf(key, capacity);
 
     // if the bucket does not exist implement it
     if (table[index] == null) {
@@ -111,7 +114,7 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
       if (bucket != null) {
         // for every pair in the bucket rehash their values with the new capacity
         for (Pair pair : bucket) {
-          int newIndex = Math.abs(pair.key.hashCode()) % capacity * 2;
+          int newIndex = indexOf(pair.key, capacity * 2);
 
           // if that new index is null then create a new bucket at that index
           if (newTable[newIndex] == null) {
@@ -130,26 +133,46 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
   }
 
   /**
-   * Checks whether a key maps to a value in this collection.
+   * private method to find the index of the bucket that a key belongs in
    * 
-   * @param key the key to check
-   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   * @param key      the key to find the bucket for
+   * @param capacity the number of buckets in the table
+   * @return the index of the key's bucket
    */
-  public boolean containsKey(KeyType key) {
-    // add each value from the old table at every other index
-    for (LinkedList<Pair> bucket : table) {
+  private static int indexOf(Object key, int capacity) {
+    return Math.floorMod(key.hashCode(), capacity);
+  }
 
-      // as long as the bucket isn't null
-      if (bucket != null) {
-        // for every pair in the bucket check if it is the key and if so return true
-        for (Pair pair : bucket) {
-          if (pair.key.equals(key)) {
-            return true;
-          }
+  /**
+   * private method to find the pair that holds a key, only searching the key's own bucket
+   * 
+   * @param key the key to look for
+   * @return the pair holding that key, or null if the key is not stored in this collection
+   */
+  private Pair findPair(KeyType key) {
+    if (key == null)
+      return null;
+    LinkedList<Pair> bucket = table[indexOf(key, capacity)];
+    // as long as the bucket isn't null
+    if (bucket != null) {
+      // for every pair in the bucket check if it is the key and if so return it
+      for (Pair pair : bucket) {
+        if (pair.key.equals(key)) {
+          return pair;
         }
       }
     }
-    return false;
+    return null;
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection.
+   * 
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  public boolean containsKey(KeyType key) {
+    return findPair(key) != null;
   }
 
   /**
@@ -160,21 +183,11 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
    * @throws NoSuchElementException when key is not stored in this collection
    */
   public ValueType get(KeyType key) throws NoSuchElementException {
-    // add each value from the old table at every other index
-    for (LinkedList<Pair> bucket : table) {
-
-      // as long as the bucket isn't null
-      if (bucket != null) {
-        // for every pair in the bucket check if it is the key and if so return its value
-        for (Pair pair : bucket) {
-          if (pair.key.equals(key)) {
-            return pair.value;
-          }
-        }
-      }
-    }
+    Pair pair = findPair(key);
     // throw NoSuchElementException if the key cannot be found
-    throw new NoSuchElementException("key could not be found in the table");
+    if (pair == null)
+      throw new NoSuchElementException("key could not be found in the table");
+    return pair.value;
   }
 
   /**
@@ -185,30 +198,22 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
    * @throws NoSuchElementException when key is not stored in this collection
    */
   public ValueType remove(KeyType key) throws NoSuchElementException {
-    // add each value from the old table at every other index
-    for (LinkedList<Pair> bucket : table) {
-
-      // as long as the bucket isn't null
-      if (bucket != null) {
-        // for every pair in the bucket check if it is the key and if so return its value
-        for (Pair pair : bucket) {
-          if (pair.key.equals(key)) {
-            bucket.remove(pair);
-            size --;
-            return pair.value;
-          }
-        }
-      }
-    }
+    Pair pair = findPair(key);
     // throw NoSuchElementException if the key cannot be found
-    throw new NoSuchElementException("key could not be found in the table");
+    if (pair == null)
+      throw new NoSuchElementException("key could not be found in the table");
+    table[indexOf(key, capacity)].remove(pair);
+    size--;
+    return pair.value;
   }
 
   /**
-   * Removes all key,value pairs from this collection.
+   * Removes all key,value pairs from this collection in constant time, by starting over with a
+   * table of the default capacity instead of one as large as the table grew to.
    */
   @SuppressWarnings("unchecked")
   public void clear() {
+    capacity = DEFAULT_CAPACITY;
     table = (LinkedList<Pair>[]) new LinkedList[capacity];
     size = 0;
   }
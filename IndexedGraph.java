@@ -0,0 +1,141 @@
+import java.util.Arrays;
+
+/**
+ * An IndexedGraph numbers its nodes from 0 to n - 1 and its edges from 0 to m - 1, where the edges
+ * leaving node v are edges edgeOffset(v) to edgeOffset(v + 1), for computations that visit nodes
+ * and edges by number. A CompactGraph keeps the numbers in arrays on the heap, while a MappedGraph
+ * reads them from its mapped file, so that such computations can run over a graph file without
+ * copying it first.
+ */
+public interface IndexedGraph {
+
+  /**
+   * Retrieves the number of nodes.
+   *
+   * @return the number of nodes
+   */
+  public int getNodeCount();
+
+  /**
+   * Retrieves the number of edges.
+   *
+   * @return the number of edges
+   */
+  public int getEdgeCount();
+
+  /**
+   * Finds the number of the node with the provided name.
+   *
+   * @param name the name of a node
+   * @return the number of that node, or -1 if there is no such node
+   */
+  public int idOf(String name);
+
+  /**
+   * Retrieves the name of a node by its number.
+   *
+   * @param id the number of a node
+   * @return the name of that node
+   */
+  public String nameOf(int id);
+
+  /**
+   * Retrieves the number of the first edge leaving a node, which is also one past the number of
+   * the last edge leaving the node before it.
+   *
+   * @param node the number of a node, or the node count for the end of the last node's edges
+   * @return the number of the node's first edge
+   */
+  public int edgeOffset(int node);
+
+  /**
+   * Retrieves the node that an edge enters.
+   *
+   * @param edge the number of an edge
+   * @return the number of the node that the edge enters
+   */
+  public int targetOf(int edge);
+
+  /**
+   * Retrieves the weight of an edge.
+   *
+   * @param edge the number of an edge
+   * @return the weight of the edge
+   */
+  public double weightOf(int edge);
+
+  /**
+   * Finds the number of the edge between two nodes.
+   *
+   * @param from the name of the node that the edge leaves
+   * @param to   the name of the node that the edge enters
+   * @return the number of the edge, or -1 if there is no such edge
+   */
+  public int edgeIndex(String from, String to);
+
+  /**
+   * Finds the node that an edge leaves, by binary search over the edge offsets.
+   *
+   * @param edge the number of an edge
+   * @return the number of the node that the edge leaves
+   */
+  public default int sourceOf(int edge) {
+    int low = 0;
+    int high = getNodeCount() - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (edgeOffset(middle) <= edge)
+        low = middle;
+      else
+        high = middle - 1;
+    }
+    return low;
+  }
+
+  /**
+   * Hashes the names of the nodes in the order they are numbered, and the targets of the edges in
+   * the order they are numbered, so that artifacts saved for one numbering are not read for
+   * another, such as after a different node ordering or from a graph file of the same source.
+   *
+   * @return a hash of how the nodes and edges are numbered
+   */
+  public default long numberingHash() {
+    int n = getNodeCount();
+    long hash = n;
+    for (int id = 0; id < n; id++)
+      hash = 31 * hash + nameOf(id).hashCode();
+    for (int e = 0; e < getEdgeCount(); e++)
+      hash = 31 * hash + targetOf(e);
+    return hash;
+  }
+
+  /**
+   * Lists the neighbors of every node in either direction, for computations that only look at
+   * which nodes are connected. A node appears once among the neighbors of another for every edge
+   * between them.
+   *
+   * @return int[n + 1] offsets, where the neighbors of node v are offsets[v] to offsets[v + 1],
+   *         followed by the neighbors
+   */
+  public default int[][] undirectedAdjacency() {
+    int n = getNodeCount();
+    int[] adjacencyOffsets = new int[n + 1];
+    for (int u = 0; u < n; u++) {
+      for (int e = edgeOffset(u); e < edgeOffset(u + 1); e++) {
+        adjacencyOffsets[u + 1]++;
+        adjacencyOffsets[targetOf(e) + 1]++;
+      }
+    }
+    for (int u = 0; u < n; u++)
+      adjacencyOffsets[u + 1] += adjacencyOffsets[u];
+    int[] neighbors = new int[adjacencyOffsets[n]];
+    int[] next = Arrays.copyOf(adjacencyOffsets, n);
+    for (int u = 0; u < n; u++) {
+      for (int e = edgeOffset(u); e < edgeOffset(u + 1); e++) {
+        neighbors[next[u]++] = targetOf(e);
+        neighbors[next[targetOf(e)]++] = u;
+      }
+    }
+    return new int[][] {adjacencyOffsets, neighbors};
+  }
+}
@@ -1,15 +1,68 @@
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 /**
  * Integration tests for the Backend and Frontend classes.
  */
 public class IntegrationTests {
 
+  /**
+   * Inserts a side by side grid of locations "L0" onward, numbered row by row, with walkways of
+   * different times in both directions between neighboring locations.
+   *
+   * @param graph  the graph to insert the grid into
+   * @param side   the number of locations along each side
+   * @param stride the step between the numbers of locations inserted one after another, which is
+   *               1 to insert them in order, and otherwise shares no factor with side * side
+   * @return the locations in the order of their numbers
+   */
+  private static List<String> insertGrid(GraphADT<String, Double> graph, int side, int stride) {
+    int n = side * side;
+    List<String> locations = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      locations.add("L" + i);
+      graph.insertNode("L" + (i * stride % n));
+    }
+    for (int i = 0; i < n; i++) {
+      if (i % side < side - 1) {
+        graph.insertEdge("L" + i, "L" + (i + 1), 10.0 + i % 7);
+        graph.insertEdge("L" + (i + 1), "L" + i, 12.0 + i % 5);
+      }
+      if (i < n - side) {
+        graph.insertEdge("L" + i, "L" + (i + side), 11.0 + i % 3);
+        graph.insertEdge("L" + (i + side), "L" + i, 9.0 + i % 4);
+      }
+    }
+    return locations;
+  }
+
   /**
    * Integration test for `generateShortestPathResponseHTML` to ensure the shortest path is
    * displayed correctly.
@@ -143,4 +196,1397 @@ public class IntegrationTests {
     assertEquals(expectedPath, path,
         "The shortest path should include the correct nodes in order.");
   }
+
+  /**
+   * Integration test for search deadlines to ensure that a cancelled search is reported as timed
+   * out instead of as a missing path.
+   */
+  @Test
+  public void IntegrationTest5() {
+    // create a long chain of nodes so that the search settles many nodes before reaching the end
+    DijkstraGraph<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    for (int i = 0; i < 1000; i++) {
+      testGraph.insertNode("N" + i);
+      if (i > 0)
+        testGraph.insertEdge("N" + (i - 1), "N" + i, 1.0);
+    }
+
+    // a cancelled deadline should stop the search with a timeout
+    SearchDeadline deadline = SearchDeadline.none();
+    deadline.cancel();
+    assertThrows(SearchTimeoutException.class,
+        () -> testGraph.shortestPathData("N0", "N999", deadline),
+        "A cancelled search should throw a SearchTimeoutException.");
+
+    // without a deadline the same search should still find the path
+    assertEquals(1000, testGraph.shortestPathData("N0", "N999").size(),
+        "The path along the chain should contain every node.");
+
+    // the backend should report an unreachable destination as no path rather than a timeout
+    Backend backend = new Backend(testGraph);
+    backend.setQueryTimeout(1000);
+    PathResult result = backend.findShortestPath("N999", "N0");
+    assertEquals(PathResult.Status.NO_PATH, result.getStatus(),
+        "An unreachable destination should not be reported as a timeout.");
+
+    // test that worker deadlines count their own nodes and stop when the shared one is cancelled
+    SearchDeadline shared = SearchDeadline.none();
+    SearchDeadline worker = shared.forWorker();
+    testGraph.shortestPathData("N0", "N999", worker);
+    assertEquals(1000, worker.getSettledCount(), "The worker settled the whole chain.");
+    assertEquals(0, shared.getSettledCount(), "Workers do not count against each other.");
+    shared.cancel();
+    assertTrue(worker.isCancelled() && worker.isExpired(), "Cancelling reaches every worker.");
+    assertThrows(SearchTimeoutException.class,
+        () -> Betweenness.compute(CompactGraph.of(testGraph), 0, 42, 4, shared));
+  }
+
+  /**
+   * Integration test for `loadGraphData` to ensure that node statements, comments and chained edges
+   * are loaded, and that malformed files are reported with their position.
+   */
+  @Test
+  public void IntegrationTest6() throws IOException {
+    // write a small dot file that uses more of the dot language than campus.dot does
+    Path dotFile = Files.createTempFile("campus", ".dot");
+    Files.writeString(dotFile, "digraph campus {\n" + "  // a lone building\n"
+        + "  \"Lone Hall\";\n" + "  edge [seconds=10]\n" + "  A -> \"B \\\"b\\\"\" -> C;\n"
+        + "  /* faster */ A -> C [seconds=15, color=red];\n" + "}\n");
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    Backend backend = new Backend(testGraph);
+    backend.loadGraphData(dotFile.toString());
+
+    // test that the node statement, the quoted id and the default attribute were all loaded
+    assertTrue(testGraph.containsNode("Lone Hall"), "Node statements should insert nodes.");
+    assertEquals(4, testGraph.getNodeCount(), "All nodes should be loaded.");
+    assertEquals(10.0, testGraph.getEdge("A", "B \"b\""), 1e-9,
+        "Edges should use the default seconds attribute.");
+    assertEquals(15.0, testGraph.shortestPathCost("A", "C"), 1e-9,
+        "Attributes should override the default seconds attribute.");
+
+    // test that a missing attribute value is reported at the right line
+    Files.writeString(dotFile, "digraph campus {\n  A -> B [seconds=];\n}\n");
+    DotParseException e = assertThrows(DotParseException.class,
+        () -> backend.loadGraphData(dotFile.toString()), "Malformed files should not load.");
+    assertEquals(2, e.getLine(), "The error should be reported on the second line.");
+
+    // test that walking times which searches cannot use are reported at their line too
+    for (String seconds : List.of("-5", "NaN", "Infinity")) {
+      Files.writeString(dotFile, "digraph campus {\n  A -> B [seconds=10];\n  B -> C [seconds="
+          + seconds + "];\n}\n");
+      DotParseException invalid = assertThrows(DotParseException.class,
+          () -> backend.loadGraphData(dotFile.toString()), seconds + " should not load.");
+      assertEquals(3, invalid.getLine(), "The error should be reported on the third line.");
+      assertTrue(invalid.getMessage().contains("invalid seconds attribute: " + seconds),
+          invalid.getMessage());
+    }
+    Files.delete(dotFile);
+  }
+
+  /**
+   * Integration test for `GraphBuilder` to ensure that duplicate edges keep the last weight added,
+   * and that building into a graph replaces its previous contents.
+   */
+  @Test
+  public void IntegrationTest7() {
+    // fill a graph with data that the builder should replace
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    testGraph.insertNode("Old");
+
+    // add a duplicate edge and a node without edges to the builder
+    GraphBuilder<String, Double> builder = new GraphBuilder<>();
+    builder.addEdge("A", "B", 10.0);
+    builder.addEdge("B", "C", 5.0);
+    builder.addEdge("A", "B", 2.0);
+    builder.addNode("D");
+    builder.buildInto(testGraph);
+
+    // test that the graph holds exactly the builder's nodes and deduplicated edges
+    assertFalse(testGraph.containsNode("Old"), "Building should clear the old graph.");
+    assertEquals(4, testGraph.getNodeCount(), "All nodes should be built.");
+    assertEquals(2, testGraph.getEdgeCount(), "Duplicate edges should be removed.");
+    assertEquals(2.0, testGraph.getEdge("A", "B"), 1e-9, "The last weight added should be kept.");
+    assertEquals(7.0, testGraph.shortestPathCost("A", "C"), 1e-9,
+        "The built graph should support shortest path searches.");
+
+    // test that clearing a map that has grown starts over with the default table
+    HashtableMap<Integer, Integer> map = new HashtableMap<>();
+    for (int i = 0; i < 1000; i++)
+      map.put(i, i);
+    map.clear();
+    assertEquals(0, map.getSize(), "Clearing should remove every pair.");
+    assertEquals(64, map.getCapacity(), "Clearing should not keep the grown table.");
+    map.put(7, 49);
+    assertEquals(49, map.get(7), "A cleared map should still be usable.");
+  }
+
+  /**
+   * Integration test for `SnapshotStore` and `FurthestDestinationIndex` to ensure that a saved
+   * index gives the same answers as searching, and is only loaded again for an unchanged graph.
+   */
+  @Test
+  public void IntegrationTest8() throws IOException {
+    Path dotFile = Files.createTempFile("campus", ".dot");
+    Files.writeString(dotFile, "digraph campus {\n  A -> B [seconds=10];\n  B -> C [seconds=5];\n"
+        + "  A -> C [seconds=20];\n  C -> A [seconds=1];\n  D;\n}\n");
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    Backend backend = new Backend(testGraph);
+    backend.loadGraphData(dotFile.toString());
+
+    // save the index, then load it back while the graph file is unchanged
+    FurthestDestinationIndex built = backend.buildFurthestDestinationIndex();
+    SnapshotStore store = new SnapshotStore(dotFile);
+    String fingerprint = store.fingerprint();
+    store.save(FurthestDestinationIndex.ARTIFACT_NAME, fingerprint, built::write);
+    FurthestDestinationIndex loaded = store.load(FurthestDestinationIndex.ARTIFACT_NAME,
+        fingerprint, FurthestDestinationIndex::read);
+    assertNotNull(loaded, "An index saved for this graph should be loaded.");
+
+    // test that the loaded index answers like a search does
+    for (String location : Arrays.asList("A", "B", "C")) {
+      String searched = backend.getFurthestDestinationFrom(location);
+      backend.setFurthestDestinationIndex(loaded);
+      assertEquals(searched, backend.getFurthestDestinationFrom(location),
+          "The index should give the same answer as a search.");
+      backend.setFurthestDestinationIndex(null);
+    }
+    assertEquals(15.0, loaded.getFurthestDistanceFrom("A"), 1e-9, "C is 15 seconds from A.");
+    backend.setFurthestDestinationIndex(loaded);
+    assertThrows(NoSuchElementException.class,
+        () -> backend.getFurthestDestinationFrom("D"), "D cannot reach any other location.");
+
+    // test that changing the graph file makes the saved index stale
+    Files.writeString(dotFile, "digraph campus {\n  A -> B [seconds=1];\n}\n",
+        StandardOpenOption.APPEND);
+    assertTrue(store.load(FurthestDestinationIndex.ARTIFACT_NAME, store.fingerprint(),
+        FurthestDestinationIndex::read) == null, "A changed graph should not load the old index.");
+
+    Files.delete(store.getDirectory().resolve(FurthestDestinationIndex.ARTIFACT_NAME));
+    Files.delete(store.getDirectory());
+    Files.delete(dotFile);
+  }
+
+  /**
+   * Integration test for `GraphGenerator` to ensure that generated graphs are repeatable, that the
+   * dot output loads into the same graph, and that asymmetry makes directions differ.
+   */
+  @Test
+  public void IntegrationTest9() throws IOException {
+    // generate the same clustered graph twice, and once more through a dot file
+    GraphGenerator generator =
+        new GraphGenerator(GraphGenerator.Shape.CLUSTERED, 2000, 7).setAsymmetry(0.5);
+    DijkstraGraph<String, Double> first = generator.build();
+    DijkstraGraph<String, Double> second = generator.build();
+    Path dotFile = Files.createTempFile("generated", ".dot");
+    generator.writeDot(dotFile);
+    GraphADT<String, Double> loaded = new DijkstraGraph<String, Double>();
+    new Backend(loaded).loadGraphData(dotFile.toString());
+    Files.delete(dotFile);
+
+    // test that all three graphs are the same
+    assertEquals(2000, first.getNodeCount(), "Every node should be generated.");
+    assertEquals(first.getEdgeCount(), second.getEdgeCount(), "The same seed gives the same edges.");
+    assertEquals(first.getEdgeCount(), loaded.getEdgeCount(), "The dot file holds every edge.");
+    assertEquals(first.shortestPathCost("n0", "n1999"), loaded.shortestPathCost("n0", "n1999"),
+        1e-9, "The dot file holds the same weights.");
+
+    // test that paths go both ways, but take different times in each direction
+    MapADT<String, Double> costs = first.shortestPathCosts("n0", SearchDeadline.none());
+    assertTrue(costs.containsKey("n1999"), "The campuses should be joined.");
+    String neighbour = first.shortestPathData("n0", "n1999").get(1);
+    assertTrue(first.containsEdge(neighbour, "n0"), "Edges should go in both directions.");
+    assertTrue(first.getEdge("n0", neighbour) != first.getEdge(neighbour, "n0").doubleValue(),
+        "Asymmetry should make the directions take different times.");
+  }
+
+  /**
+   * Integration test for `MetricsRegistry` to ensure that counters and histograms are formatted in
+   * the Prometheus text format, with cumulative buckets in the reported unit.
+   */
+  @Test
+  public void IntegrationTest10() {
+    MetricsRegistry metrics = new MetricsRegistry();
+    MetricsRegistry.Counter hits = metrics.counter("test_hits_total", "Hits.", "cache", "a\"b");
+    hits.add(3);
+    MetricsRegistry.Histogram latency = metrics.histogram("test_seconds", "Latency.",
+        MetricsRegistry.NANOS, new double[] {0.001, 0.1});
+    latency.record(500_000);
+    latency.record(50_000_000);
+    latency.record(2_000_000_000);
+    String text = metrics.toPrometheus();
+
+    // test that every sample is present with escaped labels and converted units
+    assertTrue(text.contains("# TYPE test_hits_total counter\n"), "Types should be declared.");
+    assertTrue(text.contains("test_hits_total{cache=\"a\\\"b\"} 3\n"),
+        "Label values should be escaped.");
+    assertTrue(text.contains("test_seconds_bucket{le=\"0.001\"} 1\n"), "0.5 ms is below 1 ms.");
+    assertTrue(text.contains("test_seconds_bucket{le=\"0.1\"} 2\n"), "Buckets are cumulative.");
+    assertTrue(text.contains("test_seconds_bucket{le=\"+Inf\"} 3\n"), "+Inf counts everything.");
+    assertTrue(text.contains("test_seconds_count 3\n"), "Every value should be counted.");
+    assertThrows(IllegalArgumentException.class,
+        () -> metrics.counter("test_seconds", "Not a histogram."),
+        "A name can only have one type.");
+  }
+
+  /**
+   * Integration test for `SearchStats` and `SearchEvent` to ensure that a search's work is counted
+   * and recorded as a Flight Recorder event.
+   */
+  @Test
+  public void IntegrationTest11() throws IOException {
+    // a graph where A reaches C directly at a high cost, and through B more cheaply
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    testGraph.insertNode("A");
+    testGraph.insertNode("B");
+    testGraph.insertNode("C");
+    testGraph.insertEdge("A", "B", 1.0);
+    testGraph.insertEdge("B", "C", 1.0);
+    testGraph.insertEdge("A", "C", 5.0);
+
+    Path recordingFile = Files.createTempFile("search", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("campus.Search");
+      recording.start();
+      testGraph.shortestPathData("A", "C");
+      recording.stop();
+      recording.dump(recordingFile);
+    }
+
+    // test that the stats count every settled node, relaxed edge and outdated queue entry
+    SearchStats stats = testGraph.getLastSearchStats();
+    assertEquals(3, stats.getNodesSettled(), "A, B and C should be settled.");
+    assertEquals(3, stats.getEdgesRelaxed(), "The edges leaving A and B should be relaxed.");
+    assertEquals(4, stats.getQueuePushes(), "A, B and C twice should be pushed.");
+    assertEquals(2, stats.getPeakQueueSize(), "B and C were queued at the same time.");
+
+    // test that the search was recorded with the same stats
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+    Files.delete(recordingFile);
+    assertEquals(1, events.size(), "The search should be recorded once.");
+    assertEquals("found", events.get(0).getString("outcome"), "A path should have been found.");
+    assertEquals(3, events.get(0).getInt("nodesSettled"), "The event should hold the stats.");
+  }
+
+  /**
+   * Integration test for `generateReachableWithinResponseHTML` to ensure that only the locations
+   * within the walking time are listed, and that the search never queues the ones beyond it.
+   */
+  @Test
+  public void IntegrationTest12() {
+    // a line of locations one minute apart, with a long shortcut from A to E
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    Backend backend = new Backend(testGraph);
+    Frontend frontend = new Frontend(backend);
+    for (String location : List.of("A", "B", "C", "D", "E"))
+      testGraph.insertNode(location);
+    testGraph.insertEdge("A", "B", 60.0);
+    testGraph.insertEdge("B", "C", 60.0);
+    testGraph.insertEdge("C", "D", 60.0);
+    testGraph.insertEdge("D", "E", 60.0);
+    testGraph.insertEdge("A", "E", 1000.0);
+
+    // test that the locations within two and a half minutes are listed closest first
+    assertEquals(List.of("A", "B", "C"),
+        new ArrayList<>(backend.findLocationsWithin("A", 150).keySet()),
+        "Only A, B and C are within 150 seconds of A.");
+    assertEquals(120.0, backend.findLocationsWithin("A", 150).get("C"),
+        "C should be reached in 120 seconds.");
+    SearchStats stats = testGraph.getLastSearchStats();
+    assertEquals(3, stats.getNodesSettled(), "Only the locations within the budget are settled.");
+    assertEquals(3, stats.getQueuePushes(), "D and E should never be queued.");
+
+    // test the html response, and the problems it reports
+    String html = frontend.generateReachableWithinResponseHTML("A", "2.5");
+    assertTrue(html.contains("<li>C (120.0 seconds)</li>"), "C should be listed with its time.");
+    assertFalse(html.contains("<li>D"), "D is beyond the walking time.");
+    assertTrue(frontend.generateReachableWithinResponseHTML("Z", "5").contains("not found"),
+        "A missing start location should be reported.");
+    assertTrue(frontend.generateReachableWithinResponseHTML("A", "soon").contains("number"),
+        "A walking time that is not a number should be reported.");
+    assertThrows(NoSuchElementException.class, () -> backend.findLocationsWithin("Z", 60));
+  }
+
+  /**
+   * Integration test for `findNearest` to ensure that the nearest facilities are found in order
+   * with their paths, and that the search stops once the k-th facility is reached.
+   */
+  @Test
+  public void IntegrationTest13() {
+    // a hub with two halls nearby, a library beyond one of them, and a far away hall
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    Backend backend = new Backend(testGraph);
+    for (String location : List.of("Hub", "North Hall", "South Hall", "Library", "Far Hall"))
+      testGraph.insertNode(location);
+    testGraph.insertEdge("Hub", "North Hall", 30.0);
+    testGraph.insertEdge("Hub", "South Hall", 20.0);
+    testGraph.insertEdge("North Hall", "Library", 10.0);
+    testGraph.insertEdge("Library", "Far Hall", 500.0);
+
+    // test that the halls are matched by keyword and the two nearest are found in order
+    List<String> halls = backend.findLocationsMatching("hall");
+    assertEquals(3, halls.size(), "Every hall should match, ignoring case.");
+    assertFalse(halls.contains("Library"), "The library is not a hall.");
+    List<PathResult> nearest = backend.findNearest("Hub", halls, 2);
+    assertEquals(2, nearest.size(), "Two halls were asked for.");
+    assertEquals(List.of("Hub", "South Hall"), nearest.get(0).getLocations(),
+        "South Hall is the nearest.");
+    assertEquals(List.of("Hub", "North Hall"), nearest.get(1).getLocations(),
+        "North Hall is the second nearest.");
+    assertEquals(30.0, nearest.get(1).getTotalTime(), "North Hall is 30 seconds away.");
+    assertEquals(3, testGraph.getLastSearchStats().getNodesSettled(),
+        "The search should stop at North Hall, before the Library and Far Hall.");
+
+    // test that only the reachable facilities are returned when more are asked for
+    assertEquals(3, backend.findNearest("Hub", halls, 10).size(), "Only three halls exist.");
+    assertEquals(1, backend.findNearest("Far Hall", halls, 2).size(),
+        "Only Far Hall itself can be reached from Far Hall.");
+    assertThrows(NoSuchElementException.class, () -> backend.findNearest("Z", halls, 1));
+  }
+
+  /**
+   * Integration test for `findMeetingPoint` and `generateMeetingPointResponseHTML` to ensure that
+   * the longest walk and the total walk are each minimized.
+   */
+  @Test
+  public void IntegrationTest14() {
+    // two people at either end of a line, with a third person off to the side of one end
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    Backend backend = new Backend(testGraph);
+    Frontend frontend = new Frontend(backend);
+    for (String location : List.of("West", "Middle", "East", "Side"))
+      testGraph.insertNode(location);
+    for (String[] edge : new String[][] {{"West", "Middle"}, {"Middle", "East"}}) {
+      testGraph.insertEdge(edge[0], edge[1], 100.0);
+      testGraph.insertEdge(edge[1], edge[0], 100.0);
+    }
+    testGraph.insertEdge("Side", "East", 10.0);
+    testGraph.insertEdge("East", "Side", 10.0);
+
+    // test that the middle keeps the longest walk shortest, and the east end the total walk
+    List<String> group = List.of("West", "East", "Side");
+    MeetingPoint fairest = backend.findMeetingPoint(group, MeetingPoint.Objective.MAX);
+    assertEquals("Middle", fairest.getLocation(), "Middle is at most 110 seconds from anyone.");
+    assertEquals(List.of(100.0, 100.0, 110.0), fairest.getTimes(), "Everyone's walk to Middle.");
+    MeetingPoint closest = backend.findMeetingPoint(group, MeetingPoint.Objective.SUM);
+    assertEquals("East", closest.getLocation(), "East is 210 seconds away in total.");
+    assertEquals(210.0, closest.getValue(), "The total walk to East is 210 seconds.");
+
+    // test the html response, and the problems it reports
+    String html = frontend.generateMeetingPointResponseHTML("West; East; Side", "max");
+    assertTrue(html.contains("best place to meet is Middle"), "Middle should be suggested.");
+    assertTrue(html.contains("<li>Side: 110.0 seconds</li>"), "Side's walk should be listed.");
+    assertTrue(frontend.generateMeetingPointResponseHTML("West;Nowhere", "max")
+        .contains("Nowhere was not found"), "A missing start location should be reported.");
+    testGraph.insertNode("Island");
+    assertTrue(frontend.generateMeetingPointResponseHTML("West;Island", "total")
+        .contains("No location"), "A group that cannot meet should be reported.");
+  }
+
+  /**
+   * Integration test for `planItinerary` to ensure that the stops are visited in the fastest order,
+   * along one stitched path, both exactly and with the heuristic for long lists of stops.
+   */
+  @Test
+  public void IntegrationTest15() {
+    // a one way loop of 20 locations a minute apart, with slow walkways back the other way
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    Backend backend = new Backend(testGraph);
+    for (int i = 0; i < 20; i++)
+      testGraph.insertNode("L" + i);
+    for (int i = 0; i < 20; i++) {
+      testGraph.insertEdge("L" + i, "L" + (i + 1) % 20, 60.0);
+      testGraph.insertEdge("L" + (i + 1) % 20, "L" + i, 600.0);
+    }
+
+    // test that a few stops listed out of order are visited around the loop
+    Itinerary itinerary = backend.planItinerary(List.of("L0", "L9", "L3", "L6"), false);
+    assertEquals(List.of("L0", "L3", "L6", "L9"), itinerary.getStops(),
+        "The stops are visited around the loop.");
+    assertTrue(itinerary.isOptimal(), "Four stops are ordered exactly.");
+    assertEquals(540.0, itinerary.getTotalTime(), "Nine one minute walks reach L9.");
+    assertEquals(10, itinerary.getPath().getLocations().size(), "The legs share their stops.");
+    Itinerary roundTrip = backend.planItinerary(List.of("L0", "L9", "L3", "L6"), true);
+    assertEquals(1200.0, roundTrip.getTotalTime(), "A round trip goes all the way around.");
+
+    // test that the heuristic orders a long, shuffled list of stops around the loop too
+    List<String> stops = new ArrayList<>();
+    for (int i = 0; i < 20; i++)
+      stops.add("L" + (i * 7) % 20);
+    Itinerary longTrip = backend.planItinerary(stops, true);
+    assertFalse(longTrip.isOptimal(), "Twenty stops are ordered by the heuristic.");
+    assertEquals(1200.0, longTrip.getTotalTime(), "The best round trip goes around once.");
+
+    testGraph.insertNode("Island");
+    assertThrows(NoSuchElementException.class,
+        () -> backend.planItinerary(List.of("L0", "Island"), false));
+
+    // test that cached legs are not used once the graph is changed directly
+    testGraph.insertEdge("L0", "L3", 30.0);
+    assertEquals(390.0, backend.planItinerary(List.of("L0", "L9", "L3", "L6"), false)
+        .getTotalTime(), "The new shortcut to L3 saves two and a half minutes.");
+  }
+
+  /**
+   * Tests the betweenness of locations and walkways on two groups of locations joined by a
+   * single walkway, which every path between the groups has to cross.
+   */
+  @Test
+  public void IntegrationTest16() throws InterruptedException {
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    Backend backend = new Backend(testGraph);
+    for (String location : List.of("A1", "A2", "HubA", "HubB", "B1", "B2"))
+      testGraph.insertNode(location);
+    for (String[] walkway : new String[][] {{"A1", "HubA"}, {"A2", "HubA"}, {"HubA", "HubB"},
+        {"B1", "HubB"}, {"B2", "HubB"}}) {
+      testGraph.insertEdge(walkway[0], walkway[1], 60.0);
+      testGraph.insertEdge(walkway[1], walkway[0], 60.0);
+    }
+
+    // test that the hubs and the bridge between them are the busiest
+    Betweenness betweenness = backend.computeBetweenness(0);
+    assertTrue(betweenness.isExact(), "Every location is searched from.");
+    assertEquals(14.0, betweenness.getScore("HubA"), 1e-9, "Paths from A1 and A2 and into them.");
+    assertEquals(0.0, betweenness.getScore("A1"), 1e-9, "No path passes through a dead end.");
+    List<Betweenness.Bottleneck> locations = betweenness.topLocations(2);
+    assertEquals(2, locations.size());
+    assertTrue(locations.get(0).getFrom().startsWith("Hub"), "A hub is the busiest location.");
+    Betweenness.Bottleneck bridge = betweenness.topWalkways(1).get(0);
+    assertTrue(bridge.getFrom().startsWith("Hub") && bridge.getTo().startsWith("Hub"),
+        "The bridge is the busiest walkway.");
+    assertEquals(9.0, bridge.getScore(), 1e-9, "Every path from one group to the other.");
+
+    // test that sampling every source gives the exact scores, and fewer sources an estimate
+    assertTrue(backend.computeBetweenness(100).isExact(), "Samples beyond n search everything.");
+    Betweenness sampled = backend.computeBetweenness(3);
+    assertFalse(sampled.isExact(), "Three sources are a sample.");
+    assertEquals(3, sampled.getSourceCount());
+    assertEquals(0.0, sampled.getScore("B2"), 1e-9, "A dead end scores 0 from any sample.");
+
+    // test that samples are picked the same way every time, and kept until the graph changes
+    assertEquals(sampled.getScore("HubA"),
+        new Backend(testGraph).computeBetweenness(3).getScore("HubA"), 1e-9);
+    assertSame(sampled, backend.computeBetweenness(3), "The same request is not searched again.");
+    testGraph.insertEdge("A1", "A2", 60.0);
+    assertTrue(sampled != backend.computeBetweenness(3), "A changed graph is searched again.");
+
+    // test that requests made together share one computation
+    testGraph.insertEdge("A2", "A1", 60.0);
+    MetricsRegistry.Counter misses = MetricsRegistry.getDefault().cacheRequests("betweenness",
+        false);
+    long missesBefore = misses.get();
+    Betweenness[] shared = new Betweenness[8];
+    Thread[] requests = new Thread[shared.length];
+    for (int i = 0; i < requests.length; i++) {
+      int request = i;
+      requests[i] = new Thread(() -> shared[request] = backend.computeBetweenness(0));
+      requests[i].start();
+    }
+    for (Thread request : requests)
+      request.join();
+    assertEquals(missesBefore + 1, misses.get(), "Only the first request computes the scores.");
+    for (Betweenness result : shared)
+      assertSame(shared[0], result, "Every request gets the shared scores.");
+  }
+
+  /**
+   * Tests walking times that depend on the time of day, loaded from the profile attributes of a
+   * dot file: a walkway that is crowded at a class change, and one that is locked overnight.
+   */
+  @Test
+  public void IntegrationTest17() throws IOException {
+    Path dotFile = Files.createTempFile("campus", ".dot");
+    Files.writeString(dotFile, "digraph campus {\n"
+        + "  A -> B [seconds=100, profile=\"0:00=100, 8:00=600, 8:10=100\"];\n"
+        + "  A -> C -> B [seconds=150];\n"
+        + "  B -> D [seconds=60, profile=\"6:00=60 22:00=closed\"];\n"
+        + "  D -> A [seconds=300, profile=\"linear 0:00=100 12:00=300 12:01=100\"];\n" + "}\n");
+    DijkstraGraph<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    Backend backend = new Backend(testGraph);
+    backend.loadGraphData(dotFile.toString());
+
+    // test that the crowded walkway is avoided during the class change only
+    assertEquals(List.of("A", "B"), backend.findShortestPath("A", "B").getLocations(),
+        "Searches without a departure time use the seconds attribute.");
+    assertEquals(List.of("A", "B"),
+        backend.findShortestPath("A", "B", LocalTime.of(7, 0)).getLocations());
+    PathResult crowded = backend.findShortestPath("A", "B", LocalTime.of(8, 5));
+    assertEquals(List.of("A", "C", "B"), crowded.getLocations(), "The detour is faster at 8:05.");
+    assertEquals(300.0, crowded.getTotalTime(), 1e-9);
+    // test that waiting for the crowd to clear is used when it arrives sooner than walking now
+    assertEquals(100.0, testGraph.getTravelTime("A", "B", 8 * 3600 - 10), 1e-9);
+    assertEquals(400.0, testGraph.getTravelTime("A", "B", 8 * 3600 + 5 * 60), 1e-9);
+
+    // test that a locked walkway is waited out until it opens the next morning
+    assertEquals(60.0, testGraph.getTravelTime("B", "D", 21 * 3600), 1e-9);
+    assertEquals(7 * 3600 + 60.0, testGraph.getTravelTime("B", "D", 23 * 3600), 1e-9);
+    assertEquals(8 * 3600 + 60.0, testGraph.getTravelTime("B", "D", 22 * 3600), 1e-9);
+
+    // test that linear profiles interpolate, and wait out a walking time that drops steeply
+    assertEquals(200.0, testGraph.getTravelTime("D", "A", 6 * 3600), 1e-9);
+    assertEquals(160.0, testGraph.getTravelTime("D", "A", 12 * 3600), 1e-9);
+    assertEquals(TravelTimeProfile.parse("linear 0:00=100, 12:00=300, 12:01=100"),
+        testGraph.getEdgeProfile("D", "A"), "Profiles are stored as they were parsed.");
+
+    // test that an invalid profile is reported at its line
+    Files.writeString(dotFile, "digraph campus {\n  A -> B [seconds=1, profile=\"9:00=0\"];\n}\n");
+    DotParseException e = assertThrows(DotParseException.class,
+        () -> backend.loadGraphData(dotFile.toString()), "Invalid profiles should not load.");
+    assertEquals(2, e.getLine(), "The error should be reported on the second line.");
+
+    // test that walking times which searches cannot use are reported at their line too
+    for (String seconds : List.of("-5", "NaN", "Infinity")) {
+      Files.writeString(dotFile, "digraph campus {\n  A -> B [seconds=10];\n  B -> C [seconds="
+          + seconds + "];\n}\n");
+      DotParseException invalid = assertThrows(DotParseException.class,
+          () -> backend.loadGraphData(dotFile.toString()), seconds + " should not load.");
+      assertEquals(3, invalid.getLine(), "The error should be reported on the third line.");
+      assertTrue(invalid.getMessage().contains("invalid seconds attribute: " + seconds),
+          invalid.getMessage());
+    }
+    Files.delete(dotFile);
+  }
+
+  /**
+   * Tests shortest paths answered from a contraction hierarchy against searches of the same graph,
+   * before and after a batch of walkways gets slower or closes.
+   */
+  @Test
+  public void IntegrationTest18() {
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    Backend searching = new Backend(testGraph);
+    Backend contracted = new Backend(testGraph);
+    // a 6 by 6 grid of locations, with walkways of different times in both directions
+    List<String> locations = insertGrid(testGraph, 6, 1);
+    ContractionHierarchy hierarchy = contracted.buildContractionHierarchy();
+    contracted.setContractionHierarchy(hierarchy);
+    assertTrue(hierarchy.getArcCount() >= 60, "Every walkway between two locations is an arc.");
+
+    // test that every path from the hierarchy is as fast as the searched one, and walkable
+    for (int round = 0; round < 2; round++) {
+      for (String start : locations) {
+        for (String end : locations) {
+          PathResult expected = searching.findShortestPath(start, end);
+          PathResult actual = contracted.findShortestPath(start, end);
+          assertEquals(expected.getStatus(), actual.getStatus());
+          assertEquals(expected.getTotalTime(), actual.getTotalTime(), 1e-9,
+              "From " + start + " to " + end);
+          List<String> path = actual.getLocations();
+          for (int i = 1; i < path.size(); i++)
+            assertEquals(testGraph.getEdge(path.get(i - 1), path.get(i)),
+                actual.getTimes().get(i - 1), 1e-9, "Paths are unpacked into walkways.");
+        }
+      }
+      // test that a batch of slower and closed walkways is customized into the hierarchy
+      contracted.updateWalkingTimes(Map.of(List.of("L14", "L15"), 200.0, List.of("L15", "L14"),
+          Double.POSITIVE_INFINITY, List.of("L2", "L8"), 1.0, List.of("L21", "L27"), 90.0));
+    }
+    assertEquals(200.0, testGraph.getEdge("L14", "L15"), "The graph gets the new times too.");
+    assertEquals(List.of("L2", "L8"), contracted.findLocationsOnShortestPath("L2", "L8"));
+
+    // test that an invalid batch changes no walking times
+    assertThrows(NoSuchElementException.class, () -> contracted.updateWalkingTimes(
+        Map.of(List.of("L0", "L1"), 5.0, List.of("L0", "L35"), 5.0)), "L0 and L35 are apart.");
+    assertThrows(IllegalArgumentException.class, () -> contracted.updateWalkingTimes(
+        Map.of(List.of("L0", "L1"), 5.0, List.of("L1", "L2"), 0.0)), "Times must be positive.");
+    assertEquals(10.0, testGraph.getEdge("L0", "L1"), "Nothing changes from an invalid batch.");
+    assertEquals(10.0, contracted.findShortestPath("L0", "L1").getTotalTime(), 1e-9);
+
+    // test that queries count the locations they settle, and stop once their deadline expires
+    SearchDeadline deadline = SearchDeadline.none();
+    hierarchy.shortestPath("L0", "L35", deadline);
+    assertTrue(deadline.getSettledCount() > 1, "Both ends settle their ancestors.");
+    SearchDeadline cancelled = SearchDeadline.none();
+    cancelled.cancel();
+    assertThrows(SearchTimeoutException.class,
+        () -> hierarchy.shortestPath("L0", "L35", cancelled));
+
+    // test that a walkway added to the graph after the build is refused before anything changes
+    testGraph.insertEdge("L0", "L7", 30.0);
+    assertThrows(IllegalStateException.class, () -> contracted.updateWalkingTimes(
+        Map.of(List.of("L0", "L1"), 5.0, List.of("L0", "L7"), 20.0)));
+    assertEquals(10.0, testGraph.getEdge("L0", "L1"), "Nothing changes from a refused batch.");
+    assertEquals(30.0, testGraph.getEdge("L0", "L7"));
+  }
+
+  /**
+   * Tests shortest paths answered from a multi-level overlay whose cells are loaded on demand,
+   * against searches of the same graph, and the nesting of the cells it routes through.
+   */
+  @Test
+  public void IntegrationTest19() throws IOException {
+    DijkstraGraph<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    Backend searching = new Backend(testGraph);
+    Backend overlaid = new Backend(testGraph);
+    // an 8 by 8 grid of locations, with walkways of different times in both directions
+    List<String> locations = insertGrid(testGraph, 8, 1);
+
+    // test that the cells fit their levels and nest
+    GraphPartition partition = overlaid.partitionGraph(4, 16);
+    assertEquals(2, partition.getLevelCount());
+    for (int level = 1; level <= 2; level++) {
+      for (int cell = 0; cell < partition.getCellCount(level); cell++) {
+        int[] nodes = partition.getCellNodes(level, cell);
+        assertTrue(nodes.length > 0 && nodes.length <= partition.getMaxCellSize(level));
+        for (int node : nodes)
+          assertEquals(partition.getCell(2, nodes[0]), partition.getCell(2, node),
+              "A cell lies within one cell of the level above.");
+      }
+    }
+    assertTrue(partition.getCellCount(2) >= 4, "64 locations need at least 4 cells of 16.");
+
+    // test that every path from the overlay is as fast as the searched one, with only 3 cells
+    // in memory, before and after a batch of slower and closed walkways
+    OverlayGraph overlay = overlaid.buildOverlayGraph(partition, 3);
+    overlaid.setOverlayGraph(overlay);
+    for (int round = 0; round < 2; round++) {
+      for (String start : locations) {
+        for (String end : locations) {
+          PathResult expected = searching.findShortestPath(start, end);
+          PathResult actual = overlaid.findShortestPath(start, end);
+          assertEquals(expected.getTotalTime(), actual.getTotalTime(), 1e-9,
+              "From " + start + " to " + end);
+          List<String> path = actual.getLocations();
+          assertEquals(end, path.get(path.size() - 1));
+          for (int i = 1; i < path.size(); i++)
+            assertEquals(testGraph.getEdge(path.get(i - 1), path.get(i)),
+                actual.getTimes().get(i - 1), 1e-9, "Cliques are unpacked into walkways.");
+        }
+      }
+      overlaid.updateWalkingTimes(Map.of(List.of("L27", "L28"), 300.0, List.of("L28", "L27"),
+          Double.POSITIVE_INFINITY, List.of("L3", "L11"), 1.0));
+    }
+    assertTrue(overlay.getResidentCellCount() <= 3, "At most 3 cells are kept in memory.");
+
+    // test that queries count the locations they settle, and stop once their deadline expires
+    SearchDeadline deadline = SearchDeadline.none();
+    overlay.shortestPath("L0", "L63", deadline);
+    assertTrue(deadline.getSettledCount() > 1, "The query settles the overlay between its ends.");
+    SearchDeadline cancelled = SearchDeadline.none();
+    cancelled.cancel();
+    assertThrows(SearchTimeoutException.class, () -> overlay.shortestPath("L0", "L63", cancelled));
+
+    // test that a walkway added to the graph after the build is refused before anything changes
+    testGraph.insertEdge("L0", "L9", 30.0);
+    assertThrows(IllegalStateException.class, () -> overlaid.updateWalkingTimes(
+        Map.of(List.of("L0", "L1"), 5.0, List.of("L0", "L9"), 20.0)));
+    assertEquals(10.0, testGraph.getEdge("L0", "L1"), "Nothing changes from a refused batch.");
+    testGraph.removeEdge("L0", "L9");
+
+    // test that cells saved to a store are loaded by another overlay of the same graph
+    Path dotFile = Files.createTempFile("campus", ".dot");
+    SnapshotStore store = new SnapshotStore(dotFile);
+    OverlayGraph saving = overlaid.buildOverlayGraph(partition, 0);
+    saving.setStore(store, store.fingerprint());
+    saving.precompute();
+    try (var saved = Files.list(store.getDirectory())) {
+      assertEquals((long) partition.getCellCount(1) + partition.getCellCount(2), saved.count());
+    }
+    OverlayGraph loading = overlaid.buildOverlayGraph(partition, 0);
+    loading.setStore(store, store.fingerprint());
+    assertEquals(saving.shortestPath("L0", "L63").getTotalTime(),
+        loading.shortestPath("L0", "L63").getTotalTime(), 1e-9);
+    loading.precompute();
+    assertEquals(partition.getCellCount(1) + partition.getCellCount(2),
+        saving.getComputedCellCount());
+    assertEquals(0, loading.getComputedCellCount(), "Every clique is loaded from the store.");
+
+    // test that the partition and cliques are only read back for a graph numbered the same way
+    String partitionName = GraphPartition.artifactName(4, 16);
+    store.save(partitionName, store.fingerprint(), partition::write);
+    assertArrayEquals(partition.getOrder(), store.load(partitionName, store.fingerprint(),
+        overlaid::readGraphPartition).getOrder());
+    Backend reordered = new Backend(testGraph);
+    reordered.setNodeOrdering(NodeOrdering.Strategy.DFS);
+    assertThrows(IOException.class, () -> store.load(partitionName, store.fingerprint(),
+        reordered::readGraphPartition));
+    OverlayGraph renumbered = reordered.buildOverlayGraph(reordered.partitionGraph(4, 16), 0);
+    renumbered.setStore(store, store.fingerprint());
+    assertEquals(saving.shortestPath("L0", "L63").getTotalTime(),
+        renumbered.shortestPath("L0", "L63").getTotalTime(), 1e-9);
+    assertTrue(renumbered.getComputedCellCount() > 0, "Cliques of another numbering are not read.");
+
+    // test that an overlay over a mapped graph file routes on the file the way searches do
+    Path graphFile = Files.createTempFile("campus", ".graph");
+    GraphFile.compile(testGraph, graphFile);
+    Backend mapped = new Backend(MappedGraph.open(graphFile));
+    mapped.setOverlayGraph(mapped.buildOverlayGraph(mapped.partitionGraph(4, 16), 3));
+    for (int start = 0; start < 64; start += 5)
+      for (int end = 0; end < 64; end += 7)
+        assertEquals(searching.findShortestPath("L" + start, "L" + end).getTotalTime(),
+            mapped.findShortestPath("L" + start, "L" + end).getTotalTime(), 1e-9);
+    Files.delete(graphFile);
+    try (var saved = Files.list(store.getDirectory())) {
+      for (Path file : saved.toList())
+        Files.delete(file);
+    }
+    Files.delete(store.getDirectory());
+    Files.delete(dotFile);
+  }
+
+  /**
+   * Tests that renumbering the locations of a graph for locality keeps its names and walkways,
+   * brings neighbors closer together, and leaves the answers of the features built on it alone.
+   */
+  @Test
+  public void IntegrationTest20() {
+    // a 10 by 10 grid whose locations are inserted in a scattered order
+    DijkstraGraph<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    insertGrid(testGraph, 10, 37);
+    CompactGraph loaded = CompactGraph.of(testGraph);
+
+    // test that every strategy is a renumbering that keeps every walkway and its time
+    for (NodeOrdering.Strategy strategy : NodeOrdering.Strategy.values()) {
+      int[] order = NodeOrdering.order(loaded, strategy);
+      assertEquals(100L, Arrays.stream(order).distinct().filter(v -> v >= 0 && v < 100).count(),
+          strategy + " lists every location once.");
+      CompactGraph ordered = NodeOrdering.reorder(loaded, strategy);
+      assertEquals(loaded.getEdgeCount(), ordered.getEdgeCount());
+      for (int e = 0; e < loaded.getEdgeCount(); e++) {
+        String from = loaded.nameOf(loaded.sourceOf(e));
+        String to = loaded.nameOf(loaded.targets[e]);
+        int renumbered = ordered.edgeIndex(from, to);
+        assertTrue(renumbered >= 0, strategy + " keeps " + from + " -> " + to);
+        assertEquals(loaded.weights[e], ordered.weights[renumbered], 1e-9);
+      }
+      if (strategy != NodeOrdering.Strategy.NONE)
+        assertTrue(NodeOrdering.averageEdgeSpan(ordered) < NodeOrdering.averageEdgeSpan(loaded),
+            strategy + " brings neighbors closer than the scattered order.");
+    }
+
+    // test that features over reordered snapshots answer the same as over the loaded order
+    Backend backend = new Backend(testGraph);
+    backend.setNodeOrdering(NodeOrdering.Strategy.NONE);
+    Betweenness expected = backend.computeBetweenness(0);
+    backend.setContractionHierarchy(backend.buildContractionHierarchy());
+    PathResult expectedPath = backend.findShortestPath("L0", "L99");
+    for (NodeOrdering.Strategy strategy : NodeOrdering.Strategy.values()) {
+      backend.setNodeOrdering(strategy);
+      Betweenness actual = backend.computeBetweenness(0);
+      for (int i = 0; i < 100; i++)
+        assertEquals(expected.getScore("L" + i), actual.getScore("L" + i), 1e-6);
+      backend.setContractionHierarchy(backend.buildContractionHierarchy());
+      assertEquals(expectedPath.getTotalTime(),
+          backend.findShortestPath("L0", "L99").getTotalTime(), 1e-9);
+    }
+  }
+
+  /**
+   * Tests that the admission controller queues requests beyond its limit, sheds them once the
+   * queue is full or their wait runs out, and adapts its limit to the latency of searches.
+   */
+  @Test
+  public void IntegrationTest21() throws InterruptedException {
+    // two searches may run at once, and one more request may wait for them
+    AdmissionController controller = new AdmissionController(2, 1, 4, 1, 60_000);
+    AdmissionController.Permit first = controller.tryAcquire(0);
+    AdmissionController.Permit second = controller.tryAcquire(0);
+    assertNotNull(first);
+    assertNotNull(second);
+    assertEquals(2, controller.getInFlight());
+
+    // test that a request whose wait runs out is shed after queueing
+    assertNull(controller.tryAcquire(20), "No permit is released within 20 ms.");
+    assertEquals(1L, controller.getQueuedCount());
+    assertEquals(1L, controller.getShedCount());
+
+    // test that a full queue sheds right away, and a waiting request gets a released permit
+    AdmissionController.Permit[] waited = new AdmissionController.Permit[1];
+    Thread waiting = new Thread(() -> {
+      try {
+        waited[0] = controller.tryAcquire(60_000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    waiting.start();
+    while (controller.getQueueLength() == 0)
+      Thread.sleep(1);
+    long startNanos = System.nanoTime();
+    assertNull(controller.tryAcquire(60_000), "The queue only holds one request.");
+    assertTrue(System.nanoTime() - startNanos < 1_000_000_000L, "Shedding does not wait.");
+    assertEquals(2L, controller.getShedCount());
+    first.release();
+    waiting.join();
+    assertNotNull(waited[0], "The waiting request gets the released permit.");
+    assertEquals(0, controller.getQueueLength());
+    second.release();
+    waited[0].release();
+    waited[0].release();
+    assertEquals(0, controller.getInFlight(), "Releasing twice frees one permit.");
+
+    // test that searches within the target grow a limit in use, and slow ones shrink it
+    AdmissionController fast = new AdmissionController(1, 1, 4, 0, 60_000);
+    fast.tryAcquire(0).release();
+    assertEquals(2, fast.getLimit(), "A full limit of fast searches grows it by one.");
+    AdmissionController slow = new AdmissionController(4, 2, 4, 0, 0);
+    AdmissionController.Permit permit = slow.tryAcquire(0);
+    Thread.sleep(1);
+    permit.release();
+    assertEquals(3, slow.getLimit(), "A slow search shrinks the limit by a tenth.");
+    for (int i = 0; i < 20; i++) {
+      permit = slow.tryAcquire(0);
+      Thread.sleep(1);
+      permit.release();
+    }
+    assertEquals(2, slow.getLimit(), "The limit never shrinks below its minimum.");
+
+    // test that a burst of slow searches that ran together only shrinks the limit once
+    AdmissionController burst = new AdmissionController(4, 1, 4, 0, 0);
+    AdmissionController.Permit[] permits = new AdmissionController.Permit[4];
+    for (int i = 0; i < permits.length; i++)
+      permits[i] = burst.tryAcquire(0);
+    Thread.sleep(1);
+    for (AdmissionController.Permit running : permits)
+      running.release();
+    assertEquals(3, burst.getLimit(), "The burst backs off by a tenth, not by a tenth each.");
+    for (int i = 0; i < 2; i++) {
+      permit = burst.tryAcquire(0);
+      Thread.sleep(1);
+      permit.release();
+    }
+    assertEquals(2, burst.getLimit(), "Slow searches admitted after the burst shrink it again.");
+  }
+
+  /**
+   * Tests that the daemon answers forwarded queries, replaces a socket file left behind by a
+   * daemon that is gone, and refuses to take over the socket of a daemon that still answers.
+   */
+  @Test
+  public void IntegrationTest22() throws Exception {
+    Path directory = Files.createTempDirectory("daemon");
+    Path socket = directory.resolve("campus.sock");
+    Files.writeString(socket, "left behind");
+    WebAppDaemon daemon = new WebAppDaemon(socket, query -> "answer to " + query);
+    Thread serving = new Thread(() -> {
+      try {
+        daemon.serve(2);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    serving.start();
+
+    // test that queries are answered once the stale socket file has been replaced
+    String answer = null;
+    for (int attempt = 0; answer == null && attempt < 500; attempt++) {
+      try {
+        answer = WebAppDaemon.forward(socket, "start=A&end=B");
+      } catch (IOException e) {
+        Thread.sleep(10);
+      }
+    }
+    assertEquals("answer to start=A&end=B", answer);
+
+    // test that a second daemon leaves the running one's socket alone
+    WebAppDaemon second = new WebAppDaemon(socket, query -> "stolen");
+    assertThrows(IOException.class, () -> second.serve(1), "A daemon is already listening.");
+    assertEquals("answer to x", WebAppDaemon.forward(socket, "x"));
+
+    daemon.close();
+    serving.join(10_000);
+    assertFalse(serving.isAlive(), "Closing stops the daemon.");
+    assertFalse(Files.exists(socket), "Closing removes the socket file.");
+    Files.delete(directory);
+  }
+
+  /**
+   * Tests that the JSON writer escapes what JSON and UTF-8 cannot hold as they are, and that the
+   * query API answers malformed queries with 400 and negotiates gzip the way clients ask for it.
+   */
+  @Test
+  public void IntegrationTest23() throws Exception {
+    // test that quotes, control characters and lone surrogates are escaped, and pairs encoded
+    JsonWriter json = new JsonWriter(16);
+    json.beginObject().name("a\"b").value("tab\there").name("list").beginArray().value(1.5)
+        .value("\ud83d\ude00").value("lone \ud83d").endArray().endObject();
+    assertEquals("{\"a\\\"b\":\"tab\\u0009here\",\"list\":[1.5,\"\ud83d\ude00\",\"lone \\ud83d\"]}",
+        new String(json.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals(json.size(), new String(json.toByteArray(), StandardCharsets.UTF_8)
+        .getBytes(StandardCharsets.UTF_8).length,
+        "The output is valid UTF-8, which decodes and encodes back to the same bytes.");
+
+    // serve the query API for a line of 100 locations, whose list is worth gzipping
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    for (int i = 0; i < 100; i++)
+      testGraph.insertNode("Location " + i);
+    for (int i = 1; i < 100; i++)
+      testGraph.insertEdge("Location " + (i - 1), "Location " + i, 10.0);
+    ApiHandler api =
+        new ApiHandler(new Backend(testGraph), new AdmissionController(4, 1, 4, 4, 1000), 100, 1);
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/path", api::handlePath);
+    server.createContext("/api/locations", api::handleLocations);
+    server.start();
+    try {
+      HttpClient client = HttpClient.newHttpClient();
+      String base = "http://localhost:" + server.getAddress().getPort();
+
+      // test that a found path is answered, and a query that is not key=value pairs is a 400
+      HttpResponse<String> path = client.send(HttpRequest.newBuilder(
+          URI.create(base + "/api/path?start=Location%200&end=Location%202")).build(),
+          HttpResponse.BodyHandlers.ofString());
+      assertEquals(200, path.statusCode());
+      assertTrue(path.body().contains("\"totalTime\":20"), path.body());
+      assertEquals("Accept, Accept-Encoding", path.headers().firstValue("Vary").orElse(null),
+          "Small responses that are not gzipped still vary by encoding.");
+      assertEquals(400, client.send(HttpRequest.newBuilder(URI.create(base + "/api/path?start"))
+          .build(), HttpResponse.BodyHandlers.ofString()).statusCode());
+
+      // test that gzip listed by name wins over a wildcard on either side of it
+      Map<String, Boolean> gzipped = Map.of("gzip", true, "*;q=0, gzip", true, "*", true,
+          "gzip;q=0, *", false, "gzip; q=0.0", false, "identity", false, "deflate, *;q=0", false);
+      for (Map.Entry<String, Boolean> acceptEncoding : gzipped.entrySet()) {
+        HttpResponse<byte[]> locations = client.send(HttpRequest.newBuilder(
+            URI.create(base + "/api/locations")).header("Accept-Encoding", acceptEncoding.getKey())
+            .build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(acceptEncoding.getValue(),
+            locations.headers().firstValue("Content-Encoding").isPresent(),
+            "Accept-Encoding: " + acceptEncoding.getKey());
+      }
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  /**
+   * Tests that static files get a gzipped variant that is rebuilt when they change, and that a
+   * variant which cannot be written leaves its file served uncompressed instead of failing.
+   */
+  @Test
+  public void IntegrationTest24() throws Exception {
+    Path directory = Files.createTempDirectory("static");
+    Path style = directory.resolve("style.css");
+    Path script = directory.resolve("app.js");
+    Files.writeString(style, "body { margin: 0; }\n".repeat(100));
+    Files.writeString(script, "console.log('ready');\n".repeat(100));
+    // a directory where the script's variant belongs makes writing the variant fail
+    Files.createDirectories(directory.resolve("app.js.gz").resolve("blocked"));
+    StaticFileHandler handler = new StaticFileHandler(directory, "/static/", 60);
+    assertEquals(2, handler.indexAll(), "A variant that cannot be written is not an error.");
+
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/static/", handler::handle);
+    server.start();
+    try {
+      HttpClient client = HttpClient.newHttpClient();
+      String base = "http://localhost:" + server.getAddress().getPort() + "/static/";
+      HttpRequest.Builder styleRequest =
+          HttpRequest.newBuilder(URI.create(base + "style.css")).header("Accept-Encoding", "gzip");
+
+      // test that the css is served gzipped, and the script uncompressed
+      HttpResponse<byte[]> gzipped =
+          client.send(styleRequest.build(), HttpResponse.BodyHandlers.ofByteArray());
+      assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElse(null));
+      assertEquals(Files.readString(style), new String(
+          new GZIPInputStream(new ByteArrayInputStream(gzipped.body())).readAllBytes(),
+          StandardCharsets.UTF_8));
+      HttpResponse<String> plain = client.send(HttpRequest.newBuilder(URI.create(base + "app.js"))
+          .header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofString());
+      assertEquals(200, plain.statusCode());
+      assertFalse(plain.headers().firstValue("Content-Encoding").isPresent());
+      assertEquals(Files.readString(script), plain.body());
+
+      // test that a changed file gets a new variant, with no temporary files left behind
+      Files.writeString(style, "p { color: red; }\n".repeat(100));
+      Files.setLastModifiedTime(style, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+      HttpResponse<byte[]> rebuilt =
+          client.send(styleRequest.build(), HttpResponse.BodyHandlers.ofByteArray());
+      assertNotEquals(gzipped.headers().firstValue("ETag"), rebuilt.headers().firstValue("ETag"));
+      assertEquals(Files.readString(style), new String(
+          new GZIPInputStream(new ByteArrayInputStream(rebuilt.body())).readAllBytes(),
+          StandardCharsets.UTF_8));
+      try (var files = Files.list(directory)) {
+        assertEquals(4L, files.count(), "Only the files and their variants are in the directory.");
+      }
+    } finally {
+      server.stop(0);
+    }
+    Files.delete(directory.resolve("app.js.gz").resolve("blocked"));
+    for (String name : List.of("app.js.gz", "app.js", "style.css.gz", "style.css"))
+      Files.delete(directory.resolve(name));
+    Files.delete(directory);
+  }
+
+  /**
+   * Tests that the CSV and DIMACS loaders load what their formats allow, including a CSV header
+   * and indented DIMACS lines, and reject negative weights and malformed lines in any chunk.
+   */
+  @Test
+  public void IntegrationTest25() throws IOException {
+    Path csvFile = Files.createTempFile("campus", ".csv");
+    Path grFile = Files.createTempFile("campus", ".gr");
+    try {
+      // test that a header, comments, blank lines and quoted names are read
+      Files.writeString(csvFile, "from,to,seconds\n# a comment\n\n"
+          + "\"Hall, North\",Library,30\n  Library , \"The \"\"Union\"\"\",12.5\n");
+      GraphADT<String, Double> csvGraph = new DijkstraGraph<String, Double>();
+      new CsvGraphLoader().load(csvFile, csvGraph);
+      assertEquals(3, csvGraph.getNodeCount());
+      assertEquals(42.5, csvGraph.shortestPathCost("Hall, North", "The \"Union\""), 1e-9);
+      Files.writeString(csvFile, "A,B,10\nB,C,-1\n");
+      IOException negative = assertThrows(IOException.class,
+          () -> new CsvGraphLoader().load(csvFile, new DijkstraGraph<String, Double>()));
+      assertTrue(negative.getMessage().contains("negative"), negative.getMessage());
+
+      // test that a malformed line which starts a later chunk is not skipped as a header; chunks
+      // are at least 1 MB, and start at the line after the one their first megabyte ends in
+      int lineLength = "n0000000,n0000001,1.0\n".length();
+      int chunkStart = (1024 * 1024 + 1 + lineLength - 1) / lineLength;
+      StringBuilder lines = new StringBuilder();
+      for (int i = 0; i < 2 * chunkStart; i++)
+        lines.append(String.format(i == chunkStart ? "n%07d,n%07d,bad\n" : "n%07d,n%07d,1.0\n",
+            i, i + 1));
+      Files.writeString(csvFile, lines);
+      IOException malformed = assertThrows(IOException.class,
+          () -> new CsvGraphLoader().load(csvFile, new DijkstraGraph<String, Double>()));
+      assertTrue(malformed.getMessage().contains("byte offset " + chunkStart * lineLength),
+          malformed.getMessage());
+
+      // test that indented DIMACS lines load, and every declared node is inserted
+      Files.writeString(grFile, "c a small network\n  p sp 4 3\n a 1 2 7\n\ta 2 3 5\na 3 1 2\n");
+      GraphADT<String, Double> grGraph = new DijkstraGraph<String, Double>();
+      new DimacsGraphLoader().load(grFile, grGraph);
+      assertEquals(4, grGraph.getNodeCount(), "Node 4 is declared without arcs.");
+      assertEquals(12.0, grGraph.shortestPathCost("1", "3"), 1e-9);
+      Files.writeString(grFile, "p sp 2 1\na 1 2 -3\n");
+      assertThrows(IOException.class,
+          () -> new DimacsGraphLoader().load(grFile, new DijkstraGraph<String, Double>()));
+      Files.writeString(grFile, "p sp 2 1\nx 1 2 3\n");
+      assertThrows(IOException.class,
+          () -> new DimacsGraphLoader().load(grFile, new DijkstraGraph<String, Double>()));
+    } finally {
+      Files.delete(csvFile);
+      Files.delete(grFile);
+    }
+  }
+
+  /**
+   * Tests that a mapped graph file answers the same as the graph it was written from, including
+   * meeting points whose searches are closed early, and that the backend refuses to change it.
+   */
+  @Test
+  public void IntegrationTest26() throws IOException {
+    DijkstraGraph<String, Double> source = new DijkstraGraph<String, Double>();
+    for (String location : List.of("West", "Middle", "East", "Side"))
+      source.insertNode(location);
+    for (String[] edge : new String[][] {{"West", "Middle"}, {"Middle", "East"}}) {
+      source.insertEdge(edge[0], edge[1], 100.0);
+      source.insertEdge(edge[1], edge[0], 100.0);
+    }
+    source.insertEdge("Side", "East", 10.0);
+    source.insertEdge("East", "Side", 10.0);
+    Path binary = Files.createTempFile("campus", ".graph");
+    try {
+      GraphFile.compile(source, binary);
+      MappedGraph mapped = MappedGraph.open(binary);
+
+      // test that searches match the graph the file was written from
+      assertEquals(source.shortestPathData("West", "Side"),
+          mapped.shortestPathData("West", "Side"));
+      assertEquals(210.0, mapped.shortestPathCost("West", "Side"), 1e-9);
+      assertEquals(3, mapped.reachableWithin("East", 100.0, SearchDeadline.none()).getSize(),
+          "East, Side and Middle are within 100 seconds of East.");
+      assertEquals(List.of(List.of("West", "Middle")), mapped.shortestPathsToNearest("West",
+          List.of("Side", "Middle"), 1, SearchDeadline.none()));
+      assertThrows(NoSuchElementException.class, () -> mapped.shortestPathData("West", "Nowhere"));
+
+      // test that meeting points match, and that the pooled search arrays stay usable after
+      // searches that were stopped early and closed
+      Backend backend = new Backend(mapped);
+      List<String> group = List.of("West", "East", "Side");
+      for (int round = 0; round < 3; round++) {
+        MeetingPoint fairest = backend.findMeetingPoint(group, MeetingPoint.Objective.MAX);
+        assertEquals("Middle", fairest.getLocation());
+        assertEquals(List.of(100.0, 100.0, 110.0), fairest.getTimes());
+      }
+      assertEquals(List.of("East", "Middle", "West"), mapped.shortestPathData("East", "West"));
+
+      // test that changes are refused up front with a message naming the file, and that the graph
+      // still answers afterwards
+      UnsupportedOperationException load = assertThrows(UnsupportedOperationException.class,
+          () -> backend.loadGraphData("campus.dot"));
+      assertTrue(load.getMessage().contains(binary.toString()), load.getMessage());
+      assertThrows(UnsupportedOperationException.class,
+          () -> backend.updateWalkingTimes(Map.of(List.of("West", "Middle"), 50.0)));
+      assertEquals(4, backend.getListOfAllLocations().size());
+      assertEquals(100.0, mapped.getEdge("West", "Middle"));
+    } finally {
+      Files.delete(binary);
+    }
+  }
+
+  /**
+   * Tests that a saved contraction hierarchy answers like a freshly built one and is refused for a
+   * differently numbered graph, and that an index built for a graph that has changed since is not
+   * installed.
+   */
+  @Test
+  public void IntegrationTest27() throws IOException {
+    Path dotFile = Files.createTempFile("generated", ".dot");
+    new GraphGenerator(GraphGenerator.Shape.CLUSTERED, 300, 3).setAsymmetry(0.3).writeDot(dotFile);
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    Backend backend = new Backend(testGraph);
+    backend.loadGraphData(dotFile.toString());
+    SnapshotStore store = new SnapshotStore(dotFile);
+    try {
+      // test that the saved hierarchy is loaded and gives the same paths as the built one
+      ContractionHierarchy built = backend.buildContractionHierarchy();
+      store.save(ContractionHierarchy.ARTIFACT_NAME, store.fingerprint(), built::write);
+      ContractionHierarchy loaded = store.load(ContractionHierarchy.ARTIFACT_NAME,
+          store.fingerprint(), backend::readContractionHierarchy);
+      assertNotNull(loaded, "A hierarchy saved for this graph should be loaded.");
+      assertEquals(built.getArcCount(), loaded.getArcCount());
+      for (int i = 0; i < 300; i += 37)
+        for (int j = 0; j < 300; j += 41)
+          assertEquals(built.shortestPath("n" + i, "n" + j).getLocations(),
+              loaded.shortestPath("n" + i, "n" + j).getLocations(), "From n" + i + " to n" + j);
+
+      // test that a graph numbered in another order refuses the saved hierarchy
+      Backend reordered = new Backend(testGraph);
+      reordered.setNodeOrdering(NodeOrdering.Strategy.DFS);
+      assertThrows(IOException.class, () -> store.load(ContractionHierarchy.ARTIFACT_NAME,
+          store.fingerprint(), reordered::readContractionHierarchy));
+
+      // test that an index is only installed while the graph is unchanged since its build began
+      long version = backend.getGraphVersion();
+      FurthestDestinationIndex index = backend.buildFurthestDestinationIndex();
+      backend.updateWalkingTimes(Map.of(List.of("n0", testGraph.shortestPathData("n0", "n1")
+          .get(1)), 1000.0));
+      assertNotEquals(version, backend.getGraphVersion(), "Changed walking times count.");
+      assertFalse(backend.setFurthestDestinationIndex(index, version));
+      assertTrue(backend.setFurthestDestinationIndex(index, backend.getGraphVersion()));
+      backend.loadGraphData(dotFile.toString());
+      assertFalse(backend.setFurthestDestinationIndex(index, version), "Reloads count too.");
+    } finally {
+      Files.delete(store.getDirectory().resolve(ContractionHierarchy.ARTIFACT_NAME));
+      Files.delete(store.getDirectory());
+      Files.delete(dotFile);
+    }
+  }
+
+  /**
+   * Tests that warm-up stops at its time limit even part way through a round, that it stops early
+   * once latency is stable, and that its queries reach a server encoded the way browsers send
+   * them.
+   */
+  @Test
+  public void IntegrationTest28() throws IOException {
+    // test that the time limit is checked before every query, not only between rounds
+    List<String> queries = WarmUp.syntheticQueries(List.of("Memorial Union", "Bascom Hall"), 20,
+        1);
+    assertEquals("from=", queries.get(9).substring(0, 5), "Every tenth query is a furthest one.");
+    long startNanos = System.nanoTime();
+    int rounds = new WarmUp(queries, query -> {
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }).run(50);
+    assertEquals(0, rounds, "A round of slow queries cannot finish within 50 ms.");
+    assertTrue(System.nanoTime() - startNanos < 500_000_000L,
+        "Warm-up should stop soon after 50 ms rather than after a full round of 1 second.");
+
+    // test that queries of constant cost stop as soon as enough rounds agree
+    rounds = new WarmUp(queries, query -> Math.sqrt(query.length())).run(60_000);
+    assertTrue(rounds >= WarmUp.STABLE_ROUNDS + 1 && rounds < 1000, "Rounds: " + rounds);
+
+    // test that queries sent over http arrive intact, even with an & or + in a location name
+    List<Map<String, String>> received = new ArrayList<>();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", exchange -> {
+      synchronized (received) {
+        received.add(WebApp.parseQuery(exchange.getRequestURI().getRawQuery()));
+      }
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+    });
+    server.start();
+    try {
+      URI base = URI.create("http://localhost:" + server.getAddress().getPort());
+      for (String query : WarmUp.syntheticQueries(List.of("Science & Engineering", "A+B"), 9, 5))
+        WarmUp.overHttp(base, Duration.ofSeconds(5)).accept(query);
+      assertEquals(9, received.size());
+      for (Map<String, String> query : received) {
+        assertEquals(Set.of("start", "end"), query.keySet());
+        assertTrue(List.of("Science & Engineering", "A+B").containsAll(query.values()),
+            query.toString());
+      }
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  /**
+   * Tests that LatencyHistogram buckets stay within their stated precision, and that its counts,
+   * percentiles and merges are exact, including under concurrent recording.
+   */
+  @Test
+  public void IntegrationTest29() throws InterruptedException {
+    // test that small values have their own buckets, and larger ones buckets at most 1.6% wide
+    for (long value = 0; value < 128; value++)
+      assertEquals(value, LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketOf(value)));
+    for (long value = 128; value < 1L << 40; value = value * 3 / 2 + 1) {
+      long bound = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketOf(value));
+      assertTrue(bound >= value && bound <= value * 1.016, value + " is counted up to " + bound);
+      assertEquals(LatencyHistogram.bucketOf(value), LatencyHistogram.bucketOf(bound));
+    }
+    assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+
+    // test the summary and percentiles of the values 1 to 1000
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 1000; value++)
+      histogram.record(value);
+    assertEquals(1000L, histogram.getCount());
+    assertEquals(500500L, histogram.getSum());
+    assertEquals(1000L, histogram.getMax());
+    assertEquals(500.5, histogram.getMean(), 1e-9);
+    assertEquals(1L, histogram.getValueAtPercentile(0));
+    assertEquals(1000L, histogram.getValueAtPercentile(100), "Never more than the maximum.");
+    long median = histogram.getValueAtPercentile(50);
+    assertTrue(median >= 500 && median <= 508, "Median: " + median);
+    long p99 = histogram.getValueAtPercentile(99);
+    assertTrue(p99 >= 990 && p99 <= 1000, "99th percentile: " + p99);
+    histogram.record(-5);
+    assertEquals(1L, histogram.getCountAt(0), "Negative values are recorded as 0.");
+    assertEquals(0L, new LatencyHistogram().getValueAtPercentile(50), "Nothing recorded.");
+
+    // test that merging and concurrent recording lose no values
+    LatencyHistogram merged = new LatencyHistogram();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      Thread thread = new Thread(() -> {
+        for (int i = 0; i < 10_000; i++)
+          merged.record(i % 2000);
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads)
+      thread.join();
+    merged.add(histogram);
+    assertEquals(41_001L, merged.getCount());
+    assertEquals(4L * 5 * 1999000 + 500500, merged.getSum());
+    assertEquals(1999L, merged.getMax());
+    assertEquals(4L * 5 + 1, merged.getCountAt(0), "Zeros from every thread, and one merged.");
+  }
+
+  /**
+   * Tests that metrics are only answered by the separate metrics listener, not the public one,
+   * and that logged errors include the stack trace of their cause.
+   */
+  @Test
+  public void IntegrationTest30() throws IOException, InterruptedException {
+    Backend backend = new Backend(new DijkstraGraph<>());
+    backend.loadGraphData("campus.dot");
+    HttpServer server = WebApp.createServer(new InetSocketAddress("localhost", 0), backend);
+    HttpServer metricsServer = WebApp.createMetricsServer(new InetSocketAddress("localhost", 0));
+    server.start();
+    metricsServer.start();
+    try {
+      HttpClient client = HttpClient.newHttpClient();
+      for (String path : List.of("/metrics", "/admission")) {
+        URI publicUri = URI.create("http://localhost:" + server.getAddress().getPort() + path);
+        assertEquals(404, client.send(HttpRequest.newBuilder(publicUri).build(),
+            HttpResponse.BodyHandlers.discarding()).statusCode(), path + " is not public.");
+        URI metricsUri = URI.create("http://localhost:" + metricsServer.getAddress().getPort()
+            + path);
+        assertEquals(200, client.send(HttpRequest.newBuilder(metricsUri).build(),
+            HttpResponse.BodyHandlers.discarding()).statusCode(), path + " is served privately.");
+      }
+    } finally {
+      server.stop(0);
+      metricsServer.stop(0);
+    }
+
+    // test that the cause of an error is logged with its stack trace
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+    new RequestLog(0, 16, out).error("Exception Thrown: failed",
+        new IOException("disk", new IllegalStateException("cause")));
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    while (!bytes.toString(StandardCharsets.UTF_8).contains("Caused by")
+        && System.nanoTime() < deadline)
+      Thread.sleep(10);
+    String logged = bytes.toString(StandardCharsets.UTF_8);
+    assertTrue(logged.startsWith("Exception Thrown: failed"), logged);
+    assertTrue(logged.contains("java.io.IOException: disk"), logged);
+    assertTrue(logged.contains("at IntegrationTests.IntegrationTest30"), logged);
+    assertTrue(logged.contains("Caused by: java.lang.IllegalStateException: cause"), logged);
+  }
+
+  /**
+   * Tests that a failed graph load reports why it failed even while it is being recorded, and
+   * that pages that fail are recorded with their 500 status.
+   */
+  @Test
+  public void IntegrationTest31() throws IOException, InterruptedException {
+    Backend backend = new Backend(new DijkstraGraph<>());
+    backend.loadGraphData("campus.dot");
+    HttpServer server = WebApp.createServer(new InetSocketAddress("localhost", 0), backend);
+    server.start();
+    Path recordingFile = Files.createTempFile("render", ".jfr");
+    int status;
+    try (Recording recording = new Recording()) {
+      recording.enable("campus.GraphLoad");
+      recording.enable("campus.Render");
+      recording.start();
+      IOException thrown = assertThrows(IOException.class,
+          () -> new Backend(new DijkstraGraph<>()).loadGraphData("missing.dot"));
+      assertEquals("dot file could not be found", thrown.getMessage());
+      // the page template is kept outside of the repository, so composing the page fails
+      URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/?from=Nowhere");
+      status = HttpClient.newHttpClient().send(HttpRequest.newBuilder(uri).build(),
+          HttpResponse.BodyHandlers.discarding()).statusCode();
+      recording.stop();
+      recording.dump(recordingFile);
+    } finally {
+      server.stop(0);
+    }
+
+    // test that the failed load and the failed page were both recorded
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+    Files.delete(recordingFile);
+    assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals(
+        "campus.GraphLoad") && event.getString("file").equals("missing.dot")), events.toString());
+    assertEquals(500, status, "No template.html should be in the working directory.");
+    assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals(
+        "campus.Render") && event.getInt("status") == 500), events.toString());
+  }
+
+  /**
+   * Tests that itineraries are planned around legs that cannot be walked, such as up a one way
+   * walkway, and are only refused when no order of the stops can be walked.
+   */
+  @Test
+  public void IntegrationTest32() {
+    GraphADT<String, Double> testGraph = new DijkstraGraph<String, Double>();
+    Backend backend = new Backend(testGraph);
+    testGraph.insertNode("A");
+    testGraph.insertNode("B");
+    testGraph.insertEdge("A", "B", 60.0);
+
+    // test that a one way walk is planned although the stops cannot be visited the other way
+    Itinerary oneWay = backend.planItinerary(List.of("A", "B"), false);
+    assertEquals(List.of("A", "B"), oneWay.getStops(), "A is left for B.");
+    assertEquals(60.0, oneWay.getTotalTime(), "The walkway takes a minute.");
+    NoSuchElementException thrown = assertThrows(NoSuchElementException.class,
+        () -> backend.planItinerary(List.of("A", "B"), true));
+    assertTrue(thrown.getMessage().contains("A cannot be reached from B"), thrown.getMessage());
+
+    // test that the stops are ordered around the legs that cannot be walked
+    testGraph.insertNode("C");
+    testGraph.insertEdge("A", "C", 30.0);
+    testGraph.insertEdge("C", "B", 45.0);
+    Itinerary around = backend.planItinerary(List.of("A", "B", "C"), false);
+    assertEquals(List.of("A", "C", "B"), around.getStops(), "C cannot be reached from B.");
+    assertEquals(75.0, around.getTotalTime(), "C is on the way to B.");
+    assertThrows(NoSuchElementException.class,
+        () -> backend.planItinerary(List.of("A", "B", "C"), true));
+
+    // test that a way back makes the round trip possible
+    testGraph.insertEdge("B", "A", 90.0);
+    assertEquals(165.0, backend.planItinerary(List.of("A", "B", "C"), true).getTotalTime(),
+        "The round trip returns from B.");
+  }
 }
@@ -0,0 +1,248 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An Itinerary is the fastest order found for visiting a list of stops, starting from the first
+ * one, along with the full walking path that visits them in that order.
+ *
+ * The order is solved over the matrix of walking times between every two stops. Up to
+ * HELD_KARP_MAX_STOPS stops are solved exactly with the Held-Karp dynamic program, in O(2^n n^2)
+ * time. Longer lists start from the nearest neighbor order and are improved with 2-opt (reversing a
+ * run of stops) and Or-opt (moving a run of up to three stops elsewhere) moves until no move helps
+ * or the solver's time budget is used up. Walking times need not be symmetric, so every move is
+ * judged by the cost of the whole order.
+ */
+public class Itinerary {
+
+  // the most stops that are solved exactly
+  static final int HELD_KARP_MAX_STOPS = 13;
+  // the longest run of stops that an Or-opt move relocates
+  private static final int OR_OPT_MAX_RUN = 3;
+
+  private final List<String> stops;
+  private final PathResult path;
+  private final boolean optimal;
+
+  /**
+   * Constructor for an itinerary that visits the stops in order along a path.
+   *
+   * @param stops   the stops in the order they are visited
+   * @param path    the full path that visits them
+   * @param optimal true if no faster order exists, false if the order was found by a heuristic
+   */
+  Itinerary(List<String> stops, PathResult path, boolean optimal) {
+    this.stops = stops;
+    this.path = path;
+    this.optimal = optimal;
+  }
+
+  /**
+   * Retrieves the stops in the order they are visited.
+   *
+   * @return the stops, starting with the first stop that was given
+   */
+  public List<String> getStops() {
+    return stops;
+  }
+
+  /**
+   * Retrieves the full walking path that visits the stops in order.
+   *
+   * @return every location along the way, with the walking times between them
+   */
+  public PathResult getPath() {
+    return path;
+  }
+
+  /**
+   * Retrieves the walking time of the whole itinerary.
+   *
+   * @return the total walking time in seconds
+   */
+  public double getTotalTime() {
+    return path.getTotalTime();
+  }
+
+  /**
+   * Checks whether the order was solved exactly.
+   *
+   * @return true if no faster order exists, false if the order was found by a heuristic
+   */
+  public boolean isOptimal() {
+    return optimal;
+  }
+
+  /**
+   * Solves the fastest order for visiting every stop, starting from stop 0.
+   *
+   * @param times       the walking time from every stop to every other stop
+   * @param roundTrip   true if the itinerary returns to stop 0 at the end
+   * @param solverNanos the time that the heuristic may spend improving the order
+   * @return the indices of the stops in the order they are visited, starting with 0
+   */
+  static int[] solve(double[][] times, boolean roundTrip, long solverNanos) {
+    if (times.length <= HELD_KARP_MAX_STOPS)
+      return heldKarp(times, roundTrip);
+    return improve(times, nearestNeighbor(times), roundTrip, System.nanoTime() + solverNanos);
+  }
+
+  /**
+   * Finds the fastest order exactly with the Held-Karp dynamic program, where best[set][last] is
+   * the fastest way to start at stop 0, visit the stops in set, and end at last.
+   */
+  static int[] heldKarp(double[][] times, boolean roundTrip) {
+    int n = times.length;
+    int sets = 1 << n;
+    double[][] best = new double[sets][n];
+    int[][] previous = new int[sets][n];
+    for (double[] row : best)
+      Arrays.fill(row, Double.POSITIVE_INFINITY);
+    best[1][0] = 0;
+    // every set contains stop 0, so only odd sets are visited
+    for (int set = 1; set < sets; set += 2) {
+      for (int last = 0; last < n; last++) {
+        double cost = best[set][last];
+        if (cost == Double.POSITIVE_INFINITY)
+          continue;
+        for (int next = 1; next < n; next++) {
+          if ((set & (1 << next)) != 0)
+            continue;
+          int nextSet = set | (1 << next);
+          double nextCost = cost + times[last][next];
+          if (nextCost < best[nextSet][next]) {
+            best[nextSet][next] = nextCost;
+            previous[nextSet][next] = last;
+          }
+        }
+      }
+    }
+    // pick the best last stop, counting the walk back to the start on round trips
+    int all = sets - 1;
+    int last = 0;
+    double bestCost = Double.POSITIVE_INFINITY;
+    for (int stop = 0; stop < n; stop++) {
+      double cost = best[all][stop] + (roundTrip ? times[stop][0] : 0);
+      if (cost < bestCost) {
+        bestCost = cost;
+        last = stop;
+      }
+    }
+    int[] order = new int[n];
+    // when no order can be walked, any order is as good as another
+    if (bestCost == Double.POSITIVE_INFINITY) {
+      for (int i = 0; i < n; i++)
+        order[i] = i;
+      return order;
+    }
+    for (int i = n - 1, set = all; i >= 0; i--) {
+      order[i] = last;
+      int before = previous[set][last];
+      set &= ~(1 << last);
+      last = before;
+    }
+    return order;
+  }
+
+  // visits the nearest stop that has not been visited yet, starting from stop 0
+  static int[] nearestNeighbor(double[][] times) {
+    int n = times.length;
+    int[] order = new int[n];
+    boolean[] visited = new boolean[n];
+    visited[0] = true;
+    for (int i = 1; i < n; i++) {
+      int from = order[i - 1];
+      int nearest = -1;
+      for (int stop = 1; stop < n; stop++)
+        if (!visited[stop] && (nearest < 0 || times[from][stop] < times[from][nearest]))
+          nearest = stop;
+      order[i] = nearest;
+      visited[nearest] = true;
+    }
+    return order;
+  }
+
+  /**
+   * Improves an order with 2-opt and Or-opt moves until no move makes it faster or the deadline
+   * passes. Stop 0 is never moved.
+   *
+   * @param times         the walking time from every stop to every other stop
+   * @param order         the order to improve, which starts with 0
+   * @param roundTrip     true if the itinerary returns to stop 0 at the end
+   * @param deadlineNanos the System.nanoTime() value after which to stop improving
+   * @return the improved order
+   */
+  static int[] improve(double[][] times, int[] order, boolean roundTrip, long deadlineNanos) {
+    int n = order.length;
+    double cost = cost(times, order, roundTrip);
+    int[] candidate = new int[n];
+    boolean improved = true;
+    while (improved && System.nanoTime() < deadlineNanos) {
+      improved = false;
+      // 2-opt: reverse the run of stops from i to j
+      for (int i = 1; i < n - 1 && System.nanoTime() < deadlineNanos; i++) {
+        for (int j = i + 1; j < n; j++) {
+          System.arraycopy(order, 0, candidate, 0, n);
+          for (int a = i, b = j; a < b; a++, b--) {
+            candidate[a] = order[b];
+            candidate[b] = order[a];
+          }
+          double candidateCost = cost(times, candidate, roundTrip);
+          if (candidateCost < cost) {
+            System.arraycopy(candidate, 0, order, 0, n);
+            cost = candidateCost;
+            improved = true;
+          }
+        }
+      }
+      // Or-opt: move the run of stops starting at i so that it starts at position to instead
+      for (int run = 1; run <= OR_OPT_MAX_RUN; run++) {
+        for (int i = 1; i + run <= n && System.nanoTime() < deadlineNanos; i++) {
+          for (int to = 1; to + run <= n; to++) {
+            if (to == i)
+              continue;
+            moveRun(order, i, run, to, candidate);
+            double candidateCost = cost(times, candidate, roundTrip);
+            if (candidateCost < cost) {
+              System.arraycopy(candidate, 0, order, 0, n);
+              cost = candidateCost;
+              improved = true;
+            }
+          }
+        }
+      }
+    }
+    return order;
+  }
+
+  // writes order into result with the run of stops at [from, from + run) moved to start at to
+  private static void moveRun(int[] order, int from, int run, int to, int[] result) {
+    int k = 0;
+    for (int i = 0; i < order.length; i++) {
+      if (k == to) {
+        System.arraycopy(order, from, result, k, run);
+        k += run;
+      }
+      if (i < from || i >= from + run)
+        result[k++] = order[i];
+    }
+    if (k == to)
+      System.arraycopy(order, from, result, k, run);
+  }
+
+  /**
+   * Computes the walking time of visiting the stops in order.
+   *
+   * @param times     the walking time from every stop to every other stop
+   * @param order     the indices of the stops in the order they are visited
+   * @param roundTrip true to include the walk back to the first stop
+   * @return the total walking time
+   */
+  static double cost(double[][] times, int[] order, boolean roundTrip) {
+    double cost = 0;
+    for (int i = 1; i < order.length; i++)
+      cost += times[order[i - 1]][order[i]];
+    if (roundTrip && order.length > 1)
+      cost += times[order[order.length - 1]][order[0]];
+    return cost;
+  }
+}
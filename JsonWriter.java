@@ -0,0 +1,302 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * This JsonWriter writes compact JSON straight into a reusable byte buffer as UTF-8, without
+ * building intermediate Strings or a document tree. Commas between members and array elements are
+ * inserted automatically. A writer can be reset and reused for the next response, so that a thread
+ * answering many requests keeps writing into the same buffer.
+ */
+public class JsonWriter {
+
+  // hex digits used when escaping control characters
+  private static final byte[] HEX = "0123456789abcdef".getBytes();
+  // deepest nesting of objects and arrays that the writer keeps track of
+  private static final int MAX_DEPTH = 64;
+
+  private byte[] buffer;
+  private int size = 0;
+  // one bit per nesting level, set once the first value at that level has been written
+  private long hasValue = 0L;
+  private int depth = 0;
+  // set after a member name, so that the following value is not preceded by a comma
+  private boolean afterName = false;
+
+  /**
+   * Constructor for a writer with a buffer of the provided initial capacity.
+   * 
+   * @param initialCapacity the number of bytes the buffer can hold before it grows
+   */
+  public JsonWriter(int initialCapacity) {
+    this.buffer = new byte[Math.max(16, initialCapacity)];
+  }
+
+  /**
+   * Discards everything written so far, keeping the buffer for reuse.
+   * 
+   * @return this writer
+   */
+  public JsonWriter reset() {
+    size = 0;
+    hasValue = 0L;
+    depth = 0;
+    afterName = false;
+    return this;
+  }
+
+  /**
+   * Starts a JSON object.
+   * 
+   * @return this writer
+   */
+  public JsonWriter beginObject() {
+    beforeValue();
+    return open('{');
+  }
+
+  /**
+   * Ends the innermost JSON object.
+   * 
+   * @return this writer
+   */
+  public JsonWriter endObject() {
+    return close('}');
+  }
+
+  /**
+   * Starts a JSON array.
+   * 
+   * @return this writer
+   */
+  public JsonWriter beginArray() {
+    beforeValue();
+    return open('[');
+  }
+
+  /**
+   * Ends the innermost JSON array.
+   * 
+   * @return this writer
+   */
+  public JsonWriter endArray() {
+    return close(']');
+  }
+
+  /**
+   * Writes the name of the next member of the current object.
+   * 
+   * @param name the member name
+   * @return this writer
+   */
+  public JsonWriter name(String name) {
+    beforeValue();
+    writeString(name);
+    write(':');
+    afterName = true;
+    return this;
+  }
+
+  /**
+   * Writes a string value, or null when the value is null.
+   * 
+   * @param value the string to write
+   * @return this writer
+   */
+  public JsonWriter value(String value) {
+    beforeValue();
+    if (value == null)
+      writeAscii("null");
+    else
+      writeString(value);
+    return this;
+  }
+
+  /**
+   * Writes a numeric value.
+   * 
+   * @param value the number to write
+   * @return this writer
+   */
+  public JsonWriter value(double value) {
+    beforeValue();
+    if (Double.isNaN(value) || Double.isInfinite(value))
+      writeAscii("null"); // JSON has no representation for these
+    else if (value == (long) value && Math.abs(value) < 1e15)
+      writeLong((long) value);
+    else
+      writeAscii(Double.toString(value));
+    return this;
+  }
+
+  /**
+   * Writes an integral numeric value.
+   * 
+   * @param value the number to write
+   * @return this writer
+   */
+  public JsonWriter value(long value) {
+    beforeValue();
+    writeLong(value);
+    return this;
+  }
+
+  /**
+   * Writes a boolean value.
+   * 
+   * @param value the boolean to write
+   * @return this writer
+   */
+  public JsonWriter value(boolean value) {
+    beforeValue();
+    writeAscii(value ? "true" : "false");
+    return this;
+  }
+
+  /**
+   * Retrieves the number of bytes written so far.
+   * 
+   * @return the size of the JSON text in bytes
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Copies the JSON text written so far into a new array.
+   * 
+   * @return the UTF-8 bytes of the JSON text
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(buffer, size);
+  }
+
+  /**
+   * Writes the JSON text written so far to an output stream.
+   * 
+   * @param out the stream to write to
+   * @throws IOException if writing to the stream fails
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(buffer, 0, size);
+  }
+
+  // writes the separating comma when this is not the first value at the current level
+  private void beforeValue() {
+    if (afterName) {
+      afterName = false;
+      return;
+    }
+    if (depth > 0) {
+      long bit = 1L << (depth - 1);
+      if ((hasValue & bit) != 0)
+        write(',');
+      else
+        hasValue |= bit;
+    }
+  }
+
+  private JsonWriter open(char bracket) {
+    if (depth == MAX_DEPTH)
+      throw new IllegalStateException("JSON nested too deeply");
+    write(bracket);
+    depth++;
+    hasValue &= ~(1L << (depth - 1));
+    return this;
+  }
+
+  private JsonWriter close(char bracket) {
+    if (depth == 0)
+      throw new IllegalStateException("No open object or array to close");
+    depth--;
+    write(bracket);
+    return this;
+  }
+
+  // writes a quoted string, escaping it and encoding it as UTF-8 one character at a time
+  private void writeString(String text) {
+    write('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"' || c == '\\') {
+        write('\\');
+        write(c);
+      } else if (c < 0x20) {
+        writeEscaped(c);
+      } else if (c < 0x80) {
+        write(c);
+      } else if (c < 0x800) {
+        write(0xC0 | (c >> 6));
+        write(0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+          && Character.isLowSurrogate(text.charAt(i + 1))) {
+        int cp = Character.toCodePoint(c, text.charAt(++i));
+        write(0xF0 | (cp >> 18));
+        write(0x80 | ((cp >> 12) & 0x3F));
+        write(0x80 | ((cp >> 6) & 0x3F));
+        write(0x80 | (cp & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        // a surrogate without its other half has no UTF-8 encoding, so it is kept as an escape
+        writeEscaped(c);
+      } else {
+        write(0xE0 | (c >> 12));
+        write(0x80 | ((c >> 6) & 0x3F));
+        write(0x80 | (c & 0x3F));
+      }
+    }
+    write('"');
+  }
+
+  // writes a character as an escape of a backslash, u and its four hex digits
+  private void writeEscaped(char c) {
+    ensureCapacity(6);
+    write('\\');
+    write('u');
+    write(HEX[c >> 12]);
+    write(HEX[(c >> 8) & 0xF]);
+    write(HEX[(c >> 4) & 0xF]);
+    write(HEX[c & 0xF]);
+  }
+
+  // writes the decimal digits of a long without creating a String
+  private void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      writeAscii(Long.toString(value));
+      return;
+    }
+    if (value < 0) {
+      write('-');
+      value = -value;
+    }
+    ensureCapacity(19);
+    int start = size;
+    do {
+      buffer[size++] = (byte) ('0' + (value % 10));
+      value /= 10;
+    } while (value != 0);
+    // digits were written in reverse, so flip them into place
+    for (int i = start, j = size - 1; i < j; i++, j--) {
+      byte swap = buffer[i];
+      buffer[i] = buffer[j];
+      buffer[j] = swap;
+    }
+  }
+
+  private void writeAscii(String text) {
+    ensureCapacity(text.length());
+    for (int i = 0; i < text.length(); i++)
+      buffer[size++] = (byte) text.charAt(i);
+  }
+
+  private void write(int b) {
+    if (size == buffer.length)
+      ensureCapacity(1);
+    buffer[size++] = (byte) b;
+  }
+
+  // grows the buffer so that at least extra more bytes fit
+  private void ensureCapacity(int extra) {
+    if (size + extra > buffer.length)
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+  }
+}
@@ -0,0 +1,154 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A LatencyHistogram counts recorded values (usually nanoseconds) in log-linear buckets: values
+ * below 128 each get their own bucket, and every power of two above that is split into 64 equal
+ * buckets, so a value's bucket is never more than about 1.6% wider than the value itself. Any
+ * non-negative long can be recorded in a fixed array of 3712 counters, and recording is lock free,
+ * so many threads may record into the same histogram while another one reads percentiles from it.
+ */
+public class LatencyHistogram {
+
+  // values below this have their own bucket
+  private static final int LINEAR = 128;
+  // number of buckets that each power of two at or above LINEAR is split into
+  private static final int SUB_BUCKETS = 64;
+  public static final int BUCKET_COUNT = LINEAR + 56 * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Finds the bucket that a value is counted in.
+   *
+   * @param value a non-negative value
+   * @return the index of the value's bucket
+   */
+  public static int bucketOf(long value) {
+    if (value < LINEAR)
+      return (int) value;
+    // shift the value so that it has 7 significant bits, from 64 to 127
+    int shift = 63 - Long.numberOfLeadingZeros(value) - 6;
+    return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  /**
+   * Finds the largest value that is counted in a bucket.
+   *
+   * @param bucket the index of a bucket
+   * @return the largest value in the bucket
+   */
+  public static long bucketUpperBound(int bucket) {
+    if (bucket < LINEAR)
+      return bucket;
+    int shift = (bucket - LINEAR) / SUB_BUCKETS + 1;
+    long sub = (bucket - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+    return ((sub + 1) << shift) - 1;
+  }
+
+  /**
+   * Records one value. Negative values are recorded as 0.
+   *
+   * @param value the value to record
+   */
+  public void record(long value) {
+    value = Math.max(0, value);
+    counts.incrementAndGet(bucketOf(value));
+    count.increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  /**
+   * Adds every value recorded in another histogram to this one.
+   *
+   * @param other the histogram to add
+   */
+  public void add(LatencyHistogram other) {
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      long bucketCount = other.counts.get(bucket);
+      if (bucketCount != 0)
+        counts.addAndGet(bucket, bucketCount);
+    }
+    count.add(other.getCount());
+    sum.add(other.getSum());
+    max.accumulate(other.getMax());
+  }
+
+  /**
+   * Retrieves the number of values recorded in a bucket.
+   *
+   * @param bucket the index of a bucket
+   * @return the number of values in the bucket
+   */
+  public long getCountAt(int bucket) {
+    return counts.get(bucket);
+  }
+
+  /**
+   * Retrieves the number of values recorded.
+   *
+   * @return the number of values
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Retrieves the sum of all values recorded.
+   *
+   * @return the sum of the values
+   */
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /**
+   * Retrieves the largest value recorded.
+   *
+   * @return the largest value, or 0 if nothing was recorded
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Retrieves the average of all values recorded.
+   *
+   * @return the mean value, or 0 if nothing was recorded
+   */
+  public double getMean() {
+    long n = getCount();
+    return n == 0 ? 0 : (double) getSum() / n;
+  }
+
+  /**
+   * Finds the value that the provided percentage of all recorded values are at or below. The
+   * value is the upper bound of its bucket, but never more than the largest value recorded.
+   *
+   * @param percentile a percentage from 0 to 100, such as 99.9
+   * @return the value at that percentile, or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long total = 0;
+    long[] snapshot = new long[BUCKET_COUNT];
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      snapshot[bucket] = counts.get(bucket);
+      total += snapshot[bucket];
+    }
+    if (total == 0)
+      return 0;
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+      seen += snapshot[bucket];
+      if (seen >= rank)
+        return Math.min(bucketUpperBound(bucket), getMax());
+    }
+    return getMax();
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * A LoadReport describes one completed graph load: how many nodes and arcs were loaded, and how
+ * long parsing the file and building the graph took.
+ */
+public class LoadReport {
+
+  private final String file;
+  private final int nodes;
+  private final long arcs;
+  private final long parseNanos;
+  private final long buildNanos;
+
+  /**
+   * Constructor for a report of a completed load.
+   * 
+   * @param file       the file that was loaded
+   * @param nodes      the number of nodes in the loaded graph
+   * @param arcs       the number of arcs read from the file
+   * @param parseNanos the time spent parsing the file in nanoseconds
+   * @param buildNanos the time spent inserting into the graph in nanoseconds
+   */
+  public LoadReport(String file, int nodes, long arcs, long parseNanos, long buildNanos) {
+    this.file = file;
+    this.nodes = nodes;
+    this.arcs = arcs;
+    this.parseNanos = parseNanos;
+    this.buildNanos = buildNanos;
+  }
+
+  /**
+   * Retrieves the number of nodes in the loaded graph.
+   * 
+   * @return the number of nodes
+   */
+  public int getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Retrieves the number of arcs read from the file.
+   * 
+   * @return the number of arcs
+   */
+  public long getArcs() {
+    return arcs;
+  }
+
+  /**
+   * Retrieves the time spent parsing the file.
+   * 
+   * @return the parse time in nanoseconds
+   */
+  public long getParseNanos() {
+    return parseNanos;
+  }
+
+  /**
+   * Retrieves the time spent inserting into the graph.
+   * 
+   * @return the build time in nanoseconds
+   */
+  public long getBuildNanos() {
+    return buildNanos;
+  }
+
+  /**
+   * Retrieves the total time that the load took.
+   * 
+   * @return the time spent parsing and building in nanoseconds
+   */
+  public long getTotalNanos() {
+    return parseNanos + buildNanos;
+  }
+
+  /**
+   * Retrieves the load throughput.
+   * 
+   * @return the number of arcs loaded per second
+   */
+  public double getArcsPerSecond() {
+    long total = getTotalNanos();
+    return total == 0 ? 0.0 : arcs * 1e9 / total;
+  }
+
+  /**
+   * Describes this load in one line.
+   * 
+   * @return a summary of the sizes, times and throughput of this load
+   */
+  @Override
+  public String toString() {
+    return String.format("Loaded %s: %d nodes, %d arcs in %.1f ms (parse %.1f ms, build %.1f ms),"
+        + " %.0f arcs/s", file, nodes, arcs, getTotalNanos() / 1e6, parseNanos / 1e6,
+        buildNanos / 1e6, getArcsPerSecond());
+  }
+}
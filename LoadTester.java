@@ -0,0 +1,240 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This LoadTester drives a running WebApp with open-loop traffic: requests are sent at a fixed
+ * arrival rate no matter how long earlier requests take, the way independent users arrive. Each
+ * request's latency is measured from the time it was scheduled to be sent rather than the time it
+ * actually was sent, which corrects for coordinated omission: when the tester itself falls behind,
+ * the delay is still counted against the server instead of silently thinning out the load. The
+ * uncorrected service time is reported alongside for comparison.
+ *
+ * Requests are shortest path and furthest destination queries between random campus.dot
+ * locations, or paths replayed from an access log.
+ *
+ * Usage: java LoadTester [--url http://localhost:8080] [--rate 200] [--duration 30] [--warmup 5]
+ * [--graph campus.dot] [--log access.log] [--seed 1] [--threads 16] [--timeout 10]
+ */
+public class LoadTester {
+
+  private final HttpClient client;
+  private final URI base;
+  private final List<String> paths;
+  private final Duration timeout;
+
+  // latency from the scheduled send time, and from the actual send time
+  private final LatencyHistogram corrected = new LatencyHistogram();
+  private final LatencyHistogram uncorrected = new LatencyHistogram();
+  private final LongAdder succeeded = new LongAdder();
+  private final LongAdder shed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  // requests that were sent later than scheduled, because the tester could not keep up
+  private final LongAdder late = new LongAdder();
+
+  /**
+   * Constructor for a load tester that sends the provided request paths to a server.
+   *
+   * @param base     the server's address, such as http://localhost:8080
+   * @param paths    the request paths (with their query strings) to send, in turn
+   * @param executor runs the client's sending and the recording of responses
+   * @param timeout  how long to wait for a response before counting the request as failed
+   */
+  public LoadTester(URI base, List<String> paths, ExecutorService executor, Duration timeout) {
+    if (paths.isEmpty())
+      throw new IllegalArgumentException("There are no requests to send");
+    this.base = base;
+    this.paths = paths;
+    this.timeout = timeout;
+    this.client = HttpClient.newBuilder().executor(executor).connectTimeout(timeout)
+        .version(HttpClient.Version.HTTP_1_1).build();
+  }
+
+  /**
+   * Creates request paths for random queries between the locations in a graph file: nine
+   * shortest path queries for every furthest destination query.
+   *
+   * @param graphFile the graph file to read the locations from
+   * @param count     the number of request paths to create
+   * @param seed      the seed of the random choices
+   * @return the request paths
+   * @throws IOException if the graph file cannot be loaded
+   */
+  public static List<String> pathsFromGraph(String graphFile, int count, long seed)
+      throws IOException {
+    Backend backend = new Backend(new DijkstraGraph<>());
+    backend.loadGraphData(graphFile);
+    List<String> paths = new ArrayList<>();
+    for (String query : WarmUp.syntheticQueries(backend.getListOfAllLocations(), count, seed))
+      paths.add("/?" + query);
+    return paths;
+  }
+
+  /**
+   * Reads the request paths from an access log. Lines in the common log format contribute the
+   * path of their GET requests, and any other line that starts with / is used as it is.
+   *
+   * @param log the access log
+   * @return the request paths, in the order they appear in the log
+   * @throws IOException if the log cannot be read
+   */
+  public static List<String> pathsFromLog(Path log) throws IOException {
+    List<String> paths = new ArrayList<>();
+    for (String line : Files.readAllLines(log)) {
+      int get = line.indexOf("\"GET ");
+      if (get >= 0) {
+        int end = line.indexOf(' ', get + 5);
+        if (end > 0)
+          paths.add(line.substring(get + 5, end));
+      } else if (line.startsWith("/")) {
+        paths.add(line.trim());
+      }
+    }
+    return paths;
+  }
+
+  /**
+   * Sends requests at a fixed rate, first for a warm-up period that is not recorded and then for
+   * the measured period, and waits for the last responses to arrive.
+   *
+   * @param ratePerSecond  the number of requests to send every second
+   * @param warmupSeconds  the length of the unrecorded warm-up period
+   * @param measureSeconds the length of the recorded period
+   * @return the number of seconds that the recorded period actually took, including the wait for
+   *         its last responses
+   */
+  public double run(double ratePerSecond, double warmupSeconds, double measureSeconds) {
+    long intervalNanos = (long) (1_000_000_000 / ratePerSecond);
+    long startNanos = System.nanoTime();
+    long measureFromNanos = startNanos + (long) (warmupSeconds * 1e9);
+    long stopNanos = measureFromNanos + (long) (measureSeconds * 1e9);
+    List<CompletableFuture<Void>> pending = new ArrayList<>();
+    long sent = 0;
+    for (long scheduled = startNanos; scheduled < stopNanos; scheduled += intervalNanos) {
+      // wait for this request's turn, without skipping it when the tester is behind
+      long now;
+      while ((now = System.nanoTime()) < scheduled)
+        LockSupport.parkNanos(scheduled - now);
+      if (now - scheduled > intervalNanos)
+        late.increment();
+      boolean recorded = scheduled >= measureFromNanos;
+      CompletableFuture<Void> response = send(paths.get((int) (sent++ % paths.size())),
+          scheduled, now, recorded);
+      if (recorded)
+        pending.add(response);
+    }
+    CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+    return (System.nanoTime() - measureFromNanos) / 1e9;
+  }
+
+  // sends one request, recording its latency once the whole response has arrived
+  private CompletableFuture<Void> send(String path, long scheduledNanos, long sentNanos,
+      boolean recorded) {
+    HttpRequest request =
+        HttpRequest.newBuilder(base.resolve(path)).timeout(timeout).GET().build();
+    return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+        .handle((response, error) -> {
+          long doneNanos = System.nanoTime();
+          if (!recorded)
+            return null;
+          if (error != null)
+            failed.increment();
+          else if (response.statusCode() == 503)
+            shed.increment();
+          else if (response.statusCode() < 400)
+            succeeded.increment();
+          else
+            failed.increment();
+          corrected.record(doneNanos - scheduledNanos);
+          uncorrected.record(doneNanos - sentNanos);
+          return null;
+        });
+  }
+
+  /**
+   * Formats the recorded results: request counts, throughput, and latency percentiles with and
+   * without the coordinated omission correction.
+   *
+   * @param seconds the length of the recorded period, as returned by run
+   * @return a plain text report
+   */
+  public String report(double seconds) {
+    long completed = succeeded.sum() + shed.sum() + failed.sum();
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("requests: %d (%d ok, %d shed with 503, %d failed)%n", completed,
+        succeeded.sum(), shed.sum(), failed.sum()));
+    report.append(String.format("throughput: %.1f requests/s, %.1f ok/s%n", completed / seconds,
+        succeeded.sum() / seconds));
+    if (late.sum() > 0)
+      report.append(String.format("warning: %d requests were sent more than one interval late%n",
+          late.sum()));
+    report.append(String.format("%-12s %10s %10s %10s %10s %10s %10s%n", "latency ms", "p50", "p90",
+        "p99", "p99.9", "max", "mean"));
+    appendRow(report, "corrected", corrected);
+    appendRow(report, "service", uncorrected);
+    return report.toString();
+  }
+
+  private static void appendRow(StringBuilder report, String name, LatencyHistogram histogram) {
+    report.append(String.format("%-12s %10.2f %10.2f %10.2f %10.2f %10.2f %10.2f%n", name,
+        histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(90) / 1e6,
+        histogram.getValueAtPercentile(99) / 1e6, histogram.getValueAtPercentile(99.9) / 1e6,
+        histogram.getMax() / 1e6, histogram.getMean() / 1e6));
+  }
+
+  /**
+   * Runs a load test against a WebApp server and prints the report.
+   *
+   * @param args options as described in the class comment
+   * @throws IOException if the graph file or access log cannot be read
+   */
+  public static void main(String[] args) throws IOException {
+    Map<String, String> options = new HashMap<>();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (!args[i].startsWith("--"))
+        throw new IllegalArgumentException("Expected an option but found: " + args[i]);
+      options.put(args[i].substring(2), args[i + 1]);
+    }
+    URI base = URI.create(options.getOrDefault("url", "http://localhost:8080"));
+    double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+    double duration = Double.parseDouble(options.getOrDefault("duration", "30"));
+    double warmup = Double.parseDouble(options.getOrDefault("warmup", "5"));
+    long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+    int threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+    Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "10")));
+
+    List<String> paths = options.containsKey("log") ? pathsFromLog(Path.of(options.get("log")))
+        : pathsFromGraph(options.getOrDefault("graph", "campus.dot"), 10_000, seed);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      LoadTester tester = new LoadTester(base, paths, executor, timeout);
+      System.out.printf("Sending %.0f requests/s to %s for %.0f s after a %.0f s warm-up%n", rate,
+          base, duration, warmup);
+      double seconds = tester.run(rate, warmup, duration);
+      System.out.print(tester.report(seconds));
+    } finally {
+      executor.shutdown();
+      try {
+        executor.awaitTermination(timeout.toSeconds(), TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
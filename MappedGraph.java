@@ -0,0 +1,903 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * This MappedGraph answers shortest path queries straight from a binary graph file written by
+ * GraphFile, which it memory-maps instead of reading. Opening a graph only checks its header (and
+ * optionally its checksum), so startup costs page faults rather than parsing, and the node names
+ * and adjacency arrays stay off the heap. The graph is read-only: methods that would change it
+ * throw an UnsupportedOperationException. Graph files hold fixed weights only, so searches that
+ * depart at a time of day take the same weights at every time.
+ *
+ * Searches keep their distances in arrays that are stamped with a search number instead of being
+ * cleared, so each search only pays for the nodes that it actually touches. The arrays are
+ * borrowed from a small pool for the length of a search, so there are only as many of them as
+ * searches that have run at the same time, rather than one set for every thread that searched.
+ */
+public class MappedGraph implements GraphADT<String, Double>, IndexedGraph {
+
+  private final Path file;
+  private final int nodeCount;
+  private final int edgeCount;
+  private final IntBuffer nameOffsets;
+  private final ByteBuffer names;
+  private final IntBuffer offsets;
+  private final IntBuffer targets;
+  private final DoubleBuffer weights;
+  // idle search arrays that searches borrow and give back, of which at most MAX_IDLE_WORKSPACES
+  // are kept between searches
+  private static final int MAX_IDLE_WORKSPACES = 2 * Runtime.getRuntime().availableProcessors();
+  private final ConcurrentLinkedQueue<Workspace> idle = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger idleCount = new AtomicInteger();
+  // the work done by each thread's last search
+  private final ThreadLocal<SearchStats> lastStats = ThreadLocal.withInitial(SearchStats::new);
+
+  /**
+   * The state of a search: tentative costs and predecessors stamped by search number, and a
+   * binary heap of (cost, node) entries where outdated entries are skipped when polled.
+   */
+  private class Workspace {
+    double[] cost = new double[nodeCount];
+    int[] parent = new int[nodeCount];
+    int[] reached = new int[nodeCount];
+    int[] settled = new int[nodeCount];
+    int[] target = new int[nodeCount];
+    // the nodes settled by the current search, in the order they were settled
+    int[] settledOrder = new int[nodeCount];
+    int settledCount = 0;
+    int search = 0;
+    double[] heapCosts = new double[64];
+    int[] heapNodes = new int[64];
+    int heapSize = 0;
+
+    // starts a new search, so that every node counts as unreached again
+    void reset() {
+      if (++search == Integer.MAX_VALUE) {
+        Arrays.fill(reached, 0);
+        Arrays.fill(settled, 0);
+        Arrays.fill(target, 0);
+        search = 1;
+      }
+      heapSize = 0;
+      settledCount = 0;
+    }
+
+    boolean isReached(int node) {
+      return reached[node] == search;
+    }
+
+    boolean isSettled(int node) {
+      return settled[node] == search;
+    }
+
+    void push(int node, double nodeCost) {
+      if (heapSize == heapCosts.length) {
+        heapCosts = Arrays.copyOf(heapCosts, heapSize * 2);
+        heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+      }
+      int i = heapSize++;
+      while (i > 0) {
+        int up = (i - 1) >>> 1;
+        if (heapCosts[up] <= nodeCost)
+          break;
+        heapCosts[i] = heapCosts[up];
+        heapNodes[i] = heapNodes[up];
+        i = up;
+      }
+      heapCosts[i] = nodeCost;
+      heapNodes[i] = node;
+    }
+
+    // removes the cheapest entry, returning its node
+    int pop() {
+      int top = heapNodes[0];
+      heapSize--;
+      double lastCost = heapCosts[heapSize];
+      int lastNode = heapNodes[heapSize];
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= heapSize)
+          break;
+        if (child + 1 < heapSize && heapCosts[child + 1] < heapCosts[child])
+          child++;
+        if (heapCosts[child] >= lastCost)
+          break;
+        heapCosts[i] = heapCosts[child];
+        heapNodes[i] = heapNodes[child];
+        i = child;
+      }
+      heapCosts[i] = lastCost;
+      heapNodes[i] = lastNode;
+      return top;
+    }
+  }
+
+  // takes idle search arrays from the pool, or creates them when none are idle
+  private Workspace borrow() {
+    Workspace w = idle.poll();
+    if (w == null)
+      return new Workspace();
+    idleCount.decrementAndGet();
+    return w;
+  }
+
+  // returns search arrays to the pool, unless enough are idle already
+  private void giveBack(Workspace w) {
+    if (idleCount.incrementAndGet() <= MAX_IDLE_WORKSPACES)
+      idle.offer(w);
+    else
+      idleCount.decrementAndGet();
+  }
+
+  /**
+   * Constructor for a graph over the mapped sections of a binary graph file.
+   */
+  private MappedGraph(Path file, ByteBuffer header, FileChannel channel) throws IOException {
+    this.file = file;
+    this.nodeCount = header.getInt(GraphFile.NODE_COUNT);
+    this.edgeCount = (int) header.getLong(GraphFile.EDGE_COUNT);
+    long nameOffsetsAt = header.getLong(GraphFile.NAME_OFFSETS);
+    long namesAt = header.getLong(GraphFile.NAME_BYTES);
+    long offsetsAt = header.getLong(GraphFile.EDGE_OFFSETS);
+    long targetsAt = header.getLong(GraphFile.TARGETS);
+    long weightsAt = header.getLong(GraphFile.WEIGHTS);
+    this.nameOffsets = map(channel, nameOffsetsAt, 4L * (nodeCount + 1)).asIntBuffer();
+    this.names = map(channel, namesAt, nameOffsets.get(nodeCount));
+    this.offsets = map(channel, offsetsAt, 4L * (nodeCount + 1)).asIntBuffer();
+    this.targets = map(channel, targetsAt, 4L * edgeCount).asIntBuffer();
+    this.weights = map(channel, weightsAt, 8L * edgeCount).asDoubleBuffer();
+  }
+
+  /**
+   * Opens a binary graph file, verifying its checksum.
+   * 
+   * @param file the binary graph file written by GraphFile
+   * @return the mapped graph
+   * @throws IOException if the file cannot be read, or is not a valid binary graph file
+   */
+  public static MappedGraph open(Path file) throws IOException {
+    return open(file, true);
+  }
+
+  /**
+   * Opens a binary graph file. Verifying the checksum reads the whole file, so large graphs can
+   * skip it to keep startup limited to the pages that queries touch.
+   * 
+   * @param file   the binary graph file written by GraphFile
+   * @param verify whether to check the checksum of the whole file
+   * @return the mapped graph
+   * @throws IOException if the file cannot be read, or is not a valid binary graph file
+   */
+  public static MappedGraph open(Path file, boolean verify) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(GraphFile.HEADER_BYTES);
+      while (header.hasRemaining() && channel.read(header) > 0) {
+      }
+      if (header.hasRemaining() || header.getInt(0) != GraphFile.MAGIC)
+        throw new IOException(file + " is not a binary graph file");
+      if (header.getInt(4) != GraphFile.VERSION)
+        throw new IOException(file + " has unsupported version " + header.getInt(4));
+      long length = header.getLong(GraphFile.FILE_LENGTH);
+      if (channel.size() != length)
+        throw new IOException(file + " is truncated or has been modified");
+      if (verify && checksum(channel, length) != header.getLong(GraphFile.CHECKSUM))
+        throw new IOException(file + " failed its checksum");
+      // mappings stay valid after the channel is closed
+      return new MappedGraph(file, header, channel);
+    }
+  }
+
+  // computes the CRC32 of everything after the header, a mapped window at a time
+  private static long checksum(FileChannel channel, long length) throws IOException {
+    CRC32 crc = new CRC32();
+    long window = 1L << 30;
+    for (long at = GraphFile.HEADER_BYTES; at < length; at += window)
+      crc.update(channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(window, length - at)));
+    return crc.getValue();
+  }
+
+  private static MappedByteBuffer map(FileChannel channel, long position, long size)
+      throws IOException {
+    if (size > Integer.MAX_VALUE)
+      throw new IOException("Section too large to map");
+    return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+  }
+
+  /**
+   * Retrieves the binary graph file that this graph is mapped from.
+   * 
+   * @return the path of the mapped file
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  // ---- node names ----
+
+  /**
+   * Finds the number of the node with the provided name, by binary search over the sorted names.
+   * 
+   * @param data the name of a node
+   * @return the number of that node, or -1 if there is no such node
+   */
+  public int idOf(String data) {
+    if (data == null)
+      return -1;
+    byte[] key = data.getBytes(StandardCharsets.UTF_8);
+    int low = 0;
+    int high = nodeCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = compareName(middle, key);
+      if (comparison < 0)
+        low = middle + 1;
+      else if (comparison > 0)
+        high = middle - 1;
+      else
+        return middle;
+    }
+    return -1;
+  }
+
+  // compares the name of a node with the key by unsigned byte order
+  private int compareName(int id, byte[] key) {
+    int start = nameOffsets.get(id);
+    int length = nameOffsets.get(id + 1) - start;
+    int common = Math.min(length, key.length);
+    for (int i = 0; i < common; i++) {
+      int difference = (names.get(start + i) & 0xFF) - (key[i] & 0xFF);
+      if (difference != 0)
+        return difference;
+    }
+    return length - key.length;
+  }
+
+  /**
+   * Retrieves the name of a node by its number.
+   * 
+   * @param id the number of a node
+   * @return the name of that node
+   */
+  public String nameOf(int id) {
+    int start = nameOffsets.get(id);
+    byte[] bytes = new byte[nameOffsets.get(id + 1) - start];
+    names.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Retrieves the number of the first edge leaving a node, from the mapped offsets.
+   * 
+   * @param node the number of a node, or the node count for the end of the last node's edges
+   * @return the number of the node's first edge
+   */
+  @Override
+  public int edgeOffset(int node) {
+    return offsets.get(node);
+  }
+
+  /**
+   * Retrieves the node that an edge enters, from the mapped targets.
+   * 
+   * @param edge the number of an edge
+   * @return the number of the node that the edge enters
+   */
+  @Override
+  public int targetOf(int edge) {
+    return targets.get(edge);
+  }
+
+  /**
+   * Retrieves the weight of an edge, from the mapped weights.
+   * 
+   * @param edge the number of an edge
+   * @return the weight of the edge
+   */
+  @Override
+  public double weightOf(int edge) {
+    return weights.get(edge);
+  }
+
+  /**
+   * Finds the number of the edge between two nodes.
+   * 
+   * @param from the name of the node that the edge leaves
+   * @param to   the name of the node that the edge enters
+   * @return the number of the edge, or -1 if there is no such edge
+   */
+  @Override
+  public int edgeIndex(String from, String to) {
+    int pred = idOf(from);
+    int succ = idOf(to);
+    return pred < 0 || succ < 0 ? -1 : edgeIndex(pred, succ);
+  }
+
+  /**
+   * Copies the mapped graph into a CompactGraph in memory, keeping the node numbers of the file.
+   * 
+   * @return a snapshot of this graph
+   */
+  public CompactGraph toCompactGraph() {
+    String[] nodeNames = new String[nodeCount];
+    for (int id = 0; id < nodeCount; id++)
+      nodeNames[id] = nameOf(id);
+    int[] edgeOffsets = new int[nodeCount + 1];
+    offsets.get(0, edgeOffsets);
+    int[] edgeTargets = new int[edgeCount];
+    targets.get(0, edgeTargets);
+    double[] edgeWeights = new double[edgeCount];
+    weights.get(0, edgeWeights);
+    return new CompactGraph(nodeNames, edgeOffsets, edgeTargets, edgeWeights);
+  }
+
+  // finds the number of a node that has to exist
+  private int requireId(String data) {
+    int id = idOf(data);
+    if (id < 0)
+      throw new NoSuchElementException("No node " + data + " in the graph");
+    return id;
+  }
+
+  // finds the position of the edge from pred to succ in the targets array, or -1
+  private int edgeIndex(int pred, int succ) {
+    int low = offsets.get(pred);
+    int high = offsets.get(pred + 1) - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int target = targets.get(middle);
+      if (target < succ)
+        low = middle + 1;
+      else if (target > succ)
+        high = middle - 1;
+      else
+        return middle;
+    }
+    return -1;
+  }
+
+  // ---- searching ----
+
+  /**
+   * Runs Dijkstra's algorithm from source until wanted of the goals are settled, or every
+   * reachable node is when there are no goals, leaving the costs and predecessors in the
+   * workspace. Paths that cost more than budget are never queued, so nodes beyond it are not
+   * touched.
+   */
+  private void search(Workspace w, int source, int[] goals, int wanted, double budget,
+      SearchDeadline deadline) {
+    w.reset();
+    for (int goal : goals)
+      w.target[goal] = w.search;
+    int found = 0;
+    w.cost[source] = 0.0;
+    w.parent[source] = -1;
+    w.reached[source] = w.search;
+    w.push(source, 0.0);
+    // count the work done by this search, and report it when the search ends however it ends
+    SearchStats stats = new SearchStats();
+    stats.pushed(w.heapSize);
+    SearchEvent event = new SearchEvent();
+    event.begin();
+    String outcome = goals.length == 0 ? "found" : "no path";
+    try {
+      while (w.heapSize > 0) {
+        int node = w.pop();
+        if (w.isSettled(node)) {
+          stats.stalePops++;
+          continue; // an outdated entry
+        }
+        w.settled[node] = w.search;
+        w.settledOrder[w.settledCount++] = node;
+        stats.nodesSettled++;
+        if (deadline.tick()) {
+          outcome = "timed out";
+          throw new SearchTimeoutException("Search timed out after settling "
+              + deadline.getSettledCount() + " nodes.");
+        }
+        if (w.target[node] == w.search) {
+          outcome = "found";
+          if (++found == wanted)
+            return;
+        }
+        double nodeCost = w.cost[node];
+        for (int k = offsets.get(node), end = offsets.get(node + 1); k < end; k++) {
+          int next = targets.get(k);
+          double nextCost = nodeCost + weights.get(k);
+          stats.edgesRelaxed++;
+          if (nextCost > budget)
+            continue;
+          if (!w.isReached(next) || nextCost < w.cost[next]) {
+            w.reached[next] = w.search;
+            w.cost[next] = nextCost;
+            w.parent[next] = node;
+            w.push(next, nextCost);
+            stats.pushed(w.heapSize);
+          }
+        }
+      }
+    } finally {
+      lastStats.set(stats);
+      if (event.isEnabled())
+        event.finish(goals.length > 1 ? "nearest" : goals.length == 1 ? "path"
+            : budget < Double.POSITIVE_INFINITY ? "within" : "all", nameOf(source),
+            goals.length == 1 ? nameOf(goals[0]) : null, outcome, stats);
+    }
+    throw new NoSuchElementException("No path found from start to end node.");
+  }
+
+  // the names along the path that the last search in the workspace found to node
+  private LinkedList<String> pathTo(Workspace w, int node) {
+    LinkedList<String> path = new LinkedList<>();
+    for (int step = node; step != -1; step = w.parent[step])
+      path.addFirst(nameOf(step));
+    return path;
+  }
+
+  /**
+   * Finds the cheapest path from start to end.
+   * 
+   * @param start the name of the node to start from
+   * @param end   the name of the node to reach
+   * @return the names of the nodes along the path, including start and end
+   * @throws NoSuchElementException if either node does not exist, or end cannot be reached
+   */
+  @Override
+  public List<String> shortestPathData(String start, String end) {
+    return shortestPathData(start, end, SearchDeadline.none());
+  }
+
+  /**
+   * Finds the cheapest path from start to end within a time budget.
+   * 
+   * @param start    the name of the node to start from
+   * @param end      the name of the node to reach
+   * @param deadline the time budget and cancellation token for this search
+   * @return the names of the nodes along the path, including start and end
+   * @throws NoSuchElementException if either node does not exist, or end cannot be reached
+   * @throws SearchTimeoutException if the deadline expires before end is reached
+   */
+  @Override
+  public List<String> shortestPathData(String start, String end, SearchDeadline deadline) {
+    int source = requireId(start);
+    int target = requireId(end);
+    Workspace w = borrow();
+    try {
+      search(w, source, new int[] {target}, 1, Double.POSITIVE_INFINITY, deadline);
+      return pathTo(w, target);
+    } finally {
+      giveBack(w);
+    }
+  }
+
+  /**
+   * Finds the cheapest path from start to end. Binary graph files do not store travel time
+   * profiles, so every departure time gives the same path.
+   * 
+   * @param start     the name of the node to start from
+   * @param end       the name of the node to reach
+   * @param departure the time of day to leave start at, which is ignored
+   * @param deadline  the time budget and cancellation token for this search
+   * @return the names of the nodes along the path, including start and end
+   * @throws NoSuchElementException if either node does not exist, or end cannot be reached
+   * @throws SearchTimeoutException if the deadline expires before end is reached
+   */
+  @Override
+  public List<String> shortestPathData(String start, String end, double departure,
+      SearchDeadline deadline) {
+    return shortestPathData(start, end, deadline);
+  }
+
+  /**
+   * Finds the cost of the cheapest path from start to end.
+   * 
+   * @param start the name of the node to start from
+   * @param end   the name of the node to reach
+   * @return the sum of the weights along the cheapest path
+   * @throws NoSuchElementException if either node does not exist, or end cannot be reached
+   */
+  @Override
+  public double shortestPathCost(String start, String end) {
+    return shortestPathCost(start, end, SearchDeadline.none());
+  }
+
+  /**
+   * Finds the cost of the cheapest path from start to end within a time budget.
+   * 
+   * @param start    the name of the node to start from
+   * @param end      the name of the node to reach
+   * @param deadline the time budget and cancellation token for this search
+   * @return the sum of the weights along the cheapest path
+   * @throws NoSuchElementException if either node does not exist, or end cannot be reached
+   * @throws SearchTimeoutException if the deadline expires before end is reached
+   */
+  @Override
+  public double shortestPathCost(String start, String end, SearchDeadline deadline) {
+    int source = requireId(start);
+    int target = requireId(end);
+    Workspace w = borrow();
+    try {
+      search(w, source, new int[] {target}, 1, Double.POSITIVE_INFINITY, deadline);
+      return w.cost[target];
+    } finally {
+      giveBack(w);
+    }
+  }
+
+  /**
+   * Finds the cost of the cheapest path from start to every node that can be reached from it.
+   * 
+   * @param start    the name of the node to start from
+   * @param deadline the time budget and cancellation token for this search
+   * @return the cost of every reachable node, including start at 0
+   * @throws NoSuchElementException if start does not exist
+   * @throws SearchTimeoutException if the deadline expires before every node is reached
+   */
+  @Override
+  public MapADT<String, Double> shortestPathCosts(String start, SearchDeadline deadline) {
+    return reachableWithin(start, Double.POSITIVE_INFINITY, deadline);
+  }
+
+  /**
+   * Finds the cost of the cheapest path from start to every node that can be reached from it at a
+   * cost of at most budget, without touching the nodes beyond it.
+   * 
+   * @param start    the name of the node to start from
+   * @param budget   the highest cost to include
+   * @param deadline the time budget and cancellation token for this search
+   * @return the cost of every node within the budget, including start at 0
+   * @throws NoSuchElementException if start does not exist
+   * @throws SearchTimeoutException if the deadline expires before every node is reached
+   */
+  @Override
+  public MapADT<String, Double> reachableWithin(String start, double budget,
+      SearchDeadline deadline) {
+    int source = requireId(start);
+    Workspace w = borrow();
+    try {
+      try {
+        // without targets the search settles every node within the budget
+        search(w, source, new int[0], 0, budget, deadline);
+      } catch (NoSuchElementException e) {
+        // every node within the budget has been settled
+      }
+      MapADT<String, Double> costs = new HashtableMap<>();
+      for (int i = 0; i < w.settledCount; i++)
+        costs.put(nameOf(w.settledOrder[i]), w.cost[w.settledOrder[i]]);
+      return costs;
+    } finally {
+      giveBack(w);
+    }
+  }
+
+  /**
+   * Finds the paths to the k targets that are cheapest to reach from start, in a single search
+   * that stops once the k-th of them is settled.
+   * 
+   * @param start    the name of the node to start from
+   * @param targets  the names of the candidate destinations, where missing names are ignored
+   * @param k        the number of targets to find
+   * @param deadline the time budget and cancellation token for this search
+   * @return the paths to the nearest targets, nearest first, with fewer than k when fewer can be
+   *         reached
+   * @throws NoSuchElementException if start does not exist
+   * @throws SearchTimeoutException if the deadline expires before the targets are reached
+   */
+  @Override
+  public List<List<String>> shortestPathsToNearest(String start, List<String> targets, int k,
+      SearchDeadline deadline) {
+    int source = requireId(start);
+    int[] ids = targets.stream().mapToInt(this::idOf).filter(id -> id >= 0).distinct().toArray();
+    List<List<String>> paths = new ArrayList<>();
+    int wanted = Math.min(k, ids.length);
+    if (wanted <= 0)
+      return paths;
+    Workspace w = borrow();
+    try {
+      try {
+        search(w, source, ids, wanted, Double.POSITIVE_INFINITY, deadline);
+      } catch (NoSuchElementException e) {
+        // fewer than k targets can be reached, so return the paths to those that can
+      }
+      // the settled targets, in the order they were settled, are the nearest ones
+      for (int i = 0; i < w.settledCount; i++) {
+        int node = w.settledOrder[i];
+        if (w.target[node] == w.search)
+          paths.add(pathTo(w, node));
+      }
+      return paths;
+    } finally {
+      giveBack(w);
+    }
+  }
+
+  /**
+   * Opens a search from start that settles one node each time it is advanced. The search holds
+   * a set of search arrays until it is closed.
+   * 
+   * @param start    the name of the node to start from
+   * @param deadline the time budget and cancellation token for this search
+   * @return a search that has not settled any nodes yet
+   * @throws NoSuchElementException if start does not exist
+   */
+  @Override
+  public SearchCursor<String> openSearch(String start, SearchDeadline deadline) {
+    return new Cursor(requireId(start), deadline);
+  }
+
+  /**
+   * A search that settles one node per call to advance, with search arrays of its own so that it
+   * can be advanced side by side with other searches on the same thread, until it is closed.
+   */
+  private class Cursor implements SearchCursor<String> {
+    private Workspace w = borrow();
+    private final SearchDeadline deadline;
+    private final SearchStats stats = new SearchStats();
+    // the last settled node and its cost, and whether its edges are still to be relaxed
+    private int current = -1;
+    private double currentCost = 0.0;
+    private boolean unrelaxed = false;
+
+    private Cursor(int source, SearchDeadline deadline) {
+      this.deadline = deadline;
+      w.reset();
+      w.cost[source] = 0.0;
+      w.parent[source] = -1;
+      w.reached[source] = w.search;
+      w.push(source, 0.0);
+      stats.pushed(w.heapSize);
+    }
+
+    @Override
+    public boolean advance() {
+      if (w == null)
+        throw new IllegalStateException("The search has been closed");
+      if (unrelaxed) {
+        for (int k = offsets.get(current), end = offsets.get(current + 1); k < end; k++) {
+          int next = targets.get(k);
+          double nextCost = currentCost + weights.get(k);
+          stats.edgesRelaxed++;
+          if (!w.isReached(next) || nextCost < w.cost[next]) {
+            w.reached[next] = w.search;
+            w.cost[next] = nextCost;
+            w.parent[next] = current;
+            w.push(next, nextCost);
+            stats.pushed(w.heapSize);
+          }
+        }
+        unrelaxed = false;
+      }
+      while (w.heapSize > 0) {
+        int node = w.pop();
+        if (w.isSettled(node)) {
+          stats.stalePops++;
+          continue; // an outdated entry
+        }
+        w.settled[node] = w.search;
+        stats.nodesSettled++;
+        current = node;
+        currentCost = w.cost[node];
+        unrelaxed = true;
+        if (deadline.tick()) {
+          throw new SearchTimeoutException("Search timed out after settling "
+              + deadline.getSettledCount() + " nodes.");
+        }
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    public String getNode() {
+      return current < 0 ? null : nameOf(current);
+    }
+
+    @Override
+    public double getCost() {
+      return currentCost;
+    }
+
+    @Override
+    public SearchStats getStats() {
+      return stats;
+    }
+
+    @Override
+    public void close() {
+      if (w != null)
+        giveBack(w);
+      w = null;
+    }
+  }
+
+  /**
+   * Retrieves the work done by the calling thread's last search of this graph, not counting
+   * searches opened with openSearch.
+   * 
+   * @return the statistics of the calling thread's last search
+   */
+  @Override
+  public SearchStats getLastSearchStats() {
+    return lastStats.get();
+  }
+
+  // ---- read-only graph methods ----
+
+  /**
+   * Checks whether the graph contains a node with the provided name.
+   * 
+   * @param data the name to look for
+   * @return true if there is a node with that name, false otherwise
+   */
+  @Override
+  public boolean containsNode(String data) {
+    return idOf(data) >= 0;
+  }
+
+  /**
+   * Retrieves the names of all nodes, in the sorted order of their numbers.
+   * 
+   * @return the name of every node
+   */
+  @Override
+  public List<String> getAllNodes() {
+    List<String> all = new ArrayList<>(nodeCount);
+    for (int id = 0; id < nodeCount; id++)
+      all.add(nameOf(id));
+    return all;
+  }
+
+  /**
+   * Retrieves the number of nodes in the graph.
+   * 
+   * @return the number of nodes
+   */
+  @Override
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * Checks whether the graph contains an edge from pred to succ.
+   * 
+   * @param pred the name of the edge's source node
+   * @param succ the name of the edge's target node
+   * @return true if the edge exists, false otherwise
+   */
+  @Override
+  public boolean containsEdge(String pred, String succ) {
+    int from = idOf(pred);
+    int to = idOf(succ);
+    return from >= 0 && to >= 0 && edgeIndex(from, to) >= 0;
+  }
+
+  /**
+   * Retrieves the weight of the edge from pred to succ.
+   * 
+   * @param pred the name of the edge's source node
+   * @param succ the name of the edge's target node
+   * @return the weight of the edge
+   * @throws NoSuchElementException if the edge does not exist
+   */
+  @Override
+  public Double getEdge(String pred, String succ) {
+    int from = idOf(pred);
+    int to = idOf(succ);
+    int index = from >= 0 && to >= 0 ? edgeIndex(from, to) : -1;
+    if (index < 0)
+      throw new NoSuchElementException("No edge from " + pred + " to " + succ);
+    return weights.get(index);
+  }
+
+  /**
+   * Retrieves the time it takes to traverse the edge from pred to succ, which is its weight at
+   * every time of day since binary graph files do not store travel time profiles.
+   * 
+   * @param pred      the name of the edge's source node
+   * @param succ      the name of the edge's target node
+   * @param departure the time of reaching pred, which is ignored
+   * @return the weight of the edge
+   * @throws NoSuchElementException if the edge does not exist
+   */
+  @Override
+  public double getTravelTime(String pred, String succ, double departure) {
+    return getEdge(pred, succ);
+  }
+
+  /**
+   * Retrieves the number of edges in the graph.
+   * 
+   * @return the number of edges
+   */
+  @Override
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * Retrieves the number of changes made to the graph, which is always 0 since a mapped graph is
+   * read-only.
+   * 
+   * @return 0
+   */
+  @Override
+  public long getModificationCount() {
+    return 0;
+  }
+
+  /**
+   * Always fails, since a mapped graph is read-only.
+   * 
+   * @param data the name of the node that would be inserted
+   * @return never returns
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public boolean insertNode(String data) {
+    throw new UnsupportedOperationException("A mapped graph is read-only");
+  }
+
+  /**
+   * Always fails, since a mapped graph is read-only.
+   * 
+   * @param data the name of the node that would be removed
+   * @return never returns
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public boolean removeNode(String data) {
+    throw new UnsupportedOperationException("A mapped graph is read-only");
+  }
+
+  /**
+   * Always fails, since a mapped graph is read-only.
+   * 
+   * @param pred   the name of the source node of the edge that would be inserted
+   * @param succ   the name of its target node
+   * @param weight its weight
+   * @return never returns
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public boolean insertEdge(String pred, String succ, Double weight) {
+    throw new UnsupportedOperationException("A mapped graph is read-only");
+  }
+
+  /**
+   * Always fails, since a mapped graph is read-only.
+   * 
+   * @param pred the name of the source node of the edge that would be removed
+   * @param succ the name of its target node
+   * @return never returns
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public boolean removeEdge(String pred, String succ) {
+    throw new UnsupportedOperationException("A mapped graph is read-only");
+  }
+
+  /**
+   * Always fails, since a mapped graph is read-only.
+   * 
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException("A mapped graph is read-only");
+  }
+}
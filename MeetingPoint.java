@@ -0,0 +1,205 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * A MeetingPoint is the location where a group of people who start from different locations should
+ * meet, so that either the longest walk of anyone in the group or the total walking time of the
+ * whole group is as short as possible.
+ *
+ * It is found by advancing one search from every start location side by side, in parallel rounds,
+ * in the style of the threshold algorithm: every search settles locations in order of walking time,
+ * so the time of the last location that a search settled is a lower bound on its time to every
+ * location it has not settled yet. Combining those bounds gives a lower bound for every location
+ * that not all searches have reached, and the searches stop as soon as the best location that all
+ * of them have reached is no worse than that bound. A search is also paused once its own bound
+ * reaches the best value found, since nothing it settles from then on can do better.
+ */
+public class MeetingPoint {
+
+  /**
+   * What a meeting point minimizes.
+   */
+  public enum Objective {
+    // the longest walk of anyone in the group
+    MAX,
+    // the sum of everyone's walking times
+    SUM
+  }
+
+  // number of locations that each search settles in a round, between two checks of the bounds
+  static final int ROUND_SIZE = 256;
+
+  private final String location;
+  private final List<String> startLocations;
+  private final List<Double> times;
+  private final Objective objective;
+
+  private MeetingPoint(String location, List<String> startLocations, List<Double> times,
+      Objective objective) {
+    this.location = location;
+    this.startLocations = startLocations;
+    this.times = times;
+    this.objective = objective;
+  }
+
+  /**
+   * Retrieves the location to meet at.
+   *
+   * @return the meeting location
+   */
+  public String getLocation() {
+    return location;
+  }
+
+  /**
+   * Retrieves the locations that the people in the group start from.
+   *
+   * @return the start locations, in the order they were given
+   */
+  public List<String> getStartLocations() {
+    return startLocations;
+  }
+
+  /**
+   * Retrieves the walking time of each person to the meeting location.
+   *
+   * @return the walking times in seconds, in the order of getStartLocations
+   */
+  public List<Double> getTimes() {
+    return times;
+  }
+
+  /**
+   * Retrieves what this meeting point minimizes.
+   *
+   * @return the objective
+   */
+  public Objective getObjective() {
+    return objective;
+  }
+
+  /**
+   * Retrieves the value that this meeting point minimizes: the longest or the total walking time.
+   *
+   * @return the longest walking time for MAX, or the sum of the walking times for SUM, in seconds
+   */
+  public double getValue() {
+    double[] values = new double[times.size()];
+    for (int i = 0; i < values.length; i++)
+      values[i] = times.get(i);
+    return aggregate(objective, values);
+  }
+
+  // the times at which the searches reached a location that not all of them have reached yet
+  private static class Partial {
+    final double[] times;
+    int reachedBy = 0;
+
+    Partial(int searches) {
+      times = new double[searches];
+      Arrays.fill(times, Double.NaN);
+    }
+  }
+
+  /**
+   * Finds the meeting point for a group by advancing one search from every start location.
+   *
+   * @param startLocations the locations that the people in the group start from
+   * @param searches       an unadvanced search from each start location, in the same order
+   * @param objective      what the meeting point should minimize
+   * @return the best meeting point
+   * @throws NoSuchElementException if no location can be reached from every start location
+   * @throws SearchTimeoutException if one of the searches runs out of time
+   */
+  static MeetingPoint find(List<String> startLocations, List<SearchCursor<String>> searches,
+      Objective objective) {
+    int n = searches.size();
+    // the lower bound of every search, which is infinite once it has settled everything
+    double[] radius = new double[n];
+    boolean[] exhausted = new boolean[n];
+    // the locations settled by each search in the current round, and their times
+    String[][] settled = new String[n][ROUND_SIZE];
+    double[][] settledTimes = new double[n][ROUND_SIZE];
+    int[] settledCount = new int[n];
+    Map<String, Partial> partial = new HashMap<>();
+    String best = null;
+    double[] bestTimes = null;
+    double bestValue = Double.POSITIVE_INFINITY;
+
+    while (true) {
+      // advance every search that can still improve on the best location in parallel
+      double threshold = bestValue;
+      IntStream.range(0, n).parallel().forEach(i -> {
+        settledCount[i] = 0;
+        SearchCursor<String> search = searches.get(i);
+        while (!exhausted[i] && settledCount[i] < ROUND_SIZE && radius[i] < threshold) {
+          if (!search.advance()) {
+            exhausted[i] = true;
+            radius[i] = Double.POSITIVE_INFINITY;
+          } else {
+            settled[i][settledCount[i]] = search.getNode();
+            settledTimes[i][settledCount[i]++] = search.getCost();
+            radius[i] = search.getCost();
+          }
+        }
+      });
+
+      // combine the round's results, and keep the best location that every search has reached
+      boolean advanced = false;
+      for (int i = 0; i < n; i++) {
+        for (int j = 0; j < settledCount[i]; j++) {
+          advanced = true;
+          Partial reached = partial.computeIfAbsent(settled[i][j], l -> new Partial(n));
+          reached.times[i] = settledTimes[i][j];
+          if (++reached.reachedBy < n)
+            continue;
+          partial.remove(settled[i][j]);
+          double value = aggregate(objective, reached.times);
+          if (value < bestValue) {
+            best = settled[i][j];
+            bestTimes = reached.times;
+            bestValue = value;
+          }
+        }
+      }
+
+      // the lower bound of locations that no search has reached, and of those some searches have
+      double bound = aggregate(objective, radius);
+      double[] times = new double[n];
+      for (Iterator<Partial> it = partial.values().iterator(); it.hasNext();) {
+        Partial reached = it.next();
+        for (int i = 0; i < n; i++)
+          times[i] = Double.isNaN(reached.times[i]) ? radius[i] : reached.times[i];
+        double lowerBound = aggregate(objective, times);
+        // locations that an exhausted search never reached can never be a meeting point
+        if (lowerBound == Double.POSITIVE_INFINITY)
+          it.remove();
+        else
+          bound = Math.min(bound, lowerBound);
+      }
+      if (bestValue <= bound || !advanced)
+        break;
+    }
+
+    if (best == null)
+      throw new NoSuchElementException("No location can be reached from every start location");
+    List<Double> times = new ArrayList<>();
+    for (double time : bestTimes)
+      times.add(time);
+    return new MeetingPoint(best, startLocations, times, objective);
+  }
+
+  // combines the times of the people in the group into the value that is minimized
+  private static double aggregate(Objective objective, double[] times) {
+    double value = 0;
+    for (double time : times)
+      value = objective == Objective.MAX ? Math.max(value, time) : value + time;
+    return value;
+  }
+}
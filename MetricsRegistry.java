@@ -0,0 +1,260 @@
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A MetricsRegistry holds the counters, gauges and histograms that the server keeps about itself,
+ * and formats them in the Prometheus text exposition format for the "/metrics" endpoint. Counters
+ * are striped LongAdders and histograms are LatencyHistograms, so recording never takes a lock.
+ * Metrics are registered once, usually into static final fields, and recorded into directly.
+ *
+ * Histograms record raw longs (such as nanoseconds) with full precision, and are only reduced to
+ * the coarser cumulative buckets that Prometheus expects when they are formatted, with each value
+ * multiplied by the histogram's unit (such as 1e-9 to report nanoseconds as seconds).
+ */
+public class MetricsRegistry {
+
+  // bucket bounds for durations in seconds, and for counts of things such as settled nodes
+  public static final double[] SECONDS_BUCKETS =
+      {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+  public static final double[] COUNT_BUCKETS =
+      {1, 10, 100, 1000, 10_000, 100_000, 1_000_000, 10_000_000};
+  // unit of histograms that record nanoseconds and report seconds
+  public static final double NANOS = 1e-9;
+
+  private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+  /**
+   * Retrieves the registry that the server's own metrics are registered in.
+   *
+   * @return the default registry
+   */
+  public static MetricsRegistry getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * A count that only goes up.
+   */
+  public static class Counter {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+      count.increment();
+    }
+
+    public void add(long amount) {
+      count.add(amount);
+    }
+
+    public long get() {
+      return count.sum();
+    }
+  }
+
+  /**
+   * A distribution of recorded values.
+   */
+  public static class Histogram {
+    private final LatencyHistogram values = new LatencyHistogram();
+    private final double unit;
+    private final double[] bounds;
+
+    private Histogram(double unit, double[] bounds) {
+      this.unit = unit;
+      this.bounds = bounds;
+    }
+
+    /**
+     * Records one value, in the histogram's raw unit (such as nanoseconds).
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+      values.record(value);
+    }
+
+    /**
+     * Retrieves the recorded values.
+     *
+     * @return the full resolution histogram of raw values
+     */
+    public LatencyHistogram getValues() {
+      return values;
+    }
+  }
+
+  // all metrics of one name, which share their type and help text, by their label strings
+  private static class Family {
+    final String type;
+    final String help;
+    final Map<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+    Family(String type, String help) {
+      this.type = type;
+      this.help = help;
+    }
+  }
+
+  // metrics by name. gauges and counters that are read from elsewhere are stored as the
+  // DoubleSuppliers that they are read from
+  private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+  /**
+   * Registers a counter, or retrieves it when it was already registered.
+   *
+   * @param name   the metric name, which should end in _total
+   * @param help   a description of what is counted
+   * @param labels label names and values, alternating
+   * @return the counter
+   */
+  public Counter counter(String name, String help, String... labels) {
+    return (Counter) register(name, "counter", help, labels, Counter::new);
+  }
+
+  /**
+   * Registers a histogram, or retrieves it when it was already registered.
+   *
+   * @param name   the metric name, which should end in its unit such as _seconds
+   * @param help   a description of what is recorded
+   * @param unit   the factor that converts recorded values into the reported unit
+   * @param bounds the upper bounds of the reported buckets, in the reported unit and ascending
+   * @param labels label names and values, alternating
+   * @return the histogram
+   */
+  public Histogram histogram(String name, String help, double unit, double[] bounds,
+      String... labels) {
+    return (Histogram) register(name, "histogram", help, labels,
+        () -> new Histogram(unit, bounds));
+  }
+
+  /**
+   * Registers a gauge, whose value is read from the supplier every time the metrics are formatted.
+   * Registering the same gauge again replaces its supplier.
+   *
+   * @param name   the metric name
+   * @param help   a description of what is measured
+   * @param value  supplies the current value
+   * @param labels label names and values, alternating
+   */
+  public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+    family(name, "gauge", help).metrics.put(labels(labels), value);
+  }
+
+  /**
+   * Registers a counter whose value is kept elsewhere, and is read from the supplier every time
+   * the metrics are formatted. Registering the same counter again replaces its supplier.
+   *
+   * @param name   the metric name, which should end in _total
+   * @param help   a description of what is counted
+   * @param value  supplies the current count
+   * @param labels label names and values, alternating
+   */
+  public void counter(String name, String help, DoubleSupplier value, String... labels) {
+    family(name, "counter", help).metrics.put(labels(labels), value);
+  }
+
+  /**
+   * Registers the counter of lookups in a cache that were a hit or a miss, which all caches share
+   * under the name campus_cache_requests_total, so that hit rates can be compared between them.
+   *
+   * @param cache the name of the cache
+   * @param hit   true for the counter of hits, false for the counter of misses
+   * @return the counter
+   */
+  public Counter cacheRequests(String cache, boolean hit) {
+    return counter("campus_cache_requests_total",
+        "Lookups in caches, by whether they were answered from the cache.", "cache", cache,
+        "result", hit ? "hit" : "miss");
+  }
+
+  private Object register(String name, String type, String help, String[] labels,
+      Supplier<Object> create) {
+    return family(name, type, help).metrics.computeIfAbsent(labels(labels), l -> create.get());
+  }
+
+  private Family family(String name, String type, String help) {
+    Family family = families.computeIfAbsent(name, n -> new Family(type, help));
+    if (!family.type.equals(type))
+      throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+    return family;
+  }
+
+  // formats label pairs as name="value",... with the values escaped
+  private static String labels(String[] labels) {
+    if (labels.length % 2 != 0)
+      throw new IllegalArgumentException("Labels must be pairs of names and values");
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < labels.length; i += 2) {
+      if (i > 0)
+        text.append(',');
+      text.append(labels[i]).append("=\"").append(labels[i + 1].replace("\\", "\\\\")
+          .replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+    }
+    return text.toString();
+  }
+
+  /**
+   * Formats every metric in the Prometheus text exposition format.
+   *
+   * @return the text of all metrics
+   */
+  public String toPrometheus() {
+    StringBuilder text = new StringBuilder();
+    for (Map.Entry<String, Family> entry : families.entrySet()) {
+      String name = entry.getKey();
+      Family family = entry.getValue();
+      text.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+      text.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+      for (Map.Entry<String, Object> metric : family.metrics.entrySet()) {
+        String labels = metric.getKey();
+        Object value = metric.getValue();
+        if (value instanceof DoubleSupplier)
+          appendSample(text, name, labels, ((DoubleSupplier) value).getAsDouble());
+        else if (value instanceof Counter)
+          appendSample(text, name, labels, ((Counter) value).get());
+        else
+          appendHistogram(text, name, labels, (Histogram) value);
+      }
+    }
+    return text.toString();
+  }
+
+  private static void appendHistogram(StringBuilder text, String name, String labels,
+      Histogram histogram) {
+    String separator = labels.isEmpty() ? "" : ",";
+    LatencyHistogram values = histogram.values;
+    // sum the fine buckets into the reported ones, in a single pass over both
+    long cumulative = 0;
+    int bucket = 0;
+    for (double bound : histogram.bounds) {
+      while (bucket < LatencyHistogram.BUCKET_COUNT
+          && LatencyHistogram.bucketUpperBound(bucket) * histogram.unit <= bound)
+        cumulative += values.getCountAt(bucket++);
+      String le = BigDecimal.valueOf(bound).toPlainString();
+      appendSample(text, name + "_bucket", labels + separator + "le=\"" + le + "\"", cumulative);
+    }
+    // counts and the sum are read after the buckets, so +Inf is never below the last bucket
+    long count = values.getCount();
+    appendSample(text, name + "_bucket", labels + separator + "le=\"+Inf\"",
+        Math.max(count, cumulative));
+    appendSample(text, name + "_sum", labels, values.getSum() * histogram.unit);
+    appendSample(text, name + "_count", labels, Math.max(count, cumulative));
+  }
+
+  private static void appendSample(StringBuilder text, String name, String labels,
+      double value) {
+    text.append(name);
+    if (!labels.isEmpty())
+      text.append('{').append(labels).append('}');
+    text.append(' ');
+    if (value == Math.rint(value) && Math.abs(value) < 1e15)
+      text.append((long) value);
+    else
+      text.append(value);
+    text.append('\n');
+  }
+}
@@ -0,0 +1,370 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * NodeOrdering renumbers the locations of a CompactGraph so that locations which are close in the
+ * graph are close in its arrays. A search reads the offsets, costs and other per-location arrays
+ * at the numbers of every location it reaches, so when neighbors have nearby numbers, the entries
+ * it reads next are often on a cache line or page it has just read. Graphs are otherwise numbered
+ * in whatever order they were loaded or hashed, which scatters every search across the arrays.
+ *
+ * Renumbering is transparent to queries, which name locations and are translated to and from
+ * numbers by the CompactGraph. Every strategy treats walkways as undirected, and numbers each
+ * component of the graph in turn.
+ */
+public class NodeOrdering {
+
+  /**
+   * The ways to order locations.
+   */
+  public enum Strategy {
+    // keep the numbers of the loaded graph
+    NONE,
+    // breadth-first search order, which keeps each search frontier together
+    BFS,
+    // depth-first search preorder, which keeps paths together
+    DFS,
+    // reverse Cuthill-McKee: breadth-first from a peripheral location, visiting the neighbors of
+    // each location by increasing degree, then reversed, which keeps the number span of every
+    // location's walkways small
+    REVERSE_CUTHILL_MCKEE,
+    // the order of recursive bisection by GraphPartition, which keeps every cell together
+    PARTITION
+  }
+
+  // the cells that the partition order bisects down to, which fit a few pages of every array
+  static final int PARTITION_CELL_SIZE = 64;
+
+  private NodeOrdering() {
+  }
+
+  /**
+   * Computes the order of a graph's locations for a strategy.
+   *
+   * @param graph    the graph to order
+   * @param strategy the way to order it
+   * @return the number of the location at each position of the new order
+   */
+  public static int[] order(CompactGraph graph, Strategy strategy) {
+    int n = graph.getNodeCount();
+    if (strategy == Strategy.NONE) {
+      int[] order = new int[n];
+      for (int v = 0; v < n; v++)
+        order[v] = v;
+      return order;
+    }
+    if (strategy == Strategy.PARTITION)
+      return GraphPartition.build(graph, PARTITION_CELL_SIZE).getOrder();
+    int[][] adjacency = graph.undirectedAdjacency();
+    int[] offsets = adjacency[0];
+    int[] neighbors = adjacency[1];
+    if (strategy == Strategy.DFS)
+      return depthFirst(offsets, neighbors);
+    return breadthFirst(offsets, neighbors, strategy == Strategy.REVERSE_CUTHILL_MCKEE);
+  }
+
+  /**
+   * Renumbers the locations of a graph for a strategy.
+   *
+   * @param graph    the graph to renumber
+   * @param strategy the way to order its locations
+   * @return a copy of the graph with its locations in the new order
+   */
+  public static CompactGraph reorder(CompactGraph graph, Strategy strategy) {
+    return strategy == Strategy.NONE ? graph : graph.reorder(order(graph, strategy));
+  }
+
+  // breadth-first order of every component from its first location, or reverse Cuthill-McKee
+  // order from a peripheral location of every component
+  private static int[] breadthFirst(int[] offsets, int[] neighbors, boolean cuthillMcKee) {
+    int n = offsets.length - 1;
+    int[] order = new int[n];
+    boolean[] placed = new boolean[n];
+    int[] distance = new int[n];
+    Arrays.fill(distance, -1);
+    int count = 0;
+    for (int first = 0; first < n; first++) {
+      if (placed[first])
+        continue;
+      int start = cuthillMcKee ? peripheral(first, offsets, neighbors, distance, order, count)
+          : first;
+      int head = count;
+      order[count++] = start;
+      placed[start] = true;
+      while (head < count) {
+        int v = order[head++];
+        int begin = count;
+        for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+          int w = neighbors[i];
+          if (!placed[w]) {
+            placed[w] = true;
+            order[count++] = w;
+          }
+        }
+        if (cuthillMcKee)
+          sortByDegree(order, begin, count, offsets);
+      }
+    }
+    if (cuthillMcKee)
+      for (int i = 0, j = n - 1; i < j; i++, j--) {
+        int swap = order[i];
+        order[i] = order[j];
+        order[j] = swap;
+      }
+    return order;
+  }
+
+  // finds a location of first's component that is about as far from the others as any, by
+  // searching again from the furthest location of lowest degree until the search gets no deeper,
+  // using the unplaced part of order from free onward as the queue
+  private static int peripheral(int first, int[] offsets, int[] neighbors, int[] distance,
+      int[] order, int free) {
+    int start = first;
+    int depth = -1;
+    while (true) {
+      int head = free;
+      int tail = free;
+      order[tail++] = start;
+      distance[start] = 0;
+      while (head < tail) {
+        int v = order[head++];
+        for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+          if (distance[neighbors[i]] < 0) {
+            distance[neighbors[i]] = distance[v] + 1;
+            order[tail++] = neighbors[i];
+          }
+        }
+      }
+      int eccentricity = distance[order[tail - 1]];
+      int candidate = order[tail - 1];
+      for (int i = tail - 1; i >= free && distance[order[i]] == eccentricity; i--)
+        if (degree(order[i], offsets) < degree(candidate, offsets))
+          candidate = order[i];
+      for (int i = free; i < tail; i++)
+        distance[order[i]] = -1;
+      if (eccentricity <= depth)
+        return start;
+      depth = eccentricity;
+      start = candidate;
+    }
+  }
+
+  private static int degree(int v, int[] offsets) {
+    return offsets[v + 1] - offsets[v];
+  }
+
+  // sorts order[begin] to order[end - 1] by increasing degree, with an insertion sort since a
+  // location has few neighbors
+  private static void sortByDegree(int[] order, int begin, int end, int[] offsets) {
+    for (int i = begin + 1; i < end; i++) {
+      int v = order[i];
+      int j = i - 1;
+      while (j >= begin && degree(order[j], offsets) > degree(v, offsets)) {
+        order[j + 1] = order[j];
+        j--;
+      }
+      order[j + 1] = v;
+    }
+  }
+
+  // depth-first preorder of every component from its first location
+  private static int[] depthFirst(int[] offsets, int[] neighbors) {
+    int n = offsets.length - 1;
+    int[] order = new int[n];
+    boolean[] placed = new boolean[n];
+    int[] stack = new int[n];
+    int[] nextNeighbor = new int[n];
+    int count = 0;
+    for (int first = 0; first < n; first++) {
+      if (placed[first])
+        continue;
+      int size = 0;
+      stack[size++] = first;
+      placed[first] = true;
+      order[count++] = first;
+      nextNeighbor[first] = offsets[first];
+      while (size > 0) {
+        int v = stack[size - 1];
+        if (nextNeighbor[v] == offsets[v + 1]) {
+          size--;
+          continue;
+        }
+        int w = neighbors[nextNeighbor[v]++];
+        if (!placed[w]) {
+          placed[w] = true;
+          order[count++] = w;
+          nextNeighbor[w] = offsets[w];
+          stack[size++] = w;
+        }
+      }
+    }
+    return order;
+  }
+
+  /**
+   * Measures how far apart the numbers at the two ends of a graph's walkways are, which is what
+   * makes a search read from scattered places in its arrays.
+   *
+   * @param graph the graph to measure
+   * @return the average difference between the numbers of the two ends of every walkway
+   */
+  public static double averageEdgeSpan(CompactGraph graph) {
+    long total = 0;
+    for (int u = 0; u < graph.getNodeCount(); u++)
+      for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++)
+        total += Math.abs(graph.targets[e] - u);
+    return graph.getEdgeCount() == 0 ? 0 : (double) total / graph.getEdgeCount();
+  }
+
+  /**
+   * A PathSearch finds the walking time between two named locations of a CompactGraph with
+   * Dijkstra's algorithm, stopping once the end is settled, for measuring how an ordering changes
+   * the cost of point-to-point queries. Its arrays are marked with the number of the search that
+   * reached each location instead of being cleared, so every search only touches the locations it
+   * reaches.
+   */
+  static class PathSearch {
+    private final CompactGraph graph;
+    private final double[] cost;
+    private final int[] reached;
+    private final int[] settled;
+    private int search = 0;
+    private double[] heapCosts = new double[64];
+    private int[] heapNodes = new int[64];
+    private int heapSize = 0;
+
+    /**
+     * Constructor for searches over the provided graph.
+     *
+     * @param graph the graph to search
+     */
+    PathSearch(CompactGraph graph) {
+      this.graph = graph;
+      int n = graph.getNodeCount();
+      cost = new double[n];
+      reached = new int[n];
+      settled = new int[n];
+    }
+
+    /**
+     * Finds the walking time of the shortest path between two locations.
+     *
+     * @param start the name of the location to start from
+     * @param end   the name of the location to reach
+     * @return the walking time of the shortest path, or infinity if end cannot be reached
+     * @throws NoSuchElementException if either location is not in the graph
+     */
+    double cost(String start, String end) {
+      int source = graph.idOf(start);
+      int target = graph.idOf(end);
+      if (source < 0 || target < 0)
+        throw new NoSuchElementException("Unknown location: " + (source < 0 ? start : end));
+      search++;
+      heapSize = 0;
+      reached[source] = search;
+      cost[source] = 0;
+      push(source, 0);
+      while (heapSize > 0) {
+        int u = pop();
+        if (settled[u] == search)
+          continue;
+        settled[u] = search;
+        if (u == target)
+          return cost[u];
+        for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+          int v = graph.targets[e];
+          double vCost = cost[u] + graph.weights[e];
+          if (reached[v] != search || vCost < cost[v]) {
+            reached[v] = search;
+            cost[v] = vCost;
+            push(v, vCost);
+          }
+        }
+      }
+      return Double.POSITIVE_INFINITY;
+    }
+
+    private void push(int node, double nodeCost) {
+      if (heapSize == heapCosts.length) {
+        heapCosts = Arrays.copyOf(heapCosts, heapSize * 2);
+        heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+      }
+      int i = heapSize++;
+      while (i > 0) {
+        int up = (i - 1) >>> 1;
+        if (heapCosts[up] <= nodeCost)
+          break;
+        heapCosts[i] = heapCosts[up];
+        heapNodes[i] = heapNodes[up];
+        i = up;
+      }
+      heapCosts[i] = nodeCost;
+      heapNodes[i] = node;
+    }
+
+    // removes the cheapest entry, returning its node
+    private int pop() {
+      int top = heapNodes[0];
+      double lastCost = heapCosts[--heapSize];
+      int lastNode = heapNodes[heapSize];
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= heapSize)
+          break;
+        if (child + 1 < heapSize && heapCosts[child + 1] < heapCosts[child])
+          child++;
+        if (heapCosts[child] >= lastCost)
+          break;
+        heapCosts[i] = heapCosts[child];
+        heapNodes[i] = heapNodes[child];
+        i = child;
+      }
+      heapCosts[i] = lastCost;
+      heapNodes[i] = lastNode;
+      return top;
+    }
+  }
+
+  /**
+   * Orders a graph file by every strategy, and reports the time taken to reorder it, the average
+   * walkway span, and the time of point-to-point queries between random pairs of locations over
+   * the reordered graph.
+   *
+   * @param args the graph file, optionally followed by the number of queries (1000 by default)
+   * @throws IOException if the graph file cannot be loaded
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1)
+      throw new IllegalArgumentException("Usage: java NodeOrdering campus.dot [queries]");
+    int queries = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    DijkstraGraph<String, Double> loaded = new DijkstraGraph<>();
+    new Backend(loaded).loadGraphData(args[0]);
+    CompactGraph graph = CompactGraph.of(loaded);
+    // the same random pairs of locations for every strategy
+    String[] starts = new String[queries];
+    String[] ends = new String[queries];
+    Random random = new Random(42);
+    for (int i = 0; i < queries; i++) {
+      starts[i] = graph.nameOf(random.nextInt(graph.getNodeCount()));
+      ends[i] = graph.nameOf(random.nextInt(graph.getNodeCount()));
+    }
+    for (Strategy strategy : Strategy.values()) {
+      long startNanos = System.nanoTime();
+      CompactGraph ordered = reorder(graph, strategy);
+      long orderNanos = System.nanoTime() - startNanos;
+      PathSearch search = new PathSearch(ordered);
+      // warm up, then time the queries
+      for (int i = 0; i < queries; i++)
+        search.cost(starts[i], ends[i]);
+      startNanos = System.nanoTime();
+      for (int i = 0; i < queries; i++)
+        search.cost(starts[i], ends[i]);
+      System.out.printf("%-22s reordered in %5d ms, average span %10.1f, %8.3f ms per query%n",
+          strategy, orderNanos / 1_000_000, averageEdgeSpan(ordered),
+          (System.nanoTime() - startNanos) / 1e6 / queries);
+    }
+  }
+}
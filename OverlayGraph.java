@@ -0,0 +1,689 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * An OverlayGraph answers shortest path queries by multi-level overlay routing, for networks that
+ * are too large to search as a whole, such as several campuses and the city between them. The
+ * locations are split into nested cells by a GraphPartition. The boundary locations of a cell are
+ * the ends of the walkways that leave or enter it, and every cell keeps a clique: the walking time
+ * within the cell from each of its boundary locations to each other one. A cell's clique is found
+ * by searching the overlay of the level below inside the cell, which is made of the cliques of
+ * the smaller cells that it contains and the walkways between them, or the walkways of the cell
+ * on the lowest level.
+ *
+ * A query searches the walkways of the cells of its start and end, and otherwise only the
+ * overlay: every location is searched on the highest level where its cell contains neither the
+ * start nor the end. Clique arcs on the path are unpacked into walkways afterwards, by searching
+ * their cell again.
+ *
+ * Cells are independent of each other. Each clique is computed when a query first needs it, or
+ * loaded from a SnapshotStore where one was saved, and at most a fixed number of cliques are kept
+ * in memory, so that memory follows the part of the network that is being used. The graph is read
+ * where it is, so that a MappedGraph is routed on without copying it onto the heap, and the
+ * searches that compute a clique only hold arrays for the nodes of its cell. Changing a
+ * walking time only drops the cliques of the cells that contain the walkway, which are computed
+ * again when they are next needed.
+ */
+public class OverlayGraph {
+
+  private static final MetricsRegistry.Counter CELL_HITS =
+      MetricsRegistry.getDefault().cacheRequests("overlay_cells", true);
+  private static final MetricsRegistry.Counter CELL_MISSES =
+      MetricsRegistry.getDefault().cacheRequests("overlay_cells", false);
+
+  private final IndexedGraph graph;
+  private final GraphPartition partition;
+  private final int levels;
+  // the position of every node in the partition order, where each cell is a contiguous range
+  private final int[] positions;
+  // the boundary nodes of cell c on level l are boundaryNodes[l - 1][boundaryOffsets[l - 1][c]]
+  // onward, and boundaryIndex[l - 1][v] is the position of v among them, or -1 inside its cell
+  private final int[][] boundaryOffsets;
+  private final int[][] boundaryNodes;
+  private final int[][] boundaryIndex;
+  private volatile double[] weights;
+
+  // the cliques in memory by level and cell, least recently used first, which are dropped when
+  // they change, and counted as changed since the store's copies were saved
+  private final Map<Long, double[]> resident;
+  private final BitSet[] changedCells;
+  private long generation = 0;
+  private SnapshotStore store = null;
+  private String fingerprint = null;
+  // the graph's numberingHash, which saved cliques are keyed and checked by
+  private final long numberingHash;
+  // the cliques that were computed rather than found in memory or loaded from the store
+  private final AtomicInteger computedCells = new AtomicInteger();
+  // searches for queries and unpacking, over every node of the graph. searches for computing a
+  // cell's clique only reach the cell's nodes, so each of them gets arrays for just those nodes
+  private final ThreadLocal<Workspace> queryWorkspaces;
+
+  /**
+   * The arrays of one search, which are reset by numbering the searches instead of clearing them,
+   * and a binary heap of (cost, node) entries where outdated entries are skipped when polled. The
+   * arrays either cover every node, or only the nodes of one cell, which are found at their
+   * position in the partition order less the position of the cell's first node.
+   */
+  private static class Workspace {
+    final int[] positions;
+    final int base;
+    final double[] cost;
+    final int[] reached;
+    final int[] settled;
+    final int[] parent;
+    // how each node was reached: the number of an edge, or minus the level of a clique arc
+    final int[] via;
+    int search = 0;
+    double[] heapCosts = new double[64];
+    int[] heapNodes = new int[64];
+    int heapSize = 0;
+
+    // arrays for every node
+    Workspace(int n) {
+      this(n, null, 0);
+    }
+
+    // arrays for the size nodes from position base onward of the partition order
+    Workspace(int size, int[] positions, int base) {
+      this.positions = positions;
+      this.base = base;
+      cost = new double[size];
+      reached = new int[size];
+      settled = new int[size];
+      parent = new int[size];
+      via = new int[size];
+    }
+
+    int slot(int node) {
+      return positions == null ? node : positions[node] - base;
+    }
+
+    void start(int source) {
+      search++;
+      heapSize = 0;
+      int i = slot(source);
+      reached[i] = search;
+      cost[i] = 0;
+      parent[i] = -1;
+      push(source, 0);
+    }
+
+    void reach(int node, double nodeCost, int from, int how) {
+      int i = slot(node);
+      if (reached[i] == search && nodeCost >= cost[i])
+        return;
+      reached[i] = search;
+      cost[i] = nodeCost;
+      parent[i] = from;
+      via[i] = how;
+      push(node, nodeCost);
+    }
+
+    boolean isSettled(int node) {
+      return settled[slot(node)] == search;
+    }
+
+    void settle(int node) {
+      settled[slot(node)] = search;
+    }
+
+    double costOf(int node) {
+      return cost[slot(node)];
+    }
+
+    int parentOf(int node) {
+      return parent[slot(node)];
+    }
+
+    int viaOf(int node) {
+      return via[slot(node)];
+    }
+
+    void push(int node, double nodeCost) {
+      if (heapSize == heapCosts.length) {
+        heapCosts = Arrays.copyOf(heapCosts, heapSize * 2);
+        heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+      }
+      int i = heapSize++;
+      while (i > 0) {
+        int up = (i - 1) >>> 1;
+        if (heapCosts[up] <= nodeCost)
+          break;
+        heapCosts[i] = heapCosts[up];
+        heapNodes[i] = heapNodes[up];
+        i = up;
+      }
+      heapCosts[i] = nodeCost;
+      heapNodes[i] = node;
+    }
+
+    int pop() {
+      int top = heapNodes[0];
+      double lastCost = heapCosts[--heapSize];
+      int lastNode = heapNodes[heapSize];
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= heapSize)
+          break;
+        if (child + 1 < heapSize && heapCosts[child + 1] < heapCosts[child])
+          child++;
+        if (heapCosts[child] >= lastCost)
+          break;
+        heapCosts[i] = heapCosts[child];
+        heapNodes[i] = heapNodes[child];
+        i = child;
+      }
+      heapCosts[i] = lastCost;
+      heapNodes[i] = lastNode;
+      return top;
+    }
+  }
+
+  /**
+   * What a search may use: either a query between two locations, or the overlay of the level
+   * below one cell, with the cliques of that cell's smaller cells loaded beforehand.
+   */
+  private class Scope {
+    final int start;
+    final int end;
+    final int level;
+    final int cell;
+    final Map<Integer, double[]> children;
+
+    Scope(int start, int end) {
+      this.start = start;
+      this.end = end;
+      this.level = 0;
+      this.cell = -1;
+      this.children = null;
+    }
+
+    Scope(int level, int cell, Map<Integer, double[]> children) {
+      this.start = -1;
+      this.end = -1;
+      this.level = level;
+      this.cell = cell;
+      this.children = children;
+    }
+
+    // the level whose clique arcs and crossing walkways are searched from node v
+    int levelOf(int v) {
+      if (level > 0)
+        return level - 1;
+      for (int l = levels; l >= 1; l--) {
+        int c = partition.getCell(l, v);
+        if (c != partition.getCell(l, start) && c != partition.getCell(l, end))
+          return l;
+      }
+      return 0;
+    }
+
+    double[] clique(int l, int c) {
+      return children != null ? children.get(c) : OverlayGraph.this.clique(l, c);
+    }
+  }
+
+  /**
+   * Constructor for an overlay of a graph, whose cliques are computed when they are first needed.
+   *
+   * @param graph            the graph to route on, which is read but not copied
+   * @param partition        the cells of the graph
+   * @param maxResidentCells the largest number of cliques to keep in memory, or 0 for all of them
+   */
+  public OverlayGraph(IndexedGraph graph, GraphPartition partition, int maxResidentCells) {
+    this.graph = graph;
+    this.partition = partition;
+    this.levels = partition.getLevelCount();
+    int n = graph.getNodeCount();
+    double[] times = new double[graph.getEdgeCount()];
+    for (int e = 0; e < times.length; e++)
+      times[e] = graph.weightOf(e);
+    this.weights = times;
+    this.numberingHash = graph.numberingHash();
+    int[] order = partition.getOrder();
+    positions = new int[n];
+    for (int p = 0; p < n; p++)
+      positions[order[p]] = p;
+    boundaryOffsets = new int[levels][];
+    boundaryNodes = new int[levels][];
+    boundaryIndex = new int[levels][];
+    changedCells = new BitSet[levels];
+    for (int l = 1; l <= levels; l++) {
+      boolean[] boundary = new boolean[n];
+      for (int u = 0; u < n; u++) {
+        for (int e = graph.edgeOffset(u); e < graph.edgeOffset(u + 1); e++) {
+          int v = graph.targetOf(e);
+          if (partition.getCell(l, u) != partition.getCell(l, v)) {
+            boundary[u] = true;
+            boundary[v] = true;
+          }
+        }
+      }
+      int[] offsets = new int[partition.getCellCount(l) + 1];
+      for (int v = 0; v < n; v++)
+        if (boundary[v])
+          offsets[partition.getCell(l, v) + 1]++;
+      for (int c = 0; c + 1 < offsets.length; c++)
+        offsets[c + 1] += offsets[c];
+      int[] nodes = new int[offsets[offsets.length - 1]];
+      int[] index = new int[n];
+      int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+      for (int v = 0; v < n; v++) {
+        int c = partition.getCell(l, v);
+        index[v] = boundary[v] ? next[c] - offsets[c] : -1;
+        if (boundary[v])
+          nodes[next[c]++] = v;
+      }
+      boundaryOffsets[l - 1] = offsets;
+      boundaryNodes[l - 1] = nodes;
+      boundaryIndex[l - 1] = index;
+      changedCells[l - 1] = new BitSet();
+    }
+    resident = new LinkedHashMap<>(64, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest) {
+        return maxResidentCells > 0 && size() > maxResidentCells;
+      }
+    };
+    queryWorkspaces = ThreadLocal.withInitial(() -> new Workspace(n));
+  }
+
+  /**
+   * Keeps the cliques in a store, where they are loaded from when they are first needed and saved
+   * to once they are computed. Cliques of cells whose walking times changed are never saved. The
+   * cliques are saved under the fingerprint along with the number of nodes and the numberingHash
+   * of the graph, so that they are only loaded for a graph that is numbered the same way. This
+   * should be set before the first query.
+   *
+   * @param store       the store to keep the cliques in
+   * @param fingerprint the fingerprint of the graph file that the graph was loaded from
+   */
+  public void setStore(SnapshotStore store, String fingerprint) {
+    this.store = store;
+    this.fingerprint = fingerprint + "-" + graph.getNodeCount() + "-"
+        + Long.toHexString(numberingHash);
+  }
+
+  /**
+   * Computes or loads the clique of every cell, level by level, with the cells of each level
+   * split between threads.
+   */
+  public void precompute() {
+    for (int l = 1; l <= levels; l++) {
+      int level = l;
+      IntStream.range(0, partition.getCellCount(l)).parallel().forEach(c -> clique(level, c));
+    }
+  }
+
+  // the clique of a cell, from memory, the store, or a new computation
+  private double[] clique(int level, int cell) {
+    long key = (long) level << 32 | cell;
+    long computedFor;
+    boolean changed;
+    synchronized (resident) {
+      double[] clique = resident.get(key);
+      if (clique != null) {
+        CELL_HITS.increment();
+        return clique;
+      }
+      computedFor = generation;
+      changed = changedCells[level - 1].get(cell);
+    }
+    CELL_MISSES.increment();
+    int size = boundaryOffsets[level - 1][cell + 1] - boundaryOffsets[level - 1][cell];
+    SnapshotStore cellStore = changed ? null : store;
+    String name = cellArtifactName(level, cell);
+    double[] clique = null;
+    if (cellStore != null) {
+      try {
+        clique = cellStore.load(name, fingerprint, in -> readClique(in, size));
+      } catch (IOException e) {
+        // the clique is computed again below
+      }
+    }
+    if (clique == null) {
+      clique = computeClique(level, cell);
+      computedCells.incrementAndGet();
+      if (cellStore != null) {
+        double[] saved = clique;
+        try {
+          cellStore.save(name, fingerprint, out -> {
+            out.writeInt(graph.getNodeCount());
+            out.writeLong(numberingHash);
+            out.writeInt(size);
+            for (double time : saved)
+              out.writeDouble(time);
+          });
+        } catch (IOException e) {
+          // the clique is computed again after it is dropped from memory
+        }
+      }
+    }
+    synchronized (resident) {
+      // a clique computed from walking times that changed since is used once but not kept
+      if (generation == computedFor)
+        resident.put(key, clique);
+    }
+    return clique;
+  }
+
+  // reads a clique saved for this graph with the expected number of boundary nodes
+  private double[] readClique(DataInputStream in, int size) throws IOException {
+    if (in.readInt() != graph.getNodeCount() || in.readLong() != numberingHash)
+      throw new IOException("The clique was computed for a different graph");
+    if (in.readInt() != size)
+      throw new IOException("The clique has the wrong number of boundary locations");
+    double[] clique = new double[size * size];
+    for (int i = 0; i < clique.length; i++) {
+      clique[i] = in.readDouble();
+      if (!(clique[i] >= 0))
+        throw new IOException("The clique has an invalid walking time: " + clique[i]);
+    }
+    return clique;
+  }
+
+  // the name of a cell's clique in the store
+  private String cellArtifactName(int level, int cell) {
+    StringBuilder name = new StringBuilder("overlay-cell");
+    for (int l = 1; l <= levels; l++)
+      name.append('-').append(partition.getMaxCellSize(l));
+    return name.append("-L").append(level).append('-').append(cell).toString();
+  }
+
+  // searches the overlay of the level below a cell from each of its boundary nodes
+  private double[] computeClique(int level, int cell) {
+    double[] times = weights;
+    int begin = boundaryOffsets[level - 1][cell];
+    int size = boundaryOffsets[level - 1][cell + 1] - begin;
+    double[] clique = new double[size * size];
+    if (size == 0)
+      return clique;
+    Scope scope = new Scope(level, cell, childCliques(level, cell));
+    int[] nodes = partition.getCellNodes(level, cell);
+    Workspace w = new Workspace(nodes.length, positions, positions[nodes[0]]);
+    for (int i = 0; i < size; i++) {
+      search(w, times, boundaryNodes[level - 1][begin + i], -1, scope, size,
+          SearchDeadline.none());
+      for (int j = 0; j < size; j++) {
+        int v = boundaryNodes[level - 1][begin + j];
+        clique[i * size + j] = w.isSettled(v) ? w.costOf(v) : Double.POSITIVE_INFINITY;
+      }
+    }
+    return clique;
+  }
+
+  // the cliques of the cells one level below that a cell contains, which are all loaded before
+  // a search of the cell starts, so that loading them cannot interrupt it
+  private Map<Integer, double[]> childCliques(int level, int cell) {
+    if (level == 1)
+      return null;
+    Map<Integer, double[]> children = new HashMap<>();
+    for (int v : partition.getCellNodes(level, cell)) {
+      int child = partition.getCell(level - 1, v);
+      if (!children.containsKey(child))
+        children.put(child, clique(level - 1, child));
+    }
+    return children;
+  }
+
+  /**
+   * Settles nodes from source in order of cost until target is settled, or until the search runs
+   * out of nodes or, when boundaries is positive, has settled that many boundary nodes of the
+   * scope's cell. Every settled node counts against the deadline.
+   */
+  private void search(Workspace w, double[] times, int source, int target, Scope scope,
+      int boundaries, SearchDeadline deadline) {
+    w.start(source);
+    int settledBoundaries = 0;
+    while (w.heapSize > 0) {
+      int v = w.pop();
+      if (w.isSettled(v))
+        continue; // an outdated entry
+      w.settle(v);
+      if (deadline.tick())
+        throw new SearchTimeoutException("Overlay query timed out");
+      if (v == target)
+        return;
+      if (scope.level > 0 && boundaryIndex[scope.level - 1][v] >= 0
+          && ++settledBoundaries == boundaries)
+        return;
+      double cost = w.costOf(v);
+      int level = scope.levelOf(v);
+      if (level > 0) {
+        int c = partition.getCell(level, v);
+        double[] clique = scope.clique(level, c);
+        int begin = boundaryOffsets[level - 1][c];
+        int size = boundaryOffsets[level - 1][c + 1] - begin;
+        int row = boundaryIndex[level - 1][v] * size;
+        for (int j = 0; j < size; j++) {
+          int u = boundaryNodes[level - 1][begin + j];
+          if (u != v && clique[row + j] < Double.POSITIVE_INFINITY && !w.isSettled(u))
+            w.reach(u, cost + clique[row + j], v, -level);
+        }
+      }
+      for (int e = graph.edgeOffset(v); e < graph.edgeOffset(v + 1); e++) {
+        int u = graph.targetOf(e);
+        // walkways within a cell of the searched level are covered by its clique
+        if (level > 0 && partition.getCell(level, u) == partition.getCell(level, v))
+          continue;
+        if (scope.level > 0 && partition.getCell(scope.level, u) != scope.cell)
+          continue;
+        if (times[e] < Double.POSITIVE_INFINITY && !w.isSettled(u))
+          w.reach(u, cost + times[e], v, e);
+      }
+    }
+  }
+
+  /**
+   * Finds the shortest path between two locations with the current walking times.
+   *
+   * @param start the location to start from
+   * @param end   the location to go to
+   * @return the locations and walking times along the shortest path, or no path if either
+   *         location does not exist or end cannot be reached from start
+   */
+  public PathResult shortestPath(String start, String end) {
+    return shortestPath(start, end, SearchDeadline.none());
+  }
+
+  /**
+   * Finds the shortest path between two locations with the current walking times, within a time
+   * budget. The nodes settled by the query and by unpacking its path count against the deadline,
+   * while cliques that the query needs are computed in full, since later queries keep using them.
+   *
+   * @param start    the location to start from
+   * @param end      the location to go to
+   * @param deadline the time budget of the query
+   * @return the locations and walking times along the shortest path, or no path if either
+   *         location does not exist or end cannot be reached from start
+   * @throws SearchTimeoutException if the deadline expires during the search
+   */
+  public PathResult shortestPath(String start, String end, SearchDeadline deadline) {
+    // a query over a small overlay can settle too few nodes to reach the next clock check, so the
+    // deadline is also checked before it starts
+    if (deadline.isExpired())
+      throw new SearchTimeoutException("Overlay query timed out");
+    int s = graph.idOf(start);
+    int t = graph.idOf(end);
+    if (s < 0 || t < 0)
+      return PathResult.noPath();
+    double[] times = weights;
+    Workspace w = queryWorkspaces.get();
+    search(w, times, s, t, new Scope(s, t), 0, deadline);
+    if (!w.isSettled(t))
+      return PathResult.noPath();
+    List<String> locations = new ArrayList<>();
+    List<Double> walkingTimes = new ArrayList<>();
+    locations.add(start);
+    unpack(w, times, s, t, locations, walkingTimes, deadline);
+    return PathResult.found(locations, walkingTimes);
+  }
+
+  // adds the walkways of the path that the last search found from source to target, unpacking
+  // its clique arcs by searching their cells
+  private void unpack(Workspace w, double[] times, int source, int target, List<String> locations,
+      List<Double> walkingTimes, SearchDeadline deadline) {
+    List<int[]> steps = new ArrayList<>();
+    for (int v = target; v != source; v = w.parentOf(v))
+      steps.add(new int[] {w.parentOf(v), v, w.viaOf(v)});
+    for (int i = steps.size() - 1; i >= 0; i--) {
+      int from = steps.get(i)[0];
+      int to = steps.get(i)[1];
+      int via = steps.get(i)[2];
+      if (via >= 0) {
+        locations.add(graph.nameOf(to));
+        walkingTimes.add(times[via]);
+        continue;
+      }
+      int level = -via;
+      int cell = partition.getCell(level, from);
+      search(w, times, from, to, new Scope(level, cell, childCliques(level, cell)), 0, deadline);
+      unpack(w, times, from, to, locations, walkingTimes, deadline);
+    }
+  }
+
+  /**
+   * Finds the number of an edge of the graph that this overlay routes on.
+   *
+   * @param from the location that the edge leaves
+   * @param to   the location that the edge enters
+   * @return the number of the edge, or -1 if there is no such edge
+   */
+  public int edgeIndex(String from, String to) {
+    return graph.edgeIndex(from, to);
+  }
+
+  /**
+   * Changes the walking times of a batch of edges, and drops the cliques of every cell that
+   * contains one of them, to be computed again when they are next needed.
+   *
+   * @param edges   the numbers of the edges, as returned by edgeIndex
+   * @param seconds the new walking time of each edge, which is infinite for a closed walkway
+   * @throws IllegalArgumentException if an edge does not exist or a walking time is not positive
+   */
+  public void updateWeights(int[] edges, double[] seconds) {
+    synchronized (resident) {
+      double[] next = weights.clone();
+      for (int i = 0; i < edges.length; i++) {
+        if (edges[i] < 0 || edges[i] >= next.length)
+          throw new IllegalArgumentException("No edge numbered " + edges[i]);
+        if (!(seconds[i] > 0))
+          throw new IllegalArgumentException("Walking times must be positive: " + seconds[i]);
+        next[edges[i]] = seconds[i];
+      }
+      for (int e : edges) {
+        int u = graph.sourceOf(e);
+        int v = graph.targetOf(e);
+        for (int l = 1; l <= levels; l++)
+          if (partition.getCell(l, u) == partition.getCell(l, v))
+            dropCell(l, partition.getCell(l, u));
+      }
+      generation++;
+      weights = next;
+    }
+  }
+
+  /**
+   * Computes the clique of one cell again from the current walking times, along with the cliques
+   * of the cells that contain it, which depend on it.
+   *
+   * @param level the level of the cell, from 1 to the partition's level count
+   * @param cell  the number of the cell on that level
+   */
+  public void rebuildCell(int level, int cell) {
+    int node = partition.getCellNodes(level, cell)[0];
+    synchronized (resident) {
+      for (int l = level; l <= levels; l++)
+        dropCell(l, partition.getCell(l, node));
+      generation++;
+    }
+    clique(level, cell);
+  }
+
+  // forgets a cell's clique, and never loads it from the store again
+  private void dropCell(int level, int cell) {
+    resident.remove((long) level << 32 | cell);
+    changedCells[level - 1].set(cell);
+  }
+
+  /**
+   * Retrieves the number of cliques that are in memory.
+   *
+   * @return the number of resident cliques
+   */
+  public int getResidentCellCount() {
+    synchronized (resident) {
+      return resident.size();
+    }
+  }
+
+  /**
+   * Retrieves the number of cliques that were computed, rather than found in memory or loaded
+   * from the store.
+   *
+   * @return the number of computed cliques
+   */
+  public int getComputedCellCount() {
+    return computedCells.get();
+  }
+
+  /**
+   * Retrieves the cells that this overlay routes through.
+   *
+   * @return the partition of the graph
+   */
+  public GraphPartition getPartition() {
+    return partition;
+  }
+
+  /**
+   * Partitions a graph file, and reports the time taken by partitioning, by computing every
+   * clique, and by random queries, along with the size of every level's overlay.
+   *
+   * @param args the graph file, optionally followed by the cell sizes of every level, separated
+   *             by commas (256,4096,65536 by default)
+   * @throws IOException if the graph file cannot be loaded
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1)
+      throw new IllegalArgumentException("Usage: java OverlayGraph campus.dot [256,4096,65536]");
+    int[] sizes = Arrays.stream((args.length > 1 ? args[1] : "256,4096,65536").split(","))
+        .mapToInt(Integer::parseInt).toArray();
+    DijkstraGraph<String, Double> loaded = new DijkstraGraph<>();
+    new Backend(loaded).loadGraphData(args[0]);
+    CompactGraph graph = CompactGraph.of(loaded);
+    long startNanos = System.nanoTime();
+    GraphPartition partition = GraphPartition.build(graph, sizes);
+    System.out.printf("Partitioned %d locations in %d ms%n", graph.getNodeCount(),
+        (System.nanoTime() - startNanos) / 1_000_000);
+    OverlayGraph overlay = new OverlayGraph(graph, partition, 0);
+    for (int l = 1; l <= partition.getLevelCount(); l++)
+      System.out.printf("Level %d: %d cells, %d boundary locations%n", l,
+          partition.getCellCount(l), overlay.boundaryNodes[l - 1].length);
+    startNanos = System.nanoTime();
+    overlay.precompute();
+    System.out.printf("Computed %d cliques in %d ms%n", overlay.getResidentCellCount(),
+        (System.nanoTime() - startNanos) / 1_000_000);
+    Random random = new Random(1);
+    int queries = 1000;
+    startNanos = System.nanoTime();
+    for (int i = 0; i < queries; i++)
+      overlay.shortestPath(graph.nameOf(random.nextInt(graph.getNodeCount())),
+          graph.nameOf(random.nextInt(graph.getNodeCount())));
+    System.out.printf("Answered %d queries in %.3f ms each%n", queries,
+        (System.nanoTime() - startNanos) / 1e6 / queries);
+  }
+}
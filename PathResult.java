@@ -0,0 +1,111 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a single shortest path query made through the backend. A result is either a path
+ * that was found, a report that no path exists, or a report that the search ran out of time before
+ * it could decide either way.
+ */
+public class PathResult {
+
+  /**
+   * The different ways that a shortest path query can end.
+   */
+  public enum Status {
+    FOUND, NO_PATH, TIMED_OUT
+  }
+
+  private final Status status;
+  private final List<String> locations;
+  private final List<Double> times;
+
+  /**
+   * Constructor for a result with the provided status, locations and walking times.
+   * 
+   * @param status    how the query ended
+   * @param locations the locations along the path, empty unless the status is FOUND
+   * @param times     the walking times between consecutive locations on the path
+   */
+  private PathResult(Status status, List<String> locations, List<Double> times) {
+    this.status = status;
+    this.locations = locations;
+    this.times = times;
+  }
+
+  /**
+   * Creates a result for a path that was found.
+   * 
+   * @param locations the locations along the path in order
+   * @param times     the walking times in seconds between each two locations on the path
+   * @return a result with status FOUND
+   */
+  public static PathResult found(List<String> locations, List<Double> times) {
+    return new PathResult(Status.FOUND, locations, times);
+  }
+
+  /**
+   * Creates a result for a query where no path exists.
+   * 
+   * @return a result with status NO_PATH
+   */
+  public static PathResult noPath() {
+    return new PathResult(Status.NO_PATH, new ArrayList<>(), new ArrayList<>());
+  }
+
+  /**
+   * Creates a result for a query that was stopped by its deadline.
+   * 
+   * @return a result with status TIMED_OUT
+   */
+  public static PathResult timedOut() {
+    return new PathResult(Status.TIMED_OUT, new ArrayList<>(), new ArrayList<>());
+  }
+
+  /**
+   * Retrieves how this query ended.
+   * 
+   * @return the status of this result
+   */
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * Checks whether the search ran out of time.
+   * 
+   * @return true if the status is TIMED_OUT, false otherwise
+   */
+  public boolean isTimedOut() {
+    return status == Status.TIMED_OUT;
+  }
+
+  /**
+   * Retrieves the locations along the path, or an empty list when no path was found.
+   * 
+   * @return list of locations from start to end
+   */
+  public List<String> getLocations() {
+    return locations;
+  }
+
+  /**
+   * Retrieves the walking times in seconds between each two locations on the path.
+   * 
+   * @return list of walking times, one shorter than the list of locations
+   */
+  public List<Double> getTimes() {
+    return times;
+  }
+
+  /**
+   * Retrieves the total walking time along the path.
+   * 
+   * @return the sum of all walking times on the path in seconds
+   */
+  public double getTotalTime() {
+    double total = 0.0;
+    for (double time : times)
+      total += time;
+    return total;
+  }
+}
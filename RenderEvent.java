@@ -0,0 +1,44 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JDK Flight Recorder event for rendering one html page, from parsing its query to composing the
+ * template. The SearchEvents that the page needed are recorded on the same thread while this event
+ * is open, which ties slow pages to the searches that made them slow.
+ */
+@Name("campus.Render")
+@Label("Page Render")
+@Category("Campus Navigator")
+@Description("Rendering the html page for one request")
+public class RenderEvent extends jdk.jfr.Event {
+
+  @Label("Query")
+  String query;
+
+  @Label("Status")
+  int status;
+
+  @Label("Page Size")
+  @DataAmount
+  long pageBytes;
+
+  /**
+   * Ends and commits this event, if it is enabled.
+   *
+   * @param query     the query string of the request
+   * @param status    the http status of the response
+   * @param pageBytes the size of the rendered page
+   */
+  public void finish(String query, int status, long pageBytes) {
+    end();
+    if (!shouldCommit())
+      return;
+    this.query = query;
+    this.status = status;
+    this.pageBytes = pageBytes;
+    commit();
+  }
+}
@@ -0,0 +1,94 @@
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A RequestLog writes log lines from a background thread, so that request threads never wait for
+ * the console. Routine lines are sampled (only a configurable fraction of them is kept), while
+ * errors are always kept. When lines arrive faster than they can be written, the queue fills up
+ * and further lines are dropped and counted instead of slowing requests down.
+ */
+public class RequestLog {
+
+  private static final RequestLog DEFAULT =
+      new RequestLog(Double.parseDouble(System.getProperty("campus.logSampleRate", "0.01")),
+          Integer.getInteger("campus.logQueueSize", 1024), System.out);
+
+  private static final MetricsRegistry.Counter DROPPED = MetricsRegistry.getDefault().counter(
+      "campus_log_dropped_total", "Log lines dropped because the log queue was full.");
+
+  /**
+   * Retrieves the log that the server's requests are logged to. Its sample rate is configured
+   * with -Dcampus.logSampleRate (0.01 by default) and its queue size with -Dcampus.logQueueSize.
+   *
+   * @return the default log
+   */
+  public static RequestLog getDefault() {
+    return DEFAULT;
+  }
+
+  private final double sampleRate;
+  private final BlockingQueue<String> queue;
+
+  /**
+   * Constructor for a log that writes to the provided stream from its own daemon thread.
+   *
+   * @param sampleRate the fraction of routine lines to keep, from 0 to 1
+   * @param capacity   the most lines that may wait to be written
+   * @param out        the stream to write the lines to
+   */
+  public RequestLog(double sampleRate, int capacity, PrintStream out) {
+    this.sampleRate = sampleRate;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    Thread writer = new Thread(() -> {
+      try {
+        while (true)
+          out.println(queue.take());
+      } catch (InterruptedException e) {
+        // the process is exiting
+      }
+    }, "request-log");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Logs a routine line, such as a received request, if it is sampled.
+   *
+   * @param line the line to log
+   */
+  public void info(String line) {
+    if (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate)
+      enqueue(line);
+  }
+
+  /**
+   * Logs an error line, which is never sampled away.
+   *
+   * @param line the line to log
+   */
+  public void error(String line) {
+    enqueue(line);
+  }
+
+  /**
+   * Logs an error line followed by the stack trace of the throwable that caused it, which is never
+   * sampled away.
+   *
+   * @param line   the line to log
+   * @param thrown the cause of the error
+   */
+  public void error(String line, Throwable thrown) {
+    StringWriter trace = new StringWriter();
+    thrown.printStackTrace(new PrintWriter(trace));
+    enqueue(line + System.lineSeparator() + trace.toString().stripTrailing());
+  }
+
+  private void enqueue(String line) {
+    if (!queue.offer(line))
+      DROPPED.increment();
+  }
+}
@@ -0,0 +1,57 @@
+import java.io.IOException;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * This RequestMetricsFilter records the latency and the response status of every request to the
+ * http context that it is added to, labelled with the context's endpoint.
+ */
+public class RequestMetricsFilter extends Filter {
+
+  private final MetricsRegistry metrics;
+  private final String endpoint;
+  private final MetricsRegistry.Histogram latency;
+  // counters of responses by status code, registered on first use
+  private final MetricsRegistry.Counter[] byStatus = new MetricsRegistry.Counter[600];
+
+  /**
+   * Constructor for a filter that records into the provided registry.
+   *
+   * @param metrics  the registry to record into
+   * @param endpoint the label of the context's metrics, usually its path
+   */
+  public RequestMetricsFilter(MetricsRegistry metrics, String endpoint) {
+    this.metrics = metrics;
+    this.endpoint = endpoint;
+    this.latency = metrics.histogram("campus_request_duration_seconds",
+        "Time from receiving a request to finishing its response.", MetricsRegistry.NANOS,
+        MetricsRegistry.SECONDS_BUCKETS, "endpoint", endpoint);
+  }
+
+  public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+    long startNanos = System.nanoTime();
+    try {
+      chain.doFilter(exchange);
+    } finally {
+      latency.record(System.nanoTime() - startNanos);
+      // -1 means that the handler never sent a response
+      int status = exchange.getResponseCode();
+      statusCounter(status < 100 || status >= byStatus.length ? 0 : status).increment();
+    }
+  }
+
+  private MetricsRegistry.Counter statusCounter(int status) {
+    MetricsRegistry.Counter counter = byStatus[status];
+    if (counter == null) {
+      // racing threads get the same counter back from the registry
+      counter = metrics.counter("campus_requests_total", "Requests answered, by status code.",
+          "endpoint", endpoint, "status", status == 0 ? "none" : Integer.toString(status));
+      byStatus[status] = counter;
+    }
+    return counter;
+  }
+
+  public String description() {
+    return "Records request latency and status codes for " + endpoint;
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ * A SearchCursor is a single-source shortest path search that is run one
+ * settled node at a time, so that several searches can be advanced side by
+ * side and stopped as soon as their combined results are good enough.
+ * Nodes are settled in order of increasing cost, so the cost of the last
+ * settled node is a lower bound on the cost of every node not settled yet.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public interface SearchCursor<NodeType> {
+
+  /**
+   * Settles the next node, which is the cheapest one to reach among those
+   * that are not settled yet.
+   *
+   * @return true if a node was settled, or false if every node that can be
+   *         reached from the start has been settled already
+   * @throws SearchTimeoutException if the search's deadline has expired
+   */
+  public boolean advance();
+
+  /**
+   * Returns the data of the node settled by the last call to advance.
+   *
+   * @return the data of the last settled node, or null before the first
+   *         call to advance
+   */
+  public NodeType getNode();
+
+  /**
+   * Returns the cost of the shortest path to the node settled by the last
+   * call to advance, which no node that is settled later can cost less than.
+   *
+   * @return the cost of the last settled node, or 0 before the first call to
+   *         advance
+   */
+  public double getCost();
+
+  /**
+   * Returns the work this search has done so far.
+   *
+   * @return the statistics of this search
+   */
+  public SearchStats getStats();
+
+  /**
+   * Releases the memory that this search holds, after which it must not be
+   * advanced again. Searches that are never closed are left to the garbage
+   * collector instead.
+   */
+  public default void close() {
+  }
+}
@@ -0,0 +1,121 @@
+/**
+ * A SearchDeadline is a per-query time budget and cancellation token that shortest path searches
+ * check while they run. Searches call tick() once for every node that they settle, and the clock is
+ * only consulted every CHECK_INTERVAL settled nodes so that the check stays cheap inside the hot
+ * loop. A deadline may also be cancelled explicitly from another thread.
+ *
+ * Any thread may cancel a deadline or check isExpired(), but tick() and getSettledCount() keep a
+ * plain counter and belong to the one thread that runs the search. Work that is split between
+ * threads gives each thread its own deadline from forWorker(), which shares the cutoff and the
+ * cancellation of this one.
+ */
+public class SearchDeadline {
+
+  // number of settled nodes between two reads of the clock
+  public static final int CHECK_INTERVAL = 256;
+
+  // absolute System.nanoTime() value after which the search should stop
+  private final long deadlineNanos;
+  // the deadline that this one was made from by forWorker(), whose cancellation it follows
+  private final SearchDeadline parent;
+  // set when the query is cancelled explicitly, read by the searching thread
+  private volatile boolean cancelled = false;
+  // set once a search has noticed that the budget is used up, so that every thread sees it
+  private volatile boolean expired = false;
+  // number of nodes settled under this deadline so far, by the thread that runs the search
+  private int settledCount = 0;
+
+  /**
+   * Constructor for a deadline that expires at the provided System.nanoTime() value.
+   * 
+   * @param deadlineNanos the System.nanoTime() value after which searches should stop
+   * @param parent        the deadline whose cancellation this one follows, or null
+   */
+  private SearchDeadline(long deadlineNanos, SearchDeadline parent) {
+    this.deadlineNanos = deadlineNanos;
+    this.parent = parent;
+  }
+
+  /**
+   * Creates a deadline that never expires on its own, but that can still be cancelled.
+   * 
+   * @return a new deadline without a time limit
+   */
+  public static SearchDeadline none() {
+    return new SearchDeadline(Long.MAX_VALUE, null);
+  }
+
+  /**
+   * Creates a deadline that expires the provided number of milliseconds from now. A non-positive
+   * timeout means that there is no time limit.
+   * 
+   * @param timeoutMillis the time budget for the query in milliseconds
+   * @return a new deadline that expires after timeoutMillis
+   */
+  public static SearchDeadline after(long timeoutMillis) {
+    if (timeoutMillis <= 0)
+      return none();
+    return new SearchDeadline(System.nanoTime() + timeoutMillis * 1_000_000L, null);
+  }
+
+  /**
+   * Creates a deadline for one of the threads that share this deadline's work. It expires at the
+   * same time, and when this deadline is cancelled or expires, but counts its own settled nodes.
+   * 
+   * @return a new deadline with the same cutoff as this one
+   */
+  public SearchDeadline forWorker() {
+    return new SearchDeadline(deadlineNanos, this);
+  }
+
+  /**
+   * Cancels every search that is running or will run under this deadline.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Checks whether this deadline has been cancelled explicitly.
+   * 
+   * @return true if cancel() has been called on this deadline or the one it was made from, false
+   *         otherwise
+   */
+  public boolean isCancelled() {
+    return cancelled || parent != null && parent.isCancelled();
+  }
+
+  /**
+   * Checks whether the time budget is used up or the query was cancelled, reading the clock.
+   * 
+   * @return true if searches under this deadline should stop, false otherwise
+   */
+  public boolean isExpired() {
+    if (!expired && (isCancelled() || parent != null && parent.expired
+        || System.nanoTime() - deadlineNanos >= 0))
+      expired = true;
+    return expired;
+  }
+
+  /**
+   * Records that a search has settled one more node, and checks the deadline every CHECK_INTERVAL
+   * settled nodes.
+   * 
+   * @return true if the search should stop now, false if it may continue
+   */
+  public boolean tick() {
+    settledCount++;
+    if (settledCount % CHECK_INTERVAL != 0)
+      return expired;
+    return isExpired();
+  }
+
+  /**
+   * Retrieves the number of nodes that have been settled under this deadline.
+   * 
+   * @return the number of settled nodes
+   */
+  public int getSettledCount() {
+    return settledCount;
+  }
+}
@@ -0,0 +1,76 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JDK Flight Recorder event for one shortest path search, with the SearchStats of the search.
+ * Searches run on the thread that renders their request, so a slow RenderEvent can be matched to
+ * the SearchEvents inside of it. Like every JFR event, it costs next to nothing unless a recording
+ * that enables it is running, for example: java -XX:StartFlightRecording=filename=campus.jfr
+ */
+@Name("campus.Search")
+@Label("Shortest Path Search")
+@Category("Campus Navigator")
+@Description("One run of Dijkstra's algorithm")
+public class SearchEvent extends jdk.jfr.Event {
+
+  @Label("Kind")
+  @Description("path for a search to one destination, all for a search to every destination, "
+      + "within for a search bounded by a cost, nearest for a search to the nearest of many")
+  String kind;
+
+  @Label("Start")
+  String start;
+
+  @Label("End")
+  String end;
+
+  @Label("Outcome")
+  @Description("found, no path, or timed out")
+  String outcome;
+
+  @Label("Nodes Settled")
+  int nodesSettled;
+
+  @Label("Edges Relaxed")
+  int edgesRelaxed;
+
+  @Label("Queue Pushes")
+  int queuePushes;
+
+  @Label("Stale Pops")
+  int stalePops;
+
+  @Label("Peak Queue Size")
+  int peakQueueSize;
+
+  @Label("Map Lookups")
+  int mapLookups;
+
+  /**
+   * Ends and commits this event, if it is enabled and lasted long enough to be recorded.
+   *
+   * @param kind    path, departing, all, within or nearest
+   * @param start   the start of the search
+   * @param end     the destination of the search, or null when searching for every destination
+   * @param outcome found, no path, or timed out
+   * @param stats   the work that the search did
+   */
+  public void finish(String kind, Object start, Object end, String outcome, SearchStats stats) {
+    end();
+    if (!shouldCommit())
+      return;
+    this.kind = kind;
+    this.start = String.valueOf(start);
+    this.end = end == null ? null : end.toString();
+    this.outcome = outcome;
+    nodesSettled = stats.nodesSettled;
+    edgesRelaxed = stats.edgesRelaxed;
+    queuePushes = stats.queuePushes;
+    stalePops = stats.stalePops;
+    peakQueueSize = stats.peakQueueSize;
+    mapLookups = stats.mapLookups;
+    commit();
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ * SearchStats counts the work that one shortest path search did, so that a slow query can be
+ * attributed to the shape of the graph (many settled nodes and relaxed edges), to the priority
+ * queue (many pushes and stale pops, or a large peak size), or to the map lookups that track the
+ * settled nodes. Searches fill in one SearchStats each, which is then available from
+ * GraphADT.getLastSearchStats() on the thread that ran the search.
+ */
+public class SearchStats {
+
+  // counters are updated directly by the searches in this directory
+  int nodesSettled = 0;
+  int edgesRelaxed = 0;
+  int queuePushes = 0;
+  int stalePops = 0;
+  int peakQueueSize = 0;
+  int mapLookups = 0;
+
+  /**
+   * Retrieves the number of nodes whose shortest path cost became final.
+   *
+   * @return the number of settled nodes
+   */
+  public int getNodesSettled() {
+    return nodesSettled;
+  }
+
+  /**
+   * Retrieves the number of edges leaving settled nodes that were examined.
+   *
+   * @return the number of relaxed edges
+   */
+  public int getEdgesRelaxed() {
+    return edgesRelaxed;
+  }
+
+  /**
+   * Retrieves the number of entries added to the priority queue.
+   *
+   * @return the number of queue pushes
+   */
+  public int getQueuePushes() {
+    return queuePushes;
+  }
+
+  /**
+   * Retrieves the number of entries taken from the priority queue for nodes that were already
+   * settled, which is work wasted on outdated entries.
+   *
+   * @return the number of stale pops
+   */
+  public int getStalePops() {
+    return stalePops;
+  }
+
+  /**
+   * Retrieves the largest number of entries that the priority queue held at once.
+   *
+   * @return the peak queue size
+   */
+  public int getPeakQueueSize() {
+    return peakQueueSize;
+  }
+
+  /**
+   * Retrieves the number of lookups and insertions in the map of settled nodes.
+   *
+   * @return the number of map lookups
+   */
+  public int getMapLookups() {
+    return mapLookups;
+  }
+
+  // notes that the queue now holds size entries
+  void pushed(int size) {
+    queuePushes++;
+    if (size > peakQueueSize)
+      peakQueueSize = size;
+  }
+
+  @Override
+  public String toString() {
+    return "settled " + nodesSettled + " nodes, relaxed " + edgesRelaxed + " edges, " + queuePushes
+        + " queue pushes (" + stalePops + " stale, peak " + peakQueueSize + "), " + mapLookups
+        + " map lookups";
+  }
+}
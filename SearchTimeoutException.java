@@ -0,0 +1,18 @@
+/**
+ * Thrown by a shortest path search when its SearchDeadline expires or is cancelled before the
+ * search could finish. This is kept separate from NoSuchElementException so that callers can tell
+ * a query that ran out of time apart from one that has no answer.
+ */
+public class SearchTimeoutException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Constructor for a timeout with a message describing the search that was stopped.
+   * 
+   * @param message describes the search that ran out of time
+   */
+  public SearchTimeoutException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,154 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/**
+ * A SnapshotStore keeps precomputed artifacts (such as a FurthestDestinationIndex) on disk next to
+ * the graph file that they were computed from, so that they survive restarts. Every artifact is
+ * tagged with the SHA-256 fingerprint of the graph file's contents, and an artifact is only loaded
+ * again while the graph file still has the same fingerprint. Each artifact file holds:
+ *
+ * magic (int), version (int), fingerprint (UTF string), the artifact's own bytes, and a CRC32
+ * (long) of everything before it.
+ *
+ * Artifacts are written to a temporary file first and then moved into place, so that readers never
+ * see a partly written artifact.
+ */
+public class SnapshotStore {
+
+  // "CSPA" in ascii
+  public static final int MAGIC = 0x43535041;
+  public static final int VERSION = 1;
+
+  /**
+   * Writes the bytes of one artifact.
+   */
+  public interface Writer {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  /**
+   * Reads one artifact back from the bytes that its Writer wrote.
+   */
+  public interface Reader<T> {
+    T read(DataInputStream in) throws IOException;
+  }
+
+  private final Path source;
+  private final Path directory;
+
+  /**
+   * Constructor for the store of artifacts computed from the provided graph file. The artifacts
+   * are kept in a directory named after the graph file with ".artifacts" appended.
+   *
+   * @param source the graph file that the artifacts are computed from
+   */
+  public SnapshotStore(Path source) {
+    this.source = source;
+    this.directory = source.resolveSibling(source.getFileName() + ".artifacts");
+  }
+
+  /**
+   * Retrieves the directory that the artifacts are stored in.
+   *
+   * @return the artifact directory
+   */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Computes the fingerprint of the graph file's current contents.
+   *
+   * @return the SHA-256 hash of the graph file as lowercase hex
+   * @throws IOException if the graph file cannot be read
+   */
+  public String fingerprint() throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+    try (InputStream in = new DigestInputStream(Files.newInputStream(source), digest)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest())
+      hex.append(String.format("%02x", b));
+    return hex.toString();
+  }
+
+  /**
+   * Saves an artifact under the provided name, replacing any earlier version of it.
+   *
+   * @param name        the name of the artifact, used as its file name
+   * @param fingerprint the fingerprint of the graph that the artifact was computed from
+   * @param writer      writes the artifact's bytes
+   * @throws IOException if the artifact cannot be written
+   */
+  public void save(String name, String fingerprint, Writer writer) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeUTF(fingerprint);
+    writer.write(out);
+    CRC32 crc = new CRC32();
+    crc.update(bytes.toByteArray());
+    out.writeLong(crc.getValue());
+
+    Files.createDirectories(directory);
+    Path temporary = directory.resolve(name + ".tmp");
+    Files.write(temporary, bytes.toByteArray());
+    Files.move(temporary, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Loads an artifact that was saved under the provided name, as long as it was computed from a
+   * graph with the provided fingerprint.
+   *
+   * @param name        the name of the artifact
+   * @param fingerprint the fingerprint of the current graph
+   * @param reader      reads the artifact's bytes
+   * @return the artifact, or null if it was never saved, is from another format version, was
+   *         computed from a different graph, or is damaged
+   * @throws IOException if the artifact exists but cannot be read
+   */
+  public <T> T load(String name, String fingerprint, Reader<T> reader) throws IOException {
+    Path file = directory.resolve(name);
+    if (!Files.exists(file))
+      return null;
+    byte[] bytes = Files.readAllBytes(file);
+    if (bytes.length < 8)
+      return null;
+    // the last 8 bytes are the checksum of everything before them
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length - 8);
+    if (ByteBuffer.wrap(bytes, bytes.length - 8, 8).getLong() != crc.getValue())
+      return null;
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8));
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(fingerprint))
+        return null;
+      return reader.read(in);
+    } catch (EOFException e) {
+      // the artifact is shorter than its reader expects
+      return null;
+    }
+  }
+}
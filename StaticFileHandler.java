@@ -0,0 +1,321 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * This StaticFileHandler serves the files in one directory (templates, CSS, JS and map images)
+ * under a URL prefix. Every file is indexed at startup: its content is hashed into a strong ETag,
+ * and text files get a gzipped variant written next to them as name.gz, which is served instead
+ * when the client accepts gzip, or the file is served uncompressed when its variant cannot be
+ * written. Files are memory-mapped once and written from the mapped buffers, while files too
+ * large to map are streamed with FileChannel.transferTo. Changed files are noticed through their
+ * modification time and indexed again.
+ */
+public class StaticFileHandler {
+
+  // files larger than this are streamed with transferTo instead of being kept mapped
+  private static final long MAX_MAPPED_BYTES = 64L * 1024 * 1024;
+  // text files smaller than this are not worth compressing
+  private static final long GZIP_MIN_BYTES = 512;
+
+  private final Path root;
+  private final String prefix;
+  private final String cacheControl;
+  // requests for files that the browser already held, answered with 304 Not Modified, or not
+  private static final MetricsRegistry.Counter ETAG_HITS =
+      MetricsRegistry.getDefault().cacheRequests("static_etag", true);
+  private static final MetricsRegistry.Counter ETAG_MISSES =
+      MetricsRegistry.getDefault().cacheRequests("static_etag", false);
+  // index of the served files by their path relative to the root
+  private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+
+  // one representation of a file: its bytes (when mapped), its size and its ETag
+  private static class Variant {
+    Path path;
+    MappedByteBuffer mapped;
+    long size;
+    String etag;
+  }
+
+  // a served file, along with its optional precompressed variant
+  private static class Asset {
+    FileTime modified;
+    String contentType;
+    Variant identity;
+    Variant gzip;
+  }
+
+  /**
+   * Constructor for a handler that serves the files in root under the provided URL prefix.
+   * 
+   * @param root          the directory to serve files from
+   * @param prefix        the URL path prefix of the context, such as "/static/"
+   * @param maxAgeSeconds how long browsers may use a file without revalidating it
+   */
+  public StaticFileHandler(Path root, String prefix, long maxAgeSeconds) {
+    this.root = root.toAbsolutePath().normalize();
+    this.prefix = prefix;
+    this.cacheControl = "public, max-age=" + maxAgeSeconds;
+  }
+
+  /**
+   * Indexes every file in the root directory and its subdirectories, building the gzipped
+   * variants of text files that do not have an up to date one yet.
+   * 
+   * @return the number of files indexed
+   * @throws IOException if a file cannot be read
+   */
+  public int indexAll() throws IOException {
+    if (!Files.isDirectory(root))
+      return 0;
+    indexDirectory(root);
+    return assets.size();
+  }
+
+  private void indexDirectory(Path directory) throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        if (Files.isDirectory(file))
+          indexDirectory(file);
+        else if (!file.getFileName().toString().endsWith(".gz"))
+          index(root.relativize(file).toString().replace('\\', '/'), file);
+      }
+    }
+  }
+
+  // builds the index entry for one file, or returns null when it does not exist
+  private Asset index(String name, Path file) throws IOException {
+    if (!Files.isRegularFile(file)) {
+      assets.remove(name);
+      return null;
+    }
+    Asset asset = new Asset();
+    asset.modified = Files.getLastModifiedTime(file);
+    asset.contentType = contentType(name);
+    asset.identity = variant(file, "");
+    if (isCompressible(asset.contentType) && asset.identity.size >= GZIP_MIN_BYTES) {
+      Path gzipped = file.resolveSibling(file.getFileName() + ".gz");
+      // rebuild the gzipped variant unless there is one at least as new as the file, and serve
+      // the file without one when it cannot be written, such as from a read-only directory
+      if (!Files.isRegularFile(gzipped)
+          || Files.getLastModifiedTime(gzipped).compareTo(asset.modified) < 0) {
+        try {
+          writeAtomically(gzipped,
+              ApiHandler.gzip(Files.readAllBytes(file), (int) asset.identity.size));
+          asset.gzip = variant(gzipped, "-gz");
+        } catch (IOException e) {
+          RequestLog.getDefault().error("Serving " + name + " without gzip: " + e.toString());
+        }
+      } else {
+        asset.gzip = variant(gzipped, "-gz");
+      }
+    }
+    assets.put(name, asset);
+    return asset;
+  }
+
+  // replaces a file by moving a complete temporary file over it, so that other threads that
+  // have the old file mapped keep reading its old contents instead of a truncated file
+  private static void writeAtomically(Path file, byte[] bytes) throws IOException {
+    Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+    try {
+      Files.write(temporary, bytes);
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  // maps a file into memory when it is small enough, and hashes it into a strong ETag
+  private static Variant variant(Path file, String etagSuffix) throws IOException {
+    Variant variant = new Variant();
+    variant.path = file;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      variant.size = channel.size();
+      MessageDigest digest = sha256();
+      if (variant.size <= MAX_MAPPED_BYTES) {
+        variant.mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, variant.size);
+        digest.update(variant.mapped.duplicate());
+      } else {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        while (channel.read(buffer) > 0) {
+          buffer.flip();
+          digest.update(buffer);
+          buffer.clear();
+        }
+      }
+      byte[] hash = digest.digest();
+      StringBuilder etag = new StringBuilder("\"");
+      for (int i = 0; i < 12; i++)
+        etag.append(String.format("%02x", hash[i]));
+      variant.etag = etag.append(etagSuffix).append('"').toString();
+    }
+    return variant;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Http request handler for the static file context.
+   * 
+   * @param exchange the request to answer
+   */
+  public void handle(HttpExchange exchange) {
+    try {
+      String method = exchange.getRequestMethod();
+      if (!method.equals("GET") && !method.equals("HEAD")) {
+        exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+        sendEmpty(exchange, 405);
+        return;
+      }
+      Asset asset = lookup(exchange.getRequestURI().getPath());
+      if (asset == null) {
+        sendEmpty(exchange, 404);
+        return;
+      }
+
+      // pick the gzipped variant when there is one and the client accepts it
+      Variant variant = asset.identity;
+      if (asset.gzip != null && ApiHandler.acceptsGzip(exchange)) {
+        variant = asset.gzip;
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+      }
+      exchange.getResponseHeaders().set("Content-Type", asset.contentType);
+      exchange.getResponseHeaders().set("ETag", variant.etag);
+      exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+      if (asset.gzip != null)
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+
+      // unchanged files are not sent again
+      String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+      if (ifNoneMatch != null && matches(ifNoneMatch, variant.etag)) {
+        ETAG_HITS.increment();
+        sendEmpty(exchange, 304);
+        return;
+      }
+      ETAG_MISSES.increment();
+      if (method.equals("HEAD")) {
+        exchange.getResponseHeaders().set("Content-Length", Long.toString(variant.size));
+        sendEmpty(exchange, 200);
+        return;
+      }
+      exchange.sendResponseHeaders(200, variant.size == 0 ? -1 : variant.size);
+      try (OutputStream out = exchange.getResponseBody()) {
+        writeBody(variant, Channels.newChannel(out));
+      }
+    } catch (Exception e) {
+      RequestLog.getDefault().error("Exception Thrown: " + e.toString(), e);
+      try {
+        sendEmpty(exchange, 500);
+      } catch (IOException i) {
+      } // do nothing when this fails
+    }
+  }
+
+  // finds the index entry for a request path, indexing it again when the file has changed
+  private Asset lookup(String requestPath) throws IOException {
+    if (!requestPath.startsWith(prefix))
+      return null;
+    String name = requestPath.substring(prefix.length());
+    Path file = root.resolve(name).normalize();
+    // never serve anything outside of the root directory, or the gzipped variants directly
+    if (name.isEmpty() || !file.startsWith(root) || name.endsWith(".gz"))
+      return null;
+    Asset asset = assets.get(name);
+    if (asset == null || !Files.isRegularFile(file)
+        || !Files.getLastModifiedTime(file).equals(asset.modified))
+      asset = index(name, file);
+    return asset;
+  }
+
+  // writes a variant from its mapped buffer, or streams it with transferTo when it is not mapped
+  private static void writeBody(Variant variant, WritableByteChannel out) throws IOException {
+    if (variant.mapped != null) {
+      ByteBuffer buffer = variant.mapped.duplicate();
+      while (buffer.hasRemaining())
+        out.write(buffer);
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(variant.path, StandardOpenOption.READ)) {
+      long position = 0;
+      while (position < variant.size)
+        position += channel.transferTo(position, variant.size - position, out);
+    }
+  }
+
+  private static boolean matches(String ifNoneMatch, String etag) {
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.equals("*") || candidate.equals(etag))
+        return true;
+    }
+    return false;
+  }
+
+  private static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+    exchange.sendResponseHeaders(status, -1);
+    exchange.close();
+  }
+
+  // guesses the content type of a file from its extension
+  private static String contentType(String name) {
+    String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    switch (extension) {
+      case "html":
+      case "htm":
+        return "text/html; charset=utf-8";
+      case "css":
+        return "text/css; charset=utf-8";
+      case "js":
+        return "text/javascript; charset=utf-8";
+      case "json":
+        return "application/json";
+      case "svg":
+        return "image/svg+xml";
+      case "png":
+        return "image/png";
+      case "jpg":
+      case "jpeg":
+        return "image/jpeg";
+      case "gif":
+        return "image/gif";
+      case "webp":
+        return "image/webp";
+      case "ico":
+        return "image/x-icon";
+      case "txt":
+        return "text/plain; charset=utf-8";
+      default:
+        return "application/octet-stream";
+    }
+  }
+
+  // checks whether a content type compresses well enough to keep a gzipped variant
+  private static boolean isCompressible(String contentType) {
+    return contentType.startsWith("text/") || contentType.startsWith("application/json")
+        || contentType.startsWith("image/svg");
+  }
+}
@@ -0,0 +1,281 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A TravelTimeProfile gives the walking time of a walkway at every time of day, for walkways that
+ * are crowded at class changes or closed after hours. It is given by breakpoints: times of day
+ * with the walking time at each of them. Between two breakpoints the walking time either stays at
+ * the earlier breakpoint's time (time-bucketed) or changes linearly to the later one's
+ * (piecewise-linear), and the last breakpoint continues into the first one of the next day. A
+ * walking time can be infinite for a walkway that is closed.
+ *
+ * Walkers may wait before setting out, so the arrival time of a walkway is the earliest arrival of
+ * setting out at the departure time or at any later time. This makes arrival times FIFO: leaving
+ * later never arrives earlier, even when the walking time drops faster than time passes, so a
+ * time-dependent Dijkstra search stays exact. The earliest arrival from waiting is always at a
+ * breakpoint, so it is precomputed for each breakpoint as the minimum over the breakpoints that
+ * follow it.
+ *
+ * A profile is stored in a single double[], so that a graph can pack the profiles of all of its
+ * edges one after another into one array and look them up by offset: [breakpoint count, 1 if
+ * linear else 0, breakpoint times, walking times, earliest arrivals from each breakpoint onward].
+ */
+public class TravelTimeProfile {
+
+  // length of the period that profiles repeat over, in seconds
+  public static final double DAY = 24 * 60 * 60;
+
+  // layout of the packed array, relative to its offset
+  private static final int COUNT = 0, LINEAR = 1, TIMES = 2;
+
+  private final double[] packed;
+
+  /**
+   * Constructor for a profile over the provided breakpoints.
+   *
+   * @param times   the times of day of the breakpoints, in seconds since midnight, increasing
+   * @param seconds the walking time at each breakpoint, which is positive, or infinite for closed
+   * @param linear  true to interpolate linearly between breakpoints, or false to keep the walking
+   *                time of the earlier breakpoint until the next one
+   * @throws IllegalArgumentException if there are no breakpoints, the times are not increasing
+   *                                  times of day, or a walking time is not positive
+   */
+  public TravelTimeProfile(double[] times, double[] seconds, boolean linear) {
+    int k = times.length;
+    if (k == 0 || seconds.length != k)
+      throw new IllegalArgumentException("A profile needs a walking time for every breakpoint");
+    boolean open = false;
+    for (int i = 0; i < k; i++) {
+      if (!(times[i] >= 0 && times[i] < DAY) || (i > 0 && times[i] <= times[i - 1]))
+        throw new IllegalArgumentException("Breakpoint times must increase within one day");
+      if (!(seconds[i] > 0))
+        throw new IllegalArgumentException("Walking times must be positive");
+      open |= seconds[i] < Double.POSITIVE_INFINITY;
+    }
+    if (!open)
+      throw new IllegalArgumentException("A profile must be open at some time of day");
+    packed = new double[size(k)];
+    packed[COUNT] = k;
+    packed[LINEAR] = linear ? 1 : 0;
+    System.arraycopy(times, 0, packed, TIMES, k);
+    System.arraycopy(seconds, 0, packed, TIMES + k, k);
+    // the earliest arrival from setting out at breakpoint j or any later one, over two days so
+    // that the breakpoints after the last one of a day can be read straight on
+    int best = TIMES + 2 * k;
+    packed[best + 2 * k] = Double.POSITIVE_INFINITY;
+    for (int j = 2 * k - 1; j >= 0; j--) {
+      double arrival = times[j % k] + (j < k ? 0 : DAY) + seconds[j % k];
+      packed[best + j] = Math.min(arrival, packed[best + j + 1]);
+    }
+  }
+
+  // wraps an already packed profile
+  private TravelTimeProfile(double[] packed) {
+    this.packed = packed;
+  }
+
+  /**
+   * Parses a profile from its text form: a list of time=seconds breakpoints separated by spaces or
+   * commas, such as "7:50=240, 8:05=105.8, 22:00=closed", where each time of day is H:MM or
+   * H:MM:SS and closed stands for an infinite walking time. The list may start with "step" (the
+   * default) for a time-bucketed profile or "linear" for a piecewise-linear one.
+   *
+   * @param text the text form of the profile
+   * @return the profile
+   * @throws IllegalArgumentException if the text is not a valid profile
+   */
+  public static TravelTimeProfile parse(String text) {
+    List<String> tokens = new ArrayList<>(Arrays.asList(text.trim().split("[\\s,]+")));
+    boolean linear = false;
+    if (!tokens.isEmpty() && (tokens.get(0).equals("linear") || tokens.get(0).equals("step")))
+      linear = tokens.remove(0).equals("linear");
+    tokens.remove("");
+    double[] times = new double[tokens.size()];
+    double[] seconds = new double[tokens.size()];
+    for (int i = 0; i < tokens.size(); i++) {
+      String token = tokens.get(i);
+      int equals = token.indexOf('=');
+      if (equals < 0)
+        throw new IllegalArgumentException("Expected time=seconds but found " + token);
+      times[i] = parseTimeOfDay(token.substring(0, equals));
+      String value = token.substring(equals + 1);
+      try {
+        seconds[i] = value.equals("closed") ? Double.POSITIVE_INFINITY : Double.parseDouble(value);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid walking time: " + value);
+      }
+    }
+    return new TravelTimeProfile(times, seconds, linear);
+  }
+
+  // parses H:MM or H:MM:SS into seconds since midnight
+  private static double parseTimeOfDay(String text) {
+    String[] parts = text.split(":");
+    try {
+      if (parts.length == 2 || parts.length == 3) {
+        int hours = Integer.parseInt(parts[0]);
+        int minutes = Integer.parseInt(parts[1]);
+        double secs = parts.length == 3 ? Double.parseDouble(parts[2]) : 0;
+        if (minutes >= 0 && minutes < 60 && secs >= 0 && secs < 60)
+          return hours * 3600 + minutes * 60 + secs;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException("Invalid time of day: " + text);
+  }
+
+  /**
+   * Retrieves the walking time when setting out at the provided time, without waiting.
+   *
+   * @param departure the time to set out at, in seconds since midnight of any day
+   * @return the walking time in seconds, which is infinite if the walkway is closed then
+   */
+  public double walkingTime(double departure) {
+    return walkingTime(packed, 0, departure);
+  }
+
+  /**
+   * Retrieves the earliest arrival time at the end of the walkway for walkers who reach its start
+   * at the provided time, and may wait there before setting out.
+   *
+   * @param departure the time to reach the start of the walkway, in seconds since midnight of any
+   *                  day
+   * @return the earliest arrival time, in the same seconds as departure
+   */
+  public double arrival(double departure) {
+    return arrival(packed, 0, departure);
+  }
+
+  /**
+   * Retrieves the earliest arrival time from a profile that is packed into an array.
+   *
+   * @param data      the array holding the packed profile
+   * @param offset    the index in data where the profile starts
+   * @param departure the time to reach the start of the walkway, in seconds since midnight of any
+   *                  day
+   * @return the earliest arrival time, in the same seconds as departure
+   */
+  static double arrival(double[] data, int offset, double departure) {
+    int k = (int) data[offset + COUNT];
+    double day = Math.floor(departure / DAY) * DAY;
+    int i = lastBreakpoint(data, offset, departure - day);
+    double waiting = day + data[offset + TIMES + 2 * k + i + 1];
+    return Math.min(departure + walkingTime(data, offset, departure), waiting);
+  }
+
+  /**
+   * Retrieves the walking time from a profile that is packed into an array, without waiting.
+   *
+   * @param data      the array holding the packed profile
+   * @param offset    the index in data where the profile starts
+   * @param departure the time to set out at, in seconds since midnight of any day
+   * @return the walking time in seconds
+   */
+  static double walkingTime(double[] data, int offset, double departure) {
+    int k = (int) data[offset + COUNT];
+    int times = offset + TIMES;
+    int seconds = times + k;
+    double t = departure - Math.floor(departure / DAY) * DAY;
+    int i = lastBreakpoint(data, offset, t);
+    // before the first breakpoint of a day, the last one of the day before still holds
+    int from = i < 0 ? k - 1 : i;
+    if (data[offset + LINEAR] == 0 || k == 1)
+      return data[seconds + from];
+    int to = (from + 1) % k;
+    double fromTime = data[times + from] - (i < 0 ? DAY : 0);
+    double toTime = data[times + to] + (to <= from && i >= 0 ? DAY : 0);
+    double fromSeconds = data[seconds + from];
+    double toSeconds = data[seconds + to];
+    // next to a closed breakpoint a walkway is closed, except right at its open breakpoint
+    if (t == fromTime)
+      return fromSeconds;
+    if (fromSeconds == Double.POSITIVE_INFINITY || toSeconds == Double.POSITIVE_INFINITY)
+      return Double.POSITIVE_INFINITY;
+    return fromSeconds + (toSeconds - fromSeconds) * (t - fromTime) / (toTime - fromTime);
+  }
+
+  // the index of the last breakpoint at or before a time of day, or -1 if it is before all of them
+  private static int lastBreakpoint(double[] data, int offset, double timeOfDay) {
+    int times = offset + TIMES;
+    int low = -1;
+    int high = (int) data[offset + COUNT] - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >> 1;
+      if (data[times + middle] <= timeOfDay)
+        low = middle;
+      else
+        high = middle - 1;
+    }
+    return low;
+  }
+
+  // the length of the packed array of a profile with k breakpoints
+  private static int size(int k) {
+    return TIMES + 2 * k + 2 * k + 1;
+  }
+
+  /**
+   * Retrieves the length of this profile's packed array.
+   *
+   * @return the number of doubles that copyTo writes
+   */
+  int packedSize() {
+    return packed.length;
+  }
+
+  /**
+   * Copies this profile's packed array into another array.
+   *
+   * @param data   the array to copy into
+   * @param offset the index in data to copy to
+   */
+  void copyTo(double[] data, int offset) {
+    System.arraycopy(packed, 0, data, offset, packed.length);
+  }
+
+  /**
+   * Reads a profile back out of an array that it was packed into.
+   *
+   * @param data   the array holding the packed profile
+   * @param offset the index in data where the profile starts
+   * @return a copy of the profile
+   */
+  static TravelTimeProfile unpack(double[] data, int offset) {
+    int k = (int) data[offset + COUNT];
+    return new TravelTimeProfile(Arrays.copyOfRange(data, offset, offset + size(k)));
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof TravelTimeProfile
+        && Arrays.equals(packed, ((TravelTimeProfile) other).packed);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(packed);
+  }
+
+  /**
+   * Formats this profile in the text form that parse reads.
+   *
+   * @return the text form of this profile
+   */
+  @Override
+  public String toString() {
+    int k = (int) packed[COUNT];
+    StringBuilder text = new StringBuilder(packed[LINEAR] == 0 ? "step" : "linear");
+    for (int i = 0; i < k; i++) {
+      long time = Math.round(packed[TIMES + i]);
+      double seconds = packed[TIMES + k + i];
+      text.append(' ').append(time / 3600).append(':');
+      text.append(String.format("%02d", time / 60 % 60));
+      if (time % 60 != 0)
+        text.append(':').append(String.format("%02d", time % 60));
+      text.append('=').append(seconds == Double.POSITIVE_INFINITY ? "closed" : seconds);
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,173 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * A WarmUp replays a mix of queries against a freshly loaded graph until the time that they take
+ * stops improving, so that the searches, hash table lookups and html rendering are compiled by the
+ * JIT before real requests arrive. Queries are run in rounds, and warm-up finishes once the median
+ * query latency of STABLE_ROUNDS consecutive rounds has changed by less than TOLERANCE from the
+ * round before, or as soon as the time limit is reached.
+ *
+ * The query mix is either recorded (one query string such as "start=A&end=B" per line of a file,
+ * encoded the way it appears in a URL) or synthetic: random shortest path and furthest destination
+ * queries between known locations.
+ * The queries can be sent over HTTP to the server that is warming up, so that its request
+ * handling, page rendering and response writing are compiled along with the searches.
+ */
+public class WarmUp {
+
+  // number of queries in each round
+  public static final int ROUND_SIZE = 200;
+  // number of consecutive rounds that must agree before latency counts as stable
+  public static final int STABLE_ROUNDS = 3;
+  // largest relative change in median latency between two rounds that counts as stable
+  public static final double TOLERANCE = 0.10;
+
+  private final List<String> queries;
+  private final Consumer<String> runner;
+
+  /**
+   * Constructor for a warm-up that replays the provided queries.
+   *
+   * @param queries the query strings to replay, in order and repeatedly
+   * @param runner  answers one query string the way a real request would be answered
+   */
+  public WarmUp(List<String> queries, Consumer<String> runner) {
+    if (queries.isEmpty())
+      throw new IllegalArgumentException("A warm-up needs at least one query");
+    this.queries = queries;
+    this.runner = runner;
+  }
+
+  /**
+   * Creates a synthetic query mix of shortest path queries between random pairs of locations, with
+   * one furthest destination query for every nine of them, with the location names encoded.
+   *
+   * @param locations the locations to pick start and end points from
+   * @param count     the number of queries to create
+   * @param seed      the seed of the random choices, so that the same mix is replayed every time
+   * @return the query strings
+   */
+  public static List<String> syntheticQueries(List<String> locations, int count, long seed) {
+    List<String> queries = new ArrayList<>();
+    if (locations.isEmpty())
+      return queries;
+    Random random = new Random(seed);
+    for (int i = 0; i < count; i++) {
+      String start = encode(locations.get(random.nextInt(locations.size())));
+      if (i % 10 == 9)
+        queries.add("from=" + start);
+      else
+        queries.add("start=" + start + "&end="
+            + encode(locations.get(random.nextInt(locations.size()))));
+    }
+    return queries;
+  }
+
+  // encodes a location name as a query string value, since names contain spaces, ampersands and
+  // other reserved characters
+  private static String encode(String value) {
+    return URLEncoder.encode(value, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads a recorded query mix, with one query string on every line. Blank lines and lines that
+   * start with # are skipped.
+   *
+   * @param file the file of recorded queries
+   * @return the query strings
+   * @throws IOException if the file cannot be read
+   */
+  public static List<String> recordedQueries(Path file) throws IOException {
+    List<String> queries = new ArrayList<>();
+    for (String line : Files.readAllLines(file)) {
+      line = line.trim();
+      if (!line.isEmpty() && !line.startsWith("#"))
+        queries.add(line);
+    }
+    return queries;
+  }
+
+  /**
+   * Creates a runner that sends every query as a request for the page at base and reads the whole
+   * response, whatever its status, the way a browser would.
+   *
+   * @param base    the server's address, such as http://localhost:8080
+   * @param timeout how long to wait for each response
+   * @return the runner, which throws an UncheckedIOException when a request cannot be sent
+   */
+  public static Consumer<String> overHttp(URI base, Duration timeout) {
+    HttpClient client = HttpClient.newBuilder().connectTimeout(timeout)
+        .version(HttpClient.Version.HTTP_1_1).build();
+    return query -> {
+      HttpRequest request =
+          HttpRequest.newBuilder(base.resolve("/?" + query)).timeout(timeout).GET().build();
+      try {
+        client.send(request, HttpResponse.BodyHandlers.discarding());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while warming up", e);
+      }
+    };
+  }
+
+  /**
+   * Replays the query mix in rounds until latency is stable or the time limit is reached. The
+   * limit is checked before every query, so warm-up stops part way through a round once it is
+   * reached, and that last round is not counted. Queries that throw are counted like any other,
+   * since failing requests need to be fast too.
+   *
+   * @param maxMillis the longest time to spend warming up
+   * @return the number of complete rounds that were run
+   */
+  public int run(long maxMillis) {
+    long stopNanos = System.nanoTime() + maxMillis * 1_000_000;
+    long[] latencies = new long[ROUND_SIZE];
+    int next = 0;
+    int rounds = 0;
+    int stableRounds = 0;
+    double previousMedian = -1;
+    while (true) {
+      for (int i = 0; i < ROUND_SIZE; i++) {
+        if (System.nanoTime() >= stopNanos)
+          return rounds;
+        String query = queries.get(next);
+        next = (next + 1) % queries.size();
+        long startNanos = System.nanoTime();
+        try {
+          runner.accept(query);
+        } catch (RuntimeException e) {
+          // unknown locations are part of a realistic mix
+        }
+        latencies[i] = System.nanoTime() - startNanos;
+      }
+      rounds++;
+      Arrays.sort(latencies);
+      double median = latencies[ROUND_SIZE / 2];
+      if (previousMedian > 0 && Math.abs(median - previousMedian) <= TOLERANCE * previousMedian)
+        stableRounds++;
+      else
+        stableRounds = 0;
+      if (stableRounds >= STABLE_ROUNDS)
+        break;
+      previousMedian = median;
+    }
+    return rounds;
+  }
+}
@@ -1,4 +1,5 @@
 import java.net.InetSocketAddress;
+import java.net.URI;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import com.sun.net.httpserver.HttpHandler;
@@ -7,10 +8,15 @@ import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpExchange;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.File;
-import java.util.Scanner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -25,15 +31,100 @@ import java.util.stream.Stream;
  * handles this Then visit through browser via https://cs400-web.cs.wisc.edu/CS_LOGIN/
  */
 public class WebApp {
+
+  // maximum time in milliseconds that one query may search the graph for, configured with
+  // -Dcampus.maxQueryMillis=N when starting the server (0 disables the limit)
+  private static final long MAX_QUERY_MILLIS = Long.getLong("campus.maxQueryMillis", 2000);
+  // time in milliseconds that the itinerary heuristic may spend ordering a long list of stops,
+  // on top of the searches between them, configured with -Dcampus.solverMillis=N
+  private static final long SOLVER_MILLIS = Long.getLong("campus.solverMillis", 100);
+  // order that locations are renumbered in for the compact snapshots of the graph, configured
+  // with -Dcampus.nodeOrdering=BFS, DFS, REVERSE_CUTHILL_MCKEE or PARTITION (NONE by default)
+  private static final NodeOrdering.Strategy NODE_ORDERING = NodeOrdering.Strategy
+      .valueOf(System.getProperty("campus.nodeOrdering", "NONE"));
+
+  // admission control settings: the most searches that may run at once, how many more requests
+  // may wait for a turn, how long they may wait, the search latency that the adaptive limit aims
+  // for, and the number of seconds clients are asked to wait before retrying a shed request
+  private static final int MAX_CONCURRENT_SEARCHES = Integer
+      .getInteger("campus.maxConcurrentSearches", 2 * Runtime.getRuntime().availableProcessors());
+  private static final int SEARCH_QUEUE_SIZE = Integer.getInteger("campus.searchQueueSize", 32);
+  private static final long MAX_QUEUE_WAIT_MILLIS = Long.getLong("campus.maxQueueWaitMillis", 1000);
+  private static final long TARGET_LATENCY_MILLIS = Long.getLong("campus.targetLatencyMillis", 250);
+  private static final int RETRY_AFTER_SECONDS = Integer.getInteger("campus.retryAfterSeconds", 1);
+
+  // path of the Unix domain socket that the daemon listens on, and that single responses are
+  // forwarded to when a daemon is running
+  private static final Path DAEMON_SOCKET =
+      Path.of(System.getProperty("campus.socket", "./campus.sock"));
+
+  // directory of static assets served under /static/, and how many seconds browsers may cache them
+  private static final Path STATIC_DIR =
+      Path.of(System.getProperty("campus.staticDir", "./static"));
+  private static final long STATIC_MAX_AGE = Long.getLong("campus.staticMaxAgeSeconds", 3600);
+  // the page template, configured with -Dcampus.template=path, which is read again only when the
+  // file changes
+  private static final Path TEMPLATE = Path.of(System.getProperty("campus.template",
+      "template.html"));
+  private static String templateHTML = null;
+  private static final MetricsRegistry.Counter TEMPLATE_HITS =
+      MetricsRegistry.getDefault().cacheRequests("template", true);
+  private static final MetricsRegistry.Counter TEMPLATE_MISSES =
+      MetricsRegistry.getDefault().cacheRequests("template", false);
+  private static FileTime templateModified = null;
+
+  // binary graph file compiled from campus.dot, which is mapped instead of parsing campus.dot when
+  // it is configured with -Dcampus.graphFile=campus.bin (and recompiled whenever it is stale)
+  private static final String GRAPH_FILE = System.getProperty("campus.graphFile");
+  // answer shortest paths from a contraction hierarchy of the graph, built once at startup, when
+  // it is enabled with -Dcampus.contractionHierarchy=true
+  private static final boolean CONTRACTION_HIERARCHY =
+      Boolean.getBoolean("campus.contractionHierarchy");
+  // answer shortest paths from a multi-level overlay with these cell sizes when they are set, such
+  // as -Dcampus.overlayCellSizes=256,4096,65536, keeping at most campus.overlayMaxCells cells in
+  // memory (0 keeps them all). the partition and the cells are saved next to the graph file
+  private static final String OVERLAY_CELL_SIZES = System.getProperty("campus.overlayCellSizes");
+  private static final int OVERLAY_MAX_CELLS = Integer.getInteger("campus.overlayMaxCells", 0);
+
+  // "/metrics" and "/admission" report internal counters, so they are answered by a separate
+  // listener on -Dcampus.metricsPort (9091 by default, or -1 for none) that only accepts
+  // connections from this machine unless -Dcampus.metricsHost names another interface
+  private static final String METRICS_HOST = System.getProperty("campus.metricsHost", "127.0.0.1");
+  private static final int METRICS_PORT = Integer.getInteger("campus.metricsPort", 9091);
+
+  // longest time in milliseconds to spend warming up before reporting ready (0 skips warm-up),
+  // and an optional file of recorded query strings to replay instead of a synthetic mix
+  private static final long WARMUP_MILLIS = Long.getLong("campus.warmupMillis", 30000);
+  private static final String WARMUP_QUERIES = System.getProperty("campus.warmupQueries");
+  // set once warm-up has finished, reported by the "/ready" context
+  private static volatile boolean ready = false;
+
+  // the backend and frontend shared by all requests to a running server, loaded once at startup
+  private static BackendInterface sharedBackend = null;
+  private static FrontendInterface sharedFrontend = null;
+  // limits the number of searches running at once, and sheds requests when overloaded
+  private static AdmissionController admission = new AdmissionController(MAX_CONCURRENT_SEARCHES,
+      1, MAX_CONCURRENT_SEARCHES, SEARCH_QUEUE_SIZE, TARGET_LATENCY_MILLIS);
+
   public static void main(String[] args) throws IOException {
     // expects the port number as a command line argument to this program
     // or if a non-numeric argument is passed treat this like the query
     // part of a requst URI and display response through standard out
+    // or if --daemon is passed keep the graph loaded and answer queries
+    // forwarded over a unix domain socket (optionally passed as well)
+    if (args.length == 2 && args[0].equals("--daemon")) {
+      runDaemon(Path.of(args[1]));
+      return;
+    }
     if (args.length != 1) {
       throw new IllegalArgumentException("You must pass a command line"
           + " argument representing the port that this servers should be"
           + " bound to when running this program.  Or a Query string.");
     }
+    if (args[0].equals("--daemon")) {
+      runDaemon(DAEMON_SOCKET);
+      return;
+    }
     int portNumber = -1;
     try {
       portNumber = Integer.parseInt(args[0]);
@@ -45,29 +136,161 @@ public class WebApp {
       return;
     }
 
+    // load the graph once, so that requests only pay for their own searches
+    BackendInterface backend = createWorkingBackend("./campus.dot");
+    if (backend.getLastLoadReport() != null)
+      System.out.println(backend.getLastLoadReport());
+    loadArtifacts(backend, Path.of("./campus.dot"));
+
     // configure and start server on this port, responding in this way
-    InetSocketAddress address = new InetSocketAddress(portNumber);
-    HttpServer server = HttpServer.create(address, 8);
-    HttpContext context = server.createContext("/");
-    context.setHandler(WebApp::requestHandler);
+    HttpServer server = createServer(new InetSocketAddress(portNumber), backend);
+    registerServerMetrics();
+    if (METRICS_PORT >= 0) {
+      HttpServer metricsServer = createMetricsServer(new InetSocketAddress(METRICS_HOST,
+          METRICS_PORT));
+      metricsServer.start();
+      System.out.println("Serving metrics on " + metricsServer.getAddress());
+    }
     System.out.println("Starting Campus Navigator Server...");
     server.start();
+    warmUp(backend, WarmUp.overHttp(URI.create("http://localhost:" + portNumber),
+        Duration.ofSeconds(10)));
+  }
+
+  /**
+   * Creates the server that answers page, API, static file and readiness requests from the
+   * provided backend, which every request shares. Metrics are answered by createMetricsServer
+   * instead. The server is not started.
+   * 
+   * @param address the address to listen on, where port 0 picks a free port
+   * @param backend the backend with the graph loaded
+   * @return the server, ready to be started
+   * @throws IOException if the address cannot be bound, or the static files cannot be indexed
+   */
+  static HttpServer createServer(InetSocketAddress address, BackendInterface backend)
+      throws IOException {
+    sharedBackend = backend;
+    sharedFrontend = new Frontend(backend);
+    ApiHandler api = new ApiHandler(backend, admission, MAX_QUEUE_WAIT_MILLIS, RETRY_AFTER_SECONDS);
+    HttpServer server = HttpServer.create(address, 8);
+    route(server, "/", WebApp::requestHandler);
+    route(server, "/api/path", api::handlePath);
+    route(server, "/api/furthest", api::handleFurthest);
+    route(server, "/api/locations", api::handleLocations);
+    route(server, "/api/reachable", api::handleReachable);
+    route(server, "/api/nearest", api::handleNearest);
+    route(server, "/api/itinerary", api::handleItinerary);
+    route(server, "/api/bottlenecks", api::handleBottlenecks);
+    StaticFileHandler assets = new StaticFileHandler(STATIC_DIR, "/static/", STATIC_MAX_AGE);
+    System.out.println("Indexed " + assets.indexAll() + " static files in " + STATIC_DIR);
+    route(server, "/static/", assets::handle);
+    route(server, "/ready", WebApp::readyHandler);
+    // these are answered by the metrics server, and would otherwise be taken for page requests
+    route(server, "/metrics", WebApp::notFoundHandler);
+    route(server, "/admission", WebApp::notFoundHandler);
+    // enough threads for every running and queued search, plus a few to answer shed requests.
+    // they are daemon threads, so that a stopped server does not keep the JVM running
+    server.setExecutor(Executors.newFixedThreadPool(MAX_CONCURRENT_SEARCHES + SEARCH_QUEUE_SIZE + 4,
+        task -> {
+          Thread thread = new Thread(task, "campus-http");
+          thread.setDaemon(true);
+          return thread;
+        }));
+    return server;
+  }
+
+  /**
+   * Creates the server that answers "/metrics" and "/admission", which report internal counters
+   * and so are kept off the public port. The server is not started.
+   * 
+   * @param address the address to listen on, usually a loopback address
+   * @return the server, ready to be started
+   * @throws IOException if the address cannot be bound
+   */
+  static HttpServer createMetricsServer(InetSocketAddress address) throws IOException {
+    HttpServer server = HttpServer.create(address, 0);
+    server.createContext("/metrics", WebApp::metricsHandler);
+    server.createContext("/admission", WebApp::admissionHandler);
+    return server;
+  }
+
+  // creates a context that answers requests with the handler, and records the
+  // latency and status of every request to it
+  private static void route(HttpServer server, String path, HttpHandler handler) {
+    HttpContext context = server.createContext(path, handler);
+    context.getFilters().add(new RequestMetricsFilter(MetricsRegistry.getDefault(), path));
+  }
+
+  // registers the metrics that are read from the shared backend and admission controller
+  private static void registerServerMetrics() {
+    MetricsRegistry metrics = MetricsRegistry.getDefault();
+    metrics.gauge("campus_graph_nodes", "Locations in the loaded graph.",
+        () -> sharedBackend.getLastLoadReport() == null ? 0
+            : sharedBackend.getLastLoadReport().getNodes());
+    metrics.gauge("campus_graph_arcs", "Arcs read when the graph was loaded.",
+        () -> sharedBackend.getLastLoadReport() == null ? 0
+            : sharedBackend.getLastLoadReport().getArcs());
+    metrics.gauge("campus_admission_limit", "Searches that may currently run at once.",
+        admission::getLimit);
+    metrics.gauge("campus_admission_in_flight", "Searches running now.", admission::getInFlight);
+    metrics.gauge("campus_admission_queue_length", "Searches waiting to be admitted.",
+        admission::getQueueLength);
+    metrics.counter("campus_admission_requests_total", "Search requests, by how they were admitted.",
+        admission::getAcceptedCount, "result", "accepted");
+    metrics.counter("campus_admission_requests_total", "Search requests, by how they were admitted.",
+        admission::getQueuedCount, "result", "queued");
+    metrics.counter("campus_admission_requests_total", "Search requests, by how they were admitted.",
+        admission::getShedCount, "result", "shed");
+    metrics.gauge("campus_ready", "1 once warm-up has finished.", () -> ready ? 1 : 0);
+  }
+
+  // http request handler for the context "/metrics", reports all metrics in the
+  // prometheus text format
+  public static void metricsHandler(HttpExchange exchange) {
+    try {
+      byte[] bytes = MetricsRegistry.getDefault().toPrometheus().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+      exchange.sendResponseHeaders(200, bytes.length);
+      OutputStream out = exchange.getResponseBody();
+      out.write(bytes);
+      out.close();
+    } catch (IOException e) {
+      RequestLog.getDefault().error("Exception Thrown: " + e.toString(), e);
+    }
   }
 
   // http request handler handler for the context "/"
   public static void requestHandler(HttpExchange exchange) {
+    RenderEvent event = new RenderEvent();
+    event.begin();
     try {
-      // extract the query (part of URI after?) part of URI
-      String query = exchange.getRequestURI().getQuery();
-      System.out.println("Received Request with query: " + query);
       // extract argument key-value pairs from request query
-      Map<String, String> keyValuePairs = parseQuery(exchange.getRequestURI().getQuery());
-      System.out.println("Query includes args: " + keyValuePairs);
+      Map<String, String> keyValuePairs = parseQuery(exchange.getRequestURI().getRawQuery());
+      // only a sample of requests is logged, from a background thread
+      RequestLog.getDefault().info("Received Request with args: " + keyValuePairs);
 
-      // create backend and frontend objects to respond to this request
-      FrontendInterface frontend = createWorkingFrontend("./campus.dot");
+      // use the shared backend and frontend objects to respond to this request
+      FrontendInterface frontend = sharedFrontend;
+      if (frontend == null)
+        frontend = createWorkingFrontend("./campus.dot");
+      // only requests that search the graph need to be admitted
+      AdmissionController.Permit permit = null;
+      if (isSearchRequest(keyValuePairs)) {
+        permit = admission.tryAcquire(MAX_QUEUE_WAIT_MILLIS);
+        if (permit == null) {
+          sendOverloaded(exchange);
+          event.finish(exchange.getRequestURI().getQuery(), 503, 0);
+          return;
+        }
+      }
       // compute answer to user's requested problem based on query args:
-      String response = generateResponseHTML(keyValuePairs, frontend);
+      String response;
+      try {
+        response = generateResponseHTML(keyValuePairs, frontend);
+      } finally {
+        if (permit != null)
+          permit.release();
+      }
       // generate HTML prompts for user for make next requests
       String prompts = generatePromptHTML(frontend);
       // compose response and prompts into a complete html template
@@ -79,22 +302,102 @@ public class WebApp {
       OutputStream out = exchange.getResponseBody();
       out.write(bytes);
       out.close();
+      event.finish(exchange.getRequestURI().getQuery(), 200, bytes.length);
 
       // unless something goes wrong, in which case report problem
     } catch (Exception e) {
-      System.out.println("Here");
-      System.out.println("Exception Thrown: " + e.toString());
-      e.printStackTrace();
+      RequestLog.getDefault().error("Exception Thrown: " + e.toString(), e);
       // attempt to send 500 Server Error Response to client
       try {
         exchange.sendResponseHeaders(500, -1);
       } catch (IOException i) {
       } // do nothing when this fails
+      event.finish(exchange.getRequestURI().getQuery(), 500, 0);
+    }
+  }
+
+  // http request handler for paths that are not served on this port, answers 404 Not Found
+  private static void notFoundHandler(HttpExchange exchange) {
+    try {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    } catch (IOException e) {
+      RequestLog.getDefault().error("Exception Thrown: " + e.toString(), e);
+    }
+  }
+
+  // http request handler for the context "/admission", reports the admission control counters
+  public static void admissionHandler(HttpExchange exchange) {
+    try {
+      byte[] bytes = admission.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+      exchange.sendResponseHeaders(200, bytes.length);
+      OutputStream out = exchange.getResponseBody();
+      out.write(bytes);
+      out.close();
+    } catch (IOException e) {
+      RequestLog.getDefault().error("Exception Thrown: " + e.toString(), e);
+    }
+  }
+
+  // http request handler for the context "/ready", which answers 503 Service Unavailable until
+  // warm-up has finished, so that load balancers only send traffic to warm servers
+  public static void readyHandler(HttpExchange exchange) {
+    try {
+      byte[] bytes = (ready ? "ready\n" : "warming up\n").getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+      exchange.sendResponseHeaders(ready ? 200 : 503, bytes.length);
+      OutputStream out = exchange.getResponseBody();
+      out.write(bytes);
+      out.close();
+    } catch (IOException e) {
+      RequestLog.getDefault().error("Exception Thrown: " + e.toString(), e);
     }
   }
 
-  // reads key value pairs from the query string of a URI into a map
-  private static Map<String, String> parseQuery(String query) {
+  // replays the recorded or a synthetic query mix through the runner, which answers them the way
+  // real requests are answered (over http by a server, so that the request handling and page
+  // rendering warm up along with the searches), until its latency stops improving, and then
+  // reports ready. warm-up requests are admitted and counted in the metrics like any others
+  private static void warmUp(BackendInterface backend, Consumer<String> runner) {
+    if (WARMUP_MILLIS <= 0) {
+      ready = true;
+      return;
+    }
+    List<String> queries;
+    try {
+      queries = WARMUP_QUERIES != null ? WarmUp.recordedQueries(Path.of(WARMUP_QUERIES))
+          : WarmUp.syntheticQueries(backend.getListOfAllLocations(), 1000, 42);
+    } catch (IOException e) {
+      System.out.println("Could not read warm-up queries: " + e.getMessage());
+      queries = List.of();
+    }
+    if (!queries.isEmpty()) {
+      long startNanos = System.nanoTime();
+      int rounds = new WarmUp(queries, runner).run(WARMUP_MILLIS);
+      System.out.println("Warmed up with " + rounds + " rounds of queries in "
+          + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+    }
+    ready = true;
+  }
+
+  // checks whether a request asks for a computation that searches the graph
+  private static boolean isSearchRequest(Map<String, String> keyValuePairs) {
+    return (keyValuePairs.containsKey("start") && keyValuePairs.containsKey("end"))
+        || keyValuePairs.containsKey("from") || keyValuePairs.containsKey("around")
+        || keyValuePairs.containsKey("group");
+  }
+
+  // answers a shed request with 503 Service Unavailable and asks the client to retry later
+  private static void sendOverloaded(HttpExchange exchange) throws IOException {
+    exchange.getResponseHeaders().set("Retry-After", Integer.toString(RETRY_AFTER_SECONDS));
+    exchange.sendResponseHeaders(503, -1);
+    exchange.close();
+  }
+
+  // reads key value pairs from the raw query string of a URI into a map, decoding each key and
+  // value only after splitting, so that an encoded & or = inside a location name stays in it
+  static Map<String, String> parseQuery(String query) {
     HashMap<String, String> map = new HashMap<>();
     if (query != null && query.contains("="))
       Stream.of(query.split("&")).forEach(arg -> {
@@ -102,18 +405,179 @@ public class WebApp {
         if (pair.length != 2)
           throw new IllegalArgumentException("Unable to split " + "arg: " + arg
               + " into a key value pair around a " + "single = delimiter.");
-        map.put(pair[0], pair[1]);
+        map.put(URLDecoder.decode(pair[0], StandardCharsets.UTF_8),
+            URLDecoder.decode(pair[1], StandardCharsets.UTF_8));
       });
     return map;
   }
 
   // creates a working Frontend, Backend, DijkstraGraph, and HashtableMap
   private static FrontendInterface createWorkingFrontend(String filename) throws IOException {
+    FrontendInterface frontend = new Frontend(createWorkingBackend(filename));
+    return frontend;
+  }
+
+  // creates a working Backend, DijkstraGraph, and HashtableMap, or a Backend
+  // over the mapped binary graph file when one is configured
+  private static BackendInterface createWorkingBackend(String filename) throws IOException {
+    if (GRAPH_FILE != null) {
+      BackendInterface backend =
+          new Backend(openGraphFile(Path.of(filename), Path.of(GRAPH_FILE)));
+      backend.setQueryTimeout(MAX_QUERY_MILLIS);
+      backend.setItinerarySolverTime(SOLVER_MILLIS);
+      backend.setNodeOrdering(NODE_ORDERING);
+      installContractionHierarchy(backend, Path.of(filename));
+      installOverlayGraph(backend, Path.of(filename));
+      return backend;
+    }
     GraphADT<String, Double> graph = new DijkstraGraph<>();
     BackendInterface backend = new Backend(graph);
     backend.loadGraphData(filename);
-    FrontendInterface frontend = new Frontend(backend);
-    return frontend;
+    backend.setQueryTimeout(MAX_QUERY_MILLIS);
+    backend.setItinerarySolverTime(SOLVER_MILLIS);
+    backend.setNodeOrdering(NODE_ORDERING);
+    installContractionHierarchy(backend, Path.of(filename));
+    installOverlayGraph(backend, Path.of(filename));
+    return backend;
+  }
+
+  // installs the contraction hierarchy of the loaded graph when it is enabled, loaded from the
+  // artifacts of the graph file or built and saved there
+  private static void installContractionHierarchy(BackendInterface backend, Path source)
+      throws IOException {
+    if (!CONTRACTION_HIERARCHY)
+      return;
+    SnapshotStore store = new SnapshotStore(source);
+    // the hierarchy ranks locations by their numbers in the node ordering, so it is only reused
+    // with the same ordering
+    String fingerprint = store.fingerprint() + "-" + NODE_ORDERING;
+    long startNanos = System.nanoTime();
+    ContractionHierarchy hierarchy = null;
+    try {
+      hierarchy = store.load(ContractionHierarchy.ARTIFACT_NAME, fingerprint,
+          backend::readContractionHierarchy);
+    } catch (IOException e) {
+      System.out.println("Could not read the saved contraction hierarchy: " + e.getMessage());
+    }
+    if (hierarchy != null) {
+      System.out.println("Loaded a contraction hierarchy with " + hierarchy.getArcCount()
+          + " arcs from " + store.getDirectory());
+    } else {
+      hierarchy = backend.buildContractionHierarchy();
+      System.out.println("Built a contraction hierarchy with " + hierarchy.getArcCount()
+          + " arcs in " + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+      try {
+        store.save(ContractionHierarchy.ARTIFACT_NAME, fingerprint, hierarchy::write);
+      } catch (IOException e) {
+        System.out.println("Could not save the contraction hierarchy: " + e.getMessage());
+      }
+    }
+    backend.setContractionHierarchy(hierarchy);
+  }
+
+  // installs the overlay graph of the loaded graph when it is enabled, with the partition loaded
+  // from the artifacts of the graph file or built and saved there, and cells that are loaded from
+  // and saved to the artifacts as queries need them
+  private static void installOverlayGraph(BackendInterface backend, Path source)
+      throws IOException {
+    if (OVERLAY_CELL_SIZES == null)
+      return;
+    int[] sizes = Stream.of(OVERLAY_CELL_SIZES.split(",")).map(String::trim)
+        .mapToInt(Integer::parseInt).toArray();
+    SnapshotStore store = new SnapshotStore(source);
+    // the partition numbers locations the way the node ordering does, so it is only reused with
+    // the same ordering
+    String fingerprint = store.fingerprint() + "-" + NODE_ORDERING;
+    String name = GraphPartition.artifactName(sizes);
+    GraphPartition partition = null;
+    try {
+      partition = store.load(name, fingerprint, backend::readGraphPartition);
+    } catch (IOException e) {
+      System.out.println("Could not read the saved partition: " + e.getMessage());
+    }
+    if (partition == null) {
+      long startNanos = System.nanoTime();
+      partition = backend.partitionGraph(sizes);
+      System.out.println("Partitioned the graph into " + partition.getCellCount(1)
+          + " cells in " + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+      store.save(name, fingerprint, partition::write);
+    }
+    OverlayGraph overlay = backend.buildOverlayGraph(partition, OVERLAY_MAX_CELLS);
+    overlay.setStore(store, fingerprint);
+    backend.setOverlayGraph(overlay);
+  }
+
+  // maps the binary graph file, compiling it from the source file first when
+  // it is missing or older than the source file
+  private static MappedGraph openGraphFile(Path source, Path binary) throws IOException {
+    if (!Files.exists(binary)
+        || Files.getLastModifiedTime(binary).compareTo(Files.getLastModifiedTime(source)) < 0) {
+      DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+      new Backend(graph).loadGraphData(source.toString());
+      GraphFile.compile(graph, binary);
+    }
+    return MappedGraph.open(binary);
+  }
+
+  // installs the furthest destinations saved for this graph file when its
+  // fingerprint still matches, and otherwise rebuilds them in the background,
+  // saving them for the next start once they are installed. queries are
+  // answered by searching until then. the contraction hierarchy and the
+  // overlay partition are saved next to them when they are installed
+  private static void loadArtifacts(BackendInterface backend, Path source) {
+    SnapshotStore store = new SnapshotStore(source);
+    String fingerprint;
+    try {
+      fingerprint = store.fingerprint();
+      FurthestDestinationIndex index = store.load(FurthestDestinationIndex.ARTIFACT_NAME,
+          fingerprint, FurthestDestinationIndex::read);
+      if (index != null) {
+        backend.setFurthestDestinationIndex(index);
+        System.out.println("Loaded furthest destinations for " + index.size() + " locations from "
+            + store.getDirectory());
+        return;
+      }
+    } catch (IOException e) {
+      System.out.println("Could not read saved artifacts: " + e.getMessage());
+      return;
+    }
+    Thread rebuild = new Thread(() -> {
+      long startNanos = System.nanoTime();
+      long version = backend.getGraphVersion();
+      FurthestDestinationIndex index = backend.buildFurthestDestinationIndex();
+      // a graph that changed during the build is no longer the one the index describes, or the
+      // one the fingerprint was taken of
+      if (!backend.setFurthestDestinationIndex(index, version)) {
+        System.out.println("Discarded furthest destinations built for a graph that has changed");
+        return;
+      }
+      System.out.println("Built furthest destinations for " + index.size() + " locations in "
+          + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+      try {
+        store.save(FurthestDestinationIndex.ARTIFACT_NAME, fingerprint, index::write);
+      } catch (IOException e) {
+        System.out.println("Could not save artifacts: " + e.getMessage());
+      }
+    }, "artifact-rebuild");
+    rebuild.setDaemon(true);
+    rebuild.start();
+  }
+
+  // renders the complete html page for a parsed query, the same way that
+  // requests to "/" are rendered
+  static String renderPage(Map<String, String> keyValuePairs, FrontendInterface frontend)
+      throws IOException {
+    RenderEvent event = new RenderEvent();
+    event.begin();
+    // compute answer to user's requested problem based on query args:
+    String response = generateResponseHTML(keyValuePairs, frontend);
+    // generate HTML prompts for user for make next requests
+    String prompts = generatePromptHTML(frontend);
+    // compose response and prompts into a complete html template
+    String html = composeHTML(response, prompts);
+    if (event.isEnabled())
+      event.finish(keyValuePairs.toString(), 200, html.length());
+    return html;
   }
 
   // creates the html response for the kind of question requeted (if any)
@@ -128,6 +592,12 @@ public class WebApp {
     } else if (keyValuePairs.containsKey("from")) {
       response += frontend.generateFurthestDestinationFromResponseHTML(keyValuePairs.get("from"))
           + "</div>";
+    } else if (keyValuePairs.containsKey("around")) {
+      response += frontend.generateReachableWithinResponseHTML(keyValuePairs.get("around"),
+          keyValuePairs.get("minutes")) + "</div>";
+    } else if (keyValuePairs.containsKey("group")) {
+      response += frontend.generateMeetingPointResponseHTML(keyValuePairs.get("group"),
+          keyValuePairs.get("objective")) + "</div>";
       // otherwise, leave response div blank
     } else
       response += "</div>";
@@ -141,16 +611,17 @@ public class WebApp {
         "<div id=\"firstPrompt\">" + frontend.generateShortestPathPromptHTML() + "</div>";
     String secondPrompt = "<div id=\"secondPrompt\">"
         + frontend.generateFurthestDestinationFromPromptHTML() + "</div>";
-    return firstPrompt + secondPrompt;
+    String thirdPrompt =
+        "<div id=\"thirdPrompt\">" + frontend.generateReachableWithinPromptHTML() + "</div>";
+    String fourthPrompt =
+        "<div id=\"fourthPrompt\">" + frontend.generateMeetingPointPromptHTML() + "</div>";
+    return firstPrompt + secondPrompt + thirdPrompt + fourthPrompt;
   }
 
   // compose reponse with prompts inside a complete html tree
   private static String composeHTML(String response, String prompts) throws IOException {
-    // read contents of template file into html string
-    String html = "";
-    Scanner in = new Scanner(new File("template.html"));
-    while (in.hasNextLine())
-      html += in.nextLine() + "\n";
+    // use the contents of the template file as html string
+    String html = loadTemplate();
 
     // replace placeholders for response and prompts
     html = html.replaceFirst("<!-- RESPONSE GOES HERE -->", response);
@@ -159,29 +630,61 @@ public class WebApp {
     return html;
   }
 
+  // reads the template file, keeping its contents until the file is modified
+  private static synchronized String loadTemplate() throws IOException {
+    FileTime modified = Files.getLastModifiedTime(TEMPLATE);
+    if (templateHTML == null || !modified.equals(templateModified)) {
+      TEMPLATE_MISSES.increment();
+      templateHTML = Files.readString(TEMPLATE);
+      templateModified = modified;
+    } else {
+      TEMPLATE_HITS.increment();
+    }
+    return templateHTML;
+  }
+
   // Since we cannot run a public webserver on the department's linux
   // machines, we are using a cgi script to pass the query argument to
   // the method below, and then displaying a response to standard out.
+  // When a daemon is running, the query is forwarded to it so that this
+  // process does not need to load the graph at all.
   public static void handleSingleResponse(String query) {
     try {
-      query = URLDecoder.decode(query, StandardCharsets.UTF_8);
-      Map<String, String> keyValuePairs = parseQuery(query);
+      System.out.println(WebAppDaemon.forward(DAEMON_SOCKET, query));
+      return;
+    } catch (IOException e) {
+      // no daemon is listening, so answer this query in process instead
+    }
+    System.out.println(renderSingleResponse(query));
+  }
 
-      // create backend and frontend objects to respond to this request
-      FrontendInterface frontend = createWorkingFrontend("./campus.dot");
-      // compute answer to user's requested problem based on query args:
-      String response = generateResponseHTML(keyValuePairs, frontend);
-      // generate HTML prompts for user for make next requests
-      String prompts = generatePromptHTML(frontend);
-      // compose response and prompts into a complete html template
-      String html = composeHTML(response, prompts);
+  // loads the graph once and answers queries forwarded by handleSingleResponse
+  private static void runDaemon(Path socketPath) throws IOException {
+    BackendInterface backend = createWorkingBackend("./campus.dot");
+    loadArtifacts(backend, Path.of("./campus.dot"));
+    sharedFrontend = new Frontend(backend);
+    // warm up before listening, so that forwarded queries only reach a warm daemon
+    warmUp(backend, WebApp::renderSingleResponse);
+    new WebAppDaemon(socketPath, WebApp::renderSingleResponse).serve(MAX_CONCURRENT_SEARCHES);
+  }
+
+  // computes the complete html page for a raw query string, or a report of
+  // the problem when something goes wrong
+  private static String renderSingleResponse(String query) {
+    try {
+      Map<String, String> keyValuePairs = parseQuery(query);
 
-      System.out.println(html);
+      // use the daemon's frontend, or create backend and frontend objects
+      // to respond to this request
+      FrontendInterface frontend = sharedFrontend;
+      if (frontend == null)
+        frontend = createWorkingFrontend("./campus.dot");
+      return renderPage(keyValuePairs, frontend);
 
       // unless something goes wrong, in which case report problem
     } catch (Exception e) {
-      System.out.println("Exception Thrown: " + e.toString());
       e.printStackTrace();
+      return "Exception Thrown: " + e.toString();
     }
   }
 }
@@ -0,0 +1,152 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * This WebAppDaemon keeps a loaded graph in a long-lived process and answers queries that are
+ * forwarded to it over a Unix domain socket. It lets index.cgi start a thin client that forwards
+ * the query string and prints the response, instead of starting a JVM that parses campus.dot and
+ * builds the graph for every single page view.
+ *
+ * The protocol is a single exchange per connection: the client writes the raw query string in
+ * UTF-8 and shuts down its output, then the daemon writes back the complete response and closes
+ * the connection.
+ */
+public class WebAppDaemon {
+
+  // size of the buffers used to read and write over the socket
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Path socketPath;
+  private final Function<String, String> renderer;
+  // the socket being listened on, or null before serve binds it
+  private volatile ServerSocketChannel server = null;
+
+  /**
+   * Constructor for a daemon that answers queries with the provided renderer.
+   * 
+   * @param socketPath the path of the Unix domain socket to listen on
+   * @param renderer   computes the complete response for a query string
+   */
+  public WebAppDaemon(Path socketPath, Function<String, String> renderer) {
+    this.socketPath = socketPath;
+    this.renderer = renderer;
+  }
+
+  /**
+   * Listens on the socket and answers forwarded queries until the process is stopped or close is
+   * called. A stale socket file left behind by an earlier daemon is replaced, but a socket that a
+   * running daemon still answers on is left alone.
+   * 
+   * @param threads the number of connections that may be answered at the same time
+   * @throws IOException if another daemon is listening on the socket, or it cannot be bound
+   */
+  public void serve(int threads) throws IOException {
+    if (Files.exists(socketPath)) {
+      if (isAnswering(socketPath))
+        throw new IOException("Another daemon is already listening on " + socketPath);
+      // nothing answered, so the file was left behind by a daemon that is gone
+      Files.deleteIfExists(socketPath);
+    }
+    ExecutorService workers = Executors.newFixedThreadPool(threads);
+    try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(socketPath));
+      this.server = server;
+      // remove the socket file again when the daemon shuts down
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          Files.deleteIfExists(socketPath);
+        } catch (IOException e) {
+        } // nothing left to do when this fails
+      }));
+      System.out.println("Campus Navigator daemon listening on " + socketPath);
+      while (true) {
+        SocketChannel client = server.accept();
+        workers.execute(() -> answer(client));
+      }
+    } catch (ClosedChannelException e) {
+      // close was called, so stop listening
+    } finally {
+      workers.shutdown();
+    }
+  }
+
+  /**
+   * Stops a daemon that is serving, and removes its socket file. Connections that are being
+   * answered are finished first.
+   * 
+   * @throws IOException if the socket cannot be closed or removed
+   */
+  public void close() throws IOException {
+    ServerSocketChannel listening = server;
+    if (listening != null) {
+      listening.close();
+      Files.deleteIfExists(socketPath);
+    }
+  }
+
+  // whether a daemon answers on the socket, by forwarding an empty query and reading the answer
+  // so that the daemon does not write to a closed connection
+  private static boolean isAnswering(Path socketPath) {
+    try (SocketChannel running = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+      running.shutdownOutput();
+      readFully(running);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  // reads one query from the connection, and writes back the rendered response
+  private void answer(SocketChannel client) {
+    try (client) {
+      String query = new String(readFully(client), StandardCharsets.UTF_8);
+      byte[] response = renderer.apply(query).getBytes(StandardCharsets.UTF_8);
+      ByteBuffer buffer = ByteBuffer.wrap(response);
+      while (buffer.hasRemaining())
+        client.write(buffer);
+    } catch (Exception e) {
+      RequestLog.getDefault().error("Exception Thrown: " + e.toString(), e);
+    }
+  }
+
+  /**
+   * Forwards a query string to a running daemon and returns its response.
+   * 
+   * @param socketPath the path of the Unix domain socket that the daemon listens on
+   * @param query      the query string to forward
+   * @return the response computed by the daemon
+   * @throws IOException if no daemon is listening on the socket, or the exchange fails
+   */
+  public static String forward(Path socketPath, String query) throws IOException {
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+      ByteBuffer request = ByteBuffer.wrap(query.getBytes(StandardCharsets.UTF_8));
+      while (request.hasRemaining())
+        channel.write(request);
+      channel.shutdownOutput();
+      return new String(readFully(channel), StandardCharsets.UTF_8);
+    }
+  }
+
+  // reads everything from the channel until the other side shuts down its output
+  private static byte[] readFully(SocketChannel channel) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    while (channel.read(buffer) >= 0) {
+      bytes.write(buffer.array(), 0, buffer.position());
+      buffer.clear();
+    }
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,86 @@
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for shortest path and furthest destination queries, on campus.dot and on graphs of
+ * each GraphGenerator shape. Every invocation queries the next of a fixed, seeded sequence of
+ * random location pairs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+  // number of random location pairs that the queries cycle through
+  private static final int PAIRS = 1024;
+
+  // campus.dot, or a generated graph of the named shape and size
+  @Param({"campus", "grid-10000", "grid-250000", "geometric-250000", "clustered-250000"})
+  public String graphName;
+
+  private DijkstraGraph<String, Double> graph;
+  private Backend backend;
+  private String[] starts = new String[PAIRS];
+  private String[] ends = new String[PAIRS];
+  private int next = 0;
+
+  @Setup
+  public void setup() throws IOException {
+    graph = new DijkstraGraph<>();
+    backend = new Backend(graph);
+    if (graphName.equals("campus"))
+      backend.loadGraphData("campus.dot");
+    else
+      generator(graphName).toBuilder().buildInto(graph);
+
+    List<String> locations = graph.getAllNodes();
+    Random random = new Random(42);
+    for (int i = 0; i < PAIRS; i++) {
+      starts[i] = locations.get(random.nextInt(locations.size()));
+      ends[i] = locations.get(random.nextInt(locations.size()));
+    }
+  }
+
+  /**
+   * Creates the generator for a graph named like "geometric-250000", with a fixed seed and a
+   * little asymmetry.
+   *
+   * @param name the shape followed by the number of nodes
+   * @return the generator of the named graph
+   */
+  static GraphGenerator generator(String name) {
+    int dash = name.indexOf('-');
+    return new GraphGenerator(GraphGenerator.Shape.valueOf(name.substring(0, dash).toUpperCase()),
+        Integer.parseInt(name.substring(dash + 1)), 42).setAsymmetry(0.1);
+  }
+
+  @Benchmark
+  public List<String> shortestPathData() {
+    int pair = next;
+    next = (pair + 1) % PAIRS;
+    return graph.shortestPathData(starts[pair], ends[pair]);
+  }
+
+  @Benchmark
+  public String getFurthestDestinationFrom() {
+    int pair = next;
+    next = (pair + 1) % PAIRS;
+    return backend.getFurthestDestinationFrom(starts[pair]);
+  }
+}
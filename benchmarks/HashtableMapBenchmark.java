@@ -0,0 +1,99 @@
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the HashtableMap operations at different map sizes. Keys are location-like
+ * strings, and every operation picks the next key from a shuffled array, so that lookups do not
+ * always hit the same bucket.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashtableMapBenchmark {
+
+  @Param({"100", "10000", "1000000"})
+  public int size;
+
+  private HashtableMap<String, Integer> map;
+  // keys in the map, and keys that are not, in a random order
+  private String[] present;
+  private String[] absent;
+  private int next = 0;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    map = new HashtableMap<>();
+    present = new String[size];
+    absent = new String[size];
+    for (int i = 0; i < size; i++) {
+      present[i] = "Building " + i;
+      absent[i] = "Missing " + i;
+      map.put(present[i], i);
+    }
+    shuffle(present, random);
+    shuffle(absent, random);
+  }
+
+  private static void shuffle(String[] keys, Random random) {
+    for (int i = keys.length - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      String key = keys[i];
+      keys[i] = keys[j];
+      keys[j] = key;
+    }
+  }
+
+  // moves on to the next key, wrapping around at the end of the arrays
+  private int nextIndex() {
+    int index = next;
+    next = index + 1 == size ? 0 : index + 1;
+    return index;
+  }
+
+  @Benchmark
+  public Integer get() {
+    return map.get(present[nextIndex()]);
+  }
+
+  @Benchmark
+  public boolean containsKeyHit() {
+    return map.containsKey(present[nextIndex()]);
+  }
+
+  @Benchmark
+  public boolean containsKeyMiss() {
+    return map.containsKey(absent[nextIndex()]);
+  }
+
+  // removes a key and puts it back, so that the map keeps its size across invocations
+  @Benchmark
+  public Integer removeThenPut() {
+    String key = present[nextIndex()];
+    Integer value = map.remove(key);
+    map.put(key, value);
+    return value;
+  }
+
+  // puts a new key and removes it again, which measures put without growing the map
+  @Benchmark
+  public Integer putThenRemove() {
+    String key = absent[nextIndex()];
+    map.put(key, 0);
+    return map.remove(key);
+  }
+}
@@ -0,0 +1,59 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for Backend.loadGraphData on campus.dot and on dot files of larger generated graphs,
+ * which are written once before the benchmark starts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+  // campus.dot, or a dot file of a generated graph of the named shape and size
+  @Param({"campus", "grid-100000", "geometric-100000"})
+  public String graphName;
+
+  private Path file;
+  private Backend backend;
+
+  @Setup
+  public void setup() throws IOException {
+    backend = new Backend(new DijkstraGraph<>());
+    if (graphName.equals("campus")) {
+      file = Path.of("campus.dot");
+      return;
+    }
+    file = Files.createTempFile(graphName, ".dot");
+    GraphBenchmark.generator(graphName).writeDot(file);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    if (!graphName.equals("campus"))
+      Files.delete(file);
+  }
+
+  @Benchmark
+  public LoadReport loadGraphData() throws IOException {
+    backend.loadGraphData(file.toString());
+    return backend.getLastLoadReport();
+  }
+}
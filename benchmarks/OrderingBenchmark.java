@@ -0,0 +1,65 @@
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for point-to-point queries over compact snapshots of generated graphs whose locations
+ * are renumbered by each NodeOrdering strategy. Queries name their locations and cycle through
+ * the same seeded random pairs for every strategy, so only the numbering differs. Run it with
+ * PROF=perfnorm to report the cache misses of every query along with its time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderingBenchmark {
+
+  // number of random location pairs that the queries cycle through
+  private static final int PAIRS = 1024;
+
+  // a generated graph of the named shape and size
+  @Param({"grid-250000", "geometric-250000", "clustered-250000"})
+  public String graphName;
+
+  @Param({"NONE", "BFS", "DFS", "REVERSE_CUTHILL_MCKEE", "PARTITION"})
+  public NodeOrdering.Strategy strategy;
+
+  private NodeOrdering.PathSearch search;
+  private String[] starts = new String[PAIRS];
+  private String[] ends = new String[PAIRS];
+  private int next = 0;
+
+  @Setup
+  public void setup() {
+    DijkstraGraph<String, Double> loaded = new DijkstraGraph<>();
+    GraphBenchmark.generator(graphName).toBuilder().buildInto(loaded);
+    search = new NodeOrdering.PathSearch(NodeOrdering.reorder(CompactGraph.of(loaded), strategy));
+
+    List<String> locations = loaded.getAllNodes();
+    Random random = new Random(42);
+    for (int i = 0; i < PAIRS; i++) {
+      starts[i] = locations.get(random.nextInt(locations.size()));
+      ends[i] = locations.get(random.nextInt(locations.size()));
+    }
+  }
+
+  @Benchmark
+  public double shortestPathCost() {
+    int pair = next;
+    next = (pair + 1) % PAIRS;
+    return search.cost(starts[pair], ends[pair]);
+  }
+}
@@ -0,0 +1,112 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for requests to "/", sent over loopback to a server created by WebApp.createServer,
+ * so that they take the whole path of WebApp.requestHandler: admission, parsing the query string,
+ * searching, rendering the response and prompts, filling in the page template and writing the
+ * response. The template is a minimal one written to a temporary file, since template.html is
+ * kept outside of the repository, so only campus.dot is needed in the working directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+  // number of random queries that the benchmarks cycle through
+  private static final int QUERIES = 1024;
+
+  private Path template;
+  private HttpServer server;
+  private HttpClient client;
+  private URI base;
+  private String[] pathQueries = new String[QUERIES];
+  private String[] furthestQueries = new String[QUERIES];
+  private int next = 0;
+
+  @Setup
+  public void setup() throws IOException {
+    // WebApp reads the template path when it is first used, so it is configured before that
+    template = Files.createTempFile("template", ".html");
+    Files.writeString(template, "<!DOCTYPE html>\n<html><body>\n<!-- RESPONSE GOES HERE -->\n"
+        + "<!-- PROMPTS GO HERE -->\n</body></html>\n");
+    System.setProperty("campus.template", template.toString());
+
+    Backend backend = new Backend(new DijkstraGraph<>());
+    backend.loadGraphData("campus.dot");
+    server = WebApp.createServer(new InetSocketAddress("localhost", 0), backend);
+    server.start();
+    base = URI.create("http://localhost:" + server.getAddress().getPort());
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    List<String> locations = backend.getListOfAllLocations();
+    Random random = new Random(42);
+    for (int i = 0; i < QUERIES; i++) {
+      String start = URLEncoder.encode(locations.get(random.nextInt(locations.size())),
+          StandardCharsets.UTF_8);
+      String end = URLEncoder.encode(locations.get(random.nextInt(locations.size())),
+          StandardCharsets.UTF_8);
+      pathQueries[i] = "/?start=" + start + "&end=" + end;
+      furthestQueries[i] = "/?from=" + start;
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    server.stop(0);
+    Files.deleteIfExists(template);
+  }
+
+  private byte[] request(String path) throws IOException, InterruptedException {
+    HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(base.resolve(path)).build(),
+        HttpResponse.BodyHandlers.ofByteArray());
+    if (response.statusCode() != 200)
+      throw new IllegalStateException("Status " + response.statusCode() + " for " + path);
+    return response.body();
+  }
+
+  @Benchmark
+  public byte[] renderShortestPath() throws IOException, InterruptedException {
+    int query = next;
+    next = (query + 1) % QUERIES;
+    return request(pathQueries[query]);
+  }
+
+  @Benchmark
+  public byte[] renderFurthestDestination() throws IOException, InterruptedException {
+    int query = next;
+    next = (query + 1) % QUERIES;
+    return request(furthestQueries[query]);
+  }
+
+  @Benchmark
+  public byte[] renderPrompts() throws IOException, InterruptedException {
+    return request("/");
+  }
+}